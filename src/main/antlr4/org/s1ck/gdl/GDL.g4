@@ -41,13 +41,33 @@ graph
     ;
 
 query
-    : match where*
+    : match where* returnClause? skip? limit?
+    ;
+
+returnClause
+    : Return returnItem (',' returnItem)*
+    ;
+
+returnItem
+    : (aggregation | propertyLookup | identifier) (As identifier)?
+    ;
+
+aggregation
+    : Identifier '(' ('*' | propertyLookup | identifier) ')'
     ;
 
 match
     : MATCH (path ','?)+
     ;
 
+skip
+    : Skip (IntegerLiteral | Parameter)
+    ;
+
+limit
+    : Limit (IntegerLiteral | Parameter)
+    ;
+
 path
     : vertex (edge vertex)*
     ;
@@ -70,7 +90,7 @@ edgeLength
     ;
 
 header
-    : Identifier? label*
+    : identifier? label*
     ;
 
 properties
@@ -78,11 +98,11 @@ properties
     ;
 
 property
-    : Identifier Colon (literal | listLiteral | vectorLiteral)
+    : identifier Colon (literal | listLiteral | vectorLiteral)
     ;
 
 label
-    : Colon Identifier
+    : Colon identifier
     ;
 
 where
@@ -110,15 +130,36 @@ comparisonExpression
     ;
 
 comparisonElement
-    : Identifier
+    : identifier
     | propertyLookup
     | literal
+    | vectorFunction
+    ;
+
+// e.g. cosine(a.embedding, vector([1.0f, 0.0f])), the function name is checked by the loader
+vectorFunction
+    : Identifier '(' vectorArgument ',' vectorArgument ')'
+    ;
+
+vectorArgument
+    : propertyLookup
+    | vectorLiteral
+    | Parameter
     ;
 
 parenthesizedExpression : '(' expression ')' ;
 
 propertyLookup
-    : Identifier '.' Identifier
+    : identifier '.' identifier
+    ;
+
+// variables, labels and property keys, the query keywords are only reserved where a clause starts
+identifier
+    : Identifier
+    | Return
+    | As
+    | Skip
+    | Limit
     ;
 
 listLiteral
@@ -129,8 +170,10 @@ literalList
     : (literal (',' WS? literal)* )?
     ;
 
+// either a list of elements or base64 encoded little-endian elements, e.g. vector(f32:"AACAPw==")
 vectorLiteral
     : VectorOpen WS? listLiteral WS? ')'
+    | VectorOpen Identifier Colon StringLiteral ')'
     ;
 
 literal
@@ -140,6 +183,7 @@ literal
     | FloatingPointLiteral
     | NaN
     | Null
+    | Parameter
     ;
 
 //-------------------------------
@@ -250,6 +294,22 @@ CREATE
     : 'CREATE'
     ;
 
+Return
+    : 'RETURN'
+    ;
+
+As
+    : 'AS'
+    ;
+
+Skip
+    : 'SKIP'
+    ;
+
+Limit
+    : 'LIMIT'
+    ;
+
 // opens a vector literal, e.g. vector([1.0f, 3.0f]). Only matches when directly followed by '(',
 // so that 'vector' stays usable as an identifier, label or property key.
 VectorOpen
@@ -260,6 +320,11 @@ NaN
     : 'NaN'
     ;
 
+// placeholder for a literal value bound when a template is instantiated, e.g. $name
+Parameter
+    : '$' (UnderScore | Character)+
+    ;
+
 Null
     : 'NULL'
     ;
@@ -0,0 +1,912 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl;
+
+import org.s1ck.gdl.model.Edge;
+import org.s1ck.gdl.model.Element;
+import org.s1ck.gdl.model.Graph;
+import org.s1ck.gdl.model.GraphElement;
+import org.s1ck.gdl.model.Vertex;
+import org.s1ck.gdl.model.values.DoubleVectorLiteral;
+import org.s1ck.gdl.model.values.FloatVectorLiteral;
+import org.s1ck.gdl.model.values.PrimitiveList;
+import org.s1ck.gdl.model.values.VectorLiteral;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+/**
+ * Exports graphs, vertices and edges to CSV or JSON Lines files that can be read by a
+ * {@link BulkImporter} and by other tools.
+ *
+ * <p>CSV exports hold one file per element kind and label, e.g. {@code vertices_User.csv} and
+ * {@code edges_knows.csv}, named by the first label of an element. The header holds the reserved
+ * columns of the {@link BulkImporter} followed by one typed column per property key and type, e.g.
+ * {@code age:int}; a value is written in the column of its type and left empty in all others.
+ * JSON Lines exports hold one file per element kind, e.g. {@code vertices.jsonl}. Keys of values
+ * whose type would not be inferred from JSON, i.e. long, float, lists of those and vectors, carry
+ * the type like a CSV column, e.g. {@code "score:float" : 1.5}, so that they are imported with
+ * their original type.
+ *
+ * <p>Variables identify elements in {@code :id}, {@code :source}, {@code :target} and
+ * {@code :graphs}, elements without a variable are written as {@code __v<id>}. {@code null}
+ * property values are left out of CSV files. Values the format cannot represent are rejected with
+ * an {@link IllegalArgumentException}, e.g. lists with mixed element types in CSV, labels or list
+ * elements containing the list delimiter, strings containing line breaks in CSV, or infinite
+ * numbers in JSON.
+ *
+ * <p>Elements are encoded in partitions by several threads into reused buffers, which are written
+ * to a file channel in element order.
+ */
+public class BulkExporter {
+
+  /**
+   * Number of elements encoded by one task
+   */
+  private static final int PARTITION_SIZE = 4096;
+
+  /**
+   * Size at which a buffer of the sequential export is written
+   */
+  private static final int FLUSH_SIZE = 1 << 20;
+
+  private static final String CSV_SUFFIX = ".csv";
+
+  private static final String JSON_SUFFIX = ".jsonl";
+
+  /**
+   * Types of CSV columns and typed JSON keys
+   */
+  private static final Pattern TYPE_NAME =
+    Pattern.compile("(string|int|long|float|double|boolean)(\\[])?|(float|double)_vector");
+
+  private final BulkImporter.Format format;
+
+  private final char delimiter;
+
+  private final char listDelimiter;
+
+  private final int threads;
+
+  private BulkExporter(BulkImporter.Format format, char delimiter, char listDelimiter, int threads) {
+    this.format = format;
+    this.delimiter = delimiter;
+    this.listDelimiter = listDelimiter;
+    this.threads = threads;
+  }
+
+  /**
+   * Exports all graphs, vertices and edges of a handler.
+   *
+   * @param handler database
+   * @param directory output directory, created if missing; existing files are replaced
+   * @return written files
+   * @throws IOException if writing fails
+   */
+  public List<Path> export(GDLHandler handler, Path directory) throws IOException {
+    return export(handler.getGraphs(), handler.getVertices(), handler.getEdges(), directory);
+  }
+
+  /**
+   * Exports the given elements. Elements are written in ascending id order.
+   *
+   * @param graphs graphs
+   * @param vertices vertices
+   * @param edges edges
+   * @param directory output directory, created if missing; existing files are replaced
+   * @return written files
+   * @throws IOException if writing fails
+   * @throws IllegalArgumentException if a value cannot be written in the format
+   */
+  public List<Path> export(Collection<Graph> graphs, Collection<Vertex> vertices, Collection<Edge> edges,
+    Path directory) throws IOException {
+    Files.createDirectories(directory);
+    Map<Long, String> graphIds = new HashMap<>();
+    for (Graph graph : graphs) {
+      graphIds.put(graph.getId(), id(graph, "__g"));
+    }
+    Map<Long, String> vertexIds = new HashMap<>();
+    for (Vertex vertex : vertices) {
+      vertexIds.put(vertex.getId(), id(vertex, "__v"));
+    }
+
+    ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+    try {
+      List<Path> files = new ArrayList<>();
+      Set<String> names = new HashSet<>();
+      files.addAll(export("graphs", sorted(graphs), new Kind("__g", graphIds, null), directory, names, executor));
+      files.addAll(export("vertices", sorted(vertices), new Kind("__v", graphIds, null), directory, names, executor));
+      files.addAll(export("edges", sorted(edges), new Kind("__e", graphIds, vertexIds), directory, names, executor));
+      return files;
+    } finally {
+      if (executor != null) {
+        executor.shutdown();
+      }
+    }
+  }
+
+  private static <T extends Element> List<T> sorted(Collection<T> elements) {
+    List<T> sorted = new ArrayList<>(elements);
+    sorted.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+    return sorted;
+  }
+
+  private static String id(Element element, String prefix) {
+    return element.getVariable() != null ? element.getVariable() : prefix + element.getId();
+  }
+
+  /**
+   * Writes the files of one element kind.
+   */
+  private List<Path> export(String name, List<? extends Element> elements, Kind kind, Path directory,
+    Set<String> names, ExecutorService executor) throws IOException {
+    List<Path> files = new ArrayList<>();
+    if (elements.isEmpty()) {
+      return files;
+    }
+    if (format == BulkImporter.Format.JSON_LINES) {
+      Path file = directory.resolve(name + JSON_SUFFIX);
+      writeFile(file, null, elements, (element, out) -> encodeJson(element, kind, out), executor);
+      files.add(file);
+      return files;
+    }
+
+    Map<String, List<Element>> groups = new LinkedHashMap<>();
+    for (Element element : elements) {
+      String label = element.getLabels() == null || element.getLabels().isEmpty() ? "" : element.getLabels().get(0);
+      groups.computeIfAbsent(label, l -> new ArrayList<>()).add(element);
+    }
+    for (Map.Entry<String, List<Element>> group : groups.entrySet()) {
+      Column[] columns = columns(group.getValue());
+      Path file = directory.resolve(fileName(name, group.getKey(), names));
+      Utf8Buffer header = new Utf8Buffer();
+      encodeCsvHeader(kind, columns, header);
+      writeFile(file, header, group.getValue(), (element, out) -> encodeCsv(element, kind, columns, out), executor);
+      files.add(file);
+    }
+    return files;
+  }
+
+  /**
+   * Returns a unique file name for a label, replacing characters that are not safe in file names.
+   */
+  private static String fileName(String name, String label, Set<String> names) {
+    StringBuilder builder = new StringBuilder(name);
+    if (!label.isEmpty()) {
+      builder.append('_');
+      for (int i = 0; i < label.length(); i++) {
+        char c = label.charAt(i);
+        builder.append(Character.isLetterOrDigit(c) || c == '_' || c == '-' ? c : '_');
+      }
+    }
+    String base = builder.toString();
+    String fileName = base + CSV_SUFFIX;
+    for (int i = 2; !names.add(fileName.toLowerCase()); i++) {
+      fileName = base + "_" + i + CSV_SUFFIX;
+    }
+    return fileName;
+  }
+
+  /**
+   * Encodes the elements in partitions, concurrently if an executor is given, and writes them in
+   * order.
+   */
+  private void writeFile(Path file, Utf8Buffer header, List<? extends Element> elements, Encoder encoder,
+    ExecutorService executor) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+      StandardOpenOption.TRUNCATE_EXISTING)) {
+      if (header != null) {
+        header.writeTo(channel);
+      }
+      if (executor == null || elements.size() <= PARTITION_SIZE) {
+        Utf8Buffer out = new Utf8Buffer();
+        for (Element element : elements) {
+          encoder.encode(element, out);
+          if (out.size >= FLUSH_SIZE) {
+            out.writeTo(channel);
+          }
+        }
+        out.writeTo(channel);
+        return;
+      }
+
+      Queue<Utf8Buffer> pool = new ConcurrentLinkedQueue<>();
+      Deque<Future<Utf8Buffer>> pending = new ArrayDeque<>();
+      try {
+        for (int from = 0; from < elements.size(); from += PARTITION_SIZE) {
+          int first = from;
+          int last = Math.min(elements.size(), from + PARTITION_SIZE);
+          pending.add(executor.submit(() -> {
+            Utf8Buffer out = pool.poll();
+            out = out != null ? out : new Utf8Buffer();
+            for (int i = first; i < last; i++) {
+              encoder.encode(elements.get(i), out);
+            }
+            return out;
+          }));
+          if (pending.size() >= 2 * threads) {
+            write(pending.poll(), channel, pool);
+          }
+        }
+        while (!pending.isEmpty()) {
+          write(pending.poll(), channel, pool);
+        }
+      } finally {
+        for (Future<Utf8Buffer> future : pending) {
+          future.cancel(true);
+        }
+      }
+    }
+  }
+
+  private static void write(Future<Utf8Buffer> future, FileChannel channel, Queue<Utf8Buffer> pool)
+    throws IOException {
+    Utf8Buffer out;
+    try {
+      out = future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+    out.writeTo(channel);
+    pool.offer(out);
+  }
+
+  // --------------------------------------------------------------------------------------------
+  //  CSV
+  // --------------------------------------------------------------------------------------------
+
+  /**
+   * Returns the property columns of a group of elements, sorted by key and type.
+   */
+  private static Column[] columns(List<Element> elements) {
+    Map<String, Column> columns = new TreeMap<>();
+    for (Element element : elements) {
+      if (element.getProperties() == null) {
+        continue;
+      }
+      for (Map.Entry<String, Object> property : element.getProperties().entrySet()) {
+        if (property.getValue() == null) {
+          continue;
+        }
+        String type = csvType(property.getKey(), property.getValue());
+        columns.computeIfAbsent(property.getKey() + ":" + type, header -> new Column(property.getKey(), type, header));
+      }
+    }
+    return columns.values().toArray(new Column[0]);
+  }
+
+  /**
+   * Returns the column type of a value, see {@link BulkImporter}.
+   */
+  private static String csvType(String key, Object value) {
+    String type = scalarType(value.getClass());
+    if (type != null) {
+      return type;
+    } else if (value instanceof FloatVectorLiteral) {
+      return "float_vector";
+    } else if (value instanceof DoubleVectorLiteral) {
+      return "double_vector";
+    } else if (value instanceof PrimitiveList) {
+      return scalarType(((PrimitiveList<?>) value).getElementType()) + "[]";
+    } else if (value instanceof List) {
+      Class<?> elementType = elementType((List<?>) value);
+      if (((List<?>) value).isEmpty()) {
+        return "string[]";
+      } else if (elementType != null && scalarType(elementType) != null) {
+        return scalarType(elementType) + "[]";
+      }
+    }
+    throw unsupported(key, value, "CSV");
+  }
+
+  /**
+   * Returns the class shared by all elements of a list or {@code null} if there is none.
+   */
+  private static Class<?> elementType(List<?> list) {
+    Class<?> elementType = null;
+    for (Object element : list) {
+      if (element == null || (elementType != null && element.getClass() != elementType)) {
+        return null;
+      }
+      elementType = element.getClass();
+    }
+    return elementType;
+  }
+
+  private static String scalarType(Class<?> type) {
+    if (type == String.class) {
+      return "string";
+    } else if (type == Integer.class) {
+      return "int";
+    } else if (type == Long.class) {
+      return "long";
+    } else if (type == Float.class) {
+      return "float";
+    } else if (type == Double.class) {
+      return "double";
+    } else if (type == Boolean.class) {
+      return "boolean";
+    }
+    return null;
+  }
+
+  private void encodeCsvHeader(Kind kind, Column[] columns, Utf8Buffer out) {
+    out.ascii(":id");
+    if (kind.vertexIds != null) {
+      out.ascii(delimiter).ascii(":source").ascii(delimiter).ascii(":target");
+    }
+    out.ascii(delimiter).ascii(":labels").ascii(delimiter).ascii(":graphs");
+    for (Column column : columns) {
+      out.ascii(delimiter);
+      csvField(column.header, false, out);
+    }
+    out.ascii('\n');
+  }
+
+  private void encodeCsv(Element element, Kind kind, Column[] columns, Utf8Buffer out) {
+    csvField(id(element, kind.prefix), false, out);
+    if (kind.vertexIds != null) {
+      Edge edge = (Edge) element;
+      out.ascii(delimiter);
+      csvField(kind.vertexId(edge.getSourceVertexId()), false, out);
+      out.ascii(delimiter);
+      csvField(kind.vertexId(edge.getTargetVertexId()), false, out);
+    }
+    out.ascii(delimiter);
+    if (element.getLabels() != null && !element.getLabels().isEmpty()) {
+      csvList(element.getLabels(), out);
+    }
+    out.ascii(delimiter);
+    if (element instanceof GraphElement && !((GraphElement) element).getGraphs().isEmpty()) {
+      List<String> graphs = new ArrayList<>();
+      for (Long graph : ((GraphElement) element).getGraphs()) {
+        graphs.add(kind.graphId(graph));
+      }
+      csvList(graphs, out);
+    }
+    Map<String, Object> properties = element.getProperties();
+    for (Column column : columns) {
+      out.ascii(delimiter);
+      Object value = properties != null ? properties.get(column.key) : null;
+      if (value != null && column.type.equals(csvType(column.key, value))) {
+        csvValue(column, value, out);
+      }
+    }
+    out.ascii('\n');
+  }
+
+  private void csvValue(Column column, Object value, Utf8Buffer out) {
+    if (value instanceof String) {
+      csvField((String) value, false, out);
+    } else if (value instanceof Integer || value instanceof Long) {
+      out.number(((Number) value).longValue());
+    } else if (value instanceof Float || value instanceof Double || value instanceof Boolean) {
+      out.ascii(value.toString());
+    } else if (value instanceof VectorLiteral) {
+      VectorLiteral vector = (VectorLiteral) value;
+      if (vector.size() == 0) {
+        out.ascii("\"\"");
+      }
+      for (int i = 0; i < vector.size(); i++) {
+        if (i > 0) {
+          out.ascii(listDelimiter);
+        }
+        out.ascii(vector instanceof FloatVectorLiteral ?
+          Float.toString(((FloatVectorLiteral) vector).getFloat(i)) : Double.toString(vector.getDouble(i)));
+      }
+    } else {
+      List<?> list = (List<?>) value;
+      if (list.isEmpty()) {
+        out.ascii("\"\"");
+      } else if (list.get(0) instanceof String) {
+        csvList(list, out);
+      } else {
+        for (int i = 0; i < list.size(); i++) {
+          if (i > 0) {
+            out.ascii(listDelimiter);
+          }
+          Object element = list.get(i);
+          if (element instanceof Integer || element instanceof Long) {
+            out.number(((Number) element).longValue());
+          } else {
+            out.ascii(element.toString());
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes list elements separated by the list delimiter as one field.
+   */
+  private void csvList(List<?> elements, Utf8Buffer out) {
+    boolean quote = false;
+    for (Object element : elements) {
+      String text = (String) element;
+      if (text.indexOf(listDelimiter) >= 0 || text.isEmpty() && elements.size() > 1) {
+        throw new IllegalArgumentException(String.format(
+          "List element '%s' cannot be written, it is empty or contains the list delimiter", text));
+      }
+      quote |= needsQuotes(text);
+    }
+    if (quote || elements.size() == 1 && ((String) elements.get(0)).isEmpty()) {
+      out.ascii('"');
+    }
+    for (int i = 0; i < elements.size(); i++) {
+      if (i > 0) {
+        out.ascii(listDelimiter);
+      }
+      csvField((String) elements.get(i), true, out);
+    }
+    if (quote || elements.size() == 1 && ((String) elements.get(0)).isEmpty()) {
+      out.ascii('"');
+    }
+  }
+
+  /**
+   * Writes a string field, quoted if necessary. Inside a quoted list only quotes are escaped.
+   */
+  private void csvField(String text, boolean inQuotedList, Utf8Buffer out) {
+    if (text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+      throw new IllegalArgumentException(String.format(
+        "Field '%s' cannot be written as CSV, it contains a line break", text));
+    }
+    boolean quote = !inQuotedList && (text.isEmpty() || needsQuotes(text));
+    if (quote) {
+      out.ascii('"');
+    }
+    if (text.indexOf('"') < 0) {
+      out.string(text);
+    } else {
+      for (int i = 0; i < text.length(); i++) {
+        char c = text.charAt(i);
+        if (c == '"') {
+          out.ascii('"');
+        }
+        out.character(c, text, i);
+        if (Character.isHighSurrogate(c) && i + 1 < text.length()) {
+          i++;
+        }
+      }
+    }
+    if (quote) {
+      out.ascii('"');
+    }
+  }
+
+  private boolean needsQuotes(String text) {
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == delimiter || c == '"') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // --------------------------------------------------------------------------------------------
+  //  JSON Lines
+  // --------------------------------------------------------------------------------------------
+
+  private static void encodeJson(Element element, Kind kind, Utf8Buffer out) {
+    out.ascii("{\":id\":");
+    jsonString(id(element, kind.prefix), out);
+    if (kind.vertexIds != null) {
+      Edge edge = (Edge) element;
+      out.ascii(",\":source\":");
+      jsonString(kind.vertexId(edge.getSourceVertexId()), out);
+      out.ascii(",\":target\":");
+      jsonString(kind.vertexId(edge.getTargetVertexId()), out);
+    }
+    if (element.getLabels() != null && !element.getLabels().isEmpty()) {
+      out.ascii(",\":labels\":[");
+      for (int i = 0; i < element.getLabels().size(); i++) {
+        if (i > 0) {
+          out.ascii(',');
+        }
+        jsonString(element.getLabels().get(i), out);
+      }
+      out.ascii(']');
+    }
+    if (element instanceof GraphElement && !((GraphElement) element).getGraphs().isEmpty()) {
+      out.ascii(",\":graphs\":[");
+      boolean first = true;
+      for (Long graph : ((GraphElement) element).getGraphs()) {
+        if (!first) {
+          out.ascii(',');
+        }
+        first = false;
+        jsonString(kind.graphId(graph), out);
+      }
+      out.ascii(']');
+    }
+    if (element.getProperties() != null) {
+      for (Map.Entry<String, Object> property : element.getProperties().entrySet()) {
+        out.ascii(',');
+        String type = jsonType(property.getKey(), property.getValue());
+        jsonString(type != null ? property.getKey() + ":" + type : property.getKey(), out);
+        out.ascii(':');
+        jsonValue(property.getKey(), property.getValue(), true, out);
+      }
+    }
+    out.ascii("}\n");
+  }
+
+  /**
+   * Returns the type appended to the key of a value or {@code null} if the {@link BulkImporter}
+   * infers it from the JSON value.
+   */
+  private static String jsonType(String key, Object value) {
+    String type = null;
+    if (value instanceof Long || value instanceof Float || value instanceof VectorLiteral) {
+      type = csvType(key, value);
+    } else if (value instanceof List) {
+      Class<?> elementType = value instanceof PrimitiveList ?
+        ((PrimitiveList<?>) value).getElementType() : elementType((List<?>) value);
+      if (elementType == Long.class || elementType == Float.class) {
+        type = scalarType(elementType) + "[]";
+      }
+    }
+    int colon = key.lastIndexOf(':');
+    if (type == null && colon >= 0 && TYPE_NAME.matcher(key.substring(colon + 1).toLowerCase()).matches()) {
+      // the key would be read as typed
+      try {
+        type = value == null ? "string" : csvType(key, value);
+      } catch (IllegalArgumentException e) {
+        throw unsupported(key, value, "JSON");
+      }
+    }
+    return type;
+  }
+
+  private static void jsonValue(String key, Object value, boolean allowArray, Utf8Buffer out) {
+    if (value == null) {
+      out.ascii("null");
+    } else if (value instanceof String) {
+      jsonString((String) value, out);
+    } else if (value instanceof Integer || value instanceof Long) {
+      out.number(((Number) value).longValue());
+    } else if (value instanceof Float || value instanceof Double) {
+      double number = ((Number) value).doubleValue();
+      if (Double.isNaN(number) || Double.isInfinite(number)) {
+        throw unsupported(key, value, "JSON");
+      }
+      out.ascii(value.toString());
+    } else if (value instanceof Boolean) {
+      out.ascii(value.toString());
+    } else if (allowArray && value instanceof VectorLiteral) {
+      VectorLiteral vector = (VectorLiteral) value;
+      out.ascii('[');
+      for (int i = 0; i < vector.size(); i++) {
+        if (i > 0) {
+          out.ascii(',');
+        }
+        jsonValue(key, vector instanceof FloatVectorLiteral ?
+          (Object) ((FloatVectorLiteral) vector).getFloat(i) : (Object) vector.getDouble(i), false, out);
+      }
+      out.ascii(']');
+    } else if (allowArray && value instanceof List) {
+      List<?> list = (List<?>) value;
+      out.ascii('[');
+      for (int i = 0; i < list.size(); i++) {
+        if (i > 0) {
+          out.ascii(',');
+        }
+        jsonValue(key, list.get(i), false, out);
+      }
+      out.ascii(']');
+    } else {
+      throw unsupported(key, value, "JSON");
+    }
+  }
+
+  private static void jsonString(String text, Utf8Buffer out) {
+    out.ascii('"');
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '"' || c == '\\') {
+        out.ascii('\\').ascii(c);
+      } else if (c == '\n') {
+        out.ascii("\\n");
+      } else if (c == '\r') {
+        out.ascii("\\r");
+      } else if (c == '\t') {
+        out.ascii("\\t");
+      } else if (c < 0x20) {
+        out.ascii("\\u00").ascii(Character.forDigit(c >> 4, 16)).ascii(Character.forDigit(c & 0xF, 16));
+      } else {
+        out.character(c, text, i);
+        if (Character.isHighSurrogate(c) && i + 1 < text.length()) {
+          i++;
+        }
+      }
+    }
+    out.ascii('"');
+  }
+
+  private static IllegalArgumentException unsupported(String key, Object value, String format) {
+    return new IllegalArgumentException(String.format(
+      "Value of property '%s' cannot be written as %s: %s (%s)", key, format, value, value.getClass().getSimpleName()));
+  }
+
+  /**
+   * Encodes one element
+   */
+  private interface Encoder {
+    void encode(Element element, Utf8Buffer out);
+  }
+
+  /**
+   * Element kind and the ids of referenced elements
+   */
+  private static final class Kind {
+    private final String prefix;
+    private final Map<Long, String> graphIds;
+    private final Map<Long, String> vertexIds;
+
+    private Kind(String prefix, Map<Long, String> graphIds, Map<Long, String> vertexIds) {
+      this.prefix = prefix;
+      this.graphIds = graphIds;
+      this.vertexIds = vertexIds;
+    }
+
+    private String graphId(Long id) {
+      String graph = graphIds.get(id);
+      if (graph == null) {
+        throw new IllegalArgumentException(String.format("Graph %d is not exported", id));
+      }
+      return graph;
+    }
+
+    private String vertexId(Long id) {
+      String vertex = vertexIds.get(id);
+      if (vertex == null) {
+        throw new IllegalArgumentException(String.format("Vertex %d is not exported", id));
+      }
+      return vertex;
+    }
+  }
+
+  /**
+   * Typed CSV property column
+   */
+  private static final class Column {
+    private final String key;
+    private final String type;
+    private final String header;
+
+    private Column(String key, String type, String header) {
+      this.key = key;
+      this.type = type;
+      this.header = header;
+    }
+  }
+
+  /**
+   * Growable byte buffer holding UTF-8 encoded output
+   */
+  private static final class Utf8Buffer {
+    private byte[] bytes = new byte[1 << 16];
+    private int size;
+
+    private void ensure(int count) {
+      if (size + count > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + count));
+      }
+    }
+
+    private Utf8Buffer ascii(char c) {
+      ensure(1);
+      bytes[size++] = (byte) c;
+      return this;
+    }
+
+    private Utf8Buffer ascii(String text) {
+      ensure(text.length());
+      for (int i = 0; i < text.length(); i++) {
+        bytes[size++] = (byte) text.charAt(i);
+      }
+      return this;
+    }
+
+    private void string(String text) {
+      ensure(text.length());
+      for (int i = 0; i < text.length(); i++) {
+        char c = text.charAt(i);
+        if (c < 0x80) {
+          bytes[size++] = (byte) c;
+        } else {
+          character(c, text, i);
+          if (Character.isHighSurrogate(c) && i + 1 < text.length()) {
+            i++;
+          }
+        }
+      }
+    }
+
+    /**
+     * Encodes a character, a high surrogate is combined with the following low surrogate.
+     */
+    private void character(char c, String text, int index) {
+      ensure(4);
+      if (c < 0x80) {
+        bytes[size++] = (byte) c;
+      } else if (c < 0x800) {
+        bytes[size++] = (byte) (0xC0 | c >> 6);
+        bytes[size++] = (byte) (0x80 | c & 0x3F);
+      } else if (Character.isHighSurrogate(c) && index + 1 < text.length() &&
+        Character.isLowSurrogate(text.charAt(index + 1))) {
+        int codePoint = Character.toCodePoint(c, text.charAt(index + 1));
+        bytes[size++] = (byte) (0xF0 | codePoint >> 18);
+        bytes[size++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+        bytes[size++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+        bytes[size++] = (byte) (0x80 | codePoint & 0x3F);
+      } else if (Character.isSurrogate(c)) {
+        bytes[size++] = '?';
+      } else {
+        bytes[size++] = (byte) (0xE0 | c >> 12);
+        bytes[size++] = (byte) (0x80 | c >> 6 & 0x3F);
+        bytes[size++] = (byte) (0x80 | c & 0x3F);
+      }
+    }
+
+    /**
+     * Writes a number without creating a string.
+     */
+    private void number(long value) {
+      if (value == Long.MIN_VALUE) {
+        ascii(Long.toString(value));
+        return;
+      }
+      ensure(20);
+      if (value < 0) {
+        bytes[size++] = '-';
+        value = -value;
+      }
+      int digits = 1;
+      for (long rest = value / 10; rest > 0; rest /= 10) {
+        digits++;
+      }
+      for (int i = size + digits - 1; i >= size; i--) {
+        bytes[i] = (byte) ('0' + value % 10);
+        value /= 10;
+      }
+      size += digits;
+    }
+
+    private void writeTo(FileChannel channel) throws IOException {
+      ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, size);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      size = 0;
+    }
+  }
+
+  /**
+   * Builder of bulk exporters
+   */
+  public static class Builder {
+
+    private BulkImporter.Format format = BulkImporter.Format.CSV;
+
+    private char delimiter = ',';
+
+    private char listDelimiter = ';';
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Sets the file format, defaults to {@link BulkImporter.Format#CSV}.
+     *
+     * @param format file format
+     * @return builder
+     */
+    public Builder setFormat(BulkImporter.Format format) {
+      if (format == null) {
+        throw new IllegalArgumentException("Format must not be null");
+      }
+      this.format = format;
+      return this;
+    }
+
+    /**
+     * Sets the field delimiter of CSV files, defaults to {@code ,}.
+     *
+     * @param delimiter field delimiter
+     * @return builder
+     */
+    public Builder setDelimiter(char delimiter) {
+      this.delimiter = checkDelimiter(delimiter);
+      return this;
+    }
+
+    /**
+     * Sets the delimiter of list elements, labels and graphs in CSV files, defaults to {@code ;}.
+     *
+     * @param listDelimiter list element delimiter
+     * @return builder
+     */
+    public Builder setListDelimiter(char listDelimiter) {
+      this.listDelimiter = checkDelimiter(listDelimiter);
+      return this;
+    }
+
+    /**
+     * Sets the number of threads encoding elements. Defaults to the number of available processors.
+     *
+     * @param threads encoding threads
+     * @return builder
+     */
+    public Builder setThreads(int threads) {
+      if (threads <= 0) {
+        throw new IllegalArgumentException("threads must be positive");
+      }
+      this.threads = threads;
+      return this;
+    }
+
+    /**
+     * Creates the exporter.
+     *
+     * @return bulk exporter
+     */
+    public BulkExporter build() {
+      if (delimiter == listDelimiter) {
+        throw new IllegalArgumentException("Delimiter and list delimiter must differ");
+      }
+      return new BulkExporter(format, delimiter, listDelimiter, threads);
+    }
+
+    private static char checkDelimiter(char delimiter) {
+      if (delimiter == '"' || delimiter == '\n' || delimiter == '\r' || delimiter >= 0x80) {
+        throw new IllegalArgumentException("Invalid delimiter: " + delimiter);
+      }
+      return delimiter;
+    }
+  }
+}
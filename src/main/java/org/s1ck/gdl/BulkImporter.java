@@ -0,0 +1,1007 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl;
+
+import org.s1ck.gdl.model.values.DoubleVectorLiteral;
+import org.s1ck.gdl.model.values.FloatVectorLiteral;
+import org.s1ck.gdl.model.values.PrimitiveList;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Imports graphs, vertices and edges from CSV or JSON Lines files into a {@link GDLHandler},
+ * without going through GDL text.
+ *
+ * <p>Every line holds one element. Files are mapped into memory and split into line ranges that
+ * are parsed concurrently; the parsed elements are then added in file order, so ids, default
+ * labels, variables and graph memberships are the same as for the equivalent GDL script. A
+ * vertex or edge line corresponds to a definition inside each of its graphs, e.g.
+ * {@code g1[(alice:User {age : 23})] g2[(alice)]}, unknown graphs are created. Edges connect
+ * vertices by their variable, which must have been imported or defined before.
+ *
+ * <p>Columns of a CSV file are named by its header line. The reserved columns {@code :id},
+ * {@code :labels} and {@code :graphs} hold the variable, the labels and the graph variables of an
+ * element, edge files additionally need {@code :source} and {@code :target}. All other columns are
+ * properties named {@code key:type}, where type is one of {@code string} (default), {@code int},
+ * {@code long}, {@code float}, {@code double}, {@code boolean}, an array of those, e.g.
+ * {@code long[]}, {@code float_vector} or {@code double_vector}. List elements are separated by
+ * {@code ;}. An empty field leaves the property out, a quoted empty field is an empty string.
+ * Fields may be quoted with {@code "}, a quote inside is written as {@code ""}; line breaks inside
+ * fields are not supported.
+ *
+ * <pre>
+ * :id,:labels,:graphs,name,age:int,logins:long[]
+ * alice,User,g1;g2,Alice,23,1478736000;1478822400
+ * </pre>
+ *
+ * <p>A JSON Lines file holds one flat object per line, using the same reserved keys. Integral
+ * numbers are read as int or, if out of range, long, all other numbers as double. Arrays are read
+ * as lists. A key ending in a type like a CSV column, e.g. {@code "logins:long[]"}, converts the
+ * value to that type; keys ending in anything else are used as they are.
+ *
+ * <pre>
+ * {":id" : "alice", ":labels" : ["User"], ":graphs" : ["g1", "g2"], "name" : "Alice", "age" : 23}
+ * {":id" : "bob", "score:float" : 1.5, "embedding:float_vector" : [0.5, -1.0]}
+ * </pre>
+ */
+public class BulkImporter {
+
+  /**
+   * Input file format
+   */
+  public enum Format {
+    /**
+     * Comma separated values with a header line
+     */
+    CSV,
+    /**
+     * One JSON object per line
+     */
+    JSON_LINES
+  }
+
+  /**
+   * Minimum number of bytes parsed by one task
+   */
+  private static final int MIN_RANGE_SIZE = 1 << 16;
+
+  private static final int BLOCK_SIZE = 1 << 16;
+
+  private static final String ID = ":id";
+  private static final String LABELS = ":labels";
+  private static final String GRAPHS = ":graphs";
+  private static final String SOURCE = ":source";
+  private static final String TARGET = ":target";
+
+  private final Format format;
+
+  private final char delimiter;
+
+  private final char listDelimiter;
+
+  private final int threads;
+
+  /**
+   * Number of bytes mapped at once
+   */
+  private final int windowSize;
+
+  private BulkImporter(Format format, char delimiter, char listDelimiter, int threads, int windowSize) {
+    this.format = format;
+    this.delimiter = delimiter;
+    this.listDelimiter = listDelimiter;
+    this.threads = threads;
+    this.windowSize = windowSize;
+  }
+
+  /**
+   * Imports the graphs in a file. A graph line corresponds to a graph definition with labels and
+   * properties, e.g. {@code g1:Community {name : "GDL"}[]}; it has no {@code :graphs}. Graphs must
+   * be imported before the vertices and edges they contain, otherwise those create them without
+   * labels and properties.
+   *
+   * @param handler database the graphs are added to
+   * @param file graph file
+   * @return number of imported lines
+   * @throws IOException if the file cannot be read
+   * @throws IllegalArgumentException if a line cannot be parsed
+   */
+  public long importGraphs(GDLHandler handler, Path file) throws IOException {
+    return importFile(handler, file, ElementKind.GRAPH);
+  }
+
+  /**
+   * Imports the vertices in a file.
+   *
+   * @param handler database the vertices are added to
+   * @param file vertex file
+   * @return number of imported lines
+   * @throws IOException if the file cannot be read
+   * @throws IllegalArgumentException if a line cannot be parsed
+   */
+  public long importVertices(GDLHandler handler, Path file) throws IOException {
+    return importFile(handler, file, ElementKind.VERTEX);
+  }
+
+  /**
+   * Imports the edges in a file.
+   *
+   * @param handler database the edges are added to
+   * @param file edge file
+   * @return number of imported lines
+   * @throws IOException if the file cannot be read
+   * @throws IllegalArgumentException if a line cannot be parsed or references an unknown vertex
+   */
+  public long importEdges(GDLHandler handler, Path file) throws IOException {
+    return importFile(handler, file, ElementKind.EDGE);
+  }
+
+  /**
+   * Imports the vertices between position and limit of a buffer.
+   *
+   * @param handler database the vertices are added to
+   * @param buffer UTF-8 encoded vertex lines, its position is not changed
+   * @return number of imported lines
+   * @throws IllegalArgumentException if a line cannot be parsed
+   */
+  public long importVertices(GDLHandler handler, ByteBuffer buffer) {
+    return importBuffer(handler, buffer, ElementKind.VERTEX);
+  }
+
+  /**
+   * Imports the edges between position and limit of a buffer.
+   *
+   * @param handler database the edges are added to
+   * @param buffer UTF-8 encoded edge lines, its position is not changed
+   * @return number of imported lines
+   * @throws IllegalArgumentException if a line cannot be parsed or references an unknown vertex
+   */
+  public long importEdges(GDLHandler handler, ByteBuffer buffer) {
+    return importBuffer(handler, buffer, ElementKind.EDGE);
+  }
+
+  private long importFile(GDLHandler handler, Path file, ElementKind kind) throws IOException {
+    ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long position = 0;
+      long count = 0;
+      LineParser parser = null;
+      while (position < size) {
+        long length = Math.min(windowSize, size - position);
+        ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        int end = (int) length;
+        if (position + length < size) {
+          end = lineEnd(window, 0, end);
+          if (end == 0) {
+            throw new IllegalArgumentException(String.format(
+              "Line at offset %d is longer than %d bytes", position, windowSize));
+          }
+        }
+        int start = 0;
+        if (parser == null) {
+          parser = newParser(window, end, kind);
+          start = parser.start;
+        }
+        count += importRange(handler, window, start, end, parser, executor);
+        position += end;
+      }
+      return count;
+    } finally {
+      if (executor != null) {
+        executor.shutdown();
+      }
+      handler.notifyAppendListeners();
+    }
+  }
+
+  private long importBuffer(GDLHandler handler, ByteBuffer buffer, ElementKind kind) {
+    ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+    try {
+      ByteBuffer slice = buffer.slice();
+      LineParser parser = newParser(slice, slice.limit(), kind);
+      return importRange(handler, slice, parser.start, slice.limit(), parser, executor);
+    } finally {
+      if (executor != null) {
+        executor.shutdown();
+      }
+      handler.notifyAppendListeners();
+    }
+  }
+
+  /**
+   * Creates the parser of a file, reading the CSV header from the first line.
+   */
+  private LineParser newParser(ByteBuffer buffer, int end, ElementKind kind) {
+    if (format == Format.JSON_LINES) {
+      return new JsonParser(kind);
+    }
+    int headerEnd = 0;
+    while (headerEnd < end && buffer.get(headerEnd) != '\n') {
+      headerEnd++;
+    }
+    byte[] header = new byte[headerEnd];
+    ByteBuffer headerBuffer = buffer.duplicate();
+    headerBuffer.position(0);
+    headerBuffer.get(header);
+    CsvParser parser = new CsvParser(stripCarriageReturn(new String(header, StandardCharsets.UTF_8)), kind);
+    parser.start = Math.min(end, headerEnd + 1);
+    return parser;
+  }
+
+  /**
+   * Parses the lines in a range of the buffer concurrently and adds the elements in line order.
+   */
+  private long importRange(GDLHandler handler, ByteBuffer buffer, int start, int end, LineParser parser,
+    ExecutorService executor) {
+    List<List<Row>> parsed = new ArrayList<>();
+    int ranges = executor == null ? 1 : Math.max(1, Math.min(threads * 4, (end - start) / MIN_RANGE_SIZE));
+    if (ranges == 1) {
+      parsed.add(parseRange(buffer, start, end, parser));
+    } else {
+      List<Future<List<Row>>> futures = new ArrayList<>();
+      int rangeStart = start;
+      for (int r = 1; r <= ranges && rangeStart < end; r++) {
+        int rangeEnd = r == ranges ? end : Math.max(rangeStart, lineEnd(buffer, start, start + (int) ((long) (end - start) * r / ranges)));
+        int first = rangeStart;
+        futures.add(executor.submit(() -> parseRange(buffer, first, rangeEnd, parser)));
+        rangeStart = rangeEnd;
+      }
+      try {
+        for (Future<List<Row>> future : futures) {
+          parsed.add(future.get());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw new IllegalStateException(e.getCause());
+      }
+    }
+
+    GDLLoader loader = handler.getLoader();
+    long count = 0;
+    for (List<Row> rows : parsed) {
+      for (Row row : rows) {
+        if (parser.kind == ElementKind.EDGE) {
+          loader.importEdge(row.variable, row.source, row.target, row.labels, row.properties, row.graphs);
+        } else if (parser.kind == ElementKind.VERTEX) {
+          loader.importVertex(row.variable, row.labels, row.properties, row.graphs);
+        } else {
+          loader.importGraph(row.variable, row.labels, row.properties);
+        }
+      }
+      count += rows.size();
+    }
+    return count;
+  }
+
+  /**
+   * Returns the position after the last line break before {@code end}, or {@code start} if there
+   * is none.
+   */
+  private static int lineEnd(ByteBuffer buffer, int start, int end) {
+    for (int i = end - 1; i >= start; i--) {
+      if (buffer.get(i) == '\n') {
+        return i + 1;
+      }
+    }
+    return start;
+  }
+
+  /**
+   * Parses the lines in a range, which starts at the beginning of a line.
+   */
+  private static List<Row> parseRange(ByteBuffer buffer, int start, int end, LineParser parser) {
+    ByteBuffer range = buffer.duplicate();
+    range.limit(end);
+    range.position(start);
+    List<Row> rows = new ArrayList<>();
+    byte[] block = new byte[Math.min(BLOCK_SIZE, Math.max(1, end - start))];
+    int filled = 0;
+    while (true) {
+      int read = Math.min(block.length - filled, range.remaining());
+      range.get(block, filled, read);
+      filled += read;
+      int lineStart = 0;
+      for (int i = 0; i < filled; i++) {
+        if (block[i] == '\n') {
+          parseLine(block, lineStart, i, parser, rows);
+          lineStart = i + 1;
+        }
+      }
+      if (!range.hasRemaining()) {
+        parseLine(block, lineStart, filled, parser, rows);
+        return rows;
+      }
+      if (lineStart == 0 && filled == block.length) {
+        block = Arrays.copyOf(block, block.length * 2);
+      } else {
+        System.arraycopy(block, lineStart, block, 0, filled - lineStart);
+        filled -= lineStart;
+      }
+    }
+  }
+
+  private static void parseLine(byte[] bytes, int start, int end, LineParser parser, List<Row> rows) {
+    if (end > start && bytes[end - 1] == '\r') {
+      end--;
+    }
+    if (end > start) {
+      rows.add(parser.parse(new String(bytes, start, end - start, StandardCharsets.UTF_8)));
+    }
+  }
+
+  private static String stripCarriageReturn(String line) {
+    return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+  }
+
+  /**
+   * Element read from one line
+   */
+  private static final class Row {
+    private String variable;
+    private String source;
+    private String target;
+    private List<String> labels = Collections.emptyList();
+    private List<String> graphs = Collections.emptyList();
+    private final Map<String, Object> properties = new HashMap<>();
+  }
+
+  /**
+   * Kind of the elements in a file
+   */
+  private enum ElementKind {
+    GRAPH, VERTEX, EDGE
+  }
+
+  /**
+   * Parses a line into an element. Implementations are used by several threads at once.
+   */
+  private abstract static class LineParser {
+    /**
+     * Kind of the elements the lines hold
+     */
+    final ElementKind kind;
+
+    /**
+     * Position of the first element line
+     */
+    int start;
+
+    LineParser(ElementKind kind) {
+      this.kind = kind;
+    }
+
+    abstract Row parse(String line);
+
+    void checkRow(Row row, String line) {
+      if (kind == ElementKind.EDGE && (row.source == null || row.target == null)) {
+        throw new IllegalArgumentException("Edge needs a source and a target vertex: " + line);
+      }
+      if (kind == ElementKind.GRAPH && !row.graphs.isEmpty()) {
+        throw new IllegalArgumentException("Graphs cannot be contained in graphs: " + line);
+      }
+    }
+  }
+
+  /**
+   * Property value types of CSV columns
+   */
+  private enum ValueType {
+    STRING, INT, LONG, FLOAT, DOUBLE, BOOLEAN;
+
+    Object parse(String value, String column) {
+      try {
+        switch (this) {
+          case INT:     return Integer.parseInt(value);
+          case LONG:    return Long.parseLong(value);
+          case FLOAT:   return Float.parseFloat(value);
+          case DOUBLE:  return Double.parseDouble(value);
+          case BOOLEAN:
+            if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false")) {
+              return Boolean.parseBoolean(value);
+            }
+            throw new NumberFormatException();
+          default:      return value;
+        }
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException(String.format("Invalid value '%s' in column '%s'", value, column));
+      }
+    }
+  }
+
+  /**
+   * CSV column
+   */
+  private static final class Column {
+    private final String name;
+    private final String key;
+    private final ValueType type;
+    private final boolean list;
+    private final boolean vector;
+
+    private Column(String name) {
+      this.name = name;
+      int colon = name.lastIndexOf(':');
+      if (name.startsWith(":") || colon < 0) {
+        this.key = name;
+        this.type = ValueType.STRING;
+        this.list = false;
+        this.vector = false;
+        return;
+      }
+      this.key = name.substring(0, colon);
+      String type = name.substring(colon + 1).toLowerCase();
+      this.vector = type.equals("float_vector") || type.equals("double_vector");
+      this.list = type.endsWith("[]");
+      String elementType = vector ? type.substring(0, type.indexOf('_')) :
+        list ? type.substring(0, type.length() - 2) : type;
+      try {
+        this.type = ValueType.valueOf(elementType.toUpperCase());
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException(String.format("Unknown type '%s' of column '%s'", type, name));
+      }
+    }
+  }
+
+  private final class CsvParser extends LineParser {
+    private final Column[] columns;
+
+    private CsvParser(String header, ElementKind kind) {
+      super(kind);
+      List<String> names = split(header);
+      columns = new Column[names.size()];
+      List<String> reserved = kind == ElementKind.EDGE ?
+        Arrays.asList(ID, LABELS, GRAPHS, SOURCE, TARGET) : Arrays.asList(ID, LABELS, GRAPHS);
+      for (int i = 0; i < columns.length; i++) {
+        String name = names.get(i);
+        if (name == null || name.isEmpty() || (name.startsWith(":") && !reserved.contains(name))) {
+          throw new IllegalArgumentException(String.format("Invalid column '%s' in header: %s", name, header));
+        }
+        columns[i] = new Column(name);
+      }
+      List<String> keys = new ArrayList<>();
+      for (Column column : columns) {
+        keys.add(column.key);
+      }
+      if (kind == ElementKind.EDGE && (!keys.contains(SOURCE) || !keys.contains(TARGET))) {
+        throw new IllegalArgumentException("Edge header needs the columns :source and :target: " + header);
+      }
+    }
+
+    @Override
+    Row parse(String line) {
+      List<String> fields = split(line);
+      if (fields.size() != columns.length) {
+        throw new IllegalArgumentException(String.format(
+          "Expected %d fields but found %d: %s", columns.length, fields.size(), line));
+      }
+      Row row = new Row();
+      for (int i = 0; i < columns.length; i++) {
+        String field = fields.get(i);
+        if (field == null) {
+          continue;
+        }
+        Column column = columns[i];
+        switch (column.key) {
+          case ID:     row.variable = field; break;
+          case SOURCE: row.source = field; break;
+          case TARGET: row.target = field; break;
+          case LABELS: row.labels = splitList(field); break;
+          case GRAPHS: row.graphs = splitList(field); break;
+          default:     row.properties.put(column.key, parseValue(column, field));
+        }
+      }
+      checkRow(row, line);
+      return row;
+    }
+
+    private Object parseValue(Column column, String field) {
+      if (!column.list && !column.vector) {
+        return column.type.parse(field, column.name);
+      }
+      List<String> elements = field.isEmpty() ? Collections.emptyList() : splitList(field);
+      if (column.vector) {
+        boolean floats = column.type == ValueType.FLOAT;
+        float[] floatValues = new float[floats ? elements.size() : 0];
+        double[] doubleValues = new double[floats ? 0 : elements.size()];
+        for (int i = 0; i < elements.size(); i++) {
+          Object value = column.type.parse(elements.get(i), column.name);
+          if (floats) {
+            floatValues[i] = (Float) value;
+          } else {
+            doubleValues[i] = (Double) value;
+          }
+        }
+        return floats ? FloatVectorLiteral.of(floatValues) : DoubleVectorLiteral.of(doubleValues);
+      }
+      List<Object> values = new ArrayList<>(elements.size());
+      for (String element : elements) {
+        values.add(column.type.parse(element, column.name));
+      }
+      return PrimitiveList.compact(values);
+    }
+
+    private List<String> splitList(String field) {
+      List<String> elements = new ArrayList<>();
+      int start = 0;
+      for (int i = field.indexOf(listDelimiter); i >= 0; i = field.indexOf(listDelimiter, start)) {
+        elements.add(field.substring(start, i));
+        start = i + 1;
+      }
+      elements.add(field.substring(start));
+      return elements;
+    }
+
+    /**
+     * Splits a line into fields, an empty unquoted field is returned as {@code null}.
+     */
+    private List<String> split(String line) {
+      List<String> fields = new ArrayList<>(columns != null ? columns.length : 16);
+      int i = 0;
+      int length = line.length();
+      while (true) {
+        if (i < length && line.charAt(i) == '"') {
+          StringBuilder field = new StringBuilder();
+          i++;
+          while (true) {
+            if (i >= length) {
+              throw new IllegalArgumentException("Unterminated quoted field: " + line);
+            }
+            char c = line.charAt(i++);
+            if (c == '"') {
+              if (i < length && line.charAt(i) == '"') {
+                field.append('"');
+                i++;
+              } else {
+                break;
+              }
+            } else {
+              field.append(c);
+            }
+          }
+          fields.add(field.toString());
+          if (i < length && line.charAt(i) != delimiter) {
+            throw new IllegalArgumentException("Unexpected character after quoted field: " + line);
+          }
+        } else {
+          int end = line.indexOf(delimiter, i);
+          end = end < 0 ? length : end;
+          fields.add(end > i ? line.substring(i, end) : null);
+          i = end;
+        }
+        if (i >= length) {
+          return fields;
+        }
+        i++;
+      }
+    }
+  }
+
+  private static final class JsonParser extends LineParser {
+
+    /**
+     * Column of each key with a colon, empty if the key has no type
+     */
+    private final Map<String, Optional<Column>> typedKeys = new ConcurrentHashMap<>();
+
+    private JsonParser(ElementKind kind) {
+      super(kind);
+    }
+
+    @Override
+    Row parse(String line) {
+      Row row = new Row();
+      JsonReader reader = new JsonReader(line);
+      reader.expect('{');
+      if (!reader.consume('}')) {
+        do {
+          String key = reader.readString();
+          reader.expect(':');
+          Object value = reader.readValue(true);
+          switch (key) {
+            case ID:     row.variable = asString(key, value, line); break;
+            case SOURCE: row.source = asString(key, value, line); break;
+            case TARGET: row.target = asString(key, value, line); break;
+            case LABELS: row.labels = asStrings(key, value, line); break;
+            case GRAPHS: row.graphs = asStrings(key, value, line); break;
+            default:
+              if (key.startsWith(":")) {
+                throw new IllegalArgumentException(String.format("Invalid key '%s': %s", key, line));
+              }
+              Column column = key.indexOf(':') < 0 ? null :
+                typedKeys.computeIfAbsent(key, JsonParser::column).orElse(null);
+              if (column != null) {
+                row.properties.put(column.key, typedValue(column, value, line));
+              } else {
+                row.properties.put(key, value instanceof List ? PrimitiveList.compact((List<?>) value) : value);
+              }
+          }
+        } while (reader.consume(','));
+        reader.expect('}');
+      }
+      reader.expectEnd();
+      checkRow(row, line);
+      return row;
+    }
+
+    private static Optional<Column> column(String key) {
+      try {
+        return Optional.of(new Column(key));
+      } catch (IllegalArgumentException e) {
+        return Optional.empty();
+      }
+    }
+
+    /**
+     * Converts a JSON value to the type of a key.
+     */
+    private static Object typedValue(Column column, Object value, String line) {
+      if (value == null || (!column.list && !column.vector)) {
+        return scalarValue(column, value, line);
+      }
+      if (!(value instanceof List)) {
+        throw new IllegalArgumentException(String.format("Value of '%s' must be an array: %s", column.name, line));
+      }
+      List<?> elements = (List<?>) value;
+      if (column.vector) {
+        boolean floats = column.type == ValueType.FLOAT;
+        float[] floatValues = new float[floats ? elements.size() : 0];
+        double[] doubleValues = new double[floats ? 0 : elements.size()];
+        for (int i = 0; i < elements.size(); i++) {
+          Object element = scalarValue(column, elements.get(i), line);
+          if (floats) {
+            floatValues[i] = (Float) element;
+          } else {
+            doubleValues[i] = (Double) element;
+          }
+        }
+        return floats ? FloatVectorLiteral.of(floatValues) : DoubleVectorLiteral.of(doubleValues);
+      }
+      List<Object> values = new ArrayList<>(elements.size());
+      for (Object element : elements) {
+        values.add(scalarValue(column, element, line));
+      }
+      return PrimitiveList.compact(values);
+    }
+
+    private static Object scalarValue(Column column, Object value, String line) {
+      switch (column.type) {
+        case INT:
+          if (value instanceof Integer) {
+            return value;
+          }
+          break;
+        case LONG:
+          if (value instanceof Integer || value instanceof Long) {
+            return ((Number) value).longValue();
+          }
+          break;
+        case FLOAT:
+          if (value instanceof Number) {
+            return ((Number) value).floatValue();
+          }
+          break;
+        case DOUBLE:
+          if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+          }
+          break;
+        case BOOLEAN:
+          if (value instanceof Boolean) {
+            return value;
+          }
+          break;
+        default:
+          if (value instanceof String) {
+            return value;
+          }
+      }
+      if (value == null && !column.list && !column.vector) {
+        return null;
+      }
+      throw new IllegalArgumentException(String.format(
+        "Value of '%s' must be of type %s: %s", column.name, column.type.name().toLowerCase(), line));
+    }
+
+    private static String asString(String key, Object value, String line) {
+      if (value != null && !(value instanceof String)) {
+        throw new IllegalArgumentException(String.format("Value of '%s' must be a string: %s", key, line));
+      }
+      return (String) value;
+    }
+
+    private static List<String> asStrings(String key, Object value, String line) {
+      if (value instanceof String) {
+        return Collections.singletonList((String) value);
+      }
+      List<String> strings = new ArrayList<>();
+      if (value instanceof List) {
+        for (Object element : (List<?>) value) {
+          strings.add(asString(key, element, line));
+        }
+      } else if (value != null) {
+        throw new IllegalArgumentException(String.format("Value of '%s' must be a string or an array: %s", key, line));
+      }
+      return strings;
+    }
+  }
+
+  /**
+   * Reads JSON values from a single line
+   */
+  private static final class JsonReader {
+    private final String line;
+    private int position;
+
+    private JsonReader(String line) {
+      this.line = line;
+    }
+
+    private Object readValue(boolean allowArray) {
+      skipWhitespace();
+      if (position >= line.length()) {
+        throw error("Unexpected end of line");
+      }
+      char c = line.charAt(position);
+      if (c == '"') {
+        return readString();
+      } else if (c == '[' && allowArray) {
+        position++;
+        List<Object> values = new ArrayList<>();
+        if (!consume(']')) {
+          do {
+            values.add(readValue(false));
+          } while (consume(','));
+          expect(']');
+        }
+        return values;
+      } else if (c == '-' || (c >= '0' && c <= '9')) {
+        return readNumber();
+      } else if (line.startsWith("true", position)) {
+        position += 4;
+        return true;
+      } else if (line.startsWith("false", position)) {
+        position += 5;
+        return false;
+      } else if (line.startsWith("null", position)) {
+        position += 4;
+        return null;
+      }
+      throw error("Unsupported value");
+    }
+
+    private String readString() {
+      expect('"');
+      StringBuilder builder = null;
+      int start = position;
+      while (position < line.length()) {
+        char c = line.charAt(position++);
+        if (c == '"') {
+          return builder == null ? line.substring(start, position - 1) : builder.toString();
+        } else if (c == '\\') {
+          if (builder == null) {
+            builder = new StringBuilder(line.substring(start, position - 1));
+          }
+          if (position >= line.length()) {
+            break;
+          }
+          char escaped = line.charAt(position++);
+          switch (escaped) {
+            case 'b': builder.append('\b'); break;
+            case 'f': builder.append('\f'); break;
+            case 'n': builder.append('\n'); break;
+            case 'r': builder.append('\r'); break;
+            case 't': builder.append('\t'); break;
+            case 'u':
+              if (position + 4 > line.length()) {
+                throw error("Invalid unicode escape");
+              }
+              try {
+                builder.append((char) Integer.parseInt(line.substring(position, position + 4), 16));
+              } catch (NumberFormatException e) {
+                throw error("Invalid unicode escape");
+              }
+              position += 4;
+              break;
+            default: builder.append(escaped);
+          }
+        } else if (builder != null) {
+          builder.append(c);
+        }
+      }
+      throw error("Unterminated string");
+    }
+
+    private Number readNumber() {
+      int start = position;
+      boolean integral = true;
+      while (position < line.length()) {
+        char c = line.charAt(position);
+        if (c == '.' || c == 'e' || c == 'E') {
+          integral = false;
+        } else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9'))) {
+          break;
+        }
+        position++;
+      }
+      String text = line.substring(start, position);
+      try {
+        if (integral) {
+          long value = Long.parseLong(text);
+          return value == (int) value ? (Number) (int) value : (Number) value;
+        }
+        return Double.parseDouble(text);
+      } catch (NumberFormatException e) {
+        throw error("Invalid number '" + text + "'");
+      }
+    }
+
+    private boolean consume(char c) {
+      skipWhitespace();
+      if (position < line.length() && line.charAt(position) == c) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+
+    private void expect(char c) {
+      if (!consume(c)) {
+        throw error("Expected '" + c + "'");
+      }
+    }
+
+    private void expectEnd() {
+      skipWhitespace();
+      if (position < line.length()) {
+        throw error("Unexpected characters after object");
+      }
+    }
+
+    private void skipWhitespace() {
+      while (position < line.length() && Character.isWhitespace(line.charAt(position))) {
+        position++;
+      }
+    }
+
+    private IllegalArgumentException error(String message) {
+      return new IllegalArgumentException(String.format("%s at position %d: %s", message, position, line));
+    }
+  }
+
+  /**
+   * Builder of bulk importers
+   */
+  public static class Builder {
+
+    private Format format = Format.CSV;
+
+    private char delimiter = ',';
+
+    private char listDelimiter = ';';
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private int windowSize = 1 << 30;
+
+    /**
+     * Sets the file format, defaults to {@link Format#CSV}.
+     *
+     * @param format file format
+     * @return builder
+     */
+    public Builder setFormat(Format format) {
+      if (format == null) {
+        throw new IllegalArgumentException("Format must not be null");
+      }
+      this.format = format;
+      return this;
+    }
+
+    /**
+     * Sets the field delimiter of CSV files, defaults to {@code ,}.
+     *
+     * @param delimiter field delimiter
+     * @return builder
+     */
+    public Builder setDelimiter(char delimiter) {
+      this.delimiter = checkDelimiter(delimiter);
+      return this;
+    }
+
+    /**
+     * Sets the delimiter of list elements, labels and graphs in CSV files, defaults to {@code ;}.
+     *
+     * @param listDelimiter list element delimiter
+     * @return builder
+     */
+    public Builder setListDelimiter(char listDelimiter) {
+      this.listDelimiter = checkDelimiter(listDelimiter);
+      return this;
+    }
+
+    /**
+     * Sets the number of threads parsing a file. Defaults to the number of available processors.
+     *
+     * @param threads parsing threads
+     * @return builder
+     */
+    public Builder setThreads(int threads) {
+      if (threads <= 0) {
+        throw new IllegalArgumentException("threads must be positive");
+      }
+      this.threads = threads;
+      return this;
+    }
+
+    /**
+     * Sets the number of bytes of a file mapped at once, lines must not be longer.
+     *
+     * @param windowSize window size in bytes
+     * @return builder
+     */
+    Builder setWindowSize(int windowSize) {
+      if (windowSize <= 0) {
+        throw new IllegalArgumentException("windowSize must be positive");
+      }
+      this.windowSize = windowSize;
+      return this;
+    }
+
+    /**
+     * Creates the importer.
+     *
+     * @return bulk importer
+     */
+    public BulkImporter build() {
+      if (delimiter == listDelimiter) {
+        throw new IllegalArgumentException("Delimiter and list delimiter must differ");
+      }
+      return new BulkImporter(format, delimiter, listDelimiter, threads, windowSize);
+    }
+
+    private static char checkDelimiter(char delimiter) {
+      if (delimiter == '"' || delimiter == '\n' || delimiter == '\r') {
+        throw new IllegalArgumentException("Invalid delimiter: " + delimiter);
+      }
+      return delimiter;
+    }
+  }
+}
@@ -22,31 +22,59 @@ import org.s1ck.gdl.model.Edge;
 import org.s1ck.gdl.model.Graph;
 import org.s1ck.gdl.model.Vertex;
 import org.s1ck.gdl.model.predicates.Predicate;
+import org.s1ck.gdl.model.projections.ReturnItem;
 import org.s1ck.gdl.utils.ContinuousId;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Function;
 
 /**
  * Helper class that wraps ANTLR initialization logic.
  */
 public class GDLHandler {
+
+  /**
+   * Receives the elements added by {@link #append(String)} and by a {@link BulkImporter}.
+   */
+  public interface AppendListener {
+    /**
+     * Called after a GDL string has been appended or a file has been imported.
+     *
+     * @param handler the handler the string was appended to
+     * @param vertices new vertices in definition order
+     * @param edges new edges in definition order
+     */
+    void appended(GDLHandler handler, List<Vertex> vertices, List<Edge> edges);
+  }
+
   /**
    * GDL listener implementation.
    */
   private GDLLoader loader;
 
   /**
-   * Private constructor to avoid external initialization.
+   * Listeners notified on append.
+   */
+  private final List<AppendListener> appendListeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * Package-private constructor to avoid external initialization.
    *
    * @param loader GDL loader
    */
-  private GDLHandler(GDLLoader loader) {
+  GDLHandler(GDLLoader loader) {
     this.loader = loader;
+    loader.clearAdded();
   }
 
   /**
@@ -63,6 +91,52 @@ public class GDLHandler {
     GDLParser parser = new GDLParser(new CommonTokenStream(lexer));
     // update the loader state while walking the parse tree
     new ParseTreeWalker().walk(loader, parser.database());
+    notifyAppendListeners();
+  }
+
+  /**
+   * Returns the loader holding the database.
+   *
+   * @return GDL loader
+   */
+  GDLLoader getLoader() {
+    return loader;
+  }
+
+  /**
+   * Notifies the append listeners about the elements the loader added since the last call.
+   */
+  void notifyAppendListeners() {
+    List<Vertex> vertices = new ArrayList<>(loader.getAddedVertices());
+    List<Edge> edges = new ArrayList<>(loader.getAddedEdges());
+    loader.clearAdded();
+    if (!vertices.isEmpty() || !edges.isEmpty()) {
+      for (AppendListener listener : appendListeners) {
+        listener.appended(this, Collections.unmodifiableList(vertices), Collections.unmodifiableList(edges));
+      }
+    }
+  }
+
+  /**
+   * Registers a listener that is notified about the vertices and edges added by each call of
+   * {@link #append(String)}.
+   *
+   * @param listener append listener (must not be {@code null})
+   */
+  public void addAppendListener(AppendListener listener) {
+    if (listener == null) {
+      throw new IllegalArgumentException("Listener must not be null");
+    }
+    appendListeners.add(listener);
+  }
+
+  /**
+   * Removes a previously registered append listener.
+   *
+   * @param listener append listener
+   */
+  public void removeAppendListener(AppendListener listener) {
+    appendListeners.remove(listener);
   }
 
   /**
@@ -99,6 +173,33 @@ public class GDLHandler {
    */
   public Optional<Predicate> getPredicates() { return loader.getPredicates(); }
 
+  /**
+   * Returns the items of the query's RETURN clause.
+   *
+   * @return return items, empty if the query has no RETURN clause
+   */
+  public List<ReturnItem> getReturnItems() {
+    return loader.getReturnItems();
+  }
+
+  /**
+   * Returns the number of matches to skip as defined by the query's SKIP clause.
+   *
+   * @return SKIP value
+   */
+  public Optional<Long> getSkip() {
+    return loader.getSkip();
+  }
+
+  /**
+   * Returns the maximum number of matches as defined by the query's LIMIT clause.
+   *
+   * @return LIMIT value
+   */
+  public Optional<Long> getLimit() {
+    return loader.getLimit();
+  }
+
   /**
    * Returns a cache that contains a mapping from user-defined variables to graph instances.
    *
@@ -388,6 +489,28 @@ public class GDLHandler {
       return build(antlrInputStream);
     }
 
+    /**
+     * Compiles a GDL string containing {@code $parameter} placeholders into a template, which
+     * can be instantiated with different parameter values without parsing the string again.
+     *
+     * @param asciiString GDL string (must not be {@code null}).
+     * @return GDL template
+     */
+    public GDLTemplate compileFromString(String asciiString) {
+      return compile(new ANTLRInputStream(asciiString));
+    }
+
+    /**
+     * Compiles a GDL file containing {@code $parameter} placeholders into a template.
+     *
+     * @param fileName GDL file (must not be {@code null}).
+     * @return GDL template
+     * @throws IOException if the file cannot be read
+     */
+    public GDLTemplate compileFromFile(String fileName) throws IOException {
+      return compile(new ANTLRFileStream(fileName));
+    }
+
     /**
      * Checks valid input and creates GDL Handler.
      *
@@ -395,6 +518,59 @@ public class GDLHandler {
      * @return GDL handler
      */
     private GDLHandler build(ANTLRInputStream antlrInputStream) {
+      validate();
+
+      GDLLexer lexer = new GDLLexer(antlrInputStream);
+      GDLParser parser = new GDLParser(new CommonTokenStream(lexer));
+      parser.setErrorHandler(errorStrategy);
+
+      GDLLoader loader = newLoader(nextGraphId, nextVertexId, nextEdgeId);
+      new ParseTreeWalker().walk(loader, parser.database());
+      return new GDLHandler(loader);
+    }
+
+    /**
+     * Checks valid input, parses it and creates a GDL template. Templates built with the default
+     * id functions start each instance at id 0, custom id functions are shared by all instances.
+     *
+     * @param antlrInputStream ANTLR input stream
+     * @return GDL template
+     */
+    private GDLTemplate compile(ANTLRInputStream antlrInputStream) {
+      validate();
+
+      GDLLexer lexer = new GDLLexer(antlrInputStream);
+      CommonTokenStream tokens = new CommonTokenStream(lexer);
+      GDLParser parser = new GDLParser(tokens);
+      parser.setErrorHandler(errorStrategy);
+      GDLParser.DatabaseContext tree = parser.database();
+
+      Set<String> parameterNames = new LinkedHashSet<>();
+      for (Token token : tokens.getTokens()) {
+        if (token.getType() == GDLLexer.Parameter) {
+          parameterNames.add(token.getText().substring(1));
+        }
+      }
+
+      Function<Optional<String>, Long> graphIds = nextGraphId;
+      Function<Optional<String>, Long> vertexIds = nextVertexId;
+      Function<Optional<String>, Long> edgeIds = nextEdgeId;
+      return new GDLTemplate(tree, parameterNames, () -> newLoader(
+        graphIds instanceof ContinuousId ? new ContinuousId() : graphIds,
+        vertexIds instanceof ContinuousId ? new ContinuousId() : vertexIds,
+        edgeIds instanceof ContinuousId ? new ContinuousId() : edgeIds));
+    }
+
+    private GDLLoader newLoader(Function<Optional<String>, Long> graphIds,
+      Function<Optional<String>, Long> vertexIds, Function<Optional<String>, Long> edgeIds) {
+      return new GDLLoader(
+              graphLabel, vertexLabel, edgeLabel,
+              useDefaultGraphLabel, useDefaultVertexLabel, useDefaultEdgeLabel,
+              graphIds, vertexIds, edgeIds
+      );
+    }
+
+    private void validate() {
       if (graphLabel == null) {
         throw new IllegalArgumentException("Graph label must not be null.");
       }
@@ -416,18 +592,6 @@ public class GDLHandler {
       if (nextEdgeId == null) {
         throw new IllegalArgumentException("Edge id function must not be null.");
       }
-
-      GDLLexer lexer = new GDLLexer(antlrInputStream);
-      GDLParser parser = new GDLParser(new CommonTokenStream(lexer));
-      parser.setErrorHandler(errorStrategy);
-
-      GDLLoader loader = new GDLLoader(
-              graphLabel, vertexLabel, edgeLabel,
-              useDefaultGraphLabel, useDefaultVertexLabel, useDefaultEdgeLabel,
-              nextGraphId, nextVertexId, nextEdgeId
-      );
-      new ParseTreeWalker().walk(loader, parser.database());
-      return new GDLHandler(loader);
     }
   }
 }
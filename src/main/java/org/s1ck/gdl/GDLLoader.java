@@ -28,14 +28,15 @@ import org.s1ck.gdl.model.comparables.ComparableExpression;
 import org.s1ck.gdl.model.comparables.ElementSelector;
 import org.s1ck.gdl.model.comparables.Literal;
 import org.s1ck.gdl.model.comparables.PropertySelector;
+import org.s1ck.gdl.model.comparables.SimilarityFunction;
 import org.s1ck.gdl.model.predicates.Predicate;
-import org.s1ck.gdl.model.predicates.booleans.And;
-import org.s1ck.gdl.model.predicates.booleans.Not;
-import org.s1ck.gdl.model.predicates.booleans.Or;
-import org.s1ck.gdl.model.predicates.booleans.Xor;
+import org.s1ck.gdl.model.predicates.PredicateInterner;
+import org.s1ck.gdl.model.projections.AggregateFunction;
+import org.s1ck.gdl.model.projections.ReturnItem;
 import org.s1ck.gdl.model.predicates.expressions.Comparison;
 import org.s1ck.gdl.model.values.DoubleVectorLiteral;
 import org.s1ck.gdl.model.values.FloatVectorLiteral;
+import org.s1ck.gdl.model.values.PrimitiveList;
 import org.s1ck.gdl.model.values.VectorLiteral;
 import org.s1ck.gdl.utils.Comparator;
 import org.s1ck.gdl.utils.ContinuousId;
@@ -61,9 +62,23 @@ class GDLLoader extends GDLBaseListener {
   private final Set<Vertex> vertices;
   private final Set<Edge> edges;
 
+  // vertices and edges added since the last call of clearAdded()
+  private final List<Vertex> addedVertices = new ArrayList<>();
+  private final List<Edge> addedEdges = new ArrayList<>();
+
   // stores the predicates tree for that query
   private Predicate predicates;
 
+  // shares equal subtrees between all predicates built by this loader
+  private final PredicateInterner predicateInterner = new PredicateInterner();
+
+  // stores the items of the RETURN clause for that query
+  private final List<ReturnItem> returnItems = new ArrayList<>();
+
+  // number of matches to skip and maximum number of matches to return for that query
+  private Long skip;
+  private Long limit;
+
   private final boolean useDefaultGraphLabel;
   private final boolean useDefaultVertexLabel;
   private final boolean useDefaultEdgeLabel;
@@ -89,6 +104,9 @@ class GDLLoader extends GDLBaseListener {
   // used to keep track of filter that are yet to be handled
   private Deque<Predicate> currentPredicates;
 
+  // values of the $parameters in the GDL script
+  private Map<String, ?> parameters = Collections.emptyMap();
+
   // used to generate variable names if none is given
   private static final String ANONYMOUS_GRAPH_VARIABLE = "__g%d";
   private static final String ANONYMOUS_VERTEX_VARIABLE = "__v%d";
@@ -150,6 +168,15 @@ class GDLLoader extends GDLBaseListener {
     currentPredicates = new ArrayDeque<>();
   }
 
+  /**
+   * Sets the values of the parameters used as literals in the GDL script.
+   *
+   * @param parameters values by parameter name without the leading {@code $}
+   */
+  void setParameters(Map<String, ?> parameters) {
+    this.parameters = parameters;
+  }
+
   /**
    * Returns the default graph label.
    *
@@ -204,6 +231,32 @@ class GDLLoader extends GDLBaseListener {
     return edges;
   }
 
+  /**
+   * Returns the vertices added since the last call of {@link #clearAdded()}.
+   *
+   * @return new vertices in definition order
+   */
+  List<Vertex> getAddedVertices() {
+    return addedVertices;
+  }
+
+  /**
+   * Returns the edges added since the last call of {@link #clearAdded()}.
+   *
+   * @return new edges in definition order
+   */
+  List<Edge> getAddedEdges() {
+    return addedEdges;
+  }
+
+  /**
+   * Forgets the vertices and edges added so far.
+   */
+  void clearAdded() {
+    addedVertices.clear();
+    addedEdges.clear();
+  }
+
     /**
      * Returns the predicates defined by the query.
      *
@@ -212,6 +265,33 @@ class GDLLoader extends GDLBaseListener {
   Optional<Predicate> getPredicates() {
     return predicates != null ? Optional.of(predicates) : Optional.empty();
   }
+
+  /**
+   * Returns the items of the query's RETURN clause.
+   *
+   * @return return items, empty if the query has no RETURN clause
+   */
+  List<ReturnItem> getReturnItems() {
+    return Collections.unmodifiableList(returnItems);
+  }
+
+  /**
+   * Returns the number of matches to skip as defined by the query.
+   *
+   * @return SKIP value
+   */
+  Optional<Long> getSkip() {
+    return Optional.ofNullable(skip);
+  }
+
+  /**
+   * Returns the maximum number of matches as defined by the query.
+   *
+   * @return LIMIT value
+   */
+  Optional<Long> getLimit() {
+    return Optional.ofNullable(limit);
+  }
   /**
    * Returns a cache that contains a mapping from user-defined variables used in the GDL script to
    * graph instances.
@@ -364,6 +444,7 @@ class GDLLoader extends GDLBaseListener {
       }
       v.setVariable(variable);
       vertices.add(v);
+      addedVertices.add(v);
     }
     updateGraphElement(v);
     setLastSeenVertex(v);
@@ -403,6 +484,65 @@ class GDLLoader extends GDLBaseListener {
     addPredicates(Collections.singletonList(currentPredicates.pop()));
   }
 
+  /**
+   * Builds a projection or aggregation from a RETURN item.
+   *
+   * @param ctx return item context
+   */
+  @Override
+  public void exitReturnItem(GDLParser.ReturnItemContext ctx) {
+    ComparableExpression expression;
+    AggregateFunction function = null;
+    if (ctx.aggregation() != null) {
+      GDLParser.AggregationContext aggregation = ctx.aggregation();
+      function = AggregateFunction.fromName(aggregation.Identifier().getText());
+      if (aggregation.propertyLookup() != null) {
+        expression = buildPropertySelector(aggregation.propertyLookup());
+      } else if (aggregation.identifier() != null) {
+        expression = buildElementSelector(aggregation.identifier().getText());
+      } else {
+        expression = null;
+      }
+    } else if (ctx.propertyLookup() != null) {
+      expression = buildPropertySelector(ctx.propertyLookup());
+    } else {
+      expression = buildElementSelector(ctx.identifier(0).getText());
+    }
+    // the alias is the last identifier, unless the item itself is an identifier
+    int aliasIndex = ctx.aggregation() == null && ctx.propertyLookup() == null ? 1 : 0;
+    String alias = ctx.As() != null ? ctx.identifier(aliasIndex).getText() : null;
+
+    ReturnItem item = new ReturnItem(expression, function, alias);
+    for (ReturnItem other : returnItems) {
+      if (other.getName().equals(item.getName())) {
+        throw new IllegalArgumentException("Duplicate column in RETURN clause: " + item.getName());
+      }
+    }
+    returnItems.add(item);
+  }
+
+  /**
+   * Stores the number of matches to skip.
+   *
+   * @param ctx skip context
+   */
+  @Override
+  public void exitSkip(GDLParser.SkipContext ctx) {
+    skip = ctx.Parameter() != null ?
+      parameterToCount(ctx.Parameter(), "SKIP") : terminalNodeToCount(ctx.IntegerLiteral(), "SKIP");
+  }
+
+  /**
+   * Stores the maximum number of matches.
+   *
+   * @param ctx limit context
+   */
+  @Override
+  public void exitLimit(GDLParser.LimitContext ctx) {
+    limit = ctx.Parameter() != null ?
+      parameterToCount(ctx.Parameter(), "LIMIT") : terminalNodeToCount(ctx.IntegerLiteral(), "LIMIT");
+  }
+
   /**
    * Builds a {@code Comparison} expression from comparison context
    *
@@ -422,7 +562,7 @@ class GDLLoader extends GDLBaseListener {
   @Override
   public void exitNotExpression(GDLParser.NotExpressionContext ctx) {
     if (!ctx.NOT().isEmpty()) {
-      Predicate not = new Not(currentPredicates.removeLast());
+      Predicate not = predicateInterner.not(currentPredicates.removeLast());
       currentPredicates.add(not);
     }
   }
@@ -492,6 +632,7 @@ class GDLLoader extends GDLBaseListener {
       }
       e.setVariable(variable);
       edges.add(e);
+      addedEdges.add(e);
     }
     updateGraphElement(e);
     setLastSeenEdge(e);
@@ -511,13 +652,13 @@ class GDLLoader extends GDLBaseListener {
 
       switch (conjunctions.get(i).getText().toLowerCase()) {
         case "and":
-          conjunctionReuse = new And(lhs, rhs);
+          conjunctionReuse = predicateInterner.and(lhs, rhs);
           break;
         case "or":
-          conjunctionReuse = new Or(lhs, rhs);
+          conjunctionReuse = predicateInterner.or(lhs, rhs);
           break;
         default:
-          conjunctionReuse = new Xor(lhs, rhs);
+          conjunctionReuse = predicateInterner.xor(lhs, rhs);
           break;
       }
       currentPredicates.add(conjunctionReuse);
@@ -625,8 +766,8 @@ class GDLLoader extends GDLBaseListener {
    * @return element variable or {@code null} if context was null
    */
   private String getVariable(GDLParser.HeaderContext header) {
-    if (header != null && header.Identifier() != null) {
-      return header.Identifier().getText();
+    if (header != null && header.identifier() != null) {
+      return header.identifier().getText();
     }
     return null;
   }
@@ -660,16 +801,12 @@ class GDLLoader extends GDLBaseListener {
       Map<String, Object> properties = new HashMap<>();
       for (GDLParser.PropertyContext property : propertiesContext.property()) {
         if (property.listLiteral() != null) {
-          List<Object> list = property.listLiteral().literalList().literal()
-                  .stream()
-                  .map(this::getPropertyValue)
-                  .collect(Collectors.toList());
-          properties.put(property.Identifier().getText(), list);
+          properties.put(property.identifier().getText(), getListValue(property.listLiteral()));
         } else if (property.vectorLiteral() != null) {
-          properties.put(property.Identifier().getText(),
-                  getVectorLiteral(property.Identifier().getText(), property.vectorLiteral()));
+          properties.put(property.identifier().getText(),
+                  getVectorLiteral(property.identifier().getText(), property.vectorLiteral()));
         } else {
-          properties.put(property.Identifier().getText(), getPropertyValue(property.literal()));
+          properties.put(property.identifier().getText(), getPropertyValue(property.literal()));
         }
       }
       return properties;
@@ -677,6 +814,24 @@ class GDLLoader extends GDLBaseListener {
     return Collections.emptyMap();
   }
 
+  /**
+   * Returns the list for a given list literal.
+   *
+   * <p>Non-empty lists whose elements are all integers, longs, floats, doubles or booleans are
+   * stored as an unmodifiable {@link PrimitiveList}, all other lists as an {@link ArrayList}.
+   *
+   * @param listContext list literal context
+   * @return parsed list
+   */
+  private List<?> getListValue(GDLParser.ListLiteralContext listContext) {
+    List<GDLParser.LiteralContext> literals = listContext.literalList().literal();
+    List<Object> values = new ArrayList<>(literals.size());
+    for (GDLParser.LiteralContext literal : literals) {
+      values.add(getPropertyValue(literal));
+    }
+    return PrimitiveList.compact(values);
+  }
+
   /**
    * Returns the corresponding vector for a given vector literal.
    *
@@ -689,12 +844,18 @@ class GDLLoader extends GDLBaseListener {
    * @return parsed vector
    */
   private VectorLiteral getVectorLiteral(String property, GDLParser.VectorLiteralContext vectorContext) {
-    List<Number> values = new ArrayList<>();
+    if (vectorContext.StringLiteral() != null) {
+      return getEncodedVectorLiteral(property, vectorContext);
+    }
+    List<GDLParser.LiteralContext> literals = vectorContext.listLiteral().literalList().literal();
+    // doubles represent every float exactly, so elements are read before the type is known
+    double[] values = new double[literals.size()];
     Class<? extends Number> elementType = null;
 
-    for (GDLParser.LiteralContext literal : vectorContext.listLiteral().literalList().literal()) {
+    for (int i = 0; i < values.length; i++) {
+      GDLParser.LiteralContext literal = literals.get(i);
       Number value = getNumberOrThrow(property, getPropertyValue(literal));
-      values.add(value);
+      values[i] = value.doubleValue();
 
       if (literal.NaN() != null) {
         // NaN is typed by the remaining elements instead of typing them
@@ -715,13 +876,39 @@ class GDLLoader extends GDLBaseListener {
     }
 
     if (elementType == Float.class) {
-      return new FloatVectorLiteral(values.stream()
-              .map(Number::floatValue)
-              .collect(Collectors.toList()));
+      float[] floats = new float[values.length];
+      for (int i = 0; i < values.length; i++) {
+        floats[i] = (float) values[i];
+      }
+      return FloatVectorLiteral.of(floats);
+    }
+    return DoubleVectorLiteral.of(values);
+  }
+
+  /**
+   * Returns the vector for a base64 encoded vector literal, e.g. {@code vector(f32:"AACAPw==")}.
+   *
+   * @param property property name, used for error messages
+   * @param vectorContext vector literal context
+   * @return decoded vector
+   */
+  private VectorLiteral getEncodedVectorLiteral(String property, GDLParser.VectorLiteralContext vectorContext) {
+    String encoding = vectorContext.Identifier().getText();
+    String text = vectorContext.StringLiteral().getText();
+    // base64 contains no characters that need to be escaped
+    String base64 = text.substring(1, text.length() - 1);
+    try {
+      if (encoding.equalsIgnoreCase("f32")) {
+        return FloatVectorLiteral.fromBase64(base64);
+      } else if (encoding.equalsIgnoreCase("f64")) {
+        return DoubleVectorLiteral.fromBase64(base64);
+      }
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(String.format(
+              "Vector for property '%s' is not valid base64: %s", property, e.getMessage()), e);
     }
-    return new DoubleVectorLiteral(values.stream()
-            .map(Number::doubleValue)
-            .collect(Collectors.toList()));
+    throw new IllegalArgumentException(String.format(
+            "Vector for property '%s' has unknown encoding '%s', expected 'f32' or 'f64'", property, encoding));
   }
 
   private static Number getNumberOrThrow(String property, Object o) {
@@ -760,10 +947,26 @@ class GDLLoader extends GDLBaseListener {
       return Float.parseFloat(text);
     } else if (literalContext.NaN() != null) {
       return Double.NaN;
+    } else if (literalContext.Parameter() != null) {
+      return getParameterValue(literalContext.Parameter());
     }
     return null;
   }
 
+  /**
+   * Returns the value bound to a parameter.
+   *
+   * @param node parameter token, e.g. {@code $name}
+   * @return parameter value, may be {@code null}
+   */
+  private Object getParameterValue(TerminalNode node) {
+    String name = node.getText().substring(1);
+    if (!parameters.containsKey(name)) {
+      throw new IllegalArgumentException(String.format("No value given for parameter $%s", name));
+    }
+    return parameters.get(name);
+  }
+
   /**
    * Parses an {@code EdgeLengthContext} and returns the indicated Range
    *
@@ -808,7 +1011,7 @@ class GDLLoader extends GDLBaseListener {
     ComparableExpression rhs = extractComparableExpression(ctx.comparisonElement(1));
     Comparator comp = Comparator.fromString(ctx .ComparisonOP().getText());
 
-    return new Comparison(lhs, comp, rhs);
+    return predicateInterner.comparison(lhs, comp, rhs);
   }
 
   /**
@@ -822,11 +1025,45 @@ class GDLLoader extends GDLBaseListener {
       return new Literal(getPropertyValue(element.literal()));
     } else if(element.propertyLookup() != null) {
       return buildPropertySelector(element.propertyLookup());
+    } else if(element.vectorFunction() != null) {
+      return buildSimilarityFunction(element.vectorFunction());
     } else {
-      return new ElementSelector(element.Identifier().getText());
+      return new ElementSelector(element.identifier().getText());
     }
   }
 
+  /**
+   * Builds a vector function expression like cosine(alice.embedding, vector([1.0f, 0.0f]))
+   *
+   * @param ctx the vector function context that will be parsed
+   * @return parsed vector function
+   */
+  private SimilarityFunction buildSimilarityFunction(GDLParser.VectorFunctionContext ctx) {
+    SimilarityFunction.Type type = SimilarityFunction.Type.fromString(ctx.Identifier().getText());
+    return new SimilarityFunction(type,
+      extractVectorArgument(ctx.vectorArgument(0)), extractVectorArgument(ctx.vectorArgument(1)));
+  }
+
+  /**
+   * Extracts a vector function argument, parameters must be bound to vectors.
+   *
+   * @param ctx vector argument context
+   * @return property selector or vector literal
+   */
+  private ComparableExpression extractVectorArgument(GDLParser.VectorArgumentContext ctx) {
+    if (ctx.propertyLookup() != null) {
+      return buildPropertySelector(ctx.propertyLookup());
+    } else if (ctx.vectorLiteral() != null) {
+      return new Literal(getVectorLiteral(ctx.getText(), ctx.vectorLiteral()));
+    }
+    Object value = getParameterValue(ctx.Parameter());
+    if (!(value instanceof VectorLiteral)) {
+      throw new IllegalArgumentException(String.format(
+        "Parameter %s must be bound to a vector but found '%s'", ctx.Parameter().getText(), value));
+    }
+    return new Literal(value);
+  }
+
   /**
    * Builds an property selector expression like alice.age
    *
@@ -836,8 +1073,8 @@ class GDLLoader extends GDLBaseListener {
   private PropertySelector buildPropertySelector(GDLParser.PropertyLookupContext ctx) {
     GraphElement element;
 
-    String identifier = ctx.Identifier(0).getText();
-    String property = ctx.Identifier(1).getText();
+    String identifier = ctx.identifier(0).getText();
+    String property = ctx.identifier(1).getText();
 
     if(userVertexCache.containsKey(identifier)) {
       element = userVertexCache.get(identifier);
@@ -850,6 +1087,159 @@ class GDLLoader extends GDLBaseListener {
     return new PropertySelector(element.getVariable(),property);
   }
 
+  /**
+   * Builds a selector for a query vertex or edge referenced by its variable.
+   *
+   * @param identifier variable
+   * @return element selector
+   */
+  private ElementSelector buildElementSelector(String identifier) {
+    if (!userVertexCache.containsKey(identifier) && !userEdgeCache.containsKey(identifier)) {
+      throw new InvalidReferenceException(identifier);
+    }
+    return new ElementSelector(identifier);
+  }
+
+  // --------------------------------------------------------------------------------------------
+  //  Bulk import
+  // --------------------------------------------------------------------------------------------
+
+  /**
+   * Adds a graph read by the {@link BulkImporter}, like a graph definition.
+   *
+   * @param variable graph variable or {@code null} if anonymous
+   * @param labels graph labels, the default label is used if empty
+   * @param properties graph properties
+   * @return new or referenced graph
+   */
+  Graph importGraph(String variable, List<String> labels, Map<String, Object> properties) {
+    Graph g;
+    if (variable != null && userGraphCache.containsKey(variable)) {
+      g = userGraphCache.get(variable);
+      if (!labels.isEmpty() || !properties.isEmpty()) {
+        throw new DuplicateDeclarationException(g);
+      }
+    } else {
+      g = new Graph();
+      g.setId(getNewGraphId(Optional.ofNullable(variable)));
+      g.setLabels(labels.isEmpty() ?
+        useDefaultGraphLabel ? Collections.singletonList(defaultGraphLabel) : Collections.emptyList()
+        : labels);
+      g.setProperties(properties);
+
+      if (variable != null) {
+        userGraphCache.put(variable, g);
+      } else {
+        variable = String.format(ANONYMOUS_GRAPH_VARIABLE, g.getId());
+        autoGraphCache.put(variable, g);
+      }
+      g.setVariable(variable);
+      graphs.add(g);
+    }
+    return g;
+  }
+
+  /**
+   * Adds a vertex read by the {@link BulkImporter}, like a vertex definition inside the given graphs.
+   *
+   * @param variable vertex variable or {@code null} if anonymous
+   * @param labels vertex labels, the default label is used if empty
+   * @param properties vertex properties
+   * @param graphVariables variables of the graphs containing the vertex, unknown graphs are created
+   * @return new or referenced vertex
+   */
+  Vertex importVertex(String variable, List<String> labels, Map<String, Object> properties,
+    List<String> graphVariables) {
+    Vertex v;
+    if (variable != null && userVertexCache.containsKey(variable)) {
+      v = userVertexCache.get(variable);
+      if (!labels.isEmpty() || !properties.isEmpty()) {
+        throw new DuplicateDeclarationException(v);
+      }
+    } else {
+      v = new Vertex();
+      v.setId(getNewVertexId(Optional.ofNullable(variable)));
+      v.setLabels(labels.isEmpty() ?
+        useDefaultVertexLabel ? Collections.singletonList(defaultVertexLabel) : Collections.emptyList()
+        : labels);
+      v.setProperties(properties);
+
+      if (variable != null) {
+        userVertexCache.put(variable, v);
+      } else {
+        variable = String.format(ANONYMOUS_VERTEX_VARIABLE, v.getId());
+        autoVertexCache.put(variable, v);
+      }
+      v.setVariable(variable);
+      vertices.add(v);
+      addedVertices.add(v);
+    }
+    importIntoGraphs(v, graphVariables);
+    return v;
+  }
+
+  /**
+   * Adds an edge read by the {@link BulkImporter}, like an edge definition inside the given graphs.
+   * Source and target vertex are added to these graphs as well.
+   *
+   * @param variable edge variable or {@code null} if anonymous
+   * @param source variable of the source vertex
+   * @param target variable of the target vertex
+   * @param labels edge labels, the default label is used if empty
+   * @param properties edge properties
+   * @param graphVariables variables of the graphs containing the edge, unknown graphs are created
+   * @return new or referenced edge
+   */
+  Edge importEdge(String variable, String source, String target, List<String> labels,
+    Map<String, Object> properties, List<String> graphVariables) {
+    Vertex sourceVertex = getImportedVertex(source);
+    Vertex targetVertex = getImportedVertex(target);
+    Edge e;
+    if (variable != null && userEdgeCache.containsKey(variable)) {
+      e = userEdgeCache.get(variable);
+      if (!labels.isEmpty() || !properties.isEmpty()) {
+        throw new DuplicateDeclarationException(e);
+      }
+    } else {
+      e = new Edge();
+      e.setId(getNewEdgeId(Optional.ofNullable(variable)));
+      e.setSourceVertexId(sourceVertex.getId());
+      e.setTargetVertexId(targetVertex.getId());
+      e.setLabels(labels.isEmpty() ?
+        useDefaultEdgeLabel ? Collections.singletonList(defaultEdgeLabel) : Collections.emptyList()
+        : labels);
+      e.setProperties(properties);
+
+      if (variable != null) {
+        userEdgeCache.put(variable, e);
+      } else {
+        variable = String.format(ANONYMOUS_EDGE_VARIABLE, e.getId());
+        autoEdgeCache.put(variable, e);
+      }
+      e.setVariable(variable);
+      edges.add(e);
+      addedEdges.add(e);
+    }
+    importIntoGraphs(e, graphVariables);
+    importIntoGraphs(sourceVertex, graphVariables);
+    importIntoGraphs(targetVertex, graphVariables);
+    return e;
+  }
+
+  private Vertex getImportedVertex(String variable) {
+    Vertex v = variable != null ? userVertexCache.get(variable) : null;
+    if (v == null) {
+      throw new IllegalArgumentException("Edge references vertex '" + variable + "' which was not defined");
+    }
+    return v;
+  }
+
+  private void importIntoGraphs(GraphElement element, List<String> graphVariables) {
+    for (String variable : graphVariables) {
+      element.addToGraph(importGraph(variable, Collections.emptyList(), Collections.emptyMap()).getId());
+    }
+  }
+
   // --------------------------------------------------------------------------------------------
   //  Identifier management
   // --------------------------------------------------------------------------------------------
@@ -928,9 +1318,9 @@ class GDLLoader extends GDLBaseListener {
   private void addPredicates(List<Predicate> newPredicates) {
     for(Predicate newPredicate : newPredicates) {
       if(this.predicates == null) {
-        this.predicates = newPredicate;
+        this.predicates = predicateInterner.intern(newPredicate);
       } else {
-        this.predicates = new And(this.predicates, newPredicate);
+        this.predicates = predicateInterner.and(this.predicates, newPredicate);
       }
     }
   }
@@ -1017,6 +1407,42 @@ class GDLLoader extends GDLBaseListener {
     return Integer.parseInt(node.getText());
   }
 
+  /**
+   * Resolves a SKIP/LIMIT parameter to a non-negative count.
+   *
+   * @param node the node which represents the parameter
+   * @param clause clause name used in the error message
+   * @return the parameter value
+   */
+  private long parameterToCount(TerminalNode node, String clause) {
+    Object value = getParameterValue(node);
+    if (!(value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte)) {
+      throw new IllegalArgumentException(
+        String.format("%s parameter %s must be an integer but was %s", clause, node.getText(), value));
+    }
+    long count = ((Number) value).longValue();
+    if (count < 0) {
+      throw new IllegalArgumentException(String.format("%s must not be negative but was %d", clause, count));
+    }
+    return count;
+  }
+
+  /**
+   * Parses a terminal node to a non-negative long, e.g. the value of a SKIP or LIMIT clause.
+   *
+   * @param node the node which represents an integer
+   * @param clause clause name used in the error message
+   * @return the parsed long
+   */
+  private long terminalNodeToCount(TerminalNode node, String clause) {
+    String text = node.getText().toLowerCase();
+    long count = Long.parseLong(text.endsWith("l") ? text.substring(0, text.length() - 1) : text);
+    if (count < 0) {
+      throw new IllegalArgumentException(String.format("%s must not be negative but was %d", clause, count));
+    }
+    return count;
+  }
+
   /**
    * Parses a String literal from the input string. Unescapes " and '
    *
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl;
+
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * A parsed GDL script with {@code $parameter} placeholders in literal positions, e.g.
+ *
+ * <pre>
+ * (alice:Person {name : $name, age : $age})
+ * MATCH (p:Person) WHERE p.age &gt; $minAge LIMIT $limit
+ * </pre>
+ *
+ * <p>The script is lexed and parsed once by {@link GDLHandler.Builder#compileFromString(String)}.
+ * Each {@link #instantiate(Map)} only walks the stored parse tree and creates a new, independent
+ * handler holding the graphs, vertices, edges and predicates with the given parameter values.
+ * Templates can be instantiated concurrently.
+ */
+public class GDLTemplate {
+
+  private final GDLParser.DatabaseContext tree;
+
+  private final Set<String> parameterNames;
+
+  private final Supplier<GDLLoader> loaders;
+
+  GDLTemplate(GDLParser.DatabaseContext tree, Set<String> parameterNames, Supplier<GDLLoader> loaders) {
+    this.tree = tree;
+    this.parameterNames = Collections.unmodifiableSet(parameterNames);
+    this.loaders = loaders;
+  }
+
+  /**
+   * Returns the names of all parameters used in the script, without the leading {@code $}.
+   *
+   * @return parameter names in order of first occurrence
+   */
+  public Set<String> getParameterNames() {
+    return parameterNames;
+  }
+
+  /**
+   * Creates a handler from the script with the given parameter values. Values are used as they
+   * are, e.g. an {@code Integer} for an integer property or a {@code List} for a list property.
+   *
+   * @param parameters values by parameter name, without the leading {@code $}
+   * @return GDL handler
+   * @throws IllegalArgumentException if a parameter has no value
+   */
+  public GDLHandler instantiate(Map<String, ?> parameters) {
+    if (!parameters.keySet().containsAll(parameterNames)) {
+      throw new IllegalArgumentException(parameterNames.stream()
+        .filter(name -> !parameters.containsKey(name))
+        .map(name -> "$" + name)
+        .collect(Collectors.joining(", ", "No value given for parameters ", "")));
+    }
+    GDLLoader loader = loaders.get();
+    loader.setParameters(parameters);
+    new ParseTreeWalker().walk(loader, tree);
+    return new GDLHandler(loader);
+  }
+}
@@ -0,0 +1,544 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl;
+
+import org.s1ck.gdl.model.Edge;
+import org.s1ck.gdl.model.Element;
+import org.s1ck.gdl.model.Graph;
+import org.s1ck.gdl.model.GraphElement;
+import org.s1ck.gdl.model.Vertex;
+import org.s1ck.gdl.model.values.VectorLiteral;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes graphs, vertices and edges as GDL, so that reading the output yields the same elements.
+ *
+ * <p>Each graph is written as one block holding its vertices and edges, elements without a graph
+ * follow the blocks. An element is defined where it first occurs and referenced by its variable
+ * afterwards. Elements without a user-defined variable stay anonymous unless they are referenced
+ * more than once, e.g. a vertex with edges, in which case they are named like the variables the
+ * loader generates, e.g. {@code __v3}. Edges are always written as outgoing edges. As an edge inside
+ * a graph block adds its source and target vertex to that graph, both must be contained in every
+ * graph of the edge.
+ *
+ * <p>Property values can be {@code null}, strings, booleans, integers, longs, floats, doubles,
+ * lists of those and {@link VectorLiteral}s. Values GDL has no literal for are rejected with an
+ * {@link IllegalArgumentException}: infinite numbers, float {@code NaN} (read as a double) and
+ * strings that end with a backslash or contain a backslash followed by a single quote.
+ *
+ * <pre>
+ * try (GDLWriter writer = new GDLWriter(Files.newBufferedWriter(path))) {
+ *   writer.write(handler);
+ * }
+ * </pre>
+ */
+public class GDLWriter implements Closeable, Flushable {
+
+  /**
+   * Words the lexer reads as keywords or literals instead of identifiers
+   */
+  private static final Set<String> RESERVED = new HashSet<>(Arrays.asList(
+    "true", "TRUE", "false", "FALSE", "NaN", "NULL", "MATCH", "CREATE", "where", "WHERE"));
+
+  private static final Set<String> RESERVED_IGNORE_CASE = new HashSet<>(Arrays.asList("and", "or", "xor", "not"));
+
+  private static final String INDENT = "  ";
+
+  private final Writer out;
+
+  /**
+   * Output buffer, avoids a synchronized call into the writer per token
+   */
+  private final char[] buffer = new char[8192];
+
+  private int position;
+
+  /**
+   * Labels and property keys that are known to be valid identifiers
+   */
+  private final Set<String> identifiers = new HashSet<>();
+
+  /**
+   * Creates a writer that writes GDL to a character stream.
+   *
+   * @param out character stream, buffered by this writer
+   */
+  public GDLWriter(Writer out) {
+    if (out == null) {
+      throw new IllegalArgumentException("Writer must not be null");
+    }
+    this.out = out;
+  }
+
+  /**
+   * Creates a writer that writes UTF-8 encoded GDL to a byte stream.
+   *
+   * @param out byte stream, buffered by this writer
+   */
+  public GDLWriter(OutputStream out) {
+    this(new OutputStreamWriter(checkNotNull(out), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Writes all graphs, vertices and edges of a handler.
+   *
+   * @param handler GDL handler
+   * @throws IOException if writing fails
+   */
+  public void write(GDLHandler handler) throws IOException {
+    write(handler.getGraphs(), handler.getVertices(), handler.getEdges());
+  }
+
+  /**
+   * Writes the given elements. Graph memberships of vertices and edges must refer to the given
+   * graphs and edges must connect given vertices, which are contained in all graphs of the edge.
+   *
+   * @param graphs graphs
+   * @param vertices vertices
+   * @param edges edges
+   * @throws IOException if writing fails
+   * @throws IllegalArgumentException if the elements cannot be written as GDL
+   */
+  public void write(Collection<Graph> graphs, Collection<Vertex> vertices, Collection<Edge> edges)
+    throws IOException {
+    Map<Long, Graph> graphsById = new LinkedHashMap<>();
+    for (Graph graph : graphs) {
+      graphsById.put(graph.getId(), graph);
+    }
+    Map<Long, Vertex> verticesById = new HashMap<>();
+    for (Vertex vertex : vertices) {
+      verticesById.put(vertex.getId(), vertex);
+    }
+
+    // members in input order, null holds the elements without a graph
+    Map<Long, List<Vertex>> vertexMembers = new HashMap<>();
+    Map<Long, List<Edge>> edgeMembers = new HashMap<>();
+    Map<Long, Integer> vertexOccurrences = new HashMap<>();
+    for (Vertex vertex : vertices) {
+      for (Long graphId : memberships(vertex, graphsById)) {
+        vertexMembers.computeIfAbsent(graphId, id -> new ArrayList<>()).add(vertex);
+        vertexOccurrences.merge(vertex.getId(), 1, Integer::sum);
+      }
+    }
+    for (Edge edge : edges) {
+      List<Long> endpoints = Arrays.asList(edge.getSourceVertexId(), edge.getTargetVertexId());
+      for (Long vertexId : endpoints) {
+        if (!verticesById.containsKey(vertexId)) {
+          throw new IllegalArgumentException(String.format(
+            "Edge %d connects vertex %d which is not written", edge.getId(), vertexId));
+        }
+      }
+      int occurrences = 0;
+      for (Long graphId : memberships(edge, graphsById)) {
+        for (Long vertexId : endpoints) {
+          Set<Long> vertexGraphs = verticesById.get(vertexId).getGraphs();
+          if (graphId != null && (vertexGraphs == null || !vertexGraphs.contains(graphId))) {
+            throw new IllegalArgumentException(String.format(
+              "Edge %d is contained in graph %d which does not contain its vertex %d",
+              edge.getId(), graphId, vertexId));
+          }
+        }
+        edgeMembers.computeIfAbsent(graphId, id -> new ArrayList<>()).add(edge);
+        occurrences++;
+      }
+      for (Long vertexId : endpoints) {
+        vertexOccurrences.merge(vertexId, occurrences, Integer::sum);
+      }
+    }
+
+    State state = new State(verticesById, vertexOccurrences);
+    for (Graph graph : graphsById.values()) {
+      writeHeader(state.graphVariable(graph), graph);
+      append('[');
+      append('\n');
+      writeMembers(state, vertexMembers.get(graph.getId()), edgeMembers.get(graph.getId()), INDENT);
+      append(']');
+      append('\n');
+    }
+    writeMembers(state, vertexMembers.get(null), edgeMembers.get(null), "");
+    flush();
+  }
+
+  @Override
+  public void flush() throws IOException {
+    out.write(buffer, 0, position);
+    position = 0;
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    flush();
+    out.close();
+  }
+
+  private void append(char c) throws IOException {
+    if (position == buffer.length) {
+      out.write(buffer, 0, position);
+      position = 0;
+    }
+    buffer[position++] = c;
+  }
+
+  private void append(String text) throws IOException {
+    append(text, 0, text.length());
+  }
+
+  private void append(String text, int offset, int length) throws IOException {
+    while (length > 0) {
+      if (position == buffer.length) {
+        out.write(buffer, 0, position);
+        position = 0;
+      }
+      int chunk = Math.min(length, buffer.length - position);
+      text.getChars(offset, offset + chunk, buffer, position);
+      position += chunk;
+      offset += chunk;
+      length -= chunk;
+    }
+  }
+
+  private static <T> T checkNotNull(T value) {
+    if (value == null) {
+      throw new IllegalArgumentException("Output stream must not be null");
+    }
+    return value;
+  }
+
+  /**
+   * Returns the ids of the graphs an element is written in, {@code null} for none.
+   */
+  private static Collection<Long> memberships(GraphElement element, Map<Long, Graph> graphs) {
+    if (element.getGraphs() == null || element.getGraphs().isEmpty()) {
+      return Collections.singletonList(null);
+    }
+    for (Long graphId : element.getGraphs()) {
+      if (!graphs.containsKey(graphId)) {
+        throw new IllegalArgumentException(String.format(
+          "Element %d is contained in graph %d which is not written", element.getId(), graphId));
+      }
+    }
+    return element.getGraphs();
+  }
+
+  private void writeMembers(State state, List<Vertex> vertices, List<Edge> edges, String indent)
+    throws IOException {
+    if (vertices != null) {
+      for (Vertex vertex : vertices) {
+        append(indent);
+        writeVertex(state, vertex);
+        append('\n');
+      }
+    }
+    if (edges != null) {
+      for (Edge edge : edges) {
+        append(indent);
+        writeVertex(state, state.vertices.get(edge.getSourceVertexId()));
+        writeEdge(state, edge);
+        writeVertex(state, state.vertices.get(edge.getTargetVertexId()));
+        append('\n');
+      }
+    }
+  }
+
+  private void writeVertex(State state, Vertex vertex) throws IOException {
+    append('(');
+    String variable = state.vertexNames.get(vertex.getId());
+    if (variable != null) {
+      append(variable);
+    } else {
+      variable = state.vertexVariable(vertex);
+      if (variable != null) {
+        state.vertexNames.put(vertex.getId(), variable);
+      }
+      writeHeader(variable, vertex);
+    }
+    append(')');
+  }
+
+  private void writeEdge(State state, Edge edge) throws IOException {
+    String variable = state.edgeNames.get(edge.getId());
+    if (variable != null) {
+      append("-[");
+      append(variable);
+      append("]->");
+      return;
+    }
+    variable = state.edgeVariable(edge);
+    if (variable != null) {
+      state.edgeNames.put(edge.getId(), variable);
+    }
+    if (variable == null && isEmpty(edge.getLabels()) && isEmpty(edge.getProperties()) &&
+      !edge.hasVariableLength()) {
+      append("-->");
+    } else {
+      append("-[");
+      writeHeader(variable, edge);
+      if (edge.hasVariableLength()) {
+        append('*');
+        append(Integer.toString(edge.getLowerBound()));
+        append("..");
+        append(Integer.toString(edge.getUpperBound()));
+      }
+      append("]->");
+    }
+  }
+
+  /**
+   * Writes variable, labels and properties of an element.
+   */
+  private void writeHeader(String variable, Element element) throws IOException {
+    if (variable != null) {
+      append(variable);
+    }
+    if (element.getLabels() != null) {
+      for (String label : element.getLabels()) {
+        append(':');
+        append(checkIdentifier(label, "label"));
+      }
+    }
+    Map<String, Object> properties = element.getProperties();
+    if (!isEmpty(properties)) {
+      append(variable != null || !isEmpty(element.getLabels()) ? " {" : "{");
+      boolean first = true;
+      for (Map.Entry<String, Object> property : properties.entrySet()) {
+        if (!first) {
+          append(", ");
+        }
+        first = false;
+        append(checkIdentifier(property.getKey(), "property key"));
+        append(" : ");
+        writeValue(property.getKey(), property.getValue(), true);
+      }
+      append('}');
+    }
+  }
+
+  private void writeValue(String key, Object value, boolean allowNested) throws IOException {
+    if (value == null) {
+      append("NULL");
+    } else if (value instanceof String) {
+      writeString(key, (String) value);
+    } else if (value instanceof Integer || value instanceof Boolean) {
+      append(value.toString());
+    } else if (value instanceof Long) {
+      append(value.toString());
+      append('L');
+    } else if (value instanceof Float) {
+      float number = (Float) value;
+      if (Float.isNaN(number) || Float.isInfinite(number)) {
+        throw unsupported(key, value);
+      }
+      writeDecimal(Float.toString(number));
+      append('f');
+    } else if (value instanceof Double) {
+      double number = (Double) value;
+      if (Double.isNaN(number)) {
+        append("NaN");
+      } else if (Double.isInfinite(number)) {
+        throw unsupported(key, value);
+      } else {
+        writeDecimal(Double.toString(number));
+        append('d');
+      }
+    } else if (allowNested && value instanceof List) {
+      append('[');
+      List<?> list = (List<?>) value;
+      for (int i = 0; i < list.size(); i++) {
+        if (i > 0) {
+          append(", ");
+        }
+        writeValue(key, list.get(i), false);
+      }
+      append(']');
+    } else if (allowNested && value instanceof VectorLiteral) {
+      append(((VectorLiteral) value).toGDLString());
+    } else {
+      throw unsupported(key, value);
+    }
+  }
+
+  /**
+   * Writes a finite number in plain decimal notation, the grammar has no exponents.
+   */
+  private void writeDecimal(String text) throws IOException {
+    append(toPlainDecimal(text));
+  }
+
+  /**
+   * Converts a finite number printed by {@link Double#toString(double)} or
+   * {@link Float#toString(float)} to plain decimal notation.
+   *
+   * @param text number
+   * @return number without exponent
+   */
+  static String toPlainDecimal(String text) {
+    if (text.indexOf('E') < 0) {
+      return text;
+    }
+    String plain = new BigDecimal(text).toPlainString();
+    return plain.indexOf('.') < 0 ? plain + ".0" : plain;
+  }
+
+  private void writeString(String key, String value) throws IOException {
+    // the loader only unescapes quotes, so these cannot be written
+    if (value.endsWith("\\") || value.contains("\\'")) {
+      throw unsupported(key, value);
+    }
+    append('"');
+    int start = 0;
+    for (int quote = value.indexOf('"'); quote >= 0; quote = value.indexOf('"', start)) {
+      append(value, start, quote - start);
+      append("\\\"");
+      start = quote + 1;
+    }
+    append(value, start, value.length() - start);
+    append('"');
+  }
+
+  private static IllegalArgumentException unsupported(String key, Object value) {
+    return new IllegalArgumentException(String.format(
+      "Value of property '%s' cannot be written as GDL: %s (%s)", key, value, value.getClass().getSimpleName()));
+  }
+
+  private String checkIdentifier(String identifier, String kind) {
+    if (!identifiers.contains(identifier)) {
+      if (!isIdentifier(identifier)) {
+        throw new IllegalArgumentException(String.format("Invalid %s: %s", kind, identifier));
+      }
+      identifiers.add(identifier);
+    }
+    return identifier;
+  }
+
+  /**
+   * Checks that a string is read as identifier, i.e. it matches {@code [_a-zA-Z][_a-zA-Z0-9]*} and
+   * is no keyword.
+   */
+  static boolean isIdentifier(String text) {
+    if (text == null || text.isEmpty() || isDigit(text.charAt(0))) {
+      return false;
+    }
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (!(c == '_' || isDigit(c) || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z'))) {
+        return false;
+      }
+    }
+    return text.length() > 6 ||
+      !(RESERVED.contains(text) || RESERVED_IGNORE_CASE.contains(text.toLowerCase()));
+  }
+
+  /**
+   * Checks if a variable has the form of the variables generated for anonymous elements by the
+   * loader, e.g. {@code __v3}.
+   */
+  private static boolean isAnonymous(String variable) {
+    if (variable.length() < 4 || !variable.startsWith("__") || "gve".indexOf(variable.charAt(2)) < 0) {
+      return false;
+    }
+    for (int i = 3; i < variable.length(); i++) {
+      if (!isDigit(variable.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isEmpty(Collection<?> collection) {
+    return collection == null || collection.isEmpty();
+  }
+
+  private static boolean isEmpty(Map<?, ?> map) {
+    return map == null || map.isEmpty();
+  }
+
+  /**
+   * Variables and declarations of one {@link #write} call
+   */
+  private final class State {
+    private final Map<Long, Vertex> vertices;
+    private final Map<Long, Integer> vertexOccurrences;
+    // variables of the declared elements that are referenced again
+    private final Map<Long, String> vertexNames = new HashMap<>();
+    private final Map<Long, String> edgeNames = new HashMap<>();
+    private final Map<String, Long> graphVariables = new HashMap<>();
+    private final Map<String, Long> vertexVariables = new HashMap<>();
+    private final Map<String, Long> edgeVariables = new HashMap<>();
+
+    private State(Map<Long, Vertex> vertices, Map<Long, Integer> vertexOccurrences) {
+      this.vertices = vertices;
+      this.vertexOccurrences = vertexOccurrences;
+    }
+
+    private String graphVariable(Graph graph) {
+      return variable(graph, "__g", false, graphVariables);
+    }
+
+    private String vertexVariable(Vertex vertex) {
+      return variable(vertex, "__v", vertexOccurrences.getOrDefault(vertex.getId(), 1) > 1, vertexVariables);
+    }
+
+    private String edgeVariable(Edge edge) {
+      return variable(edge, "__e", edge.getGraphs() != null && edge.getGraphs().size() > 1, edgeVariables);
+    }
+
+    /**
+     * Returns the user-defined variable, a generated one if the element is referenced or null.
+     */
+    private String variable(Element element, String prefix, boolean referenced, Map<String, Long> used) {
+      String variable = element.getVariable();
+      if (variable == null || isAnonymous(variable)) {
+        if (!referenced) {
+          return null;
+        }
+        variable = prefix + element.getId();
+      } else if (!isIdentifier(variable)) {
+        throw new IllegalArgumentException("Invalid variable: " + variable);
+      }
+      Long previous = used.putIfAbsent(variable, element.getId());
+      if (previous != null && previous != element.getId()) {
+        throw new IllegalArgumentException(String.format(
+          "Variable %s is used by elements %d and %d", variable, previous, element.getId()));
+      }
+      return variable;
+    }
+  }
+}
@@ -0,0 +1,824 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl;
+
+import org.s1ck.gdl.model.Edge;
+import org.s1ck.gdl.model.Element;
+import org.s1ck.gdl.model.Graph;
+import org.s1ck.gdl.model.Vertex;
+import org.s1ck.gdl.model.values.FloatVectorLiteral;
+import org.s1ck.gdl.model.values.VectorLiteral;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * Generates synthetic graphs of configurable size and shape, e.g. for scale tests and benchmarks.
+ *
+ * <p>The generator either writes a GDL script or passes model elements to consumers. Neither keeps
+ * generated elements, so graphs larger than the heap can be written. Both produce the same graph for
+ * the same seed, loading the script yields the ids of the model elements: graphs, vertices and
+ * edges are numbered from 0 in generation order.
+ *
+ * <pre>
+ * GraphGenerator generator = new GraphGenerator.Builder()
+ *   .setSeed(42L)
+ *   .setVertexCount(1_000_000)
+ *   .setAverageDegree(8)
+ *   .setDegreeDistribution(GraphGenerator.DegreeDistribution.POWER_LAW)
+ *   .addVertexLabel("Person", 3, Property.strings("name", 10_000), Property.integers("age", 0, 100))
+ *   .addEdgeLabel("knows", 1, Property.integers("since", 1990, 2020))
+ *   .setGraphCount(10)
+ *   .setGraphOverlap(0.1)
+ *   .build();
+ * </pre>
+ *
+ * <p>Each vertex belongs to one graph and, with the probability given by the graph overlap, to a
+ * second one. An edge belongs to the first graph shared by its source and target vertex.
+ * Elements of unlabeled schemas get no label, so a loaded script uses the default labels.
+ */
+public class GraphGenerator {
+
+  /**
+   * Distribution of vertex degrees
+   */
+  public enum DegreeDistribution {
+    /**
+     * Out-degrees are uniform between 0 and twice the average degree, targets are uniform.
+     */
+    UNIFORM,
+    /**
+     * Out-degrees follow a Pareto distribution with the average degree as mean, targets are
+     * chosen by a skewed popularity, so few vertices have a high in-degree.
+     */
+    POWER_LAW
+  }
+
+  /**
+   * Multiplier spreading popular target ranks over all vertices, a prime larger than any vertex count
+   */
+  private static final long PERMUTATION = 2654435761L;
+
+  private static final String[] COMPARATORS = {" > ", " < ", " = "};
+
+  private final long seed;
+
+  private final int vertexCount;
+
+  private final double averageDegree;
+
+  private final DegreeDistribution degreeDistribution;
+
+  private final double exponent;
+
+  private final int graphCount;
+
+  private final double graphOverlap;
+
+  private final String graphLabel;
+
+  private final List<Label> vertexLabels;
+
+  private final List<Label> edgeLabels;
+
+  private GraphGenerator(Builder builder) {
+    this.seed = builder.seed;
+    this.vertexCount = builder.vertexCount;
+    this.averageDegree = builder.averageDegree;
+    this.degreeDistribution = builder.degreeDistribution;
+    this.exponent = builder.exponent;
+    this.graphCount = builder.graphCount;
+    this.graphOverlap = builder.graphOverlap;
+    this.graphLabel = builder.graphLabel;
+    this.vertexLabels = new ArrayList<>(builder.vertexLabels);
+    this.edgeLabels = new ArrayList<>(builder.edgeLabels);
+  }
+
+  /**
+   * Generates the graph and passes each element to a consumer: first all graphs, then all vertices
+   * and then all edges.
+   *
+   * @param graphs graph consumer
+   * @param vertices vertex consumer
+   * @param edges edge consumer
+   */
+  public void generate(Consumer<Graph> graphs, Consumer<Vertex> vertices, Consumer<Edge> edges) {
+    SplittableRandom root = new SplittableRandom(seed);
+    SplittableRandom vertexRandom = root.split();
+    SplittableRandom edgeRandom = root.split();
+
+    for (int g = 0; g < graphCount; g++) {
+      Graph graph = new Graph();
+      graph.setId(g);
+      graph.setVariable("g" + g);
+      graph.setLabels(graphLabel != null ? Collections.singletonList(graphLabel) : Collections.emptyList());
+      graphs.accept(graph);
+    }
+
+    for (int v = 0; v < vertexCount; v++) {
+      Vertex vertex = new Vertex();
+      vertex.setId(v);
+      vertex.setVariable("v" + v);
+      initialize(vertex, vertexLabels, vertexRandom);
+      for (int graph : memberships(v)) {
+        vertex.addToGraph((long) graph);
+      }
+      vertices.accept(vertex);
+    }
+
+    long edgeId = 0;
+    long permutation = permutation();
+    for (int source = 0; source < vertexCount; source++) {
+      long degree = degree(edgeRandom);
+      for (long d = 0; d < degree; d++) {
+        int target = target(source, permutation, edgeRandom);
+        Edge edge = new Edge();
+        edge.setId(edgeId++);
+        edge.setSourceVertexId((long) source);
+        edge.setTargetVertexId((long) target);
+        initialize(edge, edgeLabels, edgeRandom);
+        int graph = sharedGraph(source, target);
+        if (graph >= 0) {
+          edge.addToGraph((long) graph);
+        }
+        edges.accept(edge);
+      }
+    }
+  }
+
+  /**
+   * Writes the graph as a GDL script, one statement per line. The writer is flushed but not closed.
+   *
+   * @param writer output
+   * @throws IOException if writing fails
+   */
+  public void write(Writer writer) throws IOException {
+    LineWriter lines = new LineWriter(writer instanceof BufferedWriter ? writer : new BufferedWriter(writer, 1 << 16));
+    StringBuilder line = lines.line;
+    try {
+      generate(graph -> {
+        line.append(graph.getVariable());
+        appendLabels(graph, line);
+        line.append("[]\n");
+        lines.flush();
+      }, vertex -> {
+        int[] memberships = memberships((int) vertex.getId());
+        if (memberships.length > 0) {
+          line.append('g').append(memberships[0]).append('[');
+        }
+        line.append('(').append(vertex.getVariable());
+        appendLabels(vertex, line);
+        appendProperties(vertex, line);
+        line.append(')');
+        if (memberships.length > 0) {
+          line.append(']');
+        }
+        for (int i = 1; i < memberships.length; i++) {
+          line.append(" g").append(memberships[i]).append("[(").append(vertex.getVariable()).append(")]");
+        }
+        line.append('\n');
+        lines.flush();
+      }, edge -> {
+        boolean inGraph = !edge.getGraphs().isEmpty();
+        if (inGraph) {
+          line.append('g').append(edge.getGraphs().iterator().next()).append('[');
+        }
+        line.append("(v").append(edge.getSourceVertexId()).append(")-[");
+        appendLabels(edge, line);
+        appendProperties(edge, line);
+        line.append("]->(v").append(edge.getTargetVertexId()).append(')');
+        if (inGraph) {
+          line.append(']');
+        }
+        line.append('\n');
+        lines.flush();
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    lines.out.flush();
+  }
+
+  /**
+   * Generates MATCH queries over the label and property schema, e.g.
+   * {@code MATCH (v0:Person)-[e0:knows]->(v1) WHERE v0.age > 42}. Queries are chains of one to
+   * three outgoing edges with up to two property predicates.
+   *
+   * @param count number of queries
+   * @return queries
+   */
+  public List<String> queries(int count) {
+    SplittableRandom root = new SplittableRandom(seed);
+    root.split();
+    root.split();
+    SplittableRandom random = root.split();
+
+    List<String> queries = new ArrayList<>(count);
+    StringBuilder query = new StringBuilder();
+    List<String> predicates = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      query.setLength(0);
+      predicates.clear();
+      query.append("MATCH ");
+      int hops = 1 + random.nextInt(3);
+      for (int hop = 0; hop <= hops; hop++) {
+        if (hop > 0) {
+          query.append("-[");
+          appendPattern("e" + (hop - 1), edgeLabels, random, query, predicates);
+          query.append("]->");
+        }
+        query.append('(');
+        appendPattern("v" + hop, vertexLabels, random, query, predicates);
+        query.append(')');
+      }
+      int predicateCount = Math.min(predicates.size(), random.nextInt(3));
+      for (int p = 0; p < predicateCount; p++) {
+        Collections.swap(predicates, p, p + random.nextInt(predicates.size() - p));
+        query.append(p == 0 ? " WHERE " : " AND ").append(predicates.get(p));
+      }
+      queries.add(query.toString());
+    }
+    return queries;
+  }
+
+  /**
+   * Appends a query element with a random label and collects candidate predicates on its properties.
+   */
+  private static void appendPattern(String variable, List<Label> labels, SplittableRandom random,
+    StringBuilder query, List<String> predicates) {
+    query.append(variable);
+    if (labels.isEmpty() || random.nextInt(4) == 0) {
+      return;
+    }
+    Label label = choose(labels, random);
+    query.append(':').append(label.name);
+    StringBuilder predicate = new StringBuilder();
+    for (Property property : label.properties) {
+      predicate.setLength(0);
+      Object value = property.value(random);
+      if (value instanceof VectorLiteral) {
+        predicate.append("cosine(").append(variable).append('.').append(property.key).append(", ");
+        appendValue(value, predicate);
+        predicate.append(") > 0.").append(random.nextInt(10));
+      } else {
+        predicate.append(variable).append('.').append(property.key);
+        // random doubles are hardly ever equal to a property value
+        int comparators = value instanceof Double ? 2 : value instanceof Number ? 3 : 1;
+        predicate.append(COMPARATORS[comparators == 1 ? 2 : random.nextInt(comparators)]);
+        appendValue(value, predicate);
+      }
+      predicates.add(predicate.toString());
+    }
+  }
+
+  /**
+   * Chooses a label, assigns it and generates the properties of its schema.
+   */
+  private static void initialize(Element element, List<Label> labels, SplittableRandom random) {
+    if (labels.isEmpty()) {
+      element.setLabels(Collections.emptyList());
+      return;
+    }
+    Label label = choose(labels, random);
+    element.setLabel(label.name);
+    Map<String, Object> properties = new LinkedHashMap<>();
+    for (Property property : label.properties) {
+      Object value = property.next(random);
+      if (value != null) {
+        properties.put(property.key, value);
+      }
+    }
+    element.setProperties(properties);
+  }
+
+  private static Label choose(List<Label> labels, SplittableRandom random) {
+    if (labels.size() == 1) {
+      return labels.get(0);
+    }
+    double total = labels.get(labels.size() - 1).cumulativeWeight;
+    double r = random.nextDouble() * total;
+    for (Label label : labels) {
+      if (r < label.cumulativeWeight) {
+        return label;
+      }
+    }
+    return labels.get(labels.size() - 1);
+  }
+
+  /**
+   * Returns the graphs of a vertex. Memberships are a hash of the vertex id, so the graphs of an
+   * edge target are known without keeping them.
+   */
+  private int[] memberships(int vertex) {
+    if (graphCount == 0) {
+      return new int[0];
+    }
+    long hash = mix(seed ^ (vertex * 0x9E3779B97F4A7C15L));
+    int home = (int) Long.remainderUnsigned(hash, graphCount);
+    long second = mix(hash);
+    if (graphCount > 1 && (second >>> 11) * 0x1.0p-53 < graphOverlap) {
+      int other = (int) ((home + 1 + Long.remainderUnsigned(mix(second), graphCount - 1)) % graphCount);
+      return new int[] {home, other};
+    }
+    return new int[] {home};
+  }
+
+  private int sharedGraph(int source, int target) {
+    int[] targetGraphs = memberships(target);
+    for (int graph : memberships(source)) {
+      for (int other : targetGraphs) {
+        if (graph == other) {
+          return graph;
+        }
+      }
+    }
+    return -1;
+  }
+
+  private long degree(SplittableRandom random) {
+    double degree;
+    if (degreeDistribution == DegreeDistribution.UNIFORM) {
+      degree = random.nextDouble() * 2 * averageDegree;
+    } else {
+      double minimum = averageDegree * (exponent - 2) / (exponent - 1);
+      degree = minimum * Math.pow(1 - random.nextDouble(), -1 / (exponent - 1));
+    }
+    return Math.min((long) (degree + 0.5), vertexCount > 1 ? vertexCount - 1L : vertexCount);
+  }
+
+  private int target(int source, long permutation, SplittableRandom random) {
+    int target;
+    if (degreeDistribution == DegreeDistribution.UNIFORM) {
+      target = random.nextInt(vertexCount);
+    } else {
+      long rank = (long) (vertexCount * Math.pow(random.nextDouble(), exponent));
+      target = (int) ((rank * permutation + seed % vertexCount + vertexCount) % vertexCount);
+    }
+    return target == source && vertexCount > 1 ? (target + 1) % vertexCount : target;
+  }
+
+  /**
+   * Returns a multiplier coprime to the vertex count, making rank to vertex a permutation.
+   */
+  private long permutation() {
+    long permutation = PERMUTATION;
+    while (vertexCount > 0 && gcd(permutation, vertexCount) != 1) {
+      permutation += 2;
+    }
+    return permutation % Math.max(vertexCount, 1);
+  }
+
+  private static long gcd(long a, long b) {
+    return b == 0 ? a : gcd(b, a % b);
+  }
+
+  /**
+   * SplitMix64 finalizer
+   */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  private static void appendLabels(Element element, StringBuilder line) {
+    for (String label : element.getLabels()) {
+      line.append(':').append(label);
+    }
+  }
+
+  private static void appendProperties(Element element, StringBuilder line) {
+    if (element.getProperties().isEmpty()) {
+      return;
+    }
+    line.append(" {");
+    boolean first = true;
+    for (Map.Entry<String, Object> property : element.getProperties().entrySet()) {
+      if (!first) {
+        line.append(", ");
+      }
+      first = false;
+      line.append(property.getKey()).append(" : ");
+      appendValue(property.getValue(), line);
+    }
+    line.append('}');
+  }
+
+  private static void appendValue(Object value, StringBuilder line) {
+    if (value instanceof String) {
+      line.append('"').append((String) value).append('"');
+    } else if (value instanceof Long) {
+      line.append((long) (Long) value).append('L');
+    } else if (value instanceof Double) {
+      line.append(GDLWriter.toPlainDecimal(value.toString())).append('d');
+    } else if (value instanceof VectorLiteral) {
+      line.append(((VectorLiteral) value).toGDLString(true));
+    } else {
+      line.append(value);
+    }
+  }
+
+  private static String checkIdentifier(String identifier, String kind) {
+    if (!GDLWriter.isIdentifier(identifier)) {
+      throw new IllegalArgumentException(String.format("Invalid %s: %s", kind, identifier));
+    }
+    return identifier;
+  }
+
+  /**
+   * Writes lines of a script without creating strings
+   */
+  private static final class LineWriter {
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder(256);
+    private char[] chars = new char[256];
+
+    private LineWriter(Writer out) {
+      this.out = out;
+    }
+
+    private void flush() {
+      if (line.length() > chars.length) {
+        chars = new char[Math.max(line.length(), 2 * chars.length)];
+      }
+      line.getChars(0, line.length(), chars, 0);
+      try {
+        out.write(chars, 0, line.length());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      line.setLength(0);
+    }
+  }
+
+  /**
+   * Label of the schema with its properties
+   */
+  private static final class Label {
+    private final String name;
+    private final double cumulativeWeight;
+    private final List<Property> properties;
+
+    private Label(String name, double cumulativeWeight, List<Property> properties) {
+      this.name = name;
+      this.cumulativeWeight = cumulativeWeight;
+      this.properties = properties;
+    }
+  }
+
+  /**
+   * Property of a label schema, defines the key and the distribution of values.
+   */
+  public static final class Property {
+
+    private enum Type { INT, LONG, DOUBLE, STRING, BOOLEAN, VECTOR }
+
+    private final String key;
+    private final Type type;
+    private final long min;
+    private final long max;
+    private final double from;
+    private final double to;
+    private final double probability;
+
+    private Property(String key, Type type, long min, long max, double from, double to, double probability) {
+      this.key = checkIdentifier(key, "property key");
+      this.type = type;
+      this.min = min;
+      this.max = max;
+      this.from = from;
+      this.to = to;
+      this.probability = probability;
+    }
+
+    /**
+     * Uniform integers, e.g. an age.
+     *
+     * @param key property key
+     * @param min minimum value
+     * @param max maximum value
+     * @return property
+     */
+    public static Property integers(String key, int min, int max) {
+      checkRange(min <= max);
+      return new Property(key, Type.INT, min, max, 0, 0, 1);
+    }
+
+    /**
+     * Uniform longs, e.g. a timestamp.
+     *
+     * @param key property key
+     * @param min minimum value
+     * @param max maximum value, less than {@link Long#MAX_VALUE}
+     * @return property
+     */
+    public static Property longs(String key, long min, long max) {
+      checkRange(min <= max && max < Long.MAX_VALUE);
+      return new Property(key, Type.LONG, min, max, 0, 0, 1);
+    }
+
+    /**
+     * Uniform doubles.
+     *
+     * @param key property key
+     * @param from minimum value
+     * @param to maximum value, exclusive
+     * @return property
+     */
+    public static Property doubles(String key, double from, double to) {
+      checkRange(from < to && Double.isFinite(to - from));
+      return new Property(key, Type.DOUBLE, 0, 0, from, to, 1);
+    }
+
+    /**
+     * Strings {@code <key>_<n>} with {@code n} uniform below the cardinality, e.g. a city.
+     *
+     * @param key property key
+     * @param cardinality number of distinct values
+     * @return property
+     */
+    public static Property strings(String key, int cardinality) {
+      checkRange(cardinality > 0);
+      return new Property(key, Type.STRING, 0, cardinality, 0, 0, 1);
+    }
+
+    /**
+     * Uniform booleans.
+     *
+     * @param key property key
+     * @return property
+     */
+    public static Property booleans(String key) {
+      return new Property(key, Type.BOOLEAN, 0, 0, 0, 0, 1);
+    }
+
+    /**
+     * Float vectors with elements uniform between -1 and 1, e.g. an embedding.
+     *
+     * @param key property key
+     * @param dimension vector dimension
+     * @return property
+     */
+    public static Property vectors(String key, int dimension) {
+      checkRange(dimension > 0);
+      return new Property(key, Type.VECTOR, 0, dimension, 0, 0, 1);
+    }
+
+    /**
+     * Returns a copy of this property which is only set on some elements.
+     *
+     * @param probability probability that an element has the property
+     * @return property
+     */
+    public Property withProbability(double probability) {
+      if (!(probability >= 0 && probability <= 1)) {
+        throw new IllegalArgumentException("probability must be between 0 and 1");
+      }
+      return new Property(key, type, min, max, from, to, probability);
+    }
+
+    /**
+     * Returns the value of an element or {@code null} if the element has no value.
+     */
+    private Object next(SplittableRandom random) {
+      if (probability < 1 && random.nextDouble() >= probability) {
+        return null;
+      }
+      return value(random);
+    }
+
+    private Object value(SplittableRandom random) {
+      switch (type) {
+        case INT:     return (int) random.nextLong(min, max + 1);
+        case LONG:    return random.nextLong(min, max + 1);
+        case DOUBLE:  return random.nextDouble(from, to);
+        case STRING:  return key + "_" + random.nextInt((int) max);
+        case BOOLEAN: return random.nextBoolean();
+        default:
+          float[] values = new float[(int) max];
+          for (int i = 0; i < values.length; i++) {
+            values[i] = (float) random.nextDouble(-1, 1);
+          }
+          return FloatVectorLiteral.of(values);
+      }
+    }
+
+    private static void checkRange(boolean valid) {
+      if (!valid) {
+        throw new IllegalArgumentException("Invalid value range");
+      }
+    }
+  }
+
+  /**
+   * Builder of graph generators
+   */
+  public static class Builder {
+
+    private long seed;
+
+    private int vertexCount = 10_000;
+
+    private double averageDegree = 4;
+
+    private DegreeDistribution degreeDistribution = DegreeDistribution.UNIFORM;
+
+    private double exponent = 2.5;
+
+    private int graphCount;
+
+    private double graphOverlap;
+
+    private String graphLabel;
+
+    private final List<Label> vertexLabels = new ArrayList<>();
+
+    private final List<Label> edgeLabels = new ArrayList<>();
+
+    /**
+     * Sets the seed, the same seed and configuration always generate the same graph. Defaults to 0.
+     *
+     * @param seed random seed
+     * @return builder
+     */
+    public Builder setSeed(long seed) {
+      this.seed = seed;
+      return this;
+    }
+
+    /**
+     * Sets the number of vertices, defaults to 10,000.
+     *
+     * @param vertexCount number of vertices
+     * @return builder
+     */
+    public Builder setVertexCount(int vertexCount) {
+      if (vertexCount < 0) {
+        throw new IllegalArgumentException("vertexCount must not be negative");
+      }
+      this.vertexCount = vertexCount;
+      return this;
+    }
+
+    /**
+     * Sets the average out-degree of vertices, defaults to 4.
+     *
+     * @param averageDegree average number of outgoing edges
+     * @return builder
+     */
+    public Builder setAverageDegree(double averageDegree) {
+      if (!(averageDegree >= 0) || Double.isInfinite(averageDegree)) {
+        throw new IllegalArgumentException("averageDegree must not be negative");
+      }
+      this.averageDegree = averageDegree;
+      return this;
+    }
+
+    /**
+     * Sets the degree distribution, defaults to {@link DegreeDistribution#UNIFORM}.
+     *
+     * @param degreeDistribution degree distribution
+     * @return builder
+     */
+    public Builder setDegreeDistribution(DegreeDistribution degreeDistribution) {
+      if (degreeDistribution == null) {
+        throw new IllegalArgumentException("Degree distribution must not be null");
+      }
+      this.degreeDistribution = degreeDistribution;
+      return this;
+    }
+
+    /**
+     * Sets the exponent of {@link DegreeDistribution#POWER_LAW}, defaults to 2.5. Smaller exponents
+     * give more skewed degrees.
+     *
+     * @param exponent exponent, greater than 2
+     * @return builder
+     */
+    public Builder setPowerLawExponent(double exponent) {
+      if (!(exponent > 2) || Double.isInfinite(exponent)) {
+        throw new IllegalArgumentException("exponent must be greater than 2");
+      }
+      this.exponent = exponent;
+      return this;
+    }
+
+    /**
+     * Sets the number of graphs, defaults to 0. Without graphs, elements belong to no graph.
+     *
+     * @param graphCount number of graphs
+     * @return builder
+     */
+    public Builder setGraphCount(int graphCount) {
+      if (graphCount < 0) {
+        throw new IllegalArgumentException("graphCount must not be negative");
+      }
+      this.graphCount = graphCount;
+      return this;
+    }
+
+    /**
+     * Sets the probability that a vertex belongs to a second graph, defaults to 0.
+     *
+     * @param graphOverlap probability between 0 and 1
+     * @return builder
+     */
+    public Builder setGraphOverlap(double graphOverlap) {
+      if (!(graphOverlap >= 0 && graphOverlap <= 1)) {
+        throw new IllegalArgumentException("graphOverlap must be between 0 and 1");
+      }
+      this.graphOverlap = graphOverlap;
+      return this;
+    }
+
+    /**
+     * Sets the label of all graphs, graphs are unlabeled by default.
+     *
+     * @param graphLabel graph label
+     * @return builder
+     */
+    public Builder setGraphLabel(String graphLabel) {
+      this.graphLabel = checkIdentifier(graphLabel, "label");
+      return this;
+    }
+
+    /**
+     * Adds a vertex label. Each vertex gets one label, chosen with a probability proportional to
+     * its weight, and the properties of that label.
+     *
+     * @param label vertex label
+     * @param weight relative frequency
+     * @param properties property schema
+     * @return builder
+     */
+    public Builder addVertexLabel(String label, double weight, Property... properties) {
+      addLabel(vertexLabels, label, weight, properties);
+      return this;
+    }
+
+    /**
+     * Adds an edge label. Each edge gets one label, chosen with a probability proportional to its
+     * weight, and the properties of that label.
+     *
+     * @param label edge label
+     * @param weight relative frequency
+     * @param properties property schema
+     * @return builder
+     */
+    public Builder addEdgeLabel(String label, double weight, Property... properties) {
+      addLabel(edgeLabels, label, weight, properties);
+      return this;
+    }
+
+    /**
+     * Creates the generator.
+     *
+     * @return graph generator
+     */
+    public GraphGenerator build() {
+      return new GraphGenerator(this);
+    }
+
+    private static void addLabel(List<Label> labels, String label, double weight, Property... properties) {
+      checkIdentifier(label, "label");
+      if (!(weight > 0) || Double.isInfinite(weight)) {
+        throw new IllegalArgumentException("weight must be positive");
+      }
+      Set<String> keys = new HashSet<>();
+      for (Property property : properties) {
+        if (!keys.add(property.key)) {
+          throw new IllegalArgumentException(String.format("Duplicate property '%s' of label %s", property.key, label));
+        }
+      }
+      double cumulativeWeight = weight + (labels.isEmpty() ? 0 : labels.get(labels.size() - 1).cumulativeWeight);
+      labels.add(new Label(label, cumulativeWeight, Arrays.asList(properties.clone())));
+    }
+  }
+}
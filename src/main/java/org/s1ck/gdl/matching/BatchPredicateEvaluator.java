@@ -0,0 +1,319 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl.matching;
+
+import org.s1ck.gdl.model.Element;
+import org.s1ck.gdl.model.comparables.ComparableExpression;
+import org.s1ck.gdl.model.comparables.Literal;
+import org.s1ck.gdl.model.comparables.PropertySelector;
+import org.s1ck.gdl.model.comparables.SimilarityFunction;
+import org.s1ck.gdl.model.predicates.Predicate;
+import org.s1ck.gdl.model.predicates.booleans.And;
+import org.s1ck.gdl.model.predicates.booleans.Not;
+import org.s1ck.gdl.model.predicates.booleans.Or;
+import org.s1ck.gdl.model.predicates.booleans.Xor;
+import org.s1ck.gdl.model.predicates.expressions.Comparison;
+import org.s1ck.gdl.model.values.VectorLiteral;
+import org.s1ck.gdl.utils.Comparator;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Evaluates predicates over one query variable for all data elements with a given label at once.
+ *
+ * <p>A comparison of a property with a literal, e.g. {@code a.age > 30}, is evaluated over a
+ * primitive {@link PropertyColumn} holding that property for all vertices (edges) with the label,
+ * producing a selection bitmask. {@link And}, {@link Or}, {@link Xor} and {@link Not} combine the
+ * masks of their arguments word by word. A threshold on a vector function of a property and a
+ * vector literal, e.g. {@code cosine(a.embedding, vector([1.0f, 0.0f])) > 0.8}, is evaluated in one
+ * pass over the vectors with cached norms. Other comparisons are evaluated element-wise by the
+ * {@link PredicateEvaluator}. Property columns are extracted on first use and cached.
+ *
+ * <p>Bit {@code i} of a mask refers to the i-th position of {@link GraphIndex#getVertices(String)}
+ * or {@link GraphIndex#getEdges(String)} for the label.
+ */
+public class BatchPredicateEvaluator {
+
+  private final GraphIndex graph;
+
+  private final Map<ColumnKey, PropertyColumn> columns;
+
+  /**
+   * Vector norm per row, {@code NaN} if the row has no vector value
+   */
+  private final Map<ColumnKey, double[]> norms;
+
+  /**
+   * Creates an evaluator over the given data graph.
+   *
+   * @param graph data graph
+   */
+  public BatchPredicateEvaluator(GraphIndex graph) {
+    this.graph = graph;
+    this.columns = new ConcurrentHashMap<>();
+    this.norms = new ConcurrentHashMap<>();
+  }
+
+  public GraphIndex getGraph() {
+    return graph;
+  }
+
+  /**
+   * Evaluates a predicate for all vertices with the given label.
+   *
+   * @param predicate predicate referring to the given variable only
+   * @param variable query variable the vertices are bound to
+   * @param label vertex label or {@code null} for all vertices
+   * @return bitmask over {@link GraphIndex#getVertices(String)}
+   */
+  public long[] evaluateVertices(Predicate predicate, String variable, String label) {
+    return evaluate(predicate, variable, new Rows(true, label, graph.getVertices(label)));
+  }
+
+  /**
+   * Evaluates a predicate for all edges with the given label.
+   *
+   * @param predicate predicate referring to the given variable only
+   * @param variable query variable the edges are bound to
+   * @param label edge label or {@code null} for all edges
+   * @return bitmask over {@link GraphIndex#getEdges(String)}
+   */
+  public long[] evaluateEdges(Predicate predicate, String variable, String label) {
+    return evaluate(predicate, variable, new Rows(false, label, graph.getEdges(label)));
+  }
+
+  /**
+   * Sets the positions of all selected rows in the given set.
+   *
+   * @param mask selection bitmask
+   * @param positions element position per row
+   * @param target set of element positions
+   */
+  public static void select(long[] mask, int[] positions, BitSet target) {
+    for (int w = 0; w < mask.length; w++) {
+      long bits = mask[w];
+      while (bits != 0) {
+        target.set(positions[(w << 6) + Long.numberOfTrailingZeros(bits)]);
+        bits &= bits - 1;
+      }
+    }
+  }
+
+  private long[] evaluate(Predicate predicate, String variable, Rows rows) {
+    if (predicate instanceof And || predicate instanceof Or || predicate instanceof Xor) {
+      long[] lhs = evaluate(predicate.getArguments()[0], variable, rows);
+      long[] rhs = evaluate(predicate.getArguments()[1], variable, rows);
+      for (int w = 0; w < lhs.length; w++) {
+        if (predicate instanceof And) {
+          lhs[w] &= rhs[w];
+        } else if (predicate instanceof Or) {
+          lhs[w] |= rhs[w];
+        } else {
+          lhs[w] ^= rhs[w];
+        }
+      }
+      return lhs;
+    } else if (predicate instanceof Not) {
+      return PropertyColumn.not(evaluate(predicate.getArguments()[0], variable, rows), rows.size());
+    } else if (predicate instanceof Comparison) {
+      return evaluate((Comparison) predicate, variable, rows);
+    }
+    throw new IllegalArgumentException("Unsupported predicate: " + predicate.getClass().getSimpleName());
+  }
+
+  private long[] evaluate(Comparison comparison, String variable, Rows rows) {
+    ComparableExpression[] expressions = comparison.getComparableExpressions();
+    for (int i = 0; i < 2; i++) {
+      if (isProperty(expressions[i], variable) && expressions[1 - i] instanceof Literal) {
+        String key = ((PropertySelector) expressions[i]).getPropertyName();
+        Comparator comparator = i == 0 ? comparison.getComparator() : mirror(comparison.getComparator());
+        PropertyColumn column = columns.computeIfAbsent(new ColumnKey(rows.vertices, rows.label, key),
+          k -> PropertyColumn.of(rows::getElement, rows.size(), key));
+        return column.compare(comparator, ((Literal) expressions[1 - i]).getValue());
+      }
+      if (isVectorFunction(expressions[i], variable) && expressions[1 - i] instanceof Literal &&
+        ((Literal) expressions[1 - i]).getValue() instanceof Number) {
+        Comparator comparator = i == 0 ? comparison.getComparator() : mirror(comparison.getComparator());
+        return evaluate((SimilarityFunction) expressions[i], comparator,
+          ((Number) ((Literal) expressions[1 - i]).getValue()).doubleValue(), rows);
+      }
+    }
+    // element-wise fallback, e.g. for comparisons of two properties or labels
+    long[] mask = new long[PropertyColumn.words(rows.size())];
+    for (int row = 0; row < rows.size(); row++) {
+      Element element = rows.getElement(row);
+      if (PredicateEvaluator.evaluate(comparison, name -> name.equals(variable) ? element : null)) {
+        mask[row >>> 6] |= 1L << row;
+      }
+    }
+    return mask;
+  }
+
+  /**
+   * Compares a vector function of a property and a vector literal with a threshold for all rows.
+   */
+  private long[] evaluate(SimilarityFunction function, Comparator comparator, double threshold, Rows rows) {
+    ComparableExpression[] arguments = function.getArguments();
+    int property = arguments[0] instanceof PropertySelector ? 0 : 1;
+    String key = ((PropertySelector) arguments[property]).getPropertyName();
+    VectorLiteral vector = (VectorLiteral) ((Literal) arguments[1 - property]).getValue();
+    double vectorNorm = vector.norm();
+    double[] rowNorms = norms.computeIfAbsent(new ColumnKey(rows.vertices, rows.label, key), k -> {
+      double[] values = new double[rows.size()];
+      for (int row = 0; row < values.length; row++) {
+        VectorLiteral value = getVector(rows.getElement(row), key);
+        values[row] = value != null ? value.norm() : Double.NaN;
+      }
+      return values;
+    });
+
+    long[] mask = new long[PropertyColumn.words(rows.size())];
+    for (int row = 0; row < rows.size(); row++) {
+      VectorLiteral value = Double.isNaN(rowNorms[row]) ? null : getVector(rows.getElement(row), key);
+      boolean holds;
+      if (value == null || value.size() != vector.size()) {
+        // like comparing null, only != holds
+        holds = comparator == Comparator.NEQ;
+      } else {
+        double score;
+        switch (function.getType()) {
+          case COSINE:
+            double norm = rowNorms[row] * vectorNorm;
+            score = norm == 0d ? 0d : value.dot(vector) / norm;
+            break;
+          case DOT:
+            score = value.dot(vector);
+            break;
+          default:
+            score = Math.sqrt(value.squaredDistance(vector));
+        }
+        holds = holds(Double.compare(score, threshold), comparator);
+      }
+      if (holds) {
+        mask[row >>> 6] |= 1L << row;
+      }
+    }
+    return mask;
+  }
+
+  private static VectorLiteral getVector(Element element, String key) {
+    Object value = element.getProperties() != null ? element.getProperties().get(key) : null;
+    return value instanceof VectorLiteral ? (VectorLiteral) value : null;
+  }
+
+  private static boolean holds(int result, Comparator comparator) {
+    switch (comparator) {
+      case EQ:  return result == 0;
+      case NEQ: return result != 0;
+      case GT:  return result > 0;
+      case LT:  return result < 0;
+      case GTE: return result >= 0;
+      case LTE: return result <= 0;
+      default:  return false;
+    }
+  }
+
+  /**
+   * Checks for a vector function of a property of the variable and a vector literal.
+   */
+  private static boolean isVectorFunction(ComparableExpression expression, String variable) {
+    if (!(expression instanceof SimilarityFunction)) {
+      return false;
+    }
+    ComparableExpression[] arguments = ((SimilarityFunction) expression).getArguments();
+    for (int i = 0; i < 2; i++) {
+      if (isProperty(arguments[i], variable) && arguments[1 - i] instanceof Literal) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isProperty(ComparableExpression expression, String variable) {
+    return expression instanceof PropertySelector && variable.equals(expression.getVariable()) &&
+      !((PropertySelector) expression).getPropertyName().equals(PropertySelector.LABEL_PROPERTY);
+  }
+
+  /**
+   * Returns the comparator that holds after swapping both sides of a comparison.
+   */
+  private static Comparator mirror(Comparator comparator) {
+    switch (comparator) {
+      case LT:  return Comparator.GT;
+      case GT:  return Comparator.LT;
+      case LTE: return Comparator.GTE;
+      case GTE: return Comparator.LTE;
+      default:  return comparator;
+    }
+  }
+
+  /**
+   * Data elements with a label, in position order.
+   */
+  private class Rows {
+    private final boolean vertices;
+    private final String label;
+    private final int[] positions;
+
+    Rows(boolean vertices, String label, int[] positions) {
+      this.vertices = vertices;
+      this.label = label;
+      this.positions = positions;
+    }
+
+    int size() {
+      return positions.length;
+    }
+
+    Element getElement(int row) {
+      return vertices ? graph.getVertex(positions[row]) : graph.getEdge(positions[row]);
+    }
+  }
+
+  private static class ColumnKey {
+    private final boolean vertices;
+    private final String label;
+    private final String key;
+
+    ColumnKey(boolean vertices, String label, String key) {
+      this.vertices = vertices;
+      this.label = label;
+      this.key = key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      ColumnKey that = (ColumnKey) o;
+      return vertices == that.vertices && Objects.equals(label, that.label) && key.equals(that.key);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(vertices, label, key);
+    }
+  }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl.matching;
+
+import org.s1ck.gdl.model.Element;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column oriented result of a pattern match.
+ *
+ * <p>The table has one {@code int[]} column per query variable, vertex variables first, followed
+ * by edge variables (see {@link QueryGraph#getVariables()}). A column holds the positions of the
+ * bound data elements in the {@link GraphIndex}, row {@code i} of all columns forms the i-th
+ * match. Columns grow in batches of {@link #BATCH_SIZE} rows, so filling the table allocates
+ * neither maps nor element references per match. Elements and ids are only resolved on request.
+ */
+public class BindingTable {
+
+  /**
+   * Number of rows by which the columns grow
+   */
+  static final int BATCH_SIZE = 1024;
+
+  private final QueryGraph query;
+
+  private final GraphIndex graph;
+
+  private final List<String> variables;
+
+  /**
+   * Column per variable
+   */
+  private int[][] columns;
+
+  /**
+   * Number of rows
+   */
+  private int size;
+
+  BindingTable(QueryGraph query, GraphIndex graph) {
+    this.query = query;
+    this.graph = graph;
+    this.variables = query.getVariables();
+    this.columns = new int[variables.size()][0];
+  }
+
+  /**
+   * Appends a row.
+   *
+   * @param vertexBindings data vertex position per query vertex
+   * @param edgeBindings data edge position per query edge
+   */
+  void append(int[] vertexBindings, int[] edgeBindings) {
+    ensureCapacity(size + 1);
+    int vertexCount = vertexBindings.length;
+    for (int v = 0; v < vertexCount; v++) {
+      columns[v][size] = vertexBindings[v];
+    }
+    for (int e = 0; e < edgeBindings.length; e++) {
+      columns[vertexCount + e][size] = edgeBindings[e];
+    }
+    size++;
+  }
+
+  /**
+   * Appends all rows of another table of the same query.
+   *
+   * @param other binding table
+   * @return this table
+   */
+  BindingTable appendAll(BindingTable other) {
+    ensureCapacity(size + other.size);
+    for (int c = 0; c < columns.length; c++) {
+      System.arraycopy(other.columns[c], 0, columns[c], size, other.size);
+    }
+    size += other.size;
+    return this;
+  }
+
+  /**
+   * Shrinks the columns to the number of rows.
+   *
+   * @return this table
+   */
+  BindingTable trim() {
+    for (int c = 0; c < columns.length; c++) {
+      if (columns[c].length != size) {
+        columns[c] = Arrays.copyOf(columns[c], size);
+      }
+    }
+    return this;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns the variables in column order.
+   *
+   * @return vertex variables followed by edge variables
+   */
+  public List<String> getVariables() {
+    return variables;
+  }
+
+  /**
+   * Returns the column of the given variable.
+   *
+   * @param variable query variable
+   * @return column index
+   * @throws IllegalArgumentException if the variable is not part of the pattern
+   */
+  public int getColumnIndex(String variable) {
+    int vertex = query.getVertexIndex(variable);
+    if (vertex >= 0) {
+      return vertex;
+    }
+    int edge = query.getEdgeIndex(variable);
+    if (edge >= 0) {
+      return query.getVertexCount() + edge;
+    }
+    throw new IllegalArgumentException("Unknown variable: " + variable);
+  }
+
+  /**
+   * Checks whether the given column binds query vertices.
+   *
+   * @param column column index
+   * @return true for vertex columns, false for edge columns
+   */
+  public boolean isVertexColumn(int column) {
+    return column < query.getVertexCount();
+  }
+
+  /**
+   * Returns the data element positions bound to the given variable. The array is backed by the
+   * table and must not be modified.
+   *
+   * @param variable query variable
+   * @return vertex or edge position per row
+   * @see GraphIndex#getVertex(int)
+   * @see GraphIndex#getEdge(int)
+   */
+  public int[] getColumn(String variable) {
+    return trim().columns[getColumnIndex(variable)];
+  }
+
+  /**
+   * Returns the ids of the data elements bound to the given variable.
+   *
+   * @param variable query variable
+   * @return element id per row
+   */
+  public long[] getIdColumn(String variable) {
+    int column = getColumnIndex(variable);
+    long[] ids = new long[size];
+    for (int row = 0; row < size; row++) {
+      ids[row] = getElement(row, column).getId();
+    }
+    return ids;
+  }
+
+  /**
+   * Returns the data element bound to a variable in the given row.
+   *
+   * @param row row index
+   * @param variable query variable
+   * @return data vertex or edge
+   */
+  public Element getElement(int row, String variable) {
+    return getElement(row, getColumnIndex(variable));
+  }
+
+  private Element getElement(int row, int column) {
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+    }
+    int position = columns[column][row];
+    return isVertexColumn(column) ? graph.getVertex(position) : graph.getEdge(position);
+  }
+
+  /**
+   * Converts the given row into a mapping from query variables to data elements.
+   *
+   * @param row row index
+   * @return match
+   */
+  public Map<String, Element> getRow(int row) {
+    Map<String, Element> match = new HashMap<>();
+    for (int c = 0; c < columns.length; c++) {
+      match.put(variables.get(c), getElement(row, c));
+    }
+    return match;
+  }
+
+  /**
+   * Converts all rows into mappings from query variables to data elements.
+   *
+   * @return matches
+   */
+  public List<Map<String, Element>> toMaps() {
+    List<Map<String, Element>> matches = new ArrayList<>(size);
+    for (int row = 0; row < size; row++) {
+      matches.add(getRow(row));
+    }
+    return matches;
+  }
+
+  /**
+   * Returns a cursor positioned before the first row.
+   *
+   * @return row cursor
+   */
+  public Cursor cursor() {
+    return new Cursor();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("BindingTable%s[%d rows]", variables, size);
+  }
+
+  private void ensureCapacity(int capacity) {
+    int current = columns.length == 0 ? Integer.MAX_VALUE : columns[0].length;
+    if (capacity <= current) {
+      return;
+    }
+    int newCapacity = Math.max(capacity, current + Math.max(BATCH_SIZE, current >> 1));
+    for (int c = 0; c < columns.length; c++) {
+      columns[c] = Arrays.copyOf(columns[c], newCapacity);
+    }
+  }
+
+  /**
+   * Iterates over the rows of a binding table without creating objects per row.
+   */
+  public class Cursor {
+
+    private int row = -1;
+
+    /**
+     * Moves to the next row.
+     *
+     * @return true, iff there is a next row
+     */
+    public boolean next() {
+      if (row < size) {
+        row++;
+      }
+      return row < size;
+    }
+
+    public int getRow() {
+      return row;
+    }
+
+    /**
+     * Returns the data element position in the given column of the current row.
+     *
+     * @param column column index
+     * @return vertex or edge position
+     * @see #getColumnIndex(String)
+     */
+    public int getPosition(int column) {
+      return columns[column][row];
+    }
+
+    /**
+     * Returns the id of the data element bound to the given variable in the current row.
+     *
+     * @param variable query variable
+     * @return element id
+     */
+    public long getId(String variable) {
+      return getElement(variable).getId();
+    }
+
+    /**
+     * Returns the data element bound to the given variable in the current row.
+     *
+     * @param variable query variable
+     * @return data vertex or edge
+     */
+    public Element getElement(String variable) {
+      return BindingTable.this.getElement(row, variable);
+    }
+  }
+}
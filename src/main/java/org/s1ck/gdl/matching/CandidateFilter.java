@@ -0,0 +1,246 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.matching;
+
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.model.predicates.Predicate;
+import org.s1ck.gdl.model.predicates.booleans.And;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Computes the data vertex candidates of each query vertex before enumeration.
+ *
+ * <p>The initial candidates of a query vertex are the data vertices carrying its label that
+ * satisfy all conjuncts referring to that vertex only. These are evaluated over property columns
+ * of all vertices with the label by a {@link BatchPredicateEvaluator}. The sets are then made arc-consistent: a
+ * candidate of the source (target) of a query edge is removed if it has no outgoing (incoming)
+ * edge with the required label and local predicates leading to a candidate of the other endpoint.
+ * Removals are propagated until no set changes.
+ *
+ * <p>Every data vertex removed by the filter cannot be part of any match, so the sets can be used
+ * to prune the search without changing its result.
+ */
+public class CandidateFilter {
+
+  private final GraphIndex graph;
+
+  private final MatchStrategy matchStrategy;
+
+  private final BatchPredicateEvaluator evaluator;
+
+  /**
+   * Creates a filter for the given data graph using isomorphism semantics.
+   *
+   * @param graph data graph
+   */
+  public CandidateFilter(GraphIndex graph) {
+    this(graph, MatchStrategy.ISOMORPHISM);
+  }
+
+  /**
+   * Creates a filter for the given data graph.
+   *
+   * @param graph data graph
+   * @param matchStrategy mapping semantics, isomorphism additionally excludes loops as support
+   *                      for edges between distinct query vertices
+   */
+  public CandidateFilter(GraphIndex graph, MatchStrategy matchStrategy) {
+    this.graph = graph;
+    this.matchStrategy = matchStrategy;
+    this.evaluator = new BatchPredicateEvaluator(graph);
+  }
+
+  /**
+   * Creates a filter over all vertices and edges loaded by the given handler.
+   *
+   * @param data data handler
+   * @return candidate filter
+   */
+  public static CandidateFilter fromHandler(GDLHandler data) {
+    return new CandidateFilter(GraphIndex.fromHandler(data));
+  }
+
+  public GraphIndex getGraph() {
+    return graph;
+  }
+
+  /**
+   * Computes the candidates of the MATCH pattern loaded by the given handler.
+   *
+   * @param query query handler
+   * @return candidate sets
+   */
+  public CandidateSets filter(GDLHandler query) {
+    return filter(QueryGraph.fromHandler(query));
+  }
+
+  /**
+   * Computes the candidates of the given query graph.
+   *
+   * @param query query graph
+   * @return candidate sets
+   * @throws IllegalArgumentException if the query has a variable length edge
+   */
+  public CandidateSets filter(QueryGraph query) {
+    query.checkFixedLength();
+    List<List<Predicate>> vertexPredicates = new ArrayList<>();
+    List<List<Predicate>> edgePredicates = new ArrayList<>();
+    for (int v = 0; v < query.getVertexCount(); v++) {
+      vertexPredicates.add(new ArrayList<>());
+    }
+    for (int e = 0; e < query.getEdgeCount(); e++) {
+      edgePredicates.add(new ArrayList<>());
+    }
+    for (Predicate conjunct : query.getConjuncts()) {
+      if (conjunct.getVariables().size() != 1 || query.isLabelConstraint(conjunct)) {
+        continue;
+      }
+      String variable = conjunct.getVariables().iterator().next();
+      int vertex = query.getVertexIndex(variable);
+      if (vertex >= 0) {
+        vertexPredicates.get(vertex).add(conjunct);
+      } else {
+        edgePredicates.get(query.getEdgeIndex(variable)).add(conjunct);
+      }
+    }
+
+    BitSet[] candidates = new BitSet[query.getVertexCount()];
+    int[] initialSizes = new int[query.getVertexCount()];
+    for (int v = 0; v < query.getVertexCount(); v++) {
+      candidates[v] = new BitSet(graph.getVertexCount());
+      String label = query.getVertexLabel(v);
+      Predicate predicate = conjunction(vertexPredicates.get(v));
+      if (predicate == null) {
+        for (int candidate : graph.getVertices(label)) {
+          candidates[v].set(candidate);
+        }
+      } else {
+        BatchPredicateEvaluator.select(evaluator.evaluateVertices(predicate, query.getVertexVariable(v), label),
+          graph.getVertices(label), candidates[v]);
+      }
+      initialSizes[v] = candidates[v].cardinality();
+    }
+
+    BitSet[] edgeCandidates = new BitSet[query.getEdgeCount()];
+    for (int e = 0; e < query.getEdgeCount(); e++) {
+      Predicate predicate = conjunction(edgePredicates.get(e));
+      if (predicate != null) {
+        String label = query.getEdgeLabel(e);
+        edgeCandidates[e] = new BitSet(graph.getEdgeCount());
+        BatchPredicateEvaluator.select(evaluator.evaluateEdges(predicate, query.getEdgeVariable(e), label),
+          graph.getEdges(label), edgeCandidates[e]);
+      }
+    }
+
+    int revisions = propagate(query, candidates, edgeCandidates);
+    return new CandidateSets(query, candidates, initialSizes, revisions);
+  }
+
+  /**
+   * Revises the arcs of all query edges until no candidate set changes.
+   *
+   * @return number of revisions
+   */
+  private int propagate(QueryGraph query, BitSet[] candidates, BitSet[] edgeCandidates) {
+    // an arc is a query edge in one direction, encoded as 2 * edge (+ 1 for the target side)
+    int arcCount = query.getEdgeCount() * 2;
+    Deque<Integer> queue = new ArrayDeque<>();
+    boolean[] queued = new boolean[arcCount];
+    for (int arc = 0; arc < arcCount; arc++) {
+      queue.add(arc);
+      queued[arc] = true;
+    }
+
+    int revisions = 0;
+    while (!queue.isEmpty()) {
+      int arc = queue.poll();
+      queued[arc] = false;
+      int edge = arc / 2;
+      boolean outgoing = arc % 2 == 0;
+      int vertex = outgoing ? query.getSourceIndex(edge) : query.getTargetIndex(edge);
+      int other = outgoing ? query.getTargetIndex(edge) : query.getSourceIndex(edge);
+
+      revisions++;
+      if (!revise(query, edge, outgoing, candidates[vertex], candidates[other], edgeCandidates[edge],
+        vertex == other)) {
+        continue;
+      }
+      if (candidates[vertex].isEmpty()) {
+        for (BitSet set : candidates) {
+          set.clear();
+        }
+        return revisions;
+      }
+      // the arcs checking their candidates against the shrunk set have to be revised again
+      for (int e = 0; e < query.getEdgeCount(); e++) {
+        if (query.getTargetIndex(e) == vertex) {
+          requeue(queue, queued, 2 * e);
+        }
+        if (query.getSourceIndex(e) == vertex) {
+          requeue(queue, queued, 2 * e + 1);
+        }
+      }
+    }
+    return revisions;
+  }
+
+  private static void requeue(Deque<Integer> queue, boolean[] queued, int arc) {
+    if (!queued[arc]) {
+      queue.add(arc);
+      queued[arc] = true;
+    }
+  }
+
+  /**
+   * Removes the candidates of one endpoint of a query edge that have no supporting data edge.
+   *
+   * @return true, iff a candidate was removed
+   */
+  private boolean revise(QueryGraph query, int edge, boolean outgoing, BitSet vertexCandidates,
+    BitSet otherCandidates, BitSet edgeCandidates, boolean loop) {
+    GraphIndex.Adjacency adjacency = graph.getAdjacency(query.getEdgeLabel(edge), outgoing);
+    boolean injective = matchStrategy == MatchStrategy.ISOMORPHISM;
+    boolean changed = false;
+
+    for (int candidate = vertexCandidates.nextSetBit(0); candidate >= 0;
+         candidate = vertexCandidates.nextSetBit(candidate + 1)) {
+      boolean supported = false;
+      for (int p = adjacency.start(candidate); p < adjacency.end(candidate) && !supported; p++) {
+        int neighbor = adjacency.neighbor(p);
+        if (loop ? neighbor != candidate :
+          !otherCandidates.get(neighbor) || (injective && neighbor == candidate)) {
+          continue;
+        }
+        supported = edgeCandidates == null || edgeCandidates.get(adjacency.edge(p));
+      }
+      if (!supported) {
+        vertexCandidates.clear(candidate);
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  private static Predicate conjunction(List<Predicate> predicates) {
+    return predicates.stream().reduce(And::new).orElse(null);
+  }
+}
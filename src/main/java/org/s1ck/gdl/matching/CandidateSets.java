@@ -0,0 +1,169 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.matching;
+
+import java.util.BitSet;
+
+/**
+ * Data vertex candidates of each query vertex computed by a {@link CandidateFilter}.
+ *
+ * <p>Candidates are data vertex positions of the {@link GraphIndex} the sets were computed on.
+ * Next to the final sets, the sizes after the local filtering are kept to report the effect of
+ * the arc-consistency pass.
+ */
+public class CandidateSets {
+
+  private final QueryGraph query;
+
+  private final BitSet[] candidates;
+
+  /**
+   * Candidate count per query vertex after applying labels and local predicates
+   */
+  private final int[] initialSizes;
+
+  /**
+   * Number of arc revisions until the sets became stable
+   */
+  private final int revisions;
+
+  CandidateSets(QueryGraph query, BitSet[] candidates, int[] initialSizes, int revisions) {
+    this.query = query;
+    this.candidates = candidates;
+    this.initialSizes = initialSizes;
+    this.revisions = revisions;
+  }
+
+  public QueryGraph getQuery() {
+    return query;
+  }
+
+  /**
+   * Returns the candidates of a query vertex.
+   *
+   * @param vertex query vertex position
+   * @return data vertex positions, must not be modified
+   */
+  public BitSet get(int vertex) {
+    return candidates[vertex];
+  }
+
+  /**
+   * Returns the candidates of a query vertex.
+   *
+   * @param variable query vertex variable
+   * @return data vertex positions, must not be modified
+   */
+  public BitSet get(String variable) {
+    return candidates[indexOf(variable)];
+  }
+
+  /**
+   * Checks if a data vertex is a candidate of a query vertex.
+   *
+   * @param vertex query vertex position
+   * @param candidate data vertex position
+   * @return true, iff the data vertex is a candidate
+   */
+  public boolean contains(int vertex, int candidate) {
+    return candidates[vertex].get(candidate);
+  }
+
+  /**
+   * Returns the candidate count of a query vertex after applying labels and local predicates.
+   *
+   * @param variable query vertex variable
+   * @return candidate count before the arc-consistency pass
+   */
+  public int getInitialSize(String variable) {
+    return initialSizes[indexOf(variable)];
+  }
+
+  /**
+   * Returns the final candidate count of a query vertex.
+   *
+   * @param variable query vertex variable
+   * @return candidate count after the arc-consistency pass
+   */
+  public int getSize(String variable) {
+    return candidates[indexOf(variable)].cardinality();
+  }
+
+  /**
+   * Returns the sum of all candidate counts after applying labels and local predicates.
+   *
+   * @return total candidate count before the arc-consistency pass
+   */
+  public long getInitialTotal() {
+    long total = 0L;
+    for (int size : initialSizes) {
+      total += size;
+    }
+    return total;
+  }
+
+  /**
+   * Returns the sum of all final candidate counts.
+   *
+   * @return total candidate count after the arc-consistency pass
+   */
+  public long getTotal() {
+    long total = 0L;
+    for (BitSet set : candidates) {
+      total += set.cardinality();
+    }
+    return total;
+  }
+
+  public int getRevisions() {
+    return revisions;
+  }
+
+  /**
+   * Returns true if some query vertex has no candidates, i.e. the query has no match.
+   *
+   * @return true, iff a candidate set is empty
+   */
+  public boolean isEmpty() {
+    for (BitSet set : candidates) {
+      if (set.isEmpty()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private int indexOf(String variable) {
+    int vertex = query.getVertexIndex(variable);
+    if (vertex < 0) {
+      throw new IllegalArgumentException("Unknown query vertex: " + variable);
+    }
+    return vertex;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    for (int v = 0; v < candidates.length; v++) {
+      builder.append(query.getVertexVariable(v)).append(": ")
+        .append(initialSizes[v]).append(" -> ").append(candidates[v].cardinality()).append('\n');
+    }
+    builder.append("total: ").append(getInitialTotal()).append(" -> ").append(getTotal())
+      .append(" (").append(revisions).append(" revisions)");
+    return builder.toString();
+  }
+}
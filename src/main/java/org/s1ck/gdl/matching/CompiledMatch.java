@@ -0,0 +1,279 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl.matching;
+
+import org.s1ck.gdl.model.Element;
+import org.s1ck.gdl.model.predicates.Predicate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Base class of the search code generated by the {@link QueryCompiler}.
+ *
+ * <p>A generated subclass executes all operations of one {@link MatchProgram} as nested loops in
+ * a single method, reading the primitive adjacency arrays directly. This class holds the state
+ * these loops work on: bindings, the data elements in use, scans, candidate sets and the
+ * adjacency list of every constraint. Like a {@link MatchEnumerator}, an instance is not
+ * thread-safe and searches only once.
+ */
+abstract class CompiledMatch {
+
+  protected final GraphIndex graph;
+
+  protected final int[] vertexBindings;
+  protected final int[] edgeBindings;
+
+  /**
+   * Data elements bound under isomorphism semantics, {@code null} for homomorphisms
+   */
+  protected final boolean[] usedVertices;
+  protected final boolean[] usedEdges;
+
+  /**
+   * Candidate positions of each unconstrained vertex operation
+   */
+  protected final int[][] scans;
+
+  /**
+   * Candidates per query vertex or {@code null} if only labels are checked
+   */
+  protected final BitSet[] candidates;
+
+  /**
+   * Required label per operation
+   */
+  protected final String[] labels;
+
+  /**
+   * Adjacency list per slot, i.e. per constraint of a vertex operation and per edge operation, in
+   * operation order
+   */
+  protected final GraphIndex.Adjacency[] adjacencies;
+
+  /**
+   * Intersection buffers of vertex operations with multiple constraints
+   */
+  protected final int[][] buffers;
+
+  /**
+   * Constants referenced by the generated predicate checks
+   */
+  protected final Object[] literals;
+  protected final String[] keys;
+  protected final Predicate[] predicates;
+
+  /**
+   * Stops the search once set, checked for every root candidate
+   */
+  protected AtomicBoolean cancellation = new AtomicBoolean();
+
+  private final MatchProgram program;
+
+  private final CandidateSets candidateSets;
+
+  /**
+   * Slot of each constraint per operation
+   */
+  private final int[][] slots;
+
+  /**
+   * Intersection state per operation: neighbor arrays and bound query vertex of each constraint,
+   * cursors and ends
+   */
+  private final int[][][] neighbors;
+  private final int[][] sources;
+  private final int[][] cursors;
+  private final int[][] limits;
+
+  private final Function<String, Element> resolver;
+
+  protected CompiledMatch(CompiledQuery query, GraphIndex graph, CandidateSets candidateSets) {
+    this.program = query.getProgram();
+    this.graph = graph;
+    this.candidateSets = candidateSets;
+    this.literals = query.getLiterals();
+    this.keys = query.getKeys();
+    this.predicates = query.getPredicates();
+
+    QueryGraph pattern = program.getQuery();
+    this.vertexBindings = new int[pattern.getVertexCount()];
+    this.edgeBindings = new int[pattern.getEdgeCount()];
+    Arrays.fill(vertexBindings, -1);
+    Arrays.fill(edgeBindings, -1);
+    this.usedVertices = query.isInjective() ? new boolean[graph.getVertexCount()] : null;
+    this.usedEdges = query.isInjective() ? new boolean[graph.getEdgeCount()] : null;
+
+    this.candidates = candidateSets == null ? null : new BitSet[pattern.getVertexCount()];
+    for (int v = 0; candidates != null && v < candidates.length; v++) {
+      candidates[v] = candidateSets.get(v);
+    }
+
+    this.scans = new int[program.size()][];
+    this.labels = new String[program.size()];
+    this.buffers = new int[program.size()][];
+    this.slots = new int[program.size()][];
+    this.neighbors = new int[program.size()][][];
+    this.sources = new int[program.size()][];
+    this.cursors = new int[program.size()][];
+    this.limits = new int[program.size()][];
+    List<GraphIndex.Adjacency> lists = new ArrayList<>();
+    for (int i = 0; i < program.size(); i++) {
+      MatchProgram.Operation operation = program.get(i);
+      labels[i] = operation.label;
+      if (!operation.vertex) {
+        slots[i] = new int[] {lists.size()};
+        lists.add(graph.getAdjacency(operation.label, true));
+        continue;
+      }
+      int constraints = operation.constraintEdges.length;
+      slots[i] = new int[constraints];
+      for (int c = 0; c < constraints; c++) {
+        slots[i][c] = lists.size();
+        lists.add(graph.getAdjacency(pattern.getEdgeLabel(operation.constraintEdges[c]),
+          operation.constraintOutgoing[c]));
+      }
+      if (constraints == 0) {
+        scans[i] = operation.scan != null ? operation.scan : candidateSets == null ?
+          graph.getVertices(operation.label) : candidateSets.get(operation.element).stream().toArray();
+      } else if (constraints > 1) {
+        buffers[i] = new int[16];
+        neighbors[i] = new int[constraints][];
+        for (int c = 0; c < constraints; c++) {
+          neighbors[i][c] = lists.get(slots[i][c]).getNeighbors();
+        }
+        sources[i] = operation.constraintFrom;
+        cursors[i] = new int[constraints];
+        limits[i] = new int[constraints];
+      }
+    }
+    this.adjacencies = lists.toArray(new GraphIndex.Adjacency[0]);
+
+    this.resolver = variable -> {
+      int vertex = pattern.getVertexIndex(variable);
+      if (vertex >= 0) {
+        return vertexBindings[vertex] >= 0 ? graph.getVertex(vertexBindings[vertex]) : null;
+      }
+      int edge = pattern.getEdgeIndex(variable);
+      return edge >= 0 && edgeBindings[edge] >= 0 ? graph.getEdge(edgeBindings[edge]) : null;
+    };
+  }
+
+  void setCancellation(AtomicBoolean cancellation) {
+    this.cancellation = cancellation;
+  }
+
+  /**
+   * Enumerates all matches whose first operation binds a candidate in the given range of its scan.
+   *
+   * @param rootFrom first scan position (inclusive)
+   * @param rootTo last scan position (exclusive)
+   * @param sink receives the matches
+   * @return false if the sink stopped the search or it was cancelled
+   */
+  boolean run(int rootFrom, int rootTo, MatchEnumerator.Sink sink) {
+    if (program.size() == 0 || (candidateSets != null && candidateSets.isEmpty())) {
+      return true;
+    }
+    return search(rootFrom, rootTo, sink);
+  }
+
+  /**
+   * Generated search loops.
+   */
+  protected abstract boolean search(int rootFrom, int rootTo, MatchEnumerator.Sink sink);
+
+  protected final Object vertexProperty(int vertex, String key) {
+    Map<String, Object> properties = graph.getVertex(vertex).getProperties();
+    return properties != null ? properties.get(key) : null;
+  }
+
+  protected final Object edgeProperty(int edge, String key) {
+    Map<String, Object> properties = graph.getEdge(edge).getProperties();
+    return properties != null ? properties.get(key) : null;
+  }
+
+  /**
+   * Evaluates a predicate the generator did not translate on the current bindings.
+   */
+  protected final boolean evaluate(int predicate) {
+    return PredicateEvaluator.evaluate(predicates[predicate], resolver);
+  }
+
+  /**
+   * Intersects the adjacency lists of all constraints of a vertex operation into its buffer, see
+   * {@link MatchEnumerator}.
+   *
+   * @param depth operation position
+   * @return number of candidates
+   */
+  protected final int intersect(int depth) {
+    int[][] lists = neighbors[depth];
+    int[] positions = cursors[depth];
+    int[] ends = limits[depth];
+    int constraints = lists.length;
+    for (int c = 0; c < constraints; c++) {
+      GraphIndex.Adjacency list = adjacencies[slots[depth][c]];
+      int from = vertexBindings[sources[depth][c]];
+      positions[c] = list.start(from);
+      ends[c] = list.end(from);
+      if (positions[c] == ends[c]) {
+        return 0;
+      }
+    }
+
+    BitSet filter = candidates != null ? candidates[program.get(depth).element] : null;
+    String label = labels[depth];
+    int[] buffer = buffers[depth];
+    int count = 0;
+    while (true) {
+      int max = -1;
+      for (int c = 0; c < constraints; c++) {
+        max = Math.max(max, lists[c][positions[c]]);
+      }
+      boolean aligned = true;
+      for (int c = 0; c < constraints; c++) {
+        positions[c] = GraphIndex.gallop(lists[c], positions[c], ends[c], max);
+        if (positions[c] == ends[c]) {
+          return count;
+        }
+        aligned &= lists[c][positions[c]] == max;
+      }
+      if (aligned) {
+        if (filter != null ? filter.get(max) : graph.hasLabel(max, label)) {
+          if (count == buffer.length) {
+            buffer = Arrays.copyOf(buffer, count * 2);
+            buffers[depth] = buffer;
+          }
+          buffer[count++] = max;
+        }
+        for (int c = 0; c < constraints; c++) {
+          positions[c] = GraphIndex.gallop(lists[c], positions[c], ends[c], max + 1);
+          if (positions[c] == ends[c]) {
+            return count;
+          }
+        }
+      }
+    }
+  }
+}
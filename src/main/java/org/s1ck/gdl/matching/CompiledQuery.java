@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl.matching;
+
+import org.s1ck.gdl.model.predicates.Predicate;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * A match program bound to its generated search class and the constants the class refers to.
+ */
+class CompiledQuery {
+
+  private final MatchProgram program;
+
+  private final Constructor<? extends CompiledMatch> constructor;
+
+  private final boolean injective;
+
+  private final Object[] literals;
+
+  private final String[] keys;
+
+  private final Predicate[] predicates;
+
+  CompiledQuery(MatchProgram program, Constructor<? extends CompiledMatch> constructor, boolean injective,
+    Object[] literals, String[] keys, Predicate[] predicates) {
+    this.program = program;
+    this.constructor = constructor;
+    this.injective = injective;
+    this.literals = literals;
+    this.keys = keys;
+    this.predicates = predicates;
+  }
+
+  MatchProgram getProgram() {
+    return program;
+  }
+
+  boolean isInjective() {
+    return injective;
+  }
+
+  Object[] getLiterals() {
+    return literals;
+  }
+
+  String[] getKeys() {
+    return keys;
+  }
+
+  Predicate[] getPredicates() {
+    return predicates;
+  }
+
+  Class<? extends CompiledMatch> getGeneratedClass() {
+    return constructor.getDeclaringClass();
+  }
+
+  /**
+   * Creates a search over the given data graph.
+   *
+   * @param graph data graph
+   * @param candidateSets vertex candidates, {@code null} iff the program was compiled without
+   * @return new search instance
+   */
+  CompiledMatch newMatch(GraphIndex graph, CandidateSets candidateSets) {
+    try {
+      return constructor.newInstance(this, graph, candidateSets);
+    } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+      throw new IllegalStateException("Cannot instantiate generated class " + constructor.getName(), e);
+    }
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.matching;
+
+/**
+ * Algorithm used by the {@link PatternMatcher} to enumerate matches
+ */
+public enum ExecutionMode {
+  /**
+   * Uses {@link #GENERIC_JOIN} for cyclic patterns and {@link #BACKTRACKING} otherwise
+   */
+  AUTO,
+  /**
+   * Follows the query plan and reaches each vertex over a single edge, remaining edges are
+   * checked afterwards
+   */
+  BACKTRACKING,
+  /**
+   * Worst-case optimal join: the candidates of each vertex are the intersection of the sorted
+   * neighbor lists of all its bound neighbors
+   */
+  GENERIC_JOIN
+}
@@ -0,0 +1,639 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.matching;
+
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.model.Edge;
+import org.s1ck.gdl.model.Vertex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+
+/**
+ * Index based representation of a data graph.
+ *
+ * <p>Vertices and edges are numbered by ascending element id. For every edge label and direction
+ * the index lazily builds a compressed adjacency list in which the neighbors of each vertex are
+ * sorted, so that neighbor sets can be intersected by merging.
+ *
+ * <p>A {@link StandingQuery} extends its index by appended elements, which are numbered after the
+ * existing ones. Only the adjacency entries of vertices with new edges are rewritten.
+ */
+public class GraphIndex {
+
+  /**
+   * Data vertices ordered by id, followed by appended vertices
+   */
+  private Vertex[] vertices;
+
+  private int vertexCount;
+
+  /**
+   * Data edges ordered by id, followed by appended edges
+   */
+  private Edge[] edges;
+
+  private int edgeCount;
+
+  /**
+   * Vertex position by vertex id
+   */
+  private final Map<Long, Integer> vertexIndexById;
+
+  /**
+   * Edge position by edge id, only used once appended edge ids are out of order
+   */
+  private Map<Long, Integer> edgeIndexById;
+
+  /**
+   * Source and target vertex position of each edge
+   */
+  private int[] sourceIndex;
+  private int[] targetIndex;
+
+  /**
+   * Vertex positions per label in ascending order
+   */
+  private final Map<String, Positions> verticesByLabel;
+
+  /**
+   * Positions of all vertices
+   */
+  private final Positions allVertices;
+
+  /**
+   * Positions of all edges
+   */
+  private final Positions allEdges;
+
+  /**
+   * Lazily built sorted edge positions per label
+   */
+  private final Map<String, int[]> edgesByLabel;
+
+  /**
+   * Lazily built adjacency lists per edge label and direction
+   */
+  private final Map<AdjacencyKey, Adjacency> adjacencies;
+
+  /**
+   * Creates an index over the given vertices and edges.
+   *
+   * @param vertices data vertices
+   * @param edges data edges, their endpoints must be contained in the vertices
+   */
+  public GraphIndex(Collection<Vertex> vertices, Collection<Edge> edges) {
+    this.vertices = vertices.toArray(new Vertex[0]);
+    Arrays.sort(this.vertices, (a, b) -> Long.compare(a.getId(), b.getId()));
+    this.vertexCount = this.vertices.length;
+    this.edges = edges.toArray(new Edge[0]);
+    Arrays.sort(this.edges, (a, b) -> Long.compare(a.getId(), b.getId()));
+    this.edgeCount = this.edges.length;
+
+    this.vertexIndexById = new HashMap<>(vertexCount * 2);
+    this.verticesByLabel = new HashMap<>();
+    this.allVertices = new Positions();
+    indexVertices(0);
+
+    this.sourceIndex = new int[edgeCount];
+    this.targetIndex = new int[edgeCount];
+    this.allEdges = new Positions();
+    indexEdges(0);
+    this.edgesByLabel = new ConcurrentHashMap<>();
+    this.adjacencies = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Creates an index over all vertices and edges loaded by the given handler.
+   *
+   * @param handler data handler
+   * @return graph index
+   */
+  public static GraphIndex fromHandler(GDLHandler handler) {
+    return new GraphIndex(handler.getVertices(), handler.getEdges());
+  }
+
+  public int getVertexCount() {
+    return vertexCount;
+  }
+
+  public int getEdgeCount() {
+    return edgeCount;
+  }
+
+  public Vertex getVertex(int vertex) {
+    return vertices[vertex];
+  }
+
+  public Edge getEdge(int edge) {
+    return edges[edge];
+  }
+
+  /**
+   * Returns the position of the vertex with the given id.
+   *
+   * @param vertexId vertex id
+   * @return vertex position or {@code -1} if there is no such vertex
+   */
+  public int getVertexIndex(long vertexId) {
+    return vertexIndexById.getOrDefault(vertexId, -1);
+  }
+
+  /**
+   * Returns the position of the edge with the given id.
+   *
+   * @param edgeId edge id
+   * @return edge position or {@code -1} if there is no such edge
+   */
+  public int getEdgeIndex(long edgeId) {
+    if (edgeIndexById != null) {
+      return edgeIndexById.getOrDefault(edgeId, -1);
+    }
+    int low = 0;
+    int high = edgeCount - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long id = edges[mid].getId();
+      if (id < edgeId) {
+        low = mid + 1;
+      } else if (id > edgeId) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  public int getSourceIndex(int edge) {
+    return sourceIndex[edge];
+  }
+
+  public int getTargetIndex(int edge) {
+    return targetIndex[edge];
+  }
+
+  /**
+   * Checks if a vertex has the given label.
+   *
+   * @param vertex vertex position
+   * @param label label or {@code null} to accept any vertex
+   * @return true, iff the vertex has the label
+   */
+  public boolean hasLabel(int vertex, String label) {
+    return label == null ||
+      (vertices[vertex].getLabels() != null && vertices[vertex].getLabels().contains(label));
+  }
+
+  /**
+   * Checks if an edge has the given label.
+   *
+   * @param edge edge position
+   * @param label label or {@code null} to accept any edge
+   * @return true, iff the edge has the label
+   */
+  public boolean hasEdgeLabel(int edge, String label) {
+    return label == null ||
+      (edges[edge].getLabels() != null && edges[edge].getLabels().contains(label));
+  }
+
+  /**
+   * Returns the sorted positions of all vertices with the given label.
+   *
+   * @param label vertex label or {@code null} for all vertices
+   * @return vertex positions, must not be modified
+   */
+  public int[] getVertices(String label) {
+    if (label == null) {
+      return allVertices.toArray();
+    }
+    Positions positions = verticesByLabel.get(label);
+    return positions != null ? positions.toArray() : new int[0];
+  }
+
+  /**
+   * Returns the sorted positions of all edges with the given label.
+   *
+   * @param label edge label or {@code null} for all edges
+   * @return edge positions, must not be modified
+   */
+  public int[] getEdges(String label) {
+    if (label == null) {
+      return allEdges.toArray();
+    }
+    return edgesByLabel.computeIfAbsent(label, k -> {
+      int[] positions = new int[edgeCount];
+      int count = 0;
+      for (int i = 0; i < edgeCount; i++) {
+        if (hasEdgeLabel(i, label)) {
+          positions[count++] = i;
+        }
+      }
+      return Arrays.copyOf(positions, count);
+    });
+  }
+
+  /**
+   * Returns the adjacency list of all edges with the given label.
+   *
+   * @param label edge label or {@code null} for all edges
+   * @param outgoing true for the neighbors reached via outgoing edges, false for incoming edges
+   * @return adjacency list
+   */
+  public Adjacency getAdjacency(String label, boolean outgoing) {
+    return adjacencies.computeIfAbsent(new AdjacencyKey(label, outgoing), this::buildAdjacency);
+  }
+
+  /**
+   * Adds appended vertices and edges, numbered after the existing ones in ascending id order.
+   * Built adjacency lists are updated, rewriting only the entries of vertices with new edges.
+   * Must not be called while the index is read.
+   *
+   * @param vertices new vertices
+   * @param edges new edges, their endpoints must be indexed or contained in the new vertices
+   */
+  void append(Collection<Vertex> vertices, Collection<Edge> edges) {
+    Vertex[] newVertices = vertices.toArray(new Vertex[0]);
+    Arrays.sort(newVertices, (a, b) -> Long.compare(a.getId(), b.getId()));
+    int firstVertex = vertexCount;
+    this.vertices = ensureCapacity(this.vertices, vertexCount + newVertices.length);
+    System.arraycopy(newVertices, 0, this.vertices, vertexCount, newVertices.length);
+    vertexCount += newVertices.length;
+    indexVertices(firstVertex);
+
+    Edge[] newEdges = edges.toArray(new Edge[0]);
+    Arrays.sort(newEdges, (a, b) -> Long.compare(a.getId(), b.getId()));
+    int firstEdge = edgeCount;
+    if (edgeIndexById == null && newEdges.length > 0 && edgeCount > 0 &&
+      newEdges[0].getId() <= this.edges[edgeCount - 1].getId()) {
+      // binary search no longer works
+      edgeIndexById = new HashMap<>(2 * (edgeCount + newEdges.length));
+      for (int i = 0; i < edgeCount; i++) {
+        edgeIndexById.put(this.edges[i].getId(), i);
+      }
+    }
+    this.edges = ensureCapacity(this.edges, edgeCount + newEdges.length);
+    System.arraycopy(newEdges, 0, this.edges, edgeCount, newEdges.length);
+    edgeCount += newEdges.length;
+    if (sourceIndex.length < edgeCount) {
+      int capacity = Math.max(edgeCount, 2 * sourceIndex.length);
+      sourceIndex = Arrays.copyOf(sourceIndex, capacity);
+      targetIndex = Arrays.copyOf(targetIndex, capacity);
+    }
+    indexEdges(firstEdge);
+
+    edgesByLabel.clear();
+    for (Map.Entry<AdjacencyKey, Adjacency> entry : adjacencies.entrySet()) {
+      AdjacencyKey key = entry.getKey();
+      entry.getValue().append(key.outgoing ? sourceIndex : targetIndex, key.outgoing ? targetIndex : sourceIndex,
+        firstEdge, edgeCount, edge -> hasEdgeLabel(edge, key.label), vertexCount);
+    }
+  }
+
+  private void indexVertices(int from) {
+    for (int i = from; i < vertexCount; i++) {
+      vertexIndexById.put(vertices[i].getId(), i);
+      if (vertices[i].getLabels() != null) {
+        for (String label : vertices[i].getLabels()) {
+          verticesByLabel.computeIfAbsent(label, k -> new Positions()).add(i);
+        }
+      }
+      allVertices.add(i);
+    }
+  }
+
+  private void indexEdges(int from) {
+    for (int i = from; i < edgeCount; i++) {
+      sourceIndex[i] = getVertexIndexOrThrow(edges[i].getSourceVertexId());
+      targetIndex[i] = getVertexIndexOrThrow(edges[i].getTargetVertexId());
+      if (edgeIndexById != null) {
+        edgeIndexById.put(edges[i].getId(), i);
+      }
+      allEdges.add(i);
+    }
+  }
+
+  private static <T> T[] ensureCapacity(T[] array, int size) {
+    return array.length >= size ? array : Arrays.copyOf(array, Math.max(size, 2 * array.length));
+  }
+
+  private int getVertexIndexOrThrow(Long vertexId) {
+    Integer index = vertexIndexById.get(vertexId);
+    if (index == null) {
+      throw new IllegalArgumentException("Edge references vertex " + vertexId + " which was not defined");
+    }
+    return index;
+  }
+
+  private Adjacency buildAdjacency(AdjacencyKey key) {
+    int[] from = key.outgoing ? sourceIndex : targetIndex;
+    int[] to = key.outgoing ? targetIndex : sourceIndex;
+
+    int[] offsets = new int[vertexCount + 1];
+    int count = 0;
+    for (int e = 0; e < edgeCount; e++) {
+      if (hasEdgeLabel(e, key.label)) {
+        offsets[from[e] + 1]++;
+        count++;
+      }
+    }
+    for (int v = 0; v < vertexCount; v++) {
+      offsets[v + 1] += offsets[v];
+    }
+
+    // pack neighbor and edge position into one value, so sorting orders by neighbor, then edge
+    long[] entries = new long[count];
+    int[] fill = Arrays.copyOf(offsets, vertexCount);
+    for (int e = 0; e < edgeCount; e++) {
+      if (hasEdgeLabel(e, key.label)) {
+        entries[fill[from[e]]++] = ((long) to[e] << 32) | e;
+      }
+    }
+    int[] neighbors = new int[count];
+    int[] edgeIds = new int[count];
+    for (int v = 0; v < vertexCount; v++) {
+      Arrays.sort(entries, offsets[v], offsets[v + 1]);
+      for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+        neighbors[i] = (int) (entries[i] >>> 32);
+        edgeIds[i] = (int) entries[i];
+      }
+    }
+    return new Adjacency(offsets, neighbors, edgeIds);
+  }
+
+  /**
+   * Compressed adjacency list. The entries of vertex {@code v} are stored at positions
+   * {@code start(v)} (inclusive) to {@code end(v)} (exclusive), sorted by neighbor and edge.
+   *
+   * <p>Initially the entries of all vertices are packed in vertex order. A vertex that receives
+   * appended edges gets its entries merged in place if there is room, otherwise they are moved to
+   * the end with room to grow.
+   */
+  public static class Adjacency {
+    private int[] starts;
+    private int[] ends;
+
+    /**
+     * End of the room reserved per vertex, {@code null} while all entries are packed
+     */
+    private int[] limits;
+    private int[] neighbors;
+    private int[] edges;
+
+    /**
+     * Number of used entry positions
+     */
+    private int size;
+
+    private Adjacency(int[] offsets, int[] neighbors, int[] edges) {
+      this.starts = Arrays.copyOf(offsets, offsets.length - 1);
+      this.ends = Arrays.copyOfRange(offsets, 1, offsets.length);
+      this.neighbors = neighbors;
+      this.edges = edges;
+      this.size = neighbors.length;
+    }
+
+    public int start(int vertex) {
+      return starts[vertex];
+    }
+
+    public int end(int vertex) {
+      return ends[vertex];
+    }
+
+    public int degree(int vertex) {
+      return ends[vertex] - starts[vertex];
+    }
+
+    public int neighbor(int position) {
+      return neighbors[position];
+    }
+
+    public int edge(int position) {
+      return edges[position];
+    }
+
+    /**
+     * Returns the neighbor array shared by all vertices, sorted within the range of each vertex.
+     *
+     * @return neighbor positions, must not be modified
+     */
+    public int[] getNeighbors() {
+      return neighbors;
+    }
+
+    /**
+     * Returns the first entry per vertex.
+     */
+    int[] getStarts() {
+      return starts;
+    }
+
+    /**
+     * Returns the end of the entries per vertex (exclusive).
+     */
+    int[] getEnds() {
+      return ends;
+    }
+
+    /**
+     * Returns the edge position per entry.
+     */
+    int[] getEdges() {
+      return edges;
+    }
+
+    /**
+     * Returns the first entry of a vertex whose neighbor is not smaller than the given one.
+     *
+     * @param vertex vertex position
+     * @param neighbor neighbor position
+     * @return entry position, {@code end(vertex)} if there is none
+     */
+    public int seek(int vertex, int neighbor) {
+      return gallop(neighbors, starts[vertex], ends[vertex], neighbor);
+    }
+
+    /**
+     * Adds the entries of appended edges.
+     */
+    private void append(int[] from, int[] to, int firstEdge, int edgeCount, IntPredicate accepts,
+      int vertexCount) {
+      if (limits == null) {
+        limits = Arrays.copyOf(ends, ends.length);
+      }
+      if (starts.length < vertexCount) {
+        // new vertices have no entries and no room
+        int capacity = Math.max(vertexCount, 2 * starts.length);
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        limits = Arrays.copyOf(limits, capacity);
+      }
+
+      // group the new entries by vertex, ordered by neighbor and edge
+      List<long[]> entries = new ArrayList<>();
+      for (int e = firstEdge; e < edgeCount; e++) {
+        if (accepts.test(e)) {
+          entries.add(new long[] {from[e], ((long) to[e] << 32) | e});
+        }
+      }
+      entries.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+      for (int i = 0; i < entries.size(); ) {
+        int vertex = (int) entries.get(i)[0];
+        int j = i;
+        while (j < entries.size() && entries.get(j)[0] == vertex) {
+          j++;
+        }
+        insert(vertex, entries.subList(i, j));
+        i = j;
+      }
+    }
+
+    /**
+     * Merges sorted entries into the range of a vertex, moving the range to the end if it is full.
+     */
+    private void insert(int vertex, List<long[]> entries) {
+      int degree = ends[vertex] - starts[vertex];
+      int newDegree = degree + entries.size();
+      int start = starts[vertex];
+      if (limits[vertex] - start < newDegree) {
+        int capacity = Math.max(4, 2 * newDegree);
+        if (neighbors.length < size + capacity) {
+          int length = Math.max(size + capacity, 2 * neighbors.length);
+          neighbors = Arrays.copyOf(neighbors, length);
+          edges = Arrays.copyOf(edges, length);
+        }
+        System.arraycopy(neighbors, start, neighbors, size, degree);
+        System.arraycopy(edges, start, edges, size, degree);
+        start = size;
+        starts[vertex] = start;
+        limits[vertex] = start + capacity;
+        size += capacity;
+      }
+      // merge from the back, new entries have larger edge positions than old ones
+      int old = start + degree - 1;
+      int position = start + newDegree - 1;
+      for (int n = entries.size() - 1; n >= 0; n--) {
+        long entry = entries.get(n)[1];
+        int neighbor = (int) (entry >>> 32);
+        while (old >= start && neighbors[old] > neighbor) {
+          neighbors[position] = neighbors[old];
+          edges[position--] = edges[old--];
+        }
+        neighbors[position] = neighbor;
+        edges[position--] = (int) entry;
+      }
+      ends[vertex] = start + newDegree;
+    }
+  }
+
+  /**
+   * Returns the first position in a sorted range whose value is not smaller than the target by
+   * exponential search followed by binary search.
+   *
+   * @param values sorted values
+   * @param from first position (inclusive)
+   * @param to last position (exclusive)
+   * @param target value to search for
+   * @return position of the first value that is not smaller than target or {@code to}
+   */
+  public static int gallop(int[] values, int from, int to, int target) {
+    if (from >= to || values[from] >= target) {
+      return from;
+    }
+    int low = from;
+    int step = 1;
+    while (low + step < to && values[low + step] < target) {
+      low += step;
+      step <<= 1;
+    }
+    int high = Math.min(low + step, to);
+    // values[low] < target and values[high] >= target (or high == to)
+    low++;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (values[mid] < target) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Growable list of ascending positions
+   */
+  private static final class Positions {
+    private int[] values = new int[16];
+    private int size;
+
+    /**
+     * Array returned by {@link #toArray()} while the list is unchanged
+     */
+    private int[] array;
+
+    private void add(int position) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, 2 * size);
+      }
+      values[size++] = position;
+      array = null;
+    }
+
+    private int[] toArray() {
+      int[] result = array;
+      if (result == null) {
+        result = Arrays.copyOf(values, size);
+        array = result;
+      }
+      return result;
+    }
+  }
+
+  private static class AdjacencyKey {
+    private final String label;
+    private final boolean outgoing;
+
+    private AdjacencyKey(String label, boolean outgoing) {
+      this.label = label;
+      this.outgoing = outgoing;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+
+      AdjacencyKey that = (AdjacencyKey) o;
+
+      return outgoing == that.outgoing && Objects.equals(label, that.label);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * Objects.hashCode(label) + (outgoing ? 1 : 0);
+    }
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.matching;
+
+import org.s1ck.gdl.model.projections.AggregateFunction;
+import org.s1ck.gdl.utils.Comparator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Partial result of a hash aggregation over projected matches.
+ *
+ * <p>The values of the grouping items form the key of a hash table holding one accumulator per
+ * aggregating item. Partial aggregations built by different threads are combined by
+ * {@link #merge(HashAggregation)}. Groups are kept in the order they were first seen.
+ */
+class HashAggregation {
+
+  private final Projection projection;
+
+  private final Map<List<Object>, Accumulator[]> groups = new LinkedHashMap<>();
+
+  HashAggregation(Projection projection) {
+    this.projection = projection;
+  }
+
+  /**
+   * Adds the projected values of one match.
+   *
+   * @param values value per return item
+   */
+  void add(Object[] values) {
+    int[] grouping = projection.getGroupingItems();
+    Object[] key = new Object[grouping.length];
+    for (int i = 0; i < grouping.length; i++) {
+      key[i] = values[grouping[i]];
+    }
+    Accumulator[] accumulators = groups.computeIfAbsent(Arrays.asList(key), k -> newAccumulators());
+    int[] aggregating = projection.getAggregatingItems();
+    for (int i = 0; i < aggregating.length; i++) {
+      accumulators[i].add(values[aggregating[i]]);
+    }
+  }
+
+  /**
+   * Adds all groups of another partial aggregation to this one.
+   *
+   * @param other partial aggregation of the same projection
+   * @return this aggregation
+   */
+  HashAggregation merge(HashAggregation other) {
+    other.groups.forEach((key, accumulators) -> {
+      Accumulator[] existing = groups.putIfAbsent(key, accumulators);
+      if (existing != null) {
+        for (int i = 0; i < existing.length; i++) {
+          existing[i].merge(accumulators[i]);
+        }
+      }
+    });
+    return this;
+  }
+
+  /**
+   * Returns one row per group. Without grouping items there is exactly one row, even if no
+   * match was added.
+   *
+   * @return result rows
+   */
+  List<Map<String, Object>> getRows() {
+    if (groups.isEmpty() && projection.getGroupingItems().length == 0) {
+      groups.put(Collections.emptyList(), newAccumulators());
+    }
+    int[] grouping = projection.getGroupingItems();
+    int[] aggregating = projection.getAggregatingItems();
+    List<Map<String, Object>> rows = new ArrayList<>(groups.size());
+    groups.forEach((key, accumulators) -> {
+      Object[] values = new Object[projection.size()];
+      for (int i = 0; i < grouping.length; i++) {
+        values[grouping[i]] = key.get(i);
+      }
+      for (int i = 0; i < aggregating.length; i++) {
+        values[aggregating[i]] = accumulators[i].getResult();
+      }
+      rows.add(projection.toRow(values));
+    });
+    return rows;
+  }
+
+  private Accumulator[] newAccumulators() {
+    int[] aggregating = projection.getAggregatingItems();
+    Accumulator[] accumulators = new Accumulator[aggregating.length];
+    for (int i = 0; i < aggregating.length; i++) {
+      accumulators[i] = new Accumulator(projection.getItem(aggregating[i]).getFunction(),
+        projection.countsRows(aggregating[i]));
+    }
+    return accumulators;
+  }
+
+  /**
+   * State of a single aggregate function. {@code NULL} values are ignored, except by
+   * {@code count(*)}.
+   */
+  static class Accumulator {
+    private final AggregateFunction function;
+
+    private final boolean countRows;
+
+    private long count;
+
+    private long longSum;
+    private double doubleSum;
+
+    /**
+     * True once a non-integral number has been added to a sum or average
+     */
+    private boolean floating;
+
+    /**
+     * Current minimum or maximum
+     */
+    private Object extreme;
+
+    Accumulator(AggregateFunction function, boolean countRows) {
+      this.function = function;
+      this.countRows = countRows;
+    }
+
+    void add(Object value) {
+      if (value == null && !countRows) {
+        return;
+      }
+      count++;
+      switch (function) {
+        case SUM:
+        case AVG:
+          if (!(value instanceof Number)) {
+            throw new IllegalArgumentException(function + " requires numeric values but found " + value);
+          }
+          Number number = (Number) value;
+          if (number instanceof Integer || number instanceof Long ||
+            number instanceof Short || number instanceof Byte) {
+            longSum += number.longValue();
+          } else {
+            doubleSum += number.doubleValue();
+            floating = true;
+          }
+          break;
+        case MIN:
+          if (extreme == null || PredicateEvaluator.compare(value, Comparator.LT, extreme)) {
+            extreme = value;
+          }
+          break;
+        case MAX:
+          if (extreme == null || PredicateEvaluator.compare(value, Comparator.GT, extreme)) {
+            extreme = value;
+          }
+          break;
+        default:
+      }
+    }
+
+    void merge(Accumulator other) {
+      count += other.count;
+      longSum += other.longSum;
+      doubleSum += other.doubleSum;
+      floating |= other.floating;
+      if (other.extreme != null) {
+        Comparator comparator = function == AggregateFunction.MIN ? Comparator.LT : Comparator.GT;
+        if (extreme == null || PredicateEvaluator.compare(other.extreme, comparator, extreme)) {
+          extreme = other.extreme;
+        }
+      }
+    }
+
+    Object getResult() {
+      switch (function) {
+        case COUNT:
+          return count;
+        case SUM:
+          return floating ? (Object) (longSum + doubleSum) : (Object) longSum;
+        case AVG:
+          return count == 0 ? null : (longSum + doubleSum) / count;
+        default:
+          return extreme;
+      }
+    }
+  }
+}
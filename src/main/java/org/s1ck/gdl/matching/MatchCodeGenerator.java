@@ -0,0 +1,326 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl.matching;
+
+import org.s1ck.gdl.model.comparables.ComparableExpression;
+import org.s1ck.gdl.model.comparables.Literal;
+import org.s1ck.gdl.model.comparables.PropertySelector;
+import org.s1ck.gdl.model.predicates.Predicate;
+import org.s1ck.gdl.model.predicates.booleans.And;
+import org.s1ck.gdl.model.predicates.booleans.Not;
+import org.s1ck.gdl.model.predicates.booleans.Or;
+import org.s1ck.gdl.model.predicates.booleans.Xor;
+import org.s1ck.gdl.model.predicates.expressions.Comparison;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates the Java source of a {@link CompiledMatch} subclass for a {@link MatchProgram}.
+ *
+ * <p>Every operation becomes one loop nested into the loop of the previous operation: scans
+ * iterate over candidate arrays, single constraints over a range of a neighbor array and edge
+ * operations over the entries connecting two bound vertices. Bounds from symmetry breaking,
+ * injectivity and predicate checks are inlined into the loop bodies. Comparisons of properties
+ * and literals are translated into calls of {@link PredicateEvaluator#compare}, all other
+ * comparisons are delegated to {@link CompiledMatch#evaluate(int)}.
+ *
+ * <p>Literal values, property keys and labels are not part of the source but referenced by index,
+ * so programs that only differ in these constants share their generated class.
+ */
+class MatchCodeGenerator {
+
+  /**
+   * Placeholder for the class name in the generated source
+   */
+  static final String CLASS_NAME = "__CLASS__";
+
+  private final MatchProgram program;
+
+  private final QueryGraph query;
+
+  private final boolean injective;
+
+  private final boolean candidates;
+
+  private final StringBuilder source = new StringBuilder();
+
+  private final List<Object> literals = new ArrayList<>();
+  private final List<String> keys = new ArrayList<>();
+  private final List<Predicate> predicates = new ArrayList<>();
+
+  /**
+   * First adjacency slot per operation
+   */
+  private final int[] slots;
+
+  private int indent;
+
+  /**
+   * @param program match program
+   * @param injective true for isomorphism semantics
+   * @param candidates true if the search is restricted by {@link CandidateSets}
+   */
+  MatchCodeGenerator(MatchProgram program, boolean injective, boolean candidates) {
+    this.program = program;
+    this.query = program.getQuery();
+    this.injective = injective;
+    this.candidates = candidates;
+    this.slots = new int[program.size()];
+    int slot = 0;
+    for (int i = 0; i < program.size(); i++) {
+      slots[i] = slot;
+      slot += program.get(i).vertex ? program.get(i).constraintEdges.length : 1;
+    }
+  }
+
+  /**
+   * Generates the source code, its class is named {@link #CLASS_NAME}.
+   *
+   * @return source code
+   */
+  String generate() {
+    source.setLength(0);
+    literals.clear();
+    keys.clear();
+    predicates.clear();
+    indent = 0;
+
+    line("package org.s1ck.gdl.matching;");
+    line("");
+    line("import org.s1ck.gdl.utils.Comparator;");
+    line("");
+    line("final class " + CLASS_NAME + " extends CompiledMatch {");
+    indent++;
+    line(CLASS_NAME + "(CompiledQuery query, GraphIndex graph, CandidateSets candidateSets) {");
+    line("  super(query, graph, candidateSets);");
+    line("}");
+    line("");
+    line("@Override");
+    line("protected boolean search(int rootFrom, int rootTo, MatchEnumerator.Sink sink) {");
+    indent++;
+    line("final int[] vb = vertexBindings;");
+    line("final int[] eb = edgeBindings;");
+    if (injective) {
+      line("final boolean[] uv = usedVertices;");
+      line("final boolean[] ue = usedEdges;");
+    }
+    int slotCount = program.size() == 0 ? 0 :
+      slots[program.size() - 1] + (program.get(program.size() - 1).vertex ?
+        program.get(program.size() - 1).constraintEdges.length : 1);
+    for (int s = 0; s < slotCount; s++) {
+      line(String.format("final int[] st%d = adjacencies[%d].getStarts();", s, s));
+      line(String.format("final int[] en%d = adjacencies[%d].getEnds();", s, s));
+      line(String.format("final int[] n%d = adjacencies[%d].getNeighbors();", s, s));
+      line(String.format("final int[] e%d = adjacencies[%d].getEdges();", s, s));
+    }
+    if (candidates) {
+      for (int v = 0; v < query.getVertexCount(); v++) {
+        line(String.format("final java.util.BitSet c%d = candidates[%d];", v, v));
+      }
+    }
+    operation(0);
+    line("return true;");
+    indent--;
+    line("}");
+    indent--;
+    line("}");
+    return source.toString();
+  }
+
+  Object[] getLiterals() {
+    return literals.toArray();
+  }
+
+  String[] getKeys() {
+    return keys.toArray(new String[0]);
+  }
+
+  Predicate[] getPredicates() {
+    return predicates.toArray(new Predicate[0]);
+  }
+
+  private void operation(int depth) {
+    if (depth == program.size()) {
+      line("if (!sink.accept(vb, eb)) {");
+      line("  return false;");
+      line("}");
+      return;
+    }
+    MatchProgram.Operation operation = program.get(depth);
+    String bindings = operation.vertex ? "vb" : "eb";
+    String used = operation.vertex ? "uv" : "ue";
+    String value = (operation.vertex ? "v" : "x") + depth;
+
+    line("{");
+    indent++;
+    bound("lo" + depth, "Math.max", "-1", bindings, operation.boundedBelowBy);
+    bound("hi" + depth, "Math.min", "Integer.MAX_VALUE", bindings, operation.boundedAboveBy);
+
+    if (!operation.vertex) {
+      int slot = slots[depth];
+      line(String.format("final int u%d = vb[%d];", depth, query.getSourceIndex(operation.element)));
+      line(String.format("final int t%d = vb[%d];", depth, query.getTargetIndex(operation.element)));
+      line(String.format("final int end%d = en%d[u%d];", depth, slot, depth));
+      line(String.format("for (int p%1$d = GraphIndex.gallop(n%2$d, st%2$d[u%1$d], end%1$d, t%1$d); " +
+        "p%1$d < end%1$d && n%2$d[p%1$d] == t%1$d; p%1$d++) {", depth, slot));
+      indent++;
+      line(String.format("final int %s = e%d[p%d];", value, slot, depth));
+    } else if (operation.constraintEdges.length == 0) {
+      line(String.format("final int[] s%1$d = scans[%1$d];", depth));
+      line(String.format(depth == 0 ? "final int to%1$d = Math.min(rootTo, s%1$d.length);" :
+        "final int to%1$d = s%1$d.length;", depth));
+      line(String.format("for (int i%1$d = %2$s; i%1$d < to%1$d; i%1$d++) {", depth, depth == 0 ? "rootFrom" : "0"));
+      indent++;
+      line(String.format("final int %s = s%d[i%d];", value, depth, depth));
+    } else if (operation.constraintEdges.length == 1) {
+      int slot = slots[depth];
+      line(String.format("final int f%d = vb[%d];", depth, operation.constraintFrom[0]));
+      line(String.format("int prev%d = -1;", depth));
+      line(String.format("for (int p%1$d = st%2$d[f%1$d], end%1$d = en%2$d[f%1$d]; p%1$d < end%1$d; p%1$d++) {",
+        depth, slot));
+      indent++;
+      line(String.format("final int %s = n%d[p%d];", value, slot, depth));
+      line(String.format("if (%s == prev%d) {", value, depth));
+      line("  continue;");
+      line("}");
+      line(String.format("prev%d = %s;", depth, value));
+    } else {
+      line(String.format("final int k%1$d = intersect(%1$d);", depth));
+      line(String.format("final int[] b%1$d = buffers[%1$d];", depth));
+      line(String.format("for (int i%1$d = 0; i%1$d < k%1$d; i%1$d++) {", depth));
+      indent++;
+      line(String.format("final int %s = b%d[i%d];", value, depth, depth));
+    }
+
+    if (depth == 0) {
+      line("if (cancellation.get()) {");
+      line("  return false;");
+      line("}");
+    }
+    if (operation.boundedAboveBy.length > 0) {
+      line(String.format("if (%s >= hi%d) {", value, depth));
+      line("  break;");
+      line("}");
+    }
+    if (operation.boundedBelowBy.length > 0) {
+      check(value + " <= lo" + depth);
+    }
+    if (operation.vertex && operation.constraintEdges.length == 1) {
+      if (candidates) {
+        check(String.format("!c%d.get(%s)", operation.element, value));
+      } else if (operation.label != null) {
+        check(String.format("!graph.hasLabel(%s, labels[%d])", value, depth));
+      }
+    }
+    if (operation.allowedFrom > 0 || operation.allowedTo < Integer.MAX_VALUE) {
+      check(String.format("%1$s < %2$d || %1$s >= %3$d", value, operation.allowedFrom, operation.allowedTo));
+    }
+    if (injective) {
+      check(used + "[" + value + "]");
+    }
+    line(String.format("%s[%d] = %s;", bindings, operation.element, value));
+    if (!operation.filters.isEmpty()) {
+      List<String> conditions = new ArrayList<>();
+      for (Predicate filter : operation.filters) {
+        conditions.add(predicate(filter));
+      }
+      check("!(" + String.join(" && ", conditions) + ")");
+    }
+    if (injective) {
+      line(used + "[" + value + "] = true;");
+    }
+    operation(depth + 1);
+    if (injective) {
+      line(used + "[" + value + "] = false;");
+    }
+    indent--;
+    line("}");
+    indent--;
+    line("}");
+  }
+
+  private void bound(String name, String function, String initial, String bindings, int[] elements) {
+    if (elements.length == 0) {
+      return;
+    }
+    String expression = initial;
+    for (int element : elements) {
+      expression = String.format("%s(%s, %s[%d])", function, expression, bindings, element);
+    }
+    line(String.format("final int %s = %s;", name, expression));
+  }
+
+  private String predicate(Predicate predicate) {
+    if (predicate instanceof And) {
+      return binary(predicate, " && ");
+    } else if (predicate instanceof Or) {
+      return binary(predicate, " || ");
+    } else if (predicate instanceof Xor) {
+      return binary(predicate, " ^ ");
+    } else if (predicate instanceof Not) {
+      return "!" + predicate(predicate.getArguments()[0]);
+    }
+    if (predicate instanceof Comparison) {
+      Comparison comparison = (Comparison) predicate;
+      ComparableExpression[] expressions = comparison.getComparableExpressions();
+      if (isValue(expressions[0]) && isValue(expressions[1])) {
+        return String.format("PredicateEvaluator.compare(%s, Comparator.%s, %s)",
+          value(expressions[0]), comparison.getComparator().name(), value(expressions[1]));
+      }
+    }
+    predicates.add(predicate);
+    return "evaluate(" + (predicates.size() - 1) + ")";
+  }
+
+  private String binary(Predicate predicate, String operator) {
+    return "(" + predicate(predicate.getArguments()[0]) + operator + predicate(predicate.getArguments()[1]) + ")";
+  }
+
+  private static boolean isValue(ComparableExpression expression) {
+    return expression instanceof Literal || (expression instanceof PropertySelector &&
+      !((PropertySelector) expression).getPropertyName().equals(PropertySelector.LABEL_PROPERTY));
+  }
+
+  private String value(ComparableExpression expression) {
+    if (expression instanceof Literal) {
+      literals.add(((Literal) expression).getValue());
+      return "literals[" + (literals.size() - 1) + "]";
+    }
+    keys.add(((PropertySelector) expression).getPropertyName());
+    int vertex = query.getVertexIndex(expression.getVariable());
+    return vertex >= 0 ?
+      String.format("vertexProperty(vb[%d], keys[%d])", vertex, keys.size() - 1) :
+      String.format("edgeProperty(eb[%d], keys[%d])", query.getEdgeIndex(expression.getVariable()), keys.size() - 1);
+  }
+
+  private void check(String condition) {
+    line("if (" + condition + ") {");
+    line("  continue;");
+    line("}");
+  }
+
+  private void line(String line) {
+    if (!line.isEmpty()) {
+      for (int i = 0; i < indent; i++) {
+        source.append("  ");
+      }
+    }
+    source.append(line).append('\n');
+  }
+}
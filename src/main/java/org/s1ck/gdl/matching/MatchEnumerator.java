@@ -0,0 +1,499 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.matching;
+
+import org.s1ck.gdl.model.Element;
+import org.s1ck.gdl.model.predicates.Predicate;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Depth-first execution of a {@link MatchProgram} on a {@link GraphIndex}.
+ *
+ * <p>Bindings are kept in two arrays holding the data vertex and data edge position of each query
+ * vertex and edge. The search keeps its position per operation explicitly instead of recursing, so
+ * it can be suspended after every match and resumed on demand. An enumerator is not thread-safe,
+ * concurrent searches need one instance each.
+ */
+class MatchEnumerator {
+
+  /**
+   * Receives complete bindings.
+   */
+  interface Sink {
+    /**
+     * Called for each match. The arrays are reused by the enumerator and must be copied if they
+     * are kept.
+     *
+     * @param vertexBindings data vertex position by query vertex position
+     * @param edgeBindings data edge position by query edge position
+     * @return true to continue the search, false to stop it
+     */
+    boolean accept(int[] vertexBindings, int[] edgeBindings);
+  }
+
+  private final MatchProgram program;
+
+  private final GraphIndex graph;
+
+  private final QueryGraph query;
+
+  /**
+   * True if distinct query elements must be bound to distinct data elements
+   */
+  private final boolean injective;
+
+  private final int[] vertexBindings;
+  private final int[] edgeBindings;
+
+  private final boolean[] usedVertices;
+  private final boolean[] usedEdges;
+
+  /**
+   * Pre-computed vertex candidates or {@code null}
+   */
+  private final CandidateSets candidateSets;
+
+  /**
+   * Candidate positions of each unconstrained vertex operation
+   */
+  private final int[][] scans;
+
+  /**
+   * Candidate buffers and intersection cursors per operation
+   */
+  private final int[][] candidates;
+  private final int[][] cursors;
+  private final int[][] limits;
+
+  /**
+   * Adjacency lists used by each operation's constraints or edge lookup
+   */
+  private final GraphIndex.Adjacency[][] adjacencies;
+
+  /**
+   * Resolves query variables to the currently bound data elements
+   */
+  private final Function<String, Element> resolver;
+
+  /**
+   * Iteration state per operation: next candidate position, end of the candidates and the
+   * exclusive bounds imposed by symmetry conditions
+   */
+  private final int[] positions;
+  private final int[] ends;
+  private final int[] lowers;
+  private final int[] uppers;
+
+  /**
+   * Range of the first operation's scan to enumerate
+   */
+  private int rootFrom = 0;
+  private int rootTo = Integer.MAX_VALUE;
+
+  private static final int INITIAL = 0;
+  private static final int RUNNING = 1;
+  private static final int DONE = 2;
+
+  private int state = INITIAL;
+
+  /**
+   * Stops the search once set, may be shared with concurrent enumerators
+   */
+  private AtomicBoolean cancellation = new AtomicBoolean();
+
+  /**
+   * Creates an enumerator, optionally restricted to pre-computed vertex candidates.
+   *
+   * @param program match program compiled for the candidate sets' query
+   * @param graph data graph the candidates were computed on
+   * @param strategy mapping semantics
+   * @param candidateSets vertex candidates or {@code null} to only check labels
+   */
+  MatchEnumerator(MatchProgram program, GraphIndex graph, MatchStrategy strategy,
+    CandidateSets candidateSets) {
+    this(program, graph, strategy, candidateSets,
+      strategy == MatchStrategy.ISOMORPHISM ? new boolean[graph.getVertexCount()] : null,
+      strategy == MatchStrategy.ISOMORPHISM ? new boolean[graph.getEdgeCount()] : null);
+  }
+
+  /**
+   * Creates an enumerator that marks bound elements in the given arrays, so that they can be
+   * reused by subsequent enumerators. The arrays must cover the graph and contain no marks; they
+   * contain none again once the enumerator is exhausted.
+   *
+   * @param program match program compiled for the candidate sets' query
+   * @param graph data graph the candidates were computed on
+   * @param strategy mapping semantics
+   * @param candidateSets vertex candidates or {@code null} to only check labels
+   * @param usedVertices bound vertex marks, only used for isomorphism
+   * @param usedEdges bound edge marks, only used for isomorphism
+   */
+  MatchEnumerator(MatchProgram program, GraphIndex graph, MatchStrategy strategy,
+    CandidateSets candidateSets, boolean[] usedVertices, boolean[] usedEdges) {
+    this.program = program;
+    this.graph = graph;
+    this.query = program.getQuery();
+    this.injective = strategy == MatchStrategy.ISOMORPHISM;
+
+    this.vertexBindings = new int[query.getVertexCount()];
+    this.edgeBindings = new int[query.getEdgeCount()];
+    Arrays.fill(vertexBindings, -1);
+    Arrays.fill(edgeBindings, -1);
+    this.usedVertices = usedVertices;
+    this.usedEdges = usedEdges;
+
+    this.candidateSets = candidateSets;
+    this.scans = new int[program.size()][];
+    this.candidates = new int[program.size()][];
+    this.cursors = new int[program.size()][];
+    this.limits = new int[program.size()][];
+    this.adjacencies = new GraphIndex.Adjacency[program.size()][];
+    this.positions = new int[program.size()];
+    this.ends = new int[program.size()];
+    this.lowers = new int[program.size()];
+    this.uppers = new int[program.size()];
+    for (int i = 0; i < program.size(); i++) {
+      MatchProgram.Operation operation = program.get(i);
+      if (operation.vertex) {
+        int constraints = operation.constraintEdges.length;
+        candidates[i] = new int[16];
+        cursors[i] = new int[constraints];
+        limits[i] = new int[constraints];
+        adjacencies[i] = new GraphIndex.Adjacency[constraints];
+        if (constraints == 0) {
+          scans[i] = operation.scan != null ? operation.scan : candidateSets == null ?
+            graph.getVertices(operation.label) : candidateSets.get(operation.element).stream().toArray();
+        }
+        for (int c = 0; c < constraints; c++) {
+          adjacencies[i][c] = graph.getAdjacency(
+            query.getEdgeLabel(operation.constraintEdges[c]), operation.constraintOutgoing[c]);
+        }
+      } else {
+        adjacencies[i] = new GraphIndex.Adjacency[] {graph.getAdjacency(operation.label, true)};
+      }
+    }
+
+    this.resolver = variable -> {
+      int vertex = query.getVertexIndex(variable);
+      if (vertex >= 0) {
+        return vertexBindings[vertex] >= 0 ? graph.getVertex(vertexBindings[vertex]) : null;
+      }
+      int edge = query.getEdgeIndex(variable);
+      return edge >= 0 && edgeBindings[edge] >= 0 ? graph.getEdge(edgeBindings[edge]) : null;
+    };
+  }
+
+  /**
+   * Restricts the candidates of the first operation to a range of its scan, so that disjoint
+   * ranges can be enumerated concurrently. Must be called before the first match is requested.
+   *
+   * @param from first scan position (inclusive)
+   * @param to last scan position (exclusive)
+   */
+  void restrictRoot(int from, int to) {
+    this.rootFrom = from;
+    this.rootTo = to;
+  }
+
+  /**
+   * Sets the flag that stops the search, e.g. one shared by all enumerators of a parallel search.
+   */
+  void setCancellation(AtomicBoolean cancellation) {
+    this.cancellation = cancellation;
+  }
+
+  boolean isStarted() {
+    return state != INITIAL;
+  }
+
+  /**
+   * Returns the number of candidates scanned by the first operation.
+   *
+   * @return root scan size
+   */
+  int getRootSize() {
+    return program.size() == 0 ? 0 : scans[0].length;
+  }
+
+  int[] getVertexBindings() {
+    return vertexBindings;
+  }
+
+  int[] getEdgeBindings() {
+    return edgeBindings;
+  }
+
+  /**
+   * Enumerates all remaining matches.
+   *
+   * @param sink receives the matches
+   */
+  void run(Sink sink) {
+    while (next()) {
+      if (!sink.accept(vertexBindings, edgeBindings)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Advances to the next match. The search is suspended after each match, the bindings are valid
+   * until the next call.
+   *
+   * @return true if a match is bound, false if the search is exhausted
+   */
+  boolean next() {
+    if (state == DONE) {
+      return false;
+    }
+    int depth;
+    if (state == INITIAL) {
+      state = RUNNING;
+      if (program.size() == 0 || (candidateSets != null && candidateSets.isEmpty())) {
+        state = DONE;
+        return false;
+      }
+      depth = 0;
+      open(depth);
+    } else {
+      depth = program.size() - 1;
+    }
+
+    while (true) {
+      if (cancellation.get()) {
+        state = DONE;
+        return false;
+      }
+      if (advance(depth)) {
+        if (depth == program.size() - 1) {
+          return true;
+        }
+        open(++depth);
+      } else if (depth == 0) {
+        state = DONE;
+        return false;
+      } else {
+        depth--;
+      }
+    }
+  }
+
+  /**
+   * Computes the candidates of the operation at the given position from the current bindings.
+   */
+  private void open(int depth) {
+    MatchProgram.Operation operation = program.get(depth);
+    int[] bindings = operation.vertex ? vertexBindings : edgeBindings;
+    lowers[depth] = lowerBound(operation, bindings);
+    uppers[depth] = upperBound(operation, bindings);
+
+    if (!operation.vertex) {
+      int source = vertexBindings[query.getSourceIndex(operation.element)];
+      GraphIndex.Adjacency adjacency = adjacencies[depth][0];
+      positions[depth] = adjacency.seek(source, vertexBindings[query.getTargetIndex(operation.element)]);
+      ends[depth] = adjacency.end(source);
+    } else if (operation.constraintEdges.length == 0) {
+      positions[depth] = depth == 0 ? rootFrom : 0;
+      ends[depth] = depth == 0 ? Math.min(rootTo, scans[depth].length) : scans[depth].length;
+    } else {
+      positions[depth] = 0;
+      ends[depth] = collectCandidates(depth, operation);
+    }
+  }
+
+  /**
+   * Releases the current binding of the operation at the given position and binds its next
+   * candidate that satisfies all conditions.
+   *
+   * @return false if the candidates are exhausted
+   */
+  private boolean advance(int depth) {
+    MatchProgram.Operation operation = program.get(depth);
+    return operation.vertex ? advanceVertex(depth, operation) : advanceEdge(depth, operation);
+  }
+
+  private boolean advanceVertex(int depth, MatchProgram.Operation operation) {
+    release(operation);
+    int[] values = operation.constraintEdges.length == 0 ? scans[depth] : candidates[depth];
+    while (positions[depth] < ends[depth]) {
+      int candidate = values[positions[depth]++];
+      if (candidate >= uppers[depth]) {
+        break;
+      }
+      if (candidate <= lowers[depth] || (injective && usedVertices[candidate])) {
+        continue;
+      }
+      vertexBindings[operation.element] = candidate;
+      if (injective) {
+        usedVertices[candidate] = true;
+      }
+      if (passes(operation)) {
+        return true;
+      }
+      release(operation);
+    }
+    positions[depth] = ends[depth];
+    return false;
+  }
+
+  private boolean advanceEdge(int depth, MatchProgram.Operation operation) {
+    release(operation);
+    GraphIndex.Adjacency adjacency = adjacencies[depth][0];
+    int target = vertexBindings[query.getTargetIndex(operation.element)];
+    while (positions[depth] < ends[depth] && adjacency.neighbor(positions[depth]) == target) {
+      int edge = adjacency.edge(positions[depth]++);
+      if (edge >= uppers[depth]) {
+        break;
+      }
+      if (edge <= lowers[depth] || (injective && usedEdges[edge])) {
+        continue;
+      }
+      edgeBindings[operation.element] = edge;
+      if (injective) {
+        usedEdges[edge] = true;
+      }
+      if (passes(operation)) {
+        return true;
+      }
+      release(operation);
+    }
+    positions[depth] = ends[depth];
+    return false;
+  }
+
+  private void release(MatchProgram.Operation operation) {
+    int[] bindings = operation.vertex ? vertexBindings : edgeBindings;
+    int bound = bindings[operation.element];
+    if (bound < 0) {
+      return;
+    }
+    if (injective) {
+      (operation.vertex ? usedVertices : usedEdges)[bound] = false;
+    }
+    bindings[operation.element] = -1;
+  }
+
+  /**
+   * Collects the distinct vertices that are adjacent to the images of all constraints and carry
+   * the required label. Multiple constraints are intersected by a leapfrog join that gallops
+   * through the sorted neighbor lists.
+   *
+   * @param depth operation position
+   * @param operation vertex operation
+   * @return number of candidates
+   */
+  private int collectCandidates(int depth, MatchProgram.Operation operation) {
+    GraphIndex.Adjacency[] lists = adjacencies[depth];
+    int[] positions = cursors[depth];
+    int constraints = lists.length;
+    int[] ends = limits[depth];
+    for (int c = 0; c < constraints; c++) {
+      int from = vertexBindings[operation.constraintFrom[c]];
+      positions[c] = lists[c].start(from);
+      ends[c] = lists[c].end(from);
+      if (positions[c] == ends[c]) {
+        return 0;
+      }
+    }
+
+    int count = 0;
+    if (constraints == 1) {
+      int[] neighbors = lists[0].getNeighbors();
+      int previous = -1;
+      for (int p = positions[0]; p < ends[0]; p++) {
+        int neighbor = neighbors[p];
+        if (neighbor != previous) {
+          count = addCandidate(depth, operation, count, neighbor);
+          previous = neighbor;
+        }
+      }
+      return count;
+    }
+
+    while (true) {
+      int max = -1;
+      for (int c = 0; c < constraints; c++) {
+        max = Math.max(max, lists[c].getNeighbors()[positions[c]]);
+      }
+      boolean aligned = true;
+      for (int c = 0; c < constraints; c++) {
+        int[] neighbors = lists[c].getNeighbors();
+        positions[c] = GraphIndex.gallop(neighbors, positions[c], ends[c], max);
+        if (positions[c] == ends[c]) {
+          return count;
+        }
+        aligned &= neighbors[positions[c]] == max;
+      }
+      if (aligned) {
+        count = addCandidate(depth, operation, count, max);
+        for (int c = 0; c < constraints; c++) {
+          positions[c] = GraphIndex.gallop(lists[c].getNeighbors(), positions[c], ends[c], max + 1);
+          if (positions[c] == ends[c]) {
+            return count;
+          }
+        }
+      }
+    }
+  }
+
+  private int addCandidate(int depth, MatchProgram.Operation operation, int count, int candidate) {
+    if (candidateSets != null ? !candidateSets.contains(operation.element, candidate) :
+      !graph.hasLabel(candidate, operation.label)) {
+      return count;
+    }
+    if (count == candidates[depth].length) {
+      candidates[depth] = Arrays.copyOf(candidates[depth], count * 2);
+    }
+    candidates[depth][count] = candidate;
+    return count + 1;
+  }
+
+  /**
+   * Returns the largest binding the operation's binding must exceed. Candidates are visited in
+   * ascending order, so the bounds are checked before anything else.
+   */
+  private static int lowerBound(MatchProgram.Operation operation, int[] bindings) {
+    int lower = operation.allowedFrom - 1;
+    for (int element : operation.boundedBelowBy) {
+      lower = Math.max(lower, bindings[element]);
+    }
+    return lower;
+  }
+
+  /**
+   * Returns the smallest binding the operation's binding must stay below.
+   */
+  private static int upperBound(MatchProgram.Operation operation, int[] bindings) {
+    int upper = operation.allowedTo;
+    for (int element : operation.boundedAboveBy) {
+      upper = Math.min(upper, bindings[element]);
+    }
+    return upper;
+  }
+
+  private boolean passes(MatchProgram.Operation operation) {
+    for (Predicate filter : operation.filters) {
+      if (!PredicateEvaluator.evaluate(filter, resolver)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
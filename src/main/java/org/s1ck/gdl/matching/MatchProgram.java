@@ -0,0 +1,315 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.matching;
+
+import org.s1ck.gdl.matching.planning.PlanStep;
+import org.s1ck.gdl.matching.planning.QueryPlan;
+import org.s1ck.gdl.model.predicates.Predicate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Sequence of binding operations executed by a {@link MatchEnumerator}.
+ *
+ * <p>A vertex operation binds a query vertex to the data vertices adjacent to the images of its
+ * constraining edges, or to all vertices with a matching label if it has no constraints. An edge
+ * operation binds a query edge whose endpoints are bound to every connecting data edge. Each
+ * operation carries the conjuncts that can be evaluated once it has been executed.
+ */
+class MatchProgram {
+
+  /**
+   * A single binding operation.
+   */
+  static class Operation {
+    /**
+     * True for vertex operations, false for edge operations
+     */
+    final boolean vertex;
+
+    /**
+     * Bound query vertex or edge position
+     */
+    final int element;
+
+    /**
+     * Required label of the bound element or {@code null}
+     */
+    final String label;
+
+    /**
+     * Query edges whose adjacency lists are intersected to find vertex candidates
+     */
+    final int[] constraintEdges;
+
+    /**
+     * Bound query vertex each constraint starts from
+     */
+    final int[] constraintFrom;
+
+    /**
+     * True if a constraint follows the edge from source to target
+     */
+    final boolean[] constraintOutgoing;
+
+    /**
+     * Conjuncts evaluated after the operation
+     */
+    final List<Predicate> filters = new ArrayList<>();
+
+    /**
+     * Bound elements of the same kind whose bindings must be smaller (larger) than the one of
+     * this operation to break pattern automorphisms
+     */
+    int[] boundedBelowBy = new int[0];
+    int[] boundedAboveBy = new int[0];
+
+    /**
+     * Explicit candidates of an unconstrained vertex operation, replacing the label scan, or
+     * {@code null}
+     */
+    int[] scan;
+
+    /**
+     * Range of data element positions the operation may bind, from (inclusive) to (exclusive)
+     */
+    int allowedFrom = 0;
+    int allowedTo = Integer.MAX_VALUE;
+
+    private Operation(boolean vertex, int element, String label, int[] constraintEdges,
+      int[] constraintFrom, boolean[] constraintOutgoing) {
+      this.vertex = vertex;
+      this.element = element;
+      this.label = label;
+      this.constraintEdges = constraintEdges;
+      this.constraintFrom = constraintFrom;
+      this.constraintOutgoing = constraintOutgoing;
+    }
+  }
+
+  private final QueryGraph query;
+
+  private final Operation[] operations;
+
+  private MatchProgram(QueryGraph query, List<Operation> operations) {
+    this.query = query;
+    this.operations = operations.toArray(new Operation[0]);
+  }
+
+  QueryGraph getQuery() {
+    return query;
+  }
+
+  int size() {
+    return operations.length;
+  }
+
+  Operation get(int position) {
+    return operations[position];
+  }
+
+  /**
+   * Compiles the operations for the given plan.
+   *
+   * @param query query graph
+   * @param plan query plan
+   * @param mode {@link ExecutionMode#BACKTRACKING} or {@link ExecutionMode#GENERIC_JOIN}
+   * @param prefiltered true if vertex candidates are restricted by {@link CandidateSets}, which
+   *                    already enforce the conjuncts referring to a single vertex
+   * @param symmetry ordering conditions to enforce or {@code null}
+   * @return match program
+   */
+  static MatchProgram compile(QueryGraph query, QueryPlan plan, ExecutionMode mode,
+    boolean prefiltered, PatternSymmetry symmetry) {
+    List<Operation> operations = mode == ExecutionMode.GENERIC_JOIN ?
+      compileGenericJoin(query, plan) : compileBacktracking(query, plan);
+    attachFilters(query, operations, prefiltered);
+    if (symmetry != null) {
+      attachConditions(operations, true, symmetry.getVertexConditions());
+      attachConditions(operations, false, symmetry.getEdgeConditions());
+    }
+    return new MatchProgram(query, operations);
+  }
+
+  /**
+   * Translates each plan step into a vertex and/or an edge operation.
+   */
+  private static List<Operation> compileBacktracking(QueryGraph query, QueryPlan plan) {
+    List<Operation> operations = new ArrayList<>();
+    for (PlanStep step : plan.getSteps()) {
+      int to = query.getVertexIndex(step.getToVariable());
+      switch (step.getKind()) {
+        case SCAN:
+          operations.add(vertexOperation(query, to, new int[0], new int[0], new boolean[0]));
+          break;
+        case EXPAND:
+          int edge = query.getEdgeIndex(step.getEdgeVariable());
+          int from = query.getVertexIndex(step.getFromVariable());
+          operations.add(vertexOperation(query, to, new int[] {edge}, new int[] {from},
+            new boolean[] {step.getDirection() == PlanStep.Direction.OUTGOING}));
+          operations.add(edgeOperation(query, edge));
+          break;
+        default:
+          operations.add(edgeOperation(query, query.getEdgeIndex(step.getEdgeVariable())));
+      }
+    }
+    return operations;
+  }
+
+  /**
+   * Compiles the operations binding the query vertices in the given order, as for
+   * {@link ExecutionMode#GENERIC_JOIN}. Conjuncts are evaluated by the operations, since there
+   * are no candidate sets.
+   *
+   * @param query query graph
+   * @param vertexOrder positions of all query vertices
+   * @param symmetry ordering conditions to enforce or {@code null}
+   * @return match program
+   */
+  static MatchProgram compile(QueryGraph query, List<Integer> vertexOrder, PatternSymmetry symmetry) {
+    List<Operation> operations = compileGenericJoin(query, vertexOrder);
+    attachFilters(query, operations, false);
+    if (symmetry != null) {
+      attachConditions(operations, true, symmetry.getVertexConditions());
+      attachConditions(operations, false, symmetry.getEdgeConditions());
+    }
+    return new MatchProgram(query, operations);
+  }
+
+  /**
+   * Binds the vertices in plan order, each one to the intersection of the neighbors of all its
+   * bound neighbors, followed by the edges to those neighbors.
+   */
+  private static List<Operation> compileGenericJoin(QueryGraph query, QueryPlan plan) {
+    List<Integer> vertexOrder = new ArrayList<>();
+    for (String variable : plan.getVertexOrder()) {
+      vertexOrder.add(query.getVertexIndex(variable));
+    }
+    return compileGenericJoin(query, vertexOrder);
+  }
+
+  private static List<Operation> compileGenericJoin(QueryGraph query, List<Integer> vertexOrder) {
+    List<Operation> operations = new ArrayList<>();
+    BitSet bound = new BitSet();
+    for (int v : vertexOrder) {
+      List<Integer> edges = new ArrayList<>();
+      List<Integer> loops = new ArrayList<>();
+      for (int e = 0; e < query.getEdgeCount(); e++) {
+        int source = query.getSourceIndex(e);
+        int target = query.getTargetIndex(e);
+        if (source == v && target == v) {
+          loops.add(e);
+        } else if ((source == v && bound.get(target)) || (target == v && bound.get(source))) {
+          edges.add(e);
+        }
+      }
+
+      int[] constraintEdges = new int[edges.size()];
+      int[] constraintFrom = new int[edges.size()];
+      boolean[] constraintOutgoing = new boolean[edges.size()];
+      for (int i = 0; i < edges.size(); i++) {
+        int e = edges.get(i);
+        constraintEdges[i] = e;
+        constraintOutgoing[i] = query.getTargetIndex(e) == v;
+        constraintFrom[i] = constraintOutgoing[i] ? query.getSourceIndex(e) : query.getTargetIndex(e);
+      }
+      operations.add(vertexOperation(query, v, constraintEdges, constraintFrom, constraintOutgoing));
+      bound.set(v);
+
+      edges.addAll(loops);
+      for (int e : edges) {
+        operations.add(edgeOperation(query, e));
+      }
+    }
+    return operations;
+  }
+
+  private static Operation vertexOperation(QueryGraph query, int vertex, int[] constraintEdges,
+    int[] constraintFrom, boolean[] constraintOutgoing) {
+    return new Operation(true, vertex, query.getVertexLabel(vertex),
+      constraintEdges, constraintFrom, constraintOutgoing);
+  }
+
+  private static Operation edgeOperation(QueryGraph query, int edge) {
+    return new Operation(false, edge, query.getEdgeLabel(edge), null, null, null);
+  }
+
+  /**
+   * Attaches every ordering condition to the operation binding the later of its two elements.
+   */
+  private static void attachConditions(List<Operation> operations, boolean vertex,
+    List<int[]> conditions) {
+    int[] position = new int[operations.size()];
+    for (int i = 0; i < operations.size(); i++) {
+      if (operations.get(i).vertex == vertex) {
+        position[operations.get(i).element] = i;
+      }
+    }
+    for (int[] condition : conditions) {
+      int smaller = condition[0];
+      int larger = condition[1];
+      if (position[smaller] > position[larger]) {
+        Operation operation = operations.get(position[smaller]);
+        operation.boundedAboveBy = append(operation.boundedAboveBy, larger);
+      } else {
+        Operation operation = operations.get(position[larger]);
+        operation.boundedBelowBy = append(operation.boundedBelowBy, smaller);
+      }
+    }
+  }
+
+  private static int[] append(int[] values, int value) {
+    int[] result = Arrays.copyOf(values, values.length + 1);
+    result[values.length] = value;
+    return result;
+  }
+
+  /**
+   * Attaches every conjunct to the first operation after which all its variables are bound.
+   * Label constraints are skipped since the operations enforce them.
+   */
+  private static void attachFilters(QueryGraph query, List<Operation> operations,
+    boolean prefiltered) {
+    List<Predicate> pending = new ArrayList<>();
+    for (Predicate conjunct : query.getConjuncts()) {
+      boolean vertexLocal = conjunct.getVariables().size() == 1 &&
+        query.getVertexIndex(conjunct.getVariables().iterator().next()) >= 0;
+      if (!query.isLabelConstraint(conjunct) && !(prefiltered && vertexLocal)) {
+        pending.add(conjunct);
+      }
+    }
+
+    BitSet boundVertices = new BitSet();
+    BitSet boundEdges = new BitSet();
+    for (Operation operation : operations) {
+      (operation.vertex ? boundVertices : boundEdges).set(operation.element);
+      pending.removeIf(conjunct -> {
+        for (String variable : conjunct.getVariables()) {
+          int vertex = query.getVertexIndex(variable);
+          if (vertex >= 0 ? !boundVertices.get(vertex) : !boundEdges.get(query.getEdgeIndex(variable))) {
+            return false;
+          }
+        }
+        operation.filters.add(conjunct);
+        return true;
+      });
+    }
+  }
+}
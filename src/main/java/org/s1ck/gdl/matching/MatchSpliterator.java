@@ -0,0 +1,226 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.matching;
+
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Lazily enumerates matches, one {@link MatchEnumerator#next()} step per element.
+ *
+ * <p>Splitting divides the candidates of the first operation, each part is searched by its own
+ * enumerator. All parts share a match counter implementing SKIP and LIMIT: once the last requested
+ * match has been handed out, every part stops, including searches running in other threads. Which
+ * matches are skipped is therefore only deterministic for sequential execution.
+ *
+ * <p>If a compiled search is available, {@link #forEachRemaining(Consumer)} pushes all matches of
+ * an unstarted part through the generated code instead of stepping the enumerator.
+ *
+ * @param <T> element type
+ */
+class MatchSpliterator<T> implements Spliterator<T> {
+
+  /**
+   * Creates an element from the bindings of a match.
+   *
+   * @param <T> element type
+   */
+  interface Mapper<T> {
+    T map(int[] vertexBindings, int[] edgeBindings);
+  }
+
+  /**
+   * Minimum number of root candidates per part
+   */
+  private static final int MIN_SPLIT_SIZE = 2;
+
+  /**
+   * Outcomes of offering a match
+   */
+  private static final int ACCEPTED = 0;
+  private static final int SKIPPED = 1;
+  private static final int STOPPED = 2;
+
+  private final Supplier<MatchEnumerator> enumerators;
+
+  private final Mapper<T> mapper;
+
+  /**
+   * Creates generated searches or {@code null} to always use the enumerator
+   */
+  private final Supplier<CompiledMatch> compiled;
+
+  /**
+   * Matches handed out or skipped by all parts
+   */
+  private final AtomicLong counter;
+
+  /**
+   * Set once the limit has been reached
+   */
+  private final AtomicBoolean stopped;
+
+  private final long skip;
+
+  /**
+   * Number of counter values to consume, i.e. skip + limit
+   */
+  private final long end;
+
+  /**
+   * Root candidate range of this part
+   */
+  private int from;
+  private int to;
+
+  /**
+   * Enumerator of this part, created on the first advance
+   */
+  private MatchEnumerator enumerator;
+
+  /**
+   * Creates a spliterator covering all root candidates.
+   *
+   * @param enumerators creates independent enumerators of the same program
+   * @param mapper creates elements from bindings
+   * @param skip number of matches to skip
+   * @param limit maximum number of matches
+   */
+  MatchSpliterator(Supplier<MatchEnumerator> enumerators, Mapper<T> mapper, long skip, long limit) {
+    this(enumerators, null, mapper, skip, limit);
+  }
+
+  /**
+   * Creates a spliterator covering all root candidates.
+   *
+   * @param enumerators creates independent enumerators of the same program
+   * @param compiled creates generated searches of the same program or {@code null}
+   * @param mapper creates elements from bindings
+   * @param skip number of matches to skip
+   * @param limit maximum number of matches
+   */
+  MatchSpliterator(Supplier<MatchEnumerator> enumerators, Supplier<CompiledMatch> compiled,
+    Mapper<T> mapper, long skip, long limit) {
+    this.enumerators = enumerators;
+    this.compiled = compiled;
+    this.mapper = mapper;
+    this.counter = new AtomicLong();
+    this.stopped = new AtomicBoolean(limit == 0);
+    this.skip = skip;
+    this.end = skip + limit < 0 ? Long.MAX_VALUE : skip + limit;
+    this.enumerator = enumerators.get();
+    this.from = 0;
+    this.to = enumerator.getRootSize();
+    enumerator.setCancellation(stopped);
+  }
+
+  private MatchSpliterator(MatchSpliterator<T> parent, int from, int to) {
+    this.enumerators = parent.enumerators;
+    this.compiled = parent.compiled;
+    this.mapper = parent.mapper;
+    this.counter = parent.counter;
+    this.stopped = parent.stopped;
+    this.skip = parent.skip;
+    this.end = parent.end;
+    this.from = from;
+    this.to = to;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super T> action) {
+    MatchEnumerator enumerator = getEnumerator();
+    while (!stopped.get() && enumerator.next()) {
+      int result = offer(enumerator.getVertexBindings(), enumerator.getEdgeBindings(), action);
+      if (result != SKIPPED) {
+        return result == ACCEPTED;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void forEachRemaining(Consumer<? super T> action) {
+    if (compiled == null || started()) {
+      Spliterator.super.forEachRemaining(action);
+      return;
+    }
+    CompiledMatch search = compiled.get();
+    search.setCancellation(stopped);
+    search.run(from, to, (vertexBindings, edgeBindings) ->
+      !stopped.get() && offer(vertexBindings, edgeBindings, action) != STOPPED && !stopped.get());
+    from = to;
+  }
+
+  /**
+   * Draws a ticket for a match and hands it to the action unless it is skipped or beyond the
+   * limit.
+   */
+  private int offer(int[] vertexBindings, int[] edgeBindings, Consumer<? super T> action) {
+    long ticket = counter.getAndIncrement();
+    if (ticket >= end) {
+      stopped.set(true);
+      return STOPPED;
+    }
+    if (ticket + 1 == end) {
+      stopped.set(true);
+    }
+    if (ticket >= skip) {
+      action.accept(mapper.map(vertexBindings, edgeBindings));
+      return ACCEPTED;
+    }
+    return SKIPPED;
+  }
+
+  @Override
+  public Spliterator<T> trySplit() {
+    if (started() || to - from < 2 * MIN_SPLIT_SIZE || stopped.get()) {
+      return null;
+    }
+    int middle = (from + to) >>> 1;
+    MatchSpliterator<T> prefix = new MatchSpliterator<>(this, from, middle);
+    from = middle;
+    return prefix;
+  }
+
+  @Override
+  public long estimateSize() {
+    return to - from;
+  }
+
+  @Override
+  public int characteristics() {
+    return NONNULL;
+  }
+
+  private boolean started() {
+    return enumerator != null && enumerator.isStarted();
+  }
+
+  private MatchEnumerator getEnumerator() {
+    if (enumerator == null) {
+      enumerator = enumerators.get();
+      enumerator.setCancellation(stopped);
+    }
+    if (!enumerator.isStarted()) {
+      enumerator.restrictRoot(from, to);
+    }
+    return enumerator;
+  }
+}
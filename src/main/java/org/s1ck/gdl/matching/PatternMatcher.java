@@ -0,0 +1,545 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.matching;
+
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.matching.planning.GraphStatistics;
+import org.s1ck.gdl.matching.planning.PlanCache;
+import org.s1ck.gdl.matching.planning.QueryPlan;
+import org.s1ck.gdl.matching.planning.QueryPlanner;
+import org.s1ck.gdl.model.Element;
+import org.s1ck.gdl.model.projections.ReturnItem;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterators;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Finds the matches of MATCH patterns in a data graph.
+ *
+ * <pre>
+ * PatternMatcher matcher = new PatternMatcher.Builder().build(dataHandler);
+ * List&lt;Map&lt;String, Element&gt;&gt; matches = matcher.match(queryHandler);
+ * Optional&lt;Map&lt;String, Element&gt;&gt; first = matcher.stream(queryHandler).findFirst();
+ * </pre>
+ *
+ * <p>A match maps the variable of every query vertex and edge, including auto-generated ones, to
+ * a data element. The matcher works on a snapshot of the data taken when it is built.
+ *
+ * <p>Variable length edges such as {@code -[e*1..3]->} are not supported. Queries containing them
+ * are rejected with an {@link IllegalArgumentException} before any work is done.
+ */
+public class PatternMatcher {
+
+  private final GraphIndex graph;
+
+  private final QueryPlanner planner;
+
+  /**
+   * Plans by query fingerprint or {@code null} to plan every query
+   */
+  private final PlanCache planCache;
+
+  private final MatchStrategy matchStrategy;
+
+  private final ExecutionMode executionMode;
+
+  /**
+   * Candidate pre-filtering stage or {@code null} if disabled
+   */
+  private final CandidateFilter candidateFilter;
+
+  /**
+   * True if every subgraph is reported once instead of once per pattern automorphism
+   */
+  private final boolean symmetryBreaking;
+
+  /**
+   * True if matches are searched by multiple worker threads
+   */
+  private final boolean parallel;
+
+  /**
+   * Generates search code for complete enumerations or {@code null} to interpret all searches
+   */
+  private final QueryCompiler queryCompiler;
+
+  private PatternMatcher(GraphIndex graph, QueryPlanner planner, int planCacheSize,
+    MatchStrategy matchStrategy, ExecutionMode executionMode, boolean candidateFiltering,
+    boolean symmetryBreaking, boolean parallel, QueryCompiler queryCompiler) {
+    this.graph = graph;
+    this.planner = planner;
+    this.planCache = planCacheSize > 0 ? new PlanCache(planner, planCacheSize) : null;
+    this.matchStrategy = matchStrategy;
+    this.executionMode = executionMode;
+    this.candidateFilter = candidateFiltering ? new CandidateFilter(graph, matchStrategy) : null;
+    this.symmetryBreaking = symmetryBreaking && matchStrategy == MatchStrategy.ISOMORPHISM;
+    this.parallel = parallel;
+    this.queryCompiler = queryCompiler;
+  }
+
+  public GraphIndex getGraph() {
+    return graph;
+  }
+
+  public QueryPlanner getPlanner() {
+    return planner;
+  }
+
+  /**
+   * Returns the plan cache or {@code null} if plans are not cached.
+   *
+   * @return plan cache
+   */
+  public PlanCache getPlanCache() {
+    return planCache;
+  }
+
+  public MatchStrategy getMatchStrategy() {
+    return matchStrategy;
+  }
+
+  public ExecutionMode getExecutionMode() {
+    return executionMode;
+  }
+
+  public boolean isCandidateFiltering() {
+    return candidateFilter != null;
+  }
+
+  public boolean isSymmetryBreaking() {
+    return symmetryBreaking;
+  }
+
+  public boolean isParallel() {
+    return parallel;
+  }
+
+  public QueryCompiler getQueryCompiler() {
+    return queryCompiler;
+  }
+
+  /**
+   * Returns all matches of the MATCH pattern loaded by the given handler.
+   *
+   * @param query query handler
+   * @return matches, each mapping query variables to data elements
+   */
+  public List<Map<String, Element>> match(GDLHandler query) {
+    return match(QueryGraph.fromHandler(query));
+  }
+
+  /**
+   * Returns all matches of the given query graph, respecting its SKIP and LIMIT values.
+   *
+   * @param query query graph
+   * @return matches, each mapping query variables to data elements
+   */
+  public List<Map<String, Element>> match(QueryGraph query) {
+    return stream(query).collect(Collectors.toList());
+  }
+
+  /**
+   * Returns a lazily evaluated stream of the matches of the MATCH pattern loaded by the given
+   * handler.
+   *
+   * @param query query handler
+   * @return stream of matches
+   */
+  public Stream<Map<String, Element>> stream(GDLHandler query) {
+    return stream(QueryGraph.fromHandler(query));
+  }
+
+  /**
+   * Returns a lazily evaluated stream of the matches of the given query graph, respecting its SKIP
+   * and LIMIT values. The search only advances as far as the stream is consumed and stops in all
+   * worker threads once the limit has been reached. The stream is parallel if the matcher was
+   * built with {@link Builder#setParallel(boolean)}.
+   *
+   * @param query query graph
+   * @return stream of matches
+   */
+  public Stream<Map<String, Element>> stream(QueryGraph query) {
+    return StreamSupport.stream(newSpliterator(query, getMatchSkip(query), getMatchLimit(query),
+      (vertexBindings, edgeBindings) -> toMap(query, vertexBindings, edgeBindings)), parallel);
+  }
+
+  /**
+   * Returns a lazy iterator over the matches of the given query graph, respecting its SKIP and
+   * LIMIT values. Each call to {@code next()} resumes the search until the next match is found.
+   *
+   * @param query query graph
+   * @return iterator over matches
+   */
+  public Iterator<Map<String, Element>> iterator(QueryGraph query) {
+    return Spliterators.iterator(newSpliterator(query, getMatchSkip(query), getMatchLimit(query),
+      (vertexBindings, edgeBindings) -> toMap(query, vertexBindings, edgeBindings)));
+  }
+
+  /**
+   * Returns all matches of the MATCH pattern loaded by the given handler as a binding table.
+   *
+   * @param query query handler
+   * @return column per query variable
+   */
+  public BindingTable table(GDLHandler query) {
+    return table(QueryGraph.fromHandler(query));
+  }
+
+  /**
+   * Returns all matches of the given query graph as a binding table, respecting its SKIP and
+   * LIMIT values. The bindings of each match are copied into primitive columns, no objects are
+   * created per match. With parallel execution, every worker thread fills its own table and the
+   * tables are concatenated at the end.
+   *
+   * @param query query graph
+   * @return column per query variable
+   */
+  public BindingTable table(QueryGraph query) {
+    // the bindings are only valid until the search advances, the collector copies them right away
+    return StreamSupport.stream(newSpliterator(query, getMatchSkip(query), getMatchLimit(query),
+      (vertexBindings, edgeBindings) -> new int[][] {vertexBindings, edgeBindings}), parallel)
+      .collect(() -> new BindingTable(query, graph),
+        (table, bindings) -> table.append(bindings[0], bindings[1]), BindingTable::appendAll)
+      .trim();
+  }
+
+  /**
+   * Counts the matches of the MATCH pattern loaded by the given handler without materializing
+   * them.
+   *
+   * @param query query handler
+   * @return number of matches
+   */
+  public long count(GDLHandler query) {
+    return count(QueryGraph.fromHandler(query));
+  }
+
+  /**
+   * Counts the matches of the given query graph without materializing them, respecting its SKIP
+   * and LIMIT values.
+   *
+   * @param query query graph
+   * @return number of matches
+   */
+  public long count(QueryGraph query) {
+    return StreamSupport.stream(newSpliterator(query, getMatchSkip(query), getMatchLimit(query),
+      (vertexBindings, edgeBindings) -> Boolean.TRUE), parallel).count();
+  }
+
+  /**
+   * Checks whether the MATCH pattern loaded by the given handler has a match. The search stops
+   * at the first match.
+   *
+   * @param query query handler
+   * @return true, iff there is a match
+   */
+  public boolean exists(GDLHandler query) {
+    return exists(QueryGraph.fromHandler(query));
+  }
+
+  /**
+   * Checks whether the given query graph has a match, i.e. more matches than its SKIP value.
+   * The search stops at the first match.
+   *
+   * @param query query graph
+   * @return true, iff there is a match
+   */
+  public boolean exists(QueryGraph query) {
+    long limit = Math.min(getMatchLimit(query), 1L);
+    return StreamSupport.stream(newSpliterator(query, getMatchSkip(query), limit,
+      (vertexBindings, edgeBindings) -> Boolean.TRUE), parallel).findAny().isPresent();
+  }
+
+  /**
+   * Evaluates the RETURN clause of the query loaded by the given handler.
+   *
+   * @param query query handler
+   * @return result rows
+   * @see #execute(QueryGraph)
+   */
+  public Stream<Map<String, Object>> execute(GDLHandler query) {
+    return execute(QueryGraph.fromHandler(query));
+  }
+
+  /**
+   * Evaluates the RETURN clause of the given query graph. Each row maps the column names to the
+   * projected values in RETURN order. Without aggregate functions there is one row per match and
+   * rows are produced lazily. Otherwise the rows are grouped by the non-aggregated columns: the
+   * matches are consumed by a streaming hash aggregation, with one partial aggregation per worker
+   * thread that are merged at the end. SKIP and LIMIT apply to the rows. Without RETURN clause,
+   * each row maps all variables to their elements.
+   *
+   * @param query query graph
+   * @return result rows
+   */
+  public Stream<Map<String, Object>> execute(QueryGraph query) {
+    if (query.getReturnItems().isEmpty()) {
+      return stream(query).map(HashMap::new);
+    }
+    Projection projection = new Projection(query, graph);
+    if (!projection.isAggregating()) {
+      return StreamSupport.stream(newSpliterator(query, query.getSkip(), query.getLimit(),
+        (vertexBindings, edgeBindings) -> projection.toRow(projection.evaluate(vertexBindings, edgeBindings))),
+        parallel);
+    }
+    HashAggregation aggregation = StreamSupport.stream(
+      newSpliterator(query, 0L, QueryGraph.UNLIMITED, projection::evaluate), parallel)
+      .collect(() -> new HashAggregation(projection), HashAggregation::add, HashAggregation::merge);
+    return aggregation.getRows().stream().skip(query.getSkip()).limit(query.getLimit());
+  }
+
+  /**
+   * Returns the execution mode used for the given query, resolving {@link ExecutionMode#AUTO}.
+   *
+   * @param query query graph
+   * @return {@link ExecutionMode#BACKTRACKING} or {@link ExecutionMode#GENERIC_JOIN}
+   */
+  public ExecutionMode getExecutionMode(QueryGraph query) {
+    if (executionMode != ExecutionMode.AUTO) {
+      return executionMode;
+    }
+    return query.isCyclic() ? ExecutionMode.GENERIC_JOIN : ExecutionMode.BACKTRACKING;
+  }
+
+  /**
+   * SKIP and LIMIT refer to the result rows, which are only the matches if nothing is aggregated.
+   */
+  private static long getMatchSkip(QueryGraph query) {
+    return isAggregating(query) ? 0L : query.getSkip();
+  }
+
+  private static long getMatchLimit(QueryGraph query) {
+    return isAggregating(query) ? QueryGraph.UNLIMITED : query.getLimit();
+  }
+
+  private static boolean isAggregating(QueryGraph query) {
+    return query.getReturnItems().stream().anyMatch(ReturnItem::isAggregation);
+  }
+
+  private <T> MatchSpliterator<T> newSpliterator(QueryGraph query, long skip, long limit,
+    MatchSpliterator.Mapper<T> mapper) {
+    query.checkFixedLength();
+    QueryPlan plan = planCache != null ? planCache.plan(query) : planner.plan(query);
+    CandidateSets candidates = candidateFilter != null ? candidateFilter.filter(query) : null;
+    PatternSymmetry symmetry = symmetryBreaking ? PatternSymmetry.of(query) : null;
+    MatchProgram program = MatchProgram.compile(query, plan, getExecutionMode(query),
+      candidates != null, symmetry);
+    CompiledQuery compiled = compile(program, candidates != null);
+    return new MatchSpliterator<>(() -> new MatchEnumerator(program, graph, matchStrategy, candidates),
+      compiled != null ? () -> compiled.newMatch(graph, candidates) : null, mapper, skip, limit);
+  }
+
+  /**
+   * Compiles a match program, returns {@code null} if it has to be interpreted.
+   */
+  private CompiledQuery compile(MatchProgram program, boolean candidates) {
+    if (queryCompiler == null) {
+      return null;
+    }
+    try {
+      return queryCompiler.compile(program, matchStrategy, candidates);
+    } catch (IllegalStateException e) {
+      // the compiler caches the failure, so the source is not compiled again
+      return null;
+    }
+  }
+
+  private Map<String, Element> toMap(QueryGraph query, int[] vertexBindings, int[] edgeBindings) {
+    Map<String, Element> match = new HashMap<>();
+    for (int v = 0; v < vertexBindings.length; v++) {
+      match.put(query.getVertexVariable(v), graph.getVertex(vertexBindings[v]));
+    }
+    for (int e = 0; e < edgeBindings.length; e++) {
+      match.put(query.getEdgeVariable(e), graph.getEdge(edgeBindings[e]));
+    }
+    return match;
+  }
+
+  /**
+   * Builds a pattern matcher.
+   */
+  public static class Builder {
+
+    /**
+     * Mapping semantics
+     */
+    private MatchStrategy matchStrategy = MatchStrategy.ISOMORPHISM;
+
+    /**
+     * Enumeration algorithm
+     */
+    private ExecutionMode executionMode = ExecutionMode.AUTO;
+
+    /**
+     * Maximum pattern size planned by dynamic programming
+     */
+    private int dynamicProgrammingThreshold = QueryPlanner.DEFAULT_DYNAMIC_PROGRAMMING_THRESHOLD;
+
+    /**
+     * Maximum number of cached plans, 0 to disable the cache
+     */
+    private int planCacheSize = 0;
+
+    /**
+     * Restrict query vertices to arc-consistent candidates before enumeration
+     */
+    private boolean candidateFiltering = true;
+
+    /**
+     * Report each subgraph once instead of once per pattern automorphism
+     */
+    private boolean symmetryBreaking = true;
+
+    /**
+     * Search matches in the common fork join pool
+     */
+    private boolean parallel = false;
+
+    /**
+     * Generates search code or {@code null}
+     */
+    private QueryCompiler queryCompiler = null;
+
+    /**
+     * Sets the mapping semantics, {@link MatchStrategy#ISOMORPHISM} by default.
+     *
+     * @param matchStrategy match strategy (must not be {@code null})
+     * @return builder
+     */
+    public Builder setMatchStrategy(MatchStrategy matchStrategy) {
+      this.matchStrategy = matchStrategy;
+      return this;
+    }
+
+    /**
+     * Sets the enumeration algorithm, {@link ExecutionMode#AUTO} by default.
+     *
+     * @param executionMode execution mode (must not be {@code null})
+     * @return builder
+     */
+    public Builder setExecutionMode(ExecutionMode executionMode) {
+      this.executionMode = executionMode;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of query vertices planned by dynamic programming.
+     *
+     * @param dynamicProgrammingThreshold threshold
+     * @return builder
+     */
+    public Builder setDynamicProgrammingThreshold(int dynamicProgrammingThreshold) {
+      this.dynamicProgrammingThreshold = dynamicProgrammingThreshold;
+      return this;
+    }
+
+    /**
+     * Sets the number of plans cached by {@link org.s1ck.gdl.matching.planning.QueryFingerprint},
+     * 0 (no caching) by default. Queries differing from a cached one only in variable names and
+     * literal values reuse its plan.
+     *
+     * @param planCacheSize maximum number of cached plans
+     * @return builder
+     */
+    public Builder setPlanCacheSize(int planCacheSize) {
+      this.planCacheSize = planCacheSize;
+      return this;
+    }
+
+    /**
+     * Enables or disables the {@link CandidateFilter} stage, enabled by default.
+     *
+     * @param candidateFiltering true to pre-filter vertex candidates
+     * @return builder
+     */
+    public Builder setCandidateFiltering(boolean candidateFiltering) {
+      this.candidateFiltering = candidateFiltering;
+      return this;
+    }
+
+    /**
+     * Enables or disables symmetry breaking, enabled by default. If enabled, a matcher using
+     * isomorphism semantics reports every matching subgraph once, even if the pattern has
+     * automorphisms (see {@link PatternSymmetry}). Disable it to enumerate all mappings. The rows
+     * of queries with a RETURN clause are always computed from all mappings.
+     *
+     * @param symmetryBreaking true to break pattern automorphisms
+     * @return builder
+     */
+    public Builder setSymmetryBreaking(boolean symmetryBreaking) {
+      this.symmetryBreaking = symmetryBreaking;
+      return this;
+    }
+
+    /**
+     * Enables parallel search, disabled by default. The candidates of the first bound query vertex
+     * are partitioned among the worker threads of the common fork join pool. With SKIP, the
+     * skipped matches are no longer deterministic.
+     *
+     * @param parallel true to search in parallel
+     * @return builder
+     */
+    public Builder setParallel(boolean parallel) {
+      this.parallel = parallel;
+      return this;
+    }
+
+    /**
+     * Sets the compiler used to generate search code, {@code null} (no code generation) by
+     * default. Operations consuming all matches, e.g. {@link PatternMatcher#count(QueryGraph)}, collecting
+     * streams and aggregations, then run a generated class fusing all loops of the search.
+     * Lazily consumed matches are still produced by the interpreter, as are queries whose
+     * generated class fails to compile. The compiler caches the generated classes and can be
+     * shared by multiple matchers.
+     *
+     * @param queryCompiler query compiler or {@code null}
+     * @return builder
+     * @see QueryCompiler#isAvailable()
+     */
+    public Builder setQueryCompiler(QueryCompiler queryCompiler) {
+      this.queryCompiler = queryCompiler;
+      return this;
+    }
+
+    /**
+     * Creates a matcher over all vertices and edges loaded by the given handler.
+     *
+     * @param data data handler (must not be {@code null})
+     * @return pattern matcher
+     */
+    public PatternMatcher build(GDLHandler data) {
+      if (data == null) {
+        throw new IllegalArgumentException("Data handler must not be null.");
+      }
+      if (matchStrategy == null) {
+        throw new IllegalArgumentException("Match strategy must not be null.");
+      }
+      if (executionMode == null) {
+        throw new IllegalArgumentException("Execution mode must not be null.");
+      }
+      return new PatternMatcher(GraphIndex.fromHandler(data),
+        new QueryPlanner(GraphStatistics.fromHandler(data), dynamicProgrammingThreshold), planCacheSize,
+        matchStrategy, executionMode, candidateFiltering, symmetryBreaking, parallel, queryCompiler);
+    }
+  }
+}
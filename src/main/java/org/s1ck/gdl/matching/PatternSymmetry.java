@@ -0,0 +1,346 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.matching;
+
+import org.s1ck.gdl.model.predicates.Predicate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Automorphisms of a query pattern and the ordering conditions that break them.
+ *
+ * <p>An automorphism maps the pattern onto itself, preserving labels and edge directions. Under
+ * isomorphism semantics every subgraph of the data graph is found once per automorphism. The
+ * conditions computed here require the bindings of some query vertices to be ordered by id, so
+ * that exactly one of these equivalent matches remains. They are derived from a stabilizer chain:
+ * the vertex with the largest orbit is required to be bound to the smallest id of its orbit and is
+ * then fixed, until no vertex can be moved. Parallel query edges that remain interchangeable are
+ * ordered the same way.
+ *
+ * <p>Vertices and edges referenced by WHERE or property predicates, other than their label, are
+ * never moved, so the conditions do not interfere with predicates. Queries with a RETURN clause
+ * have no conditions: their rows, including counts, are computed from all bindings.
+ */
+public class PatternSymmetry {
+
+  private final QueryGraph query;
+
+  /**
+   * Pairs of query vertex positions whose bindings must be in ascending order
+   */
+  private final List<int[]> vertexConditions;
+
+  /**
+   * Pairs of query edge positions whose bindings must be in ascending order
+   */
+  private final List<int[]> edgeConditions;
+
+  /**
+   * Size of the automorphism group
+   */
+  private final long automorphismCount;
+
+  private PatternSymmetry(QueryGraph query, List<int[]> vertexConditions,
+    List<int[]> edgeConditions, long automorphismCount) {
+    this.query = query;
+    this.vertexConditions = Collections.unmodifiableList(vertexConditions);
+    this.edgeConditions = Collections.unmodifiableList(edgeConditions);
+    this.automorphismCount = automorphismCount;
+  }
+
+  /**
+   * Computes the automorphisms of the given query graph.
+   *
+   * @param query query graph
+   * @return pattern symmetry
+   */
+  public static PatternSymmetry of(QueryGraph query) {
+    return new Search(query).run();
+  }
+
+  public QueryGraph getQuery() {
+    return query;
+  }
+
+  /**
+   * Returns pairs {@code (u, v)} of query vertex positions, for which the data vertex bound to
+   * {@code u} must have a smaller id than the one bound to {@code v}.
+   *
+   * @return vertex ordering conditions
+   */
+  public List<int[]> getVertexConditions() {
+    return vertexConditions;
+  }
+
+  /**
+   * Returns pairs {@code (e, f)} of query edge positions, for which the data edge bound to
+   * {@code e} must have a smaller id than the one bound to {@code f}.
+   *
+   * @return edge ordering conditions
+   */
+  public List<int[]> getEdgeConditions() {
+    return edgeConditions;
+  }
+
+  /**
+   * Returns the number of automorphisms, i.e. how often every subgraph is found without the
+   * ordering conditions.
+   *
+   * @return automorphism count, at least 1
+   */
+  public long getAutomorphismCount() {
+    return automorphismCount;
+  }
+
+  /**
+   * Returns true if the pattern has no automorphism besides the identity.
+   *
+   * @return true, iff there are no conditions
+   */
+  public boolean isTrivial() {
+    return vertexConditions.isEmpty() && edgeConditions.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    List<String> conditions = new ArrayList<>();
+    for (int[] condition : vertexConditions) {
+      conditions.add(query.getVertexVariable(condition[0]) + " < " + query.getVertexVariable(condition[1]));
+    }
+    for (int[] condition : edgeConditions) {
+      conditions.add(query.getEdgeVariable(condition[0]) + " < " + query.getEdgeVariable(condition[1]));
+    }
+    return String.join(", ", conditions);
+  }
+
+  /**
+   * Searches automorphisms by backtracking over vertex mappings.
+   */
+  private static class Search {
+
+    private final QueryGraph query;
+
+    private final int vertexCount;
+
+    /**
+     * Vertices may only be mapped to vertices of the same color
+     */
+    private final String[] colors;
+
+    /**
+     * Sorted keys of the edges from one vertex to another, empty if there is none
+     */
+    private final String[][] connections;
+
+    /**
+     * Edges that are referenced by predicates and must not be moved
+     */
+    private final boolean[] pinnedEdges;
+
+    private final int[] mapping;
+
+    private final boolean[] used;
+
+    private Search(QueryGraph query) {
+      this.query = query;
+      this.vertexCount = query.getVertexCount();
+
+      BitSet pinnedVertices = new BitSet();
+      this.pinnedEdges = new boolean[query.getEdgeCount()];
+      if (!query.getReturnItems().isEmpty()) {
+        pinnedVertices.set(0, vertexCount);
+        Arrays.fill(pinnedEdges, true);
+      }
+      for (Predicate conjunct : query.getConjuncts()) {
+        if (query.isLabelConstraint(conjunct)) {
+          continue;
+        }
+        for (String variable : conjunct.getVariables()) {
+          int vertex = query.getVertexIndex(variable);
+          if (vertex >= 0) {
+            pinnedVertices.set(vertex);
+          } else {
+            pinnedEdges[query.getEdgeIndex(variable)] = true;
+          }
+        }
+      }
+
+      List<List<String>> keys = new ArrayList<>();
+      List<List<String>> incident = new ArrayList<>();
+      for (int i = 0; i < vertexCount * vertexCount; i++) {
+        keys.add(new ArrayList<>());
+      }
+      for (int v = 0; v < vertexCount; v++) {
+        incident.add(new ArrayList<>());
+      }
+      for (int e = 0; e < query.getEdgeCount(); e++) {
+        String key = pinnedEdges[e] ? "#" + e : String.valueOf(query.getEdgeLabel(e));
+        int source = query.getSourceIndex(e);
+        int target = query.getTargetIndex(e);
+        keys.get(source * vertexCount + target).add(key);
+        incident.get(source).add(">" + key);
+        incident.get(target).add("<" + key);
+      }
+      this.connections = new String[vertexCount][vertexCount];
+      for (int u = 0; u < vertexCount; u++) {
+        for (int v = 0; v < vertexCount; v++) {
+          List<String> list = keys.get(u * vertexCount + v);
+          Collections.sort(list);
+          connections[u][v] = String.join(",", list);
+        }
+      }
+      this.colors = new String[vertexCount];
+      for (int v = 0; v < vertexCount; v++) {
+        Collections.sort(incident.get(v));
+        colors[v] = pinnedVertices.get(v) ? "#" + v :
+          query.getVertexLabel(v) + "|" + String.join(",", incident.get(v));
+      }
+
+      this.mapping = new int[vertexCount];
+      this.used = new boolean[vertexCount];
+    }
+
+    private PatternSymmetry run() {
+      List<int[]> vertexConditions = new ArrayList<>();
+      List<Integer> fixed = new ArrayList<>();
+      long automorphismCount = 1L;
+
+      while (true) {
+        // orbits of the stabilizer of all fixed vertices
+        int[] orbit = new int[vertexCount];
+        Arrays.fill(orbit, -1);
+        int best = -1;
+        int bestSize = 1;
+        for (int v = 0; v < vertexCount; v++) {
+          if (orbit[v] >= 0 || fixed.contains(v)) {
+            continue;
+          }
+          orbit[v] = v;
+          int size = 1;
+          for (int u = v + 1; u < vertexCount; u++) {
+            if (orbit[u] < 0 && colors[u].equals(colors[v]) && exists(fixed, v, u)) {
+              orbit[u] = v;
+              size++;
+            }
+          }
+          if (size > bestSize) {
+            best = v;
+            bestSize = size;
+          }
+        }
+        if (best < 0) {
+          break;
+        }
+        for (int u = best + 1; u < vertexCount; u++) {
+          if (orbit[u] == best) {
+            vertexConditions.add(new int[] {best, u});
+          }
+        }
+        automorphismCount *= bestSize;
+        fixed.add(best);
+      }
+
+      // the remaining automorphisms only permute parallel edges with equal keys
+      List<int[]> edgeConditions = new ArrayList<>();
+      boolean[] grouped = new boolean[query.getEdgeCount()];
+      for (int e = 0; e < query.getEdgeCount(); e++) {
+        if (grouped[e] || pinnedEdges[e]) {
+          continue;
+        }
+        int previous = e;
+        int size = 1;
+        for (int f = e + 1; f < query.getEdgeCount(); f++) {
+          if (!pinnedEdges[f] && query.getSourceIndex(f) == query.getSourceIndex(e) &&
+            query.getTargetIndex(f) == query.getTargetIndex(e) &&
+            String.valueOf(query.getEdgeLabel(f)).equals(String.valueOf(query.getEdgeLabel(e)))) {
+            grouped[f] = true;
+            edgeConditions.add(new int[] {previous, f});
+            previous = f;
+            automorphismCount *= ++size;
+          }
+        }
+      }
+      return new PatternSymmetry(query, vertexConditions, edgeConditions, automorphismCount);
+    }
+
+    /**
+     * Checks if there is an automorphism that fixes the given vertices and maps v to u.
+     */
+    private boolean exists(List<Integer> fixed, int v, int u) {
+      Arrays.fill(used, false);
+      int[] order = new int[vertexCount];
+      int[] preset = new int[vertexCount];
+      Arrays.fill(preset, -1);
+      int position = 0;
+      for (int f : fixed) {
+        preset[f] = f;
+        order[position++] = f;
+      }
+      preset[v] = u;
+      order[position++] = v;
+      for (int w = 0; w < vertexCount; w++) {
+        if (preset[w] < 0) {
+          order[position++] = w;
+        }
+      }
+      return extend(order, preset, 0);
+    }
+
+    private boolean extend(int[] order, int[] preset, int depth) {
+      if (depth == vertexCount) {
+        return true;
+      }
+      int vertex = order[depth];
+      for (int image = 0; image < vertexCount; image++) {
+        if (used[image] || (preset[vertex] >= 0 && preset[vertex] != image) ||
+          !colors[vertex].equals(colors[image])) {
+          continue;
+        }
+        mapping[vertex] = image;
+        if (!consistent(order, depth)) {
+          continue;
+        }
+        used[image] = true;
+        if (extend(order, preset, depth + 1)) {
+          return true;
+        }
+        used[image] = false;
+      }
+      return false;
+    }
+
+    /**
+     * Checks the connections between the vertex mapped at the given depth and all vertices mapped
+     * before, including itself.
+     */
+    private boolean consistent(int[] order, int depth) {
+      int vertex = order[depth];
+      for (int i = 0; i <= depth; i++) {
+        int other = order[i];
+        if (!connections[vertex][other].equals(connections[mapping[vertex]][mapping[other]]) ||
+          !connections[other][vertex].equals(connections[mapping[other]][mapping[vertex]])) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
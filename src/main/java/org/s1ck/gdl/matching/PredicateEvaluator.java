@@ -0,0 +1,190 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.matching;
+
+import org.s1ck.gdl.exceptions.InvalidReferenceException;
+import org.s1ck.gdl.model.Element;
+import org.s1ck.gdl.model.comparables.ComparableExpression;
+import org.s1ck.gdl.model.comparables.ElementSelector;
+import org.s1ck.gdl.model.comparables.Literal;
+import org.s1ck.gdl.model.comparables.PropertySelector;
+import org.s1ck.gdl.model.comparables.SimilarityFunction;
+import org.s1ck.gdl.model.predicates.Predicate;
+import org.s1ck.gdl.model.predicates.booleans.And;
+import org.s1ck.gdl.model.predicates.booleans.Not;
+import org.s1ck.gdl.model.predicates.booleans.Or;
+import org.s1ck.gdl.model.predicates.booleans.Xor;
+import org.s1ck.gdl.model.predicates.expressions.Comparison;
+import org.s1ck.gdl.model.values.VectorLiteral;
+import org.s1ck.gdl.utils.Comparator;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Evaluates query predicates on bound data elements.
+ *
+ * <p>Numbers are compared by value regardless of their type. A missing property is treated like
+ * {@code NULL}: it is only equal to {@code NULL} and not ordered relative to any value.
+ * {@code x.__label__} selects the labels of an element, an equality with a label literal holds if
+ * the element carries that label.
+ */
+public final class PredicateEvaluator {
+
+  private PredicateEvaluator() {
+  }
+
+  /**
+   * Evaluates a predicate on the given bindings.
+   *
+   * @param predicate predicate
+   * @param bindings data elements by query variable
+   * @return true, iff the predicate holds
+   */
+  public static boolean evaluate(Predicate predicate, Map<String, ? extends Element> bindings) {
+    return evaluate(predicate, (Function<String, Element>) bindings::get);
+  }
+
+  /**
+   * Evaluates a predicate on the given bindings.
+   *
+   * @param predicate predicate
+   * @param bindings resolves a query variable to its data element
+   * @return true, iff the predicate holds
+   */
+  public static boolean evaluate(Predicate predicate, Function<String, ? extends Element> bindings) {
+    if (predicate instanceof And) {
+      return evaluate(predicate.getArguments()[0], bindings) && evaluate(predicate.getArguments()[1], bindings);
+    } else if (predicate instanceof Or) {
+      return evaluate(predicate.getArguments()[0], bindings) || evaluate(predicate.getArguments()[1], bindings);
+    } else if (predicate instanceof Xor) {
+      return evaluate(predicate.getArguments()[0], bindings) ^ evaluate(predicate.getArguments()[1], bindings);
+    } else if (predicate instanceof Not) {
+      return !evaluate(predicate.getArguments()[0], bindings);
+    } else if (predicate instanceof Comparison) {
+      return evaluate((Comparison) predicate, bindings);
+    }
+    throw new IllegalArgumentException("Unsupported predicate: " + predicate.getClass().getSimpleName());
+  }
+
+  private static boolean evaluate(Comparison comparison, Function<String, ? extends Element> bindings) {
+    ComparableExpression[] expressions = comparison.getComparableExpressions();
+    Comparator comparator = comparison.getComparator();
+
+    for (int i = 0; i < 2; i++) {
+      if (isLabelSelector(expressions[i]) && (comparator == Comparator.EQ || comparator == Comparator.NEQ)) {
+        Element element = resolve(expressions[i].getVariable(), bindings);
+        Object other = getValue(expressions[1 - i], bindings);
+        boolean hasLabel = element.getLabels() != null && element.getLabels().contains(other);
+        return comparator == Comparator.EQ ? hasLabel : !hasLabel;
+      }
+    }
+    return compare(getValue(expressions[0], bindings), comparator, getValue(expressions[1], bindings));
+  }
+
+  /**
+   * Compares two property values.
+   *
+   * @param lhs left hand side value, may be {@code null}
+   * @param comparator comparator
+   * @param rhs right hand side value, may be {@code null}
+   * @return true, iff the comparison holds
+   */
+  public static boolean compare(Object lhs, Comparator comparator, Object rhs) {
+    if (lhs == null || rhs == null) {
+      switch (comparator) {
+        case EQ:  return lhs == rhs;
+        case NEQ: return lhs != rhs;
+        default:  return false;
+      }
+    }
+
+    int result;
+    if (lhs instanceof Number && rhs instanceof Number) {
+      result = compareNumbers((Number) lhs, (Number) rhs);
+    } else if (lhs.getClass() == rhs.getClass() && lhs instanceof Comparable) {
+      @SuppressWarnings("unchecked")
+      Comparable<Object> comparable = (Comparable<Object>) lhs;
+      result = comparable.compareTo(rhs);
+    } else {
+      switch (comparator) {
+        case EQ:  return lhs.equals(rhs);
+        case NEQ: return !lhs.equals(rhs);
+        default:  return false;
+      }
+    }
+
+    switch (comparator) {
+      case EQ:  return result == 0;
+      case NEQ: return result != 0;
+      case GT:  return result > 0;
+      case LT:  return result < 0;
+      case GTE: return result >= 0;
+      case LTE: return result <= 0;
+      default:  return false;
+    }
+  }
+
+  static int compareNumbers(Number lhs, Number rhs) {
+    if (isIntegral(lhs) && isIntegral(rhs)) {
+      return Long.compare(lhs.longValue(), rhs.longValue());
+    }
+    return Double.compare(lhs.doubleValue(), rhs.doubleValue());
+  }
+
+  private static boolean isIntegral(Number number) {
+    return number instanceof Integer || number instanceof Long ||
+      number instanceof Short || number instanceof Byte;
+  }
+
+  private static boolean isLabelSelector(ComparableExpression expression) {
+    return expression instanceof PropertySelector &&
+      ((PropertySelector) expression).getPropertyName().equals(PropertySelector.LABEL_PROPERTY);
+  }
+
+  private static Object getValue(ComparableExpression expression, Function<String, ? extends Element> bindings) {
+    if (expression instanceof Literal) {
+      return ((Literal) expression).getValue();
+    } else if (expression instanceof PropertySelector) {
+      Element element = resolve(expression.getVariable(), bindings);
+      String key = ((PropertySelector) expression).getPropertyName();
+      if (key.equals(PropertySelector.LABEL_PROPERTY)) {
+        return element.getLabel();
+      }
+      return element.getProperties() != null ? element.getProperties().get(key) : null;
+    } else if (expression instanceof ElementSelector) {
+      return resolve(expression.getVariable(), bindings).getId();
+    } else if (expression instanceof SimilarityFunction) {
+      SimilarityFunction function = (SimilarityFunction) expression;
+      Object lhs = getValue(function.getArguments()[0], bindings);
+      Object rhs = getValue(function.getArguments()[1], bindings);
+      if (lhs instanceof VectorLiteral && rhs instanceof VectorLiteral) {
+        return function.getType().apply((VectorLiteral) lhs, (VectorLiteral) rhs);
+      }
+      return null;
+    }
+    throw new IllegalArgumentException("Unsupported expression: " + expression.getClass().getSimpleName());
+  }
+
+  private static Element resolve(String variable, Function<String, ? extends Element> bindings) {
+    Element element = bindings.apply(variable);
+    if (element == null) {
+      throw new InvalidReferenceException(variable);
+    }
+    return element;
+  }
+}
@@ -0,0 +1,667 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl.matching;
+
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.model.Element;
+import org.s1ck.gdl.model.comparables.ComparableExpression;
+import org.s1ck.gdl.model.comparables.Literal;
+import org.s1ck.gdl.model.comparables.PropertySelector;
+import org.s1ck.gdl.model.predicates.Predicate;
+import org.s1ck.gdl.model.predicates.booleans.And;
+import org.s1ck.gdl.model.predicates.booleans.Not;
+import org.s1ck.gdl.model.predicates.booleans.Or;
+import org.s1ck.gdl.model.predicates.booleans.Xor;
+import org.s1ck.gdl.model.predicates.expressions.Comparison;
+import org.s1ck.gdl.utils.Comparator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Finds all predicates out of a large set that hold for a single data element.
+ *
+ * <p>Each predicate refers to one variable, which is bound to the element under test. Comparisons
+ * between a property and a literal are shared by all predicates containing them and are indexed
+ * by key and comparator: equalities and label checks in hash maps, ranges in sorted threshold
+ * lists. Evaluating an element only touches the comparisons on its own labels and properties,
+ * regardless of how many predicates are registered.
+ *
+ * <p>Indexed comparisons in the top-level conjunction of a predicate are counted: a predicate
+ * becomes a candidate once all of them hold, and only then are its remaining parts, e.g.
+ * disjunctions, evaluated. Indexed comparisons inside those parts are looked up instead of being
+ * evaluated again. Predicates without indexed conjuncts are evaluated for every element.
+ *
+ * <p>Evaluation semantics are the ones of {@link PredicateEvaluator}. Instances are not thread
+ * safe.
+ *
+ * @param <T> subscription type
+ */
+public class PredicateIndex<T> {
+
+  /**
+   * Tests a compiled predicate given the indexed comparisons satisfied by an element.
+   */
+  private interface Node {
+    boolean test(BitSet satisfied, Element element);
+  }
+
+  /**
+   * A comparison between a property and a literal, shared by all predicates containing it.
+   */
+  private static final class Atom {
+    final int id;
+    final String key;
+    final Comparator comparator;
+    final Object value;
+    final List<Object> signature;
+    /**
+     * Number of predicate parts referring to this comparison
+     */
+    int references;
+    /**
+     * Slots of the predicates counting this comparison
+     */
+    int[] postings = new int[2];
+    int postingCount;
+
+    Atom(int id, List<Object> signature) {
+      this.id = id;
+      this.comparator = (Comparator) signature.get(0);
+      this.key = (String) signature.get(1);
+      this.value = signature.get(2);
+      this.signature = signature;
+    }
+
+    void addPosting(int slot) {
+      if (postingCount == postings.length) {
+        postings = Arrays.copyOf(postings, postingCount * 2);
+      }
+      postings[postingCount++] = slot;
+    }
+
+    void removePosting(int slot) {
+      for (int i = 0; i < postingCount; i++) {
+        if (postings[i] == slot) {
+          postings[i] = postings[--postingCount];
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Range comparisons on one key with the same comparator and value domain, ordered by threshold.
+   */
+  private static final class RangeList {
+    final Comparator comparator;
+    Object[] thresholds = new Object[4];
+    Atom[] atoms = new Atom[4];
+    int size;
+    boolean sorted = true;
+
+    RangeList(Comparator comparator) {
+      this.comparator = comparator;
+    }
+
+    void add(Atom atom) {
+      if (size == atoms.length) {
+        thresholds = Arrays.copyOf(thresholds, size * 2);
+        atoms = Arrays.copyOf(atoms, size * 2);
+      }
+      thresholds[size] = atom.value;
+      atoms[size++] = atom;
+      sorted = false;
+    }
+
+    void remove(Atom atom) {
+      for (int i = 0; i < size; i++) {
+        if (atoms[i] == atom) {
+          System.arraycopy(thresholds, i + 1, thresholds, i, size - i - 1);
+          System.arraycopy(atoms, i + 1, atoms, i, size - i - 1);
+          size--;
+          thresholds[size] = null;
+          atoms[size] = null;
+          return;
+        }
+      }
+    }
+
+    /**
+     * Marks all comparisons holding for the given value.
+     */
+    void probe(Object value, BitSet satisfied, int[] ids, int[] count) {
+      if (!sorted) {
+        sort();
+      }
+      int from;
+      int to;
+      switch (comparator) {
+        case GT:  from = 0; to = bound(value, false); break;
+        case GTE: from = 0; to = bound(value, true); break;
+        case LT:  from = bound(value, true); to = size; break;
+        default:  from = bound(value, false); to = size; break;
+      }
+      for (int i = from; i < to; i++) {
+        satisfied.set(atoms[i].id);
+        ids[count[0]++] = atoms[i].id;
+      }
+    }
+
+    /**
+     * Returns the number of thresholds lower than (or equal to, if inclusive) the value.
+     */
+    private int bound(Object value, boolean inclusive) {
+      int low = 0;
+      int high = size;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        int result = compare(thresholds[mid], value);
+        if (result < 0 || (inclusive && result == 0)) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    private void sort() {
+      Integer[] order = new Integer[size];
+      for (int i = 0; i < size; i++) {
+        order[i] = i;
+      }
+      Arrays.sort(order, (a, b) -> compare(thresholds[a], thresholds[b]));
+      Object[] sortedThresholds = new Object[thresholds.length];
+      Atom[] sortedAtoms = new Atom[atoms.length];
+      for (int i = 0; i < size; i++) {
+        sortedThresholds[i] = thresholds[order[i]];
+        sortedAtoms[i] = atoms[order[i]];
+      }
+      thresholds = sortedThresholds;
+      atoms = sortedAtoms;
+      sorted = true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(Object lhs, Object rhs) {
+      if (lhs instanceof Number) {
+        return PredicateEvaluator.compareNumbers((Number) lhs, (Number) rhs);
+      }
+      return ((Comparable<Object>) lhs).compareTo(rhs);
+    }
+  }
+
+  /**
+   * A registered predicate
+   */
+  private static final class Subscription<T> {
+    final T value;
+    final int slot;
+    /**
+     * Distinct indexed comparisons of the top-level conjunction
+     */
+    final List<Atom> counted = new ArrayList<>();
+    /**
+     * All indexed comparisons referenced by the predicate, once per reference
+     */
+    final List<Atom> referenced = new ArrayList<>();
+    /**
+     * Remaining conjuncts or {@code null}
+     */
+    Node residual;
+
+    Subscription(T value, int slot) {
+      this.value = value;
+      this.slot = slot;
+    }
+  }
+
+  /**
+   * Registered predicates by subscription
+   */
+  private final Map<T, Subscription<T>> subscriptions = new LinkedHashMap<>();
+
+  /**
+   * Registered predicates by slot, {@code null} for free slots
+   */
+  private final List<Subscription<T>> slots = new ArrayList<>();
+
+  private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+  /**
+   * Predicates without counted comparisons
+   */
+  private final List<Subscription<T>> unanchored = new ArrayList<>();
+
+  /**
+   * Indexed comparisons by (comparator, key, value)
+   */
+  private final Map<List<Object>, Atom> atoms = new HashMap<>();
+
+  /**
+   * Indexed comparisons by id, {@code null} for free ids
+   */
+  private final List<Atom> atomsById = new ArrayList<>();
+
+  private final Deque<Integer> freeAtomIds = new ArrayDeque<>();
+
+  /**
+   * Equality comparisons by key and normalized literal. Label checks use the label pseudo key.
+   */
+  private final Map<String, Map<Object, Atom>> equalities = new HashMap<>();
+
+  /**
+   * Range comparisons by key, value domain and comparator
+   */
+  private final Map<String, Map<Class<?>, RangeList[]>> ranges = new HashMap<>();
+
+  /**
+   * Evaluation state, reused across calls
+   */
+  private final BitSet satisfied = new BitSet();
+  private int[] satisfiedIds = new int[16];
+  private int[] counts = new int[16];
+  private int[] touched = new int[16];
+
+  /**
+   * Registers the predicates of a query. A query without predicates matches every element.
+   *
+   * @param subscription subscription to report for matching elements
+   * @param query query handler whose predicates refer to at most one variable
+   */
+  public void add(T subscription, GDLHandler query) {
+    add(subscription, query.getPredicates().orElse(null));
+  }
+
+  /**
+   * Registers a predicate. Registering a subscription again replaces its predicate.
+   *
+   * @param subscription subscription to report for matching elements
+   * @param predicate predicate referring to at most one variable or {@code null} to match every
+   *                  element
+   * @throws IllegalArgumentException if the predicate refers to more than one variable
+   */
+  public void add(T subscription, Predicate predicate) {
+    if (predicate != null && predicate.getVariables().size() > 1) {
+      throw new IllegalArgumentException(
+        "Predicate must refer to a single variable: " + predicate.getVariables());
+    }
+    remove(subscription);
+
+    int slot = freeSlots.isEmpty() ? slots.size() : freeSlots.pop();
+    Subscription<T> entry = new Subscription<>(subscription, slot);
+    List<Node> residuals = new ArrayList<>();
+    if (predicate != null) {
+      for (Predicate conjunct : Predicate.getConjuncts(predicate)) {
+        Atom atom = conjunct instanceof Comparison &&
+          ((Comparison) conjunct).getComparator() != Comparator.NEQ ?
+          toAtom((Comparison) conjunct, entry) : null;
+        if (atom != null) {
+          if (!entry.counted.contains(atom)) {
+            entry.counted.add(atom);
+            atom.addPosting(slot);
+          }
+        } else {
+          residuals.add(compile(conjunct, entry));
+        }
+      }
+    }
+    entry.residual = and(residuals);
+
+    if (slot == slots.size()) {
+      slots.add(entry);
+    } else {
+      slots.set(slot, entry);
+    }
+    if (slots.size() > counts.length) {
+      counts = Arrays.copyOf(counts, slots.size() * 2);
+      touched = Arrays.copyOf(touched, slots.size() * 2);
+    }
+    if (entry.counted.isEmpty()) {
+      unanchored.add(entry);
+    }
+    subscriptions.put(subscription, entry);
+  }
+
+  /**
+   * Removes a subscription.
+   *
+   * @param subscription subscription
+   * @return true, iff the subscription was registered
+   */
+  public boolean remove(T subscription) {
+    Subscription<T> entry = subscriptions.remove(subscription);
+    if (entry == null) {
+      return false;
+    }
+    for (Atom atom : entry.counted) {
+      atom.removePosting(entry.slot);
+    }
+    for (Atom atom : entry.referenced) {
+      if (--atom.references == 0) {
+        unindex(atom);
+      }
+    }
+    if (entry.counted.isEmpty()) {
+      unanchored.remove(entry);
+    }
+    slots.set(entry.slot, null);
+    freeSlots.push(entry.slot);
+    return true;
+  }
+
+  /**
+   * Returns the number of registered subscriptions.
+   *
+   * @return subscription count
+   */
+  public int size() {
+    return subscriptions.size();
+  }
+
+  /**
+   * Returns the number of distinct indexed comparisons shared by all predicates.
+   *
+   * @return comparison count
+   */
+  public int getComparisonCount() {
+    return atoms.size();
+  }
+
+  /**
+   * Returns the subscriptions whose predicates hold for an element.
+   *
+   * @param element data element
+   * @return matching subscriptions in unspecified order
+   */
+  public List<T> match(Element element) {
+    List<T> result = new ArrayList<>();
+    match(element, result::add);
+    return result;
+  }
+
+  /**
+   * Reports the subscriptions whose predicates hold for an element.
+   *
+   * @param element data element
+   * @param consumer receives each matching subscription once
+   */
+  public void match(Element element, Consumer<? super T> consumer) {
+    int satisfiedCount = probe(element);
+
+    int touchedCount = 0;
+    for (int i = 0; i < satisfiedCount; i++) {
+      Atom atom = atomsById.get(satisfiedIds[i]);
+      for (int p = 0; p < atom.postingCount; p++) {
+        int slot = atom.postings[p];
+        if (counts[slot]++ == 0) {
+          touched[touchedCount++] = slot;
+        }
+        Subscription<T> entry = slots.get(slot);
+        if (counts[slot] == entry.counted.size() &&
+          (entry.residual == null || entry.residual.test(satisfied, element))) {
+          consumer.accept(entry.value);
+        }
+      }
+    }
+    for (Subscription<T> entry : unanchored) {
+      if (entry.residual == null || entry.residual.test(satisfied, element)) {
+        consumer.accept(entry.value);
+      }
+    }
+
+    for (int i = 0; i < touchedCount; i++) {
+      counts[touched[i]] = 0;
+    }
+    for (int i = 0; i < satisfiedCount; i++) {
+      satisfied.clear(satisfiedIds[i]);
+    }
+  }
+
+  /**
+   * Marks all indexed comparisons holding for an element.
+   *
+   * @return number of satisfied comparisons
+   */
+  private int probe(Element element) {
+    if (satisfiedIds.length < atomsById.size()) {
+      satisfiedIds = new int[atomsById.size()];
+    }
+    int[] count = {0};
+    Map<Object, Atom> labels = equalities.get(PropertySelector.LABEL_PROPERTY);
+    if (labels != null && element.getLabels() != null) {
+      for (String label : element.getLabels()) {
+        mark(labels.get(label), count);
+      }
+    }
+    if (element.getProperties() != null) {
+      for (Map.Entry<String, Object> property : element.getProperties().entrySet()) {
+        Object value = property.getValue();
+        if (value == null) {
+          continue;
+        }
+        Map<Object, Atom> values = equalities.get(property.getKey());
+        if (values != null) {
+          mark(values.get(normalize(value)), count);
+        }
+        Map<Class<?>, RangeList[]> domains = ranges.get(property.getKey());
+        RangeList[] lists = domains != null ? domains.get(domain(value)) : null;
+        if (lists != null) {
+          for (RangeList list : lists) {
+            if (list != null) {
+              list.probe(value, satisfied, satisfiedIds, count);
+            }
+          }
+        }
+      }
+    }
+    return count[0];
+  }
+
+  private void mark(Atom atom, int[] count) {
+    if (atom != null && !satisfied.get(atom.id)) {
+      satisfied.set(atom.id);
+      satisfiedIds[count[0]++] = atom.id;
+    }
+  }
+
+  /**
+   * Compiles a predicate into a tree testing indexed comparisons by lookup.
+   */
+  private Node compile(Predicate predicate, Subscription<T> entry) {
+    if (predicate instanceof And) {
+      Node lhs = compile(predicate.getArguments()[0], entry);
+      Node rhs = compile(predicate.getArguments()[1], entry);
+      return (satisfied, element) -> lhs.test(satisfied, element) && rhs.test(satisfied, element);
+    } else if (predicate instanceof Or) {
+      Node lhs = compile(predicate.getArguments()[0], entry);
+      Node rhs = compile(predicate.getArguments()[1], entry);
+      return (satisfied, element) -> lhs.test(satisfied, element) || rhs.test(satisfied, element);
+    } else if (predicate instanceof Xor) {
+      Node lhs = compile(predicate.getArguments()[0], entry);
+      Node rhs = compile(predicate.getArguments()[1], entry);
+      return (satisfied, element) -> lhs.test(satisfied, element) ^ rhs.test(satisfied, element);
+    } else if (predicate instanceof Not) {
+      Node argument = compile(predicate.getArguments()[0], entry);
+      return (satisfied, element) -> !argument.test(satisfied, element);
+    } else if (predicate instanceof Comparison) {
+      Atom atom = toAtom((Comparison) predicate, entry);
+      if (atom == null) {
+        return (satisfied, element) -> PredicateEvaluator.evaluate(predicate, variable -> element);
+      }
+      int id = atom.id;
+      if (((Comparison) predicate).getComparator() == Comparator.NEQ) {
+        return (satisfied, element) -> !satisfied.get(id);
+      }
+      return (satisfied, element) -> satisfied.get(id);
+    }
+    throw new IllegalArgumentException("Unsupported predicate: " + predicate.getClass().getSimpleName());
+  }
+
+  private static Node and(List<Node> nodes) {
+    if (nodes.isEmpty()) {
+      return null;
+    }
+    Node[] array = nodes.toArray(new Node[0]);
+    if (array.length == 1) {
+      return array[0];
+    }
+    return (satisfied, element) -> {
+      for (Node node : array) {
+        if (!node.test(satisfied, element)) {
+          return false;
+        }
+      }
+      return true;
+    };
+  }
+
+  /**
+   * Returns the indexed comparison equivalent to a comparison between a property and a non-null
+   * literal. An inequality is mapped to the equality it negates. Returns {@code null} if the
+   * comparison cannot be indexed.
+   */
+  private Atom toAtom(Comparison comparison, Subscription<T> entry) {
+    ComparableExpression[] expressions = comparison.getComparableExpressions();
+    Comparator comparator = comparison.getComparator();
+    ComparableExpression selector = expressions[0];
+    ComparableExpression literal = expressions[1];
+    if (selector instanceof Literal) {
+      selector = expressions[1];
+      literal = expressions[0];
+      comparator = mirror(comparator);
+    }
+    if (!(selector instanceof PropertySelector) || !(literal instanceof Literal) ||
+      ((Literal) literal).getValue() == null) {
+      return null;
+    }
+    String key = ((PropertySelector) selector).getPropertyName();
+    Object value = ((Literal) literal).getValue();
+
+    if (comparator == Comparator.NEQ) {
+      comparator = Comparator.EQ;
+    }
+    if (comparator == Comparator.EQ) {
+      value = normalize(value);
+    } else if (key.equals(PropertySelector.LABEL_PROPERTY) || !(value instanceof Comparable)) {
+      return null;
+    }
+
+    Atom atom = index(Arrays.asList(comparator, key, value));
+    atom.references++;
+    entry.referenced.add(atom);
+    return atom;
+  }
+
+  /**
+   * Returns the shared comparison with the given signature, creating it if necessary.
+   */
+  private Atom index(List<Object> signature) {
+    Atom atom = atoms.get(signature);
+    if (atom != null) {
+      return atom;
+    }
+    int id = freeAtomIds.isEmpty() ? atomsById.size() : freeAtomIds.pop();
+    atom = new Atom(id, signature);
+    if (id == atomsById.size()) {
+      atomsById.add(atom);
+    } else {
+      atomsById.set(id, atom);
+    }
+    atoms.put(signature, atom);
+
+    if (atom.comparator == Comparator.EQ) {
+      equalities.computeIfAbsent(atom.key, k -> new HashMap<>()).put(atom.value, atom);
+    } else {
+      RangeList[] lists = ranges.computeIfAbsent(atom.key, k -> new HashMap<>())
+        .computeIfAbsent(domain(atom.value), k -> new RangeList[Comparator.values().length]);
+      int position = atom.comparator.ordinal();
+      if (lists[position] == null) {
+        lists[position] = new RangeList(atom.comparator);
+      }
+      lists[position].add(atom);
+    }
+    return atom;
+  }
+
+  private void unindex(Atom atom) {
+    atoms.remove(atom.signature);
+    atomsById.set(atom.id, null);
+    freeAtomIds.push(atom.id);
+    if (atom.comparator == Comparator.EQ) {
+      Map<Object, Atom> values = equalities.get(atom.key);
+      values.remove(atom.value);
+      if (values.isEmpty()) {
+        equalities.remove(atom.key);
+      }
+    } else {
+      Map<Class<?>, RangeList[]> domains = ranges.get(atom.key);
+      RangeList[] lists = domains.get(domain(atom.value));
+      lists[atom.comparator.ordinal()].remove(atom);
+    }
+  }
+
+  /**
+   * Maps numbers that are equal by value to the same key. Like {@link PredicateEvaluator}, -0.0 is
+   * not equal to 0 and keeps its own key.
+   */
+  private static Object normalize(Object value) {
+    if (!(value instanceof Number)) {
+      return value;
+    }
+    Number number = (Number) value;
+    if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+      return number.longValue();
+    }
+    double d = number.doubleValue();
+    if (d == Math.rint(d) && Math.abs(d) < 0x1p63 &&
+      Double.doubleToRawLongBits(d) != Double.doubleToRawLongBits(-0.0)) {
+      return (long) d;
+    }
+    return d;
+  }
+
+  /**
+   * Returns the class of values comparable to the given one.
+   */
+  private static Class<?> domain(Object value) {
+    return value instanceof Number ? Number.class : value.getClass();
+  }
+
+  /**
+   * Returns the comparator holding after swapping both sides of a comparison.
+   */
+  private static Comparator mirror(Comparator comparator) {
+    switch (comparator) {
+      case GT:  return Comparator.LT;
+      case LT:  return Comparator.GT;
+      case GTE: return Comparator.LTE;
+      case LTE: return Comparator.GTE;
+      default:  return comparator;
+    }
+  }
+}
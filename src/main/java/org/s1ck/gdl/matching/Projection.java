@@ -0,0 +1,170 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.matching;
+
+import org.s1ck.gdl.model.Element;
+import org.s1ck.gdl.model.comparables.ComparableExpression;
+import org.s1ck.gdl.model.comparables.PropertySelector;
+import org.s1ck.gdl.model.projections.AggregateFunction;
+import org.s1ck.gdl.model.projections.ReturnItem;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates the items of a RETURN clause on the bindings of a match.
+ *
+ * <p>Each item is resolved to a query vertex or edge position once, so evaluating a match only
+ * reads the bound elements' properties.
+ */
+class Projection {
+
+  private final GraphIndex graph;
+
+  private final ReturnItem[] items;
+
+  /**
+   * Query element position per item, {@code -1} for {@code count(*)}
+   */
+  private final int[] elements;
+
+  /**
+   * True if an item refers to a query vertex, false for a query edge
+   */
+  private final boolean[] vertices;
+
+  /**
+   * Property key per item or {@code null} if the element itself is projected
+   */
+  private final String[] keys;
+
+  /**
+   * Positions of the grouping items and the aggregating items
+   */
+  private final int[] groupingItems;
+  private final int[] aggregatingItems;
+
+  Projection(QueryGraph query, GraphIndex graph) {
+    this.graph = graph;
+    List<ReturnItem> returnItems = query.getReturnItems();
+    this.items = returnItems.toArray(new ReturnItem[0]);
+    this.elements = new int[items.length];
+    this.vertices = new boolean[items.length];
+    this.keys = new String[items.length];
+
+    int groupingCount = 0;
+    for (int i = 0; i < items.length; i++) {
+      ComparableExpression expression = items[i].getExpression();
+      if (expression == null) {
+        elements[i] = -1;
+      } else {
+        int vertex = query.getVertexIndex(expression.getVariable());
+        vertices[i] = vertex >= 0;
+        elements[i] = vertex >= 0 ? vertex : query.getEdgeIndex(expression.getVariable());
+        if (elements[i] < 0) {
+          throw new IllegalArgumentException("Unknown variable in RETURN clause: " + expression.getVariable());
+        }
+        if (expression instanceof PropertySelector) {
+          keys[i] = ((PropertySelector) expression).getPropertyName();
+        }
+      }
+      if (!items[i].isAggregation()) {
+        groupingCount++;
+      }
+    }
+    this.groupingItems = new int[groupingCount];
+    this.aggregatingItems = new int[items.length - groupingCount];
+    for (int i = 0, g = 0, a = 0; i < items.length; i++) {
+      if (items[i].isAggregation()) {
+        aggregatingItems[a++] = i;
+      } else {
+        groupingItems[g++] = i;
+      }
+    }
+  }
+
+  int size() {
+    return items.length;
+  }
+
+  ReturnItem getItem(int item) {
+    return items[item];
+  }
+
+  boolean isAggregating() {
+    return aggregatingItems.length > 0;
+  }
+
+  int[] getGroupingItems() {
+    return groupingItems;
+  }
+
+  int[] getAggregatingItems() {
+    return aggregatingItems;
+  }
+
+  /**
+   * Evaluates all items on the given bindings.
+   *
+   * @param vertexBindings data vertex position by query vertex position
+   * @param edgeBindings data edge position by query edge position
+   * @return value per item, {@code null} for {@code count(*)} and missing properties
+   */
+  Object[] evaluate(int[] vertexBindings, int[] edgeBindings) {
+    Object[] values = new Object[items.length];
+    for (int i = 0; i < items.length; i++) {
+      if (elements[i] < 0) {
+        continue;
+      }
+      Element element = vertices[i] ? graph.getVertex(vertexBindings[elements[i]]) :
+        graph.getEdge(edgeBindings[elements[i]]);
+      if (keys[i] == null) {
+        values[i] = element;
+      } else if (keys[i].equals(PropertySelector.LABEL_PROPERTY)) {
+        values[i] = element.getLabel();
+      } else {
+        values[i] = element.getProperties() != null ? element.getProperties().get(keys[i]) : null;
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Creates a result row from the values of all items.
+   *
+   * @param values value per item
+   * @return column values by column name in RETURN order
+   */
+  Map<String, Object> toRow(Object[] values) {
+    Map<String, Object> row = new LinkedHashMap<>(items.length * 2);
+    for (int i = 0; i < items.length; i++) {
+      row.put(items[i].getName(), values[i]);
+    }
+    return row;
+  }
+
+  /**
+   * Checks whether a count item counts rows instead of values.
+   *
+   * @param item item position
+   * @return true, iff the item is {@code count(*)}
+   */
+  boolean countsRows(int item) {
+    return items[item].getFunction() == AggregateFunction.COUNT && elements[item] < 0;
+  }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl.matching;
+
+import org.s1ck.gdl.model.Element;
+import org.s1ck.gdl.utils.Comparator;
+
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Values of one property over a fixed sequence of elements, stored as a primitive array if
+ * possible.
+ *
+ * <p>If all present values are integral numbers, the column stores {@code long} values. If all
+ * present values are floats or doubles, it stores {@code double} values. Any other column keeps
+ * the boxed values. Missing values are tracked by a bitmask.
+ *
+ * <p>Comparisons with a literal produce a bitmask with one bit per element, bit {@code i % 64} of
+ * word {@code i / 64} belonging to the i-th element. Their results agree with
+ * {@link PredicateEvaluator#compare(Object, Comparator, Object)}.
+ */
+class PropertyColumn {
+
+  private enum Kind { LONG, DOUBLE, OBJECT }
+
+  private final int size;
+
+  private final Kind kind;
+
+  private final long[] longs;
+
+  private final double[] doubles;
+
+  private final Object[] objects;
+
+  /**
+   * Bitmask of the elements having the property
+   */
+  private final long[] present;
+
+  /**
+   * True if the double values contain neither NaN nor negative zero, so primitive comparisons
+   * agree with {@link Double#compare(double, double)}
+   */
+  private final boolean plain;
+
+  private PropertyColumn(int size, Kind kind, long[] longs, double[] doubles, Object[] objects,
+    long[] present, boolean plain) {
+    this.size = size;
+    this.kind = kind;
+    this.longs = longs;
+    this.doubles = doubles;
+    this.objects = objects;
+    this.present = present;
+    this.plain = plain;
+  }
+
+  /**
+   * Extracts a property column.
+   *
+   * @param elements element per row
+   * @param size number of rows
+   * @param key property key
+   * @return property column
+   */
+  static PropertyColumn of(IntFunction<? extends Element> elements, int size, String key) {
+    Object[] values = new Object[size];
+    long[] present = new long[words(size)];
+    boolean integral = true;
+    boolean floating = true;
+    for (int i = 0; i < size; i++) {
+      Map<String, Object> properties = elements.apply(i).getProperties();
+      Object value = properties != null ? properties.get(key) : null;
+      if (value == null) {
+        continue;
+      }
+      values[i] = value;
+      present[i >>> 6] |= 1L << i;
+      integral &= value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+      floating &= value instanceof Double || value instanceof Float;
+    }
+
+    if (integral) {
+      long[] longs = new long[size];
+      for (int i = 0; i < size; i++) {
+        longs[i] = values[i] != null ? ((Number) values[i]).longValue() : 0L;
+      }
+      return new PropertyColumn(size, Kind.LONG, longs, null, null, present, true);
+    }
+    if (floating) {
+      double[] doubles = new double[size];
+      boolean plain = true;
+      for (int i = 0; i < size; i++) {
+        doubles[i] = values[i] != null ? ((Number) values[i]).doubleValue() : 0d;
+        plain &= !isSpecial(doubles[i]);
+      }
+      return new PropertyColumn(size, Kind.DOUBLE, null, doubles, null, present, plain);
+    }
+    return new PropertyColumn(size, Kind.OBJECT, null, null, values, present, false);
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Evaluates {@code value comparator literal} for every row.
+   *
+   * @param comparator comparator
+   * @param literal literal value, may be {@code null}
+   * @return bitmask of the rows satisfying the comparison
+   */
+  long[] compare(Comparator comparator, Object literal) {
+    if (literal == null) {
+      // NULL is only equal to NULL
+      switch (comparator) {
+        case EQ:  return not(present, size);
+        case NEQ: return present.clone();
+        default:  return new long[words(size)];
+      }
+    }
+    if (kind == Kind.OBJECT || !(literal instanceof Number)) {
+      return compareObjects(comparator, literal);
+    }
+    Number number = (Number) literal;
+    long[] less = new long[words(size)];
+    long[] equal = new long[words(size)];
+    if (kind == Kind.LONG && isIntegral(number)) {
+      compareLongs(longs, size, number.longValue(), less, equal);
+    } else if (kind == Kind.LONG) {
+      compareDoubles(toDoubles(longs), size, number.doubleValue(), false, less, equal);
+    } else {
+      double value = number.doubleValue();
+      compareDoubles(doubles, size, value, plain && !isSpecial(value), less, equal);
+    }
+
+    long[] mask = new long[less.length];
+    long tail = tail(size);
+    for (int w = 0; w < mask.length; w++) {
+      long bits;
+      switch (comparator) {
+        case EQ:  bits = equal[w]; break;
+        case NEQ: bits = ~equal[w]; break;
+        case LT:  bits = less[w]; break;
+        case LTE: bits = less[w] | equal[w]; break;
+        case GT:  bits = ~(less[w] | equal[w]); break;
+        case GTE: bits = ~less[w]; break;
+        default:  bits = 0L;
+      }
+      bits &= present[w];
+      if (comparator == Comparator.NEQ) {
+        // missing values differ from any literal
+        bits |= ~present[w];
+      }
+      mask[w] = w == mask.length - 1 ? bits & tail : bits;
+    }
+    return mask;
+  }
+
+  private long[] compareObjects(Comparator comparator, Object literal) {
+    long[] mask = new long[words(size)];
+    for (int i = 0; i < size; i++) {
+      Object value = get(i);
+      if (PredicateEvaluator.compare(value, comparator, literal)) {
+        mask[i >>> 6] |= 1L << i;
+      }
+    }
+    return mask;
+  }
+
+  private Object get(int i) {
+    if ((present[i >>> 6] & (1L << i)) == 0) {
+      return null;
+    }
+    switch (kind) {
+      case LONG:   return longs[i];
+      case DOUBLE: return doubles[i];
+      default:     return objects[i];
+    }
+  }
+
+  /**
+   * Sets the bits of all rows less than and equal to the given value, 64 rows per word.
+   */
+  private static void compareLongs(long[] values, int size, long value, long[] less, long[] equal) {
+    for (int w = 0, base = 0; base < size; w++, base += 64) {
+      int end = Math.min(64, size - base);
+      long lt = 0L;
+      long eq = 0L;
+      for (int j = 0; j < end; j++) {
+        long v = values[base + j];
+        lt |= (v < value ? 1L : 0L) << j;
+        eq |= (v == value ? 1L : 0L) << j;
+      }
+      less[w] = lt;
+      equal[w] = eq;
+    }
+  }
+
+  private static void compareDoubles(double[] values, int size, double value, boolean plain,
+    long[] less, long[] equal) {
+    for (int w = 0, base = 0; base < size; w++, base += 64) {
+      int end = Math.min(64, size - base);
+      long lt = 0L;
+      long eq = 0L;
+      if (plain) {
+        for (int j = 0; j < end; j++) {
+          double v = values[base + j];
+          lt |= (v < value ? 1L : 0L) << j;
+          eq |= (v == value ? 1L : 0L) << j;
+        }
+      } else {
+        for (int j = 0; j < end; j++) {
+          int result = Double.compare(values[base + j], value);
+          lt |= (result < 0 ? 1L : 0L) << j;
+          eq |= (result == 0 ? 1L : 0L) << j;
+        }
+      }
+      less[w] = lt;
+      equal[w] = eq;
+    }
+  }
+
+  private static double[] toDoubles(long[] values) {
+    double[] doubles = new double[values.length];
+    for (int i = 0; i < values.length; i++) {
+      doubles[i] = values[i];
+    }
+    return doubles;
+  }
+
+  private static boolean isIntegral(Number number) {
+    return number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte;
+  }
+
+  private static boolean isSpecial(double value) {
+    return Double.isNaN(value) || Double.doubleToRawLongBits(value) == Double.doubleToRawLongBits(-0d);
+  }
+
+  /**
+   * Returns the number of 64 bit words of a bitmask over the given number of rows.
+   */
+  static int words(int size) {
+    return (size + 63) >>> 6;
+  }
+
+  /**
+   * Returns the valid bits of the last word of a bitmask over the given number of rows.
+   */
+  static long tail(int size) {
+    return size % 64 == 0 ? -1L : (1L << size) - 1;
+  }
+
+  /**
+   * Complements a bitmask over the given number of rows.
+   */
+  static long[] not(long[] mask, int size) {
+    long[] result = new long[mask.length];
+    for (int w = 0; w < mask.length; w++) {
+      result[w] = ~mask[w];
+    }
+    if (result.length > 0) {
+      result[result.length - 1] &= tail(size);
+    }
+    return result;
+  }
+}
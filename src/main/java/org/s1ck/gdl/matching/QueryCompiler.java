@@ -0,0 +1,283 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl.matching;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compiles match programs into generated classes that run the whole search in one method.
+ *
+ * <p>The source produced by the {@link MatchCodeGenerator} is compiled in memory by the system
+ * Java compiler and defined in this package, so the generated code can access the package-private
+ * matcher internals. Generated classes are cached by their source: programs with the same
+ * operations, filters and semantics reuse the class, even if literal values or labels differ.
+ * The cache keeps the most recently used classes up to its capacity; evicted classes are unloaded
+ * once no query uses them.
+ *
+ * <p>Code generation requires a JDK at runtime. Without a system compiler, {@link #isAvailable()}
+ * returns false and matchers fall back to the interpreting {@link MatchEnumerator}.
+ */
+public class QueryCompiler {
+
+  private static final String PACKAGE = QueryCompiler.class.getPackage().getName();
+
+  private static final AtomicInteger CLASS_COUNTER = new AtomicInteger();
+
+  /**
+   * Default maximum number of cached classes
+   */
+  public static final int DEFAULT_CAPACITY = 256;
+
+  private final int capacity;
+
+  /**
+   * Generated class constructors by source code in access order, empty if the source failed to
+   * compile
+   */
+  private final Map<String, Optional<Constructor<? extends CompiledMatch>>> cache;
+
+  private long hits;
+
+  private long misses;
+
+  /**
+   * Creates a compiler caching up to {@link #DEFAULT_CAPACITY} generated classes.
+   */
+  public QueryCompiler() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Creates a compiler.
+   *
+   * @param capacity maximum number of cached generated classes
+   */
+  public QueryCompiler(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    this.capacity = capacity;
+    this.cache = new LinkedHashMap<String, Optional<Constructor<? extends CompiledMatch>>>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Optional<Constructor<? extends CompiledMatch>>> eldest) {
+        return size() > QueryCompiler.this.capacity;
+      }
+    };
+  }
+
+  /**
+   * Checks if the system Java compiler is available.
+   *
+   * @return true, iff queries can be compiled
+   */
+  public static boolean isAvailable() {
+    return ToolProvider.getSystemJavaCompiler() != null;
+  }
+
+  /**
+   * Returns the number of generated classes in the cache.
+   *
+   * @return cache size
+   */
+  public synchronized int getCacheSize() {
+    return cache.size();
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Removes all generated classes from the cache.
+   */
+  public synchronized void clear() {
+    cache.clear();
+  }
+
+  /**
+   * Returns the number of compilations served from the cache.
+   *
+   * @return cache hits
+   */
+  public synchronized long getCacheHits() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of compilations that generated a new class.
+   *
+   * @return cache misses
+   */
+  public synchronized long getCacheMisses() {
+    return misses;
+  }
+
+  /**
+   * Compiles a match program.
+   *
+   * @param program match program
+   * @param matchStrategy mapping semantics
+   * @param candidates true if the search will be restricted by {@link CandidateSets}
+   * @return compiled query or {@code null} if no system compiler is available or the same source
+   *         failed to compile before
+   * @throws IllegalStateException if the generated class cannot be compiled
+   */
+  CompiledQuery compile(MatchProgram program, MatchStrategy matchStrategy, boolean candidates) {
+    if (!isAvailable()) {
+      return null;
+    }
+    boolean injective = matchStrategy == MatchStrategy.ISOMORPHISM;
+    MatchCodeGenerator generator = new MatchCodeGenerator(program, injective, candidates);
+    String source = generator.generate();
+
+    Optional<Constructor<? extends CompiledMatch>> constructor;
+    synchronized (this) {
+      constructor = cache.get(source);
+      if (constructor != null) {
+        hits++;
+      } else {
+        misses++;
+      }
+    }
+    if (constructor == null) {
+      // concurrent misses of the same source may both compile it, the last class is kept
+      try {
+        constructor = Optional.of(define(source));
+      } catch (RuntimeException e) {
+        synchronized (this) {
+          cache.put(source, Optional.empty());
+        }
+        throw e;
+      }
+      synchronized (this) {
+        cache.put(source, constructor);
+      }
+    }
+    return constructor.map(c -> new CompiledQuery(program, c, injective,
+      generator.getLiterals(), generator.getKeys(), generator.getPredicates())).orElse(null);
+  }
+
+  /**
+   * Compiles and loads the class generated from the given source.
+   *
+   * @param template generated source using {@link MatchCodeGenerator#CLASS_NAME} as class name
+   * @return constructor of the generated class
+   * @throws IllegalStateException if the class cannot be compiled or defined
+   */
+  Constructor<? extends CompiledMatch> define(String template) {
+    String name = "GeneratedMatch" + CLASS_COUNTER.incrementAndGet();
+    String source = template.replace(MatchCodeGenerator.CLASS_NAME, name);
+    byte[] bytes = compile(PACKAGE + "." + name, source);
+    try {
+      Class<? extends CompiledMatch> type = MethodHandles.lookup().defineClass(bytes).asSubclass(CompiledMatch.class);
+      Constructor<? extends CompiledMatch> constructor =
+        type.getDeclaredConstructor(CompiledQuery.class, GraphIndex.class, CandidateSets.class);
+      constructor.setAccessible(true);
+      return constructor;
+    } catch (IllegalAccessException | NoSuchMethodException e) {
+      throw new IllegalStateException("Cannot define generated class " + name, e);
+    }
+  }
+
+  private static byte[] compile(String className, String source) {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    StandardJavaFileManager standard = compiler.getStandardFileManager(diagnostics, null, null);
+
+    JavaFileManager fileManager = new ForwardingJavaFileManager<JavaFileManager>(standard) {
+      @Override
+      public JavaFileObject getJavaFileForOutput(Location location, String name, JavaFileObject.Kind kind,
+        FileObject sibling) {
+        return new SimpleJavaFileObject(URI.create("bytes:///" + name.replace('.', '/') + kind.extension), kind) {
+          @Override
+          public OutputStream openOutputStream() {
+            return bytes;
+          }
+        };
+      }
+    };
+    JavaFileObject file = new SimpleJavaFileObject(
+      URI.create("string:///" + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension),
+      JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return source;
+      }
+    };
+
+    List<String> options = Arrays.asList("-classpath", getClassPath(), "-proc:none", "-g:none");
+    boolean success = compiler.getTask(null, fileManager, diagnostics, options, null,
+      Collections.singletonList(file)).call();
+    try {
+      fileManager.close();
+    } catch (IOException e) {
+      // nothing was written to disk
+    }
+    if (!success) {
+      StringBuilder message = new StringBuilder("Cannot compile generated class " + className);
+      for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+        message.append('\n').append(diagnostic.getMessage(null));
+      }
+      throw new IllegalStateException(message.toString());
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Returns the class path of the running application including the location of this library.
+   */
+  private static String getClassPath() {
+    String classPath = System.getProperty("java.class.path", "");
+    CodeSource codeSource = QueryCompiler.class.getProtectionDomain().getCodeSource();
+    if (codeSource != null && codeSource.getLocation() != null) {
+      try {
+        classPath = Paths.get(codeSource.getLocation().toURI()) + File.pathSeparator + classPath;
+      } catch (URISyntaxException | IllegalArgumentException e) {
+        // not a file location, rely on the application class path
+      }
+    }
+    return classPath;
+  }
+}
@@ -0,0 +1,390 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.matching;
+
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.exceptions.InvalidReferenceException;
+import org.s1ck.gdl.model.Edge;
+import org.s1ck.gdl.model.Vertex;
+import org.s1ck.gdl.model.comparables.ComparableExpression;
+import org.s1ck.gdl.model.comparables.Literal;
+import org.s1ck.gdl.model.comparables.PropertySelector;
+import org.s1ck.gdl.model.predicates.Predicate;
+import org.s1ck.gdl.model.predicates.expressions.Comparison;
+import org.s1ck.gdl.model.projections.ReturnItem;
+import org.s1ck.gdl.utils.Comparator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index based view on the vertices, edges and predicates of a MATCH pattern.
+ *
+ * <p>Query vertices and edges are numbered by ascending element id. Labels are taken from the
+ * {@code __label__} comparisons in the query predicates, so a vertex without a label or with the
+ * default label matches any data vertex.
+ */
+public class QueryGraph {
+
+  /**
+   * Query vertices ordered by id
+   */
+  private final List<Vertex> vertices;
+
+  /**
+   * Query edges ordered by id
+   */
+  private final List<Edge> edges;
+
+  /**
+   * Vertex and edge position by variable
+   */
+  private final Map<String, Integer> vertexIndex;
+  private final Map<String, Integer> edgeIndex;
+
+  /**
+   * Source and target vertex position of each edge
+   */
+  private final int[] sourceIndex;
+  private final int[] targetIndex;
+
+  /**
+   * Labels required by the query predicates, {@code null} if unconstrained
+   */
+  private final String[] vertexLabels;
+  private final String[] edgeLabels;
+
+  /**
+   * Top-level conjuncts of the query predicates
+   */
+  private final List<Predicate> conjuncts;
+
+  /**
+   * Value of {@link #getLimit()} if the query has no LIMIT clause
+   */
+  public static final long UNLIMITED = Long.MAX_VALUE;
+
+  /**
+   * Items of the RETURN clause
+   */
+  private final List<ReturnItem> returnItems;
+
+  /**
+   * Number of results to skip and maximum number of results to return
+   */
+  private final long skip;
+  private final long limit;
+
+  /**
+   * Creates a query graph.
+   *
+   * @param vertices query vertices
+   * @param edges query edges
+   * @param predicates query predicates or {@code null} if there are none
+   */
+  public QueryGraph(Collection<Vertex> vertices, Collection<Edge> edges, Predicate predicates) {
+    this(vertices, edges, predicates, Collections.emptyList(), 0L, UNLIMITED);
+  }
+
+  /**
+   * Creates a query graph.
+   *
+   * @param vertices query vertices
+   * @param edges query edges
+   * @param predicates query predicates or {@code null} if there are none
+   * @param returnItems items of the RETURN clause, empty if there is none
+   * @param skip number of results to skip
+   * @param limit maximum number of results or {@link #UNLIMITED}
+   */
+  public QueryGraph(Collection<Vertex> vertices, Collection<Edge> edges, Predicate predicates,
+    List<ReturnItem> returnItems, long skip, long limit) {
+    if (skip < 0 || limit < 0) {
+      throw new IllegalArgumentException("Skip and limit must not be negative.");
+    }
+    this.returnItems = Collections.unmodifiableList(new ArrayList<>(returnItems));
+    this.skip = skip;
+    this.limit = limit;
+    this.vertices = new ArrayList<>(vertices);
+    this.vertices.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+    this.edges = new ArrayList<>(edges);
+    this.edges.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+
+    this.vertexIndex = new HashMap<>();
+    Map<Long, Integer> vertexIndexById = new HashMap<>();
+    for (int i = 0; i < this.vertices.size(); i++) {
+      vertexIndex.put(this.vertices.get(i).getVariable(), i);
+      vertexIndexById.put(this.vertices.get(i).getId(), i);
+    }
+
+    this.edgeIndex = new HashMap<>();
+    this.sourceIndex = new int[this.edges.size()];
+    this.targetIndex = new int[this.edges.size()];
+    for (int i = 0; i < this.edges.size(); i++) {
+      Edge edge = this.edges.get(i);
+      edgeIndex.put(edge.getVariable(), i);
+      sourceIndex[i] = vertexIndexById.get(edge.getSourceVertexId());
+      targetIndex[i] = vertexIndexById.get(edge.getTargetVertexId());
+    }
+
+    this.conjuncts = predicates != null ?
+      Collections.unmodifiableList(Predicate.getConjuncts(predicates)) : Collections.emptyList();
+
+    this.vertexLabels = new String[this.vertices.size()];
+    this.edgeLabels = new String[this.edges.size()];
+    for (Predicate conjunct : conjuncts) {
+      for (String variable : conjunct.getVariables()) {
+        if (!vertexIndex.containsKey(variable) && !edgeIndex.containsKey(variable)) {
+          throw new InvalidReferenceException(variable);
+        }
+      }
+      String[] label = getRequiredLabel(conjunct);
+      if (label != null) {
+        if (vertexIndex.containsKey(label[0]) && vertexLabels[vertexIndex.get(label[0])] == null) {
+          vertexLabels[vertexIndex.get(label[0])] = label[1];
+        } else if (edgeIndex.containsKey(label[0]) && edgeLabels[edgeIndex.get(label[0])] == null) {
+          edgeLabels[edgeIndex.get(label[0])] = label[1];
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates the query graph of the MATCH pattern loaded by the given handler.
+   *
+   * @param handler query handler
+   * @return query graph
+   */
+  public static QueryGraph fromHandler(GDLHandler handler) {
+    return new QueryGraph(handler.getVertices(), handler.getEdges(), handler.getPredicates().orElse(null),
+      handler.getReturnItems(), handler.getSkip().orElse(0L), handler.getLimit().orElse(UNLIMITED));
+  }
+
+  /**
+   * Checks that the pattern has no variable length edges, e.g. {@code -[e*1..3]->}, which are not
+   * expanded by the matcher.
+   *
+   * @throws IllegalArgumentException if an edge has a variable length
+   */
+  void checkFixedLength() {
+    for (Edge edge : edges) {
+      if (edge.hasVariableLength()) {
+        throw new IllegalArgumentException(
+          "Variable length edge " + edge.getVariable() + " is not supported by the matcher");
+      }
+    }
+  }
+
+  public int getVertexCount() {
+    return vertices.size();
+  }
+
+  public int getEdgeCount() {
+    return edges.size();
+  }
+
+  public Vertex getVertex(int vertex) {
+    return vertices.get(vertex);
+  }
+
+  public Edge getEdge(int edge) {
+    return edges.get(edge);
+  }
+
+  public String getVertexVariable(int vertex) {
+    return vertices.get(vertex).getVariable();
+  }
+
+  public String getEdgeVariable(int edge) {
+    return edges.get(edge).getVariable();
+  }
+
+  /**
+   * Returns the position of the vertex with the given variable.
+   *
+   * @param variable vertex variable
+   * @return vertex position or {@code -1} if the variable is not a query vertex
+   */
+  public int getVertexIndex(String variable) {
+    return vertexIndex.getOrDefault(variable, -1);
+  }
+
+  /**
+   * Returns the position of the edge with the given variable.
+   *
+   * @param variable edge variable
+   * @return edge position or {@code -1} if the variable is not a query edge
+   */
+  public int getEdgeIndex(String variable) {
+    return edgeIndex.getOrDefault(variable, -1);
+  }
+
+  public int getSourceIndex(int edge) {
+    return sourceIndex[edge];
+  }
+
+  public int getTargetIndex(int edge) {
+    return targetIndex[edge];
+  }
+
+  /**
+   * Returns the label a query vertex is constrained to.
+   *
+   * @param vertex vertex position
+   * @return vertex label or {@code null} if any label matches
+   */
+  public String getVertexLabel(int vertex) {
+    return vertexLabels[vertex];
+  }
+
+  /**
+   * Returns the label a query edge is constrained to.
+   *
+   * @param edge edge position
+   * @return edge label or {@code null} if any label matches
+   */
+  public String getEdgeLabel(int edge) {
+    return edgeLabels[edge];
+  }
+
+  /**
+   * Returns the top-level conjuncts of the query predicates, including the label and property
+   * predicates embedded in the pattern.
+   *
+   * @return unmodifiable list of conjuncts
+   */
+  public List<Predicate> getConjuncts() {
+    return conjuncts;
+  }
+
+  /**
+   * Checks if a conjunct only requires the label returned by {@link #getVertexLabel(int)} or
+   * {@link #getEdgeLabel(int)}, so it is satisfied by every label-filtered candidate.
+   *
+   * @param conjunct query conjunct
+   * @return true, iff the conjunct is a label constraint of this query graph
+   */
+  public boolean isLabelConstraint(Predicate conjunct) {
+    String[] label = getRequiredLabel(conjunct);
+    if (label == null) {
+      return false;
+    }
+    int vertex = getVertexIndex(label[0]);
+    int edge = getEdgeIndex(label[0]);
+    return (vertex >= 0 && label[1].equals(vertexLabels[vertex])) ||
+      (edge >= 0 && label[1].equals(edgeLabels[edge]));
+  }
+
+  /**
+   * Returns the items of the RETURN clause.
+   *
+   * @return unmodifiable list of return items, empty if the query has no RETURN clause
+   */
+  public List<ReturnItem> getReturnItems() {
+    return returnItems;
+  }
+
+  /**
+   * Returns the number of results to skip.
+   *
+   * @return SKIP value, {@code 0} if the query has none
+   */
+  public long getSkip() {
+    return skip;
+  }
+
+  /**
+   * Returns the maximum number of results to return.
+   *
+   * @return LIMIT value or {@link #UNLIMITED}
+   */
+  public long getLimit() {
+    return limit;
+  }
+
+  /**
+   * Returns the variables of all query vertices and edges.
+   *
+   * @return vertex variables followed by edge variables
+   */
+  public List<String> getVariables() {
+    List<String> variables = new ArrayList<>(vertices.size() + edges.size());
+    vertices.forEach(v -> variables.add(v.getVariable()));
+    edges.forEach(e -> variables.add(e.getVariable()));
+    return variables;
+  }
+
+  /**
+   * Checks whether the pattern contains a cycle when edge directions are ignored. Self loops and
+   * parallel edges count as cycles.
+   *
+   * @return true, iff the pattern is cyclic
+   */
+  public boolean isCyclic() {
+    int[] parent = new int[vertices.size()];
+    for (int i = 0; i < parent.length; i++) {
+      parent[i] = i;
+    }
+    for (int e = 0; e < edges.size(); e++) {
+      int source = find(parent, sourceIndex[e]);
+      int target = find(parent, targetIndex[e]);
+      if (source == target) {
+        return true;
+      }
+      parent[source] = target;
+    }
+    return false;
+  }
+
+  private static int find(int[] parent, int i) {
+    while (parent[i] != i) {
+      parent[i] = parent[parent[i]];
+      i = parent[i];
+    }
+    return i;
+  }
+
+  /**
+   * Returns variable and label if the given conjunct has the form {@code x.__label__ = "Label"}.
+   *
+   * @param conjunct conjunct
+   * @return variable and label or {@code null}
+   */
+  private static String[] getRequiredLabel(Predicate conjunct) {
+    if (!(conjunct instanceof Comparison)) {
+      return null;
+    }
+    Comparison comparison = (Comparison) conjunct;
+    if (comparison.getComparator() != Comparator.EQ) {
+      return null;
+    }
+    ComparableExpression[] expressions = comparison.getComparableExpressions();
+    for (int i = 0; i < 2; i++) {
+      ComparableExpression selector = expressions[i];
+      ComparableExpression literal = expressions[1 - i];
+      if (selector instanceof PropertySelector &&
+        ((PropertySelector) selector).getPropertyName().equals(PropertySelector.LABEL_PROPERTY) &&
+        literal instanceof Literal && ((Literal) literal).getValue() instanceof String) {
+        return new String[] {selector.getVariable(), (String) ((Literal) literal).getValue()};
+      }
+    }
+    return null;
+  }
+}
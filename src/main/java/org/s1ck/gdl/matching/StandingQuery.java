@@ -0,0 +1,287 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl.matching;
+
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.model.Edge;
+import org.s1ck.gdl.model.Element;
+import org.s1ck.gdl.model.Vertex;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * A MATCH query registered against a data handler that reports the matches introduced by every
+ * {@link GDLHandler#append(String)}.
+ *
+ * <p>New matches are found by delta matching: every new match binds at least one new element.
+ * For each query edge {@code i}, the search starts at the new data edges fitting edge {@code i},
+ * binds the endpoints and extends the match along the pattern from there, while query edges
+ * {@code j < i} may only bind edges that existed before. This partitions the new matches by the
+ * first query edge bound to a new edge, so each one is reported exactly once. Query vertices
+ * without incident edges are handled the same way, starting from the new vertices.
+ *
+ * <p>The query keeps one index of the data graph and extends it by the appended elements, which
+ * are numbered after the existing ones, so old and new elements are told apart by position.
+ *
+ * <p>Matches consisting of old elements only are never reported, including the ones that existed
+ * when the query was registered. SKIP, LIMIT and RETURN clauses are ignored.
+ */
+public class StandingQuery implements GDLHandler.AppendListener {
+
+  private final GDLHandler data;
+
+  private final QueryGraph query;
+
+  private final MatchStrategy matchStrategy;
+
+  private final PatternSymmetry symmetry;
+
+  private final Consumer<Map<String, Element>> consumer;
+
+  /**
+   * Query vertices without incident query edges
+   */
+  private final int[] isolatedVertices;
+
+  /**
+   * Index of the data graph, extended by every append
+   */
+  private final GraphIndex graph;
+
+  /**
+   * Bound element marks reused by all searches under isomorphism semantics
+   */
+  private boolean[] usedVertices = new boolean[0];
+  private boolean[] usedEdges = new boolean[0];
+
+  private long matchCount;
+
+  private StandingQuery(GDLHandler data, QueryGraph query, MatchStrategy matchStrategy,
+    boolean symmetryBreaking, Consumer<Map<String, Element>> consumer) {
+    query.checkFixedLength();
+    this.data = data;
+    this.query = query;
+    this.matchStrategy = matchStrategy;
+    this.symmetry = symmetryBreaking && matchStrategy == MatchStrategy.ISOMORPHISM ?
+      PatternSymmetry.of(query) : null;
+    this.consumer = consumer;
+    this.graph = GraphIndex.fromHandler(data);
+
+    BitSet connected = new BitSet();
+    for (int e = 0; e < query.getEdgeCount(); e++) {
+      connected.set(query.getSourceIndex(e));
+      connected.set(query.getTargetIndex(e));
+    }
+    BitSet isolated = new BitSet();
+    isolated.set(0, query.getVertexCount());
+    isolated.andNot(connected);
+    this.isolatedVertices = isolated.stream().toArray();
+  }
+
+  /**
+   * Registers a standing query with isomorphism semantics. Every subgraph is reported once.
+   *
+   * @param data data handler receiving appends
+   * @param query query handler
+   * @param consumer receives each new match, mapping query variables to data elements
+   * @return standing query
+   * @throws IllegalArgumentException if the query has a variable length edge
+   */
+  public static StandingQuery register(GDLHandler data, GDLHandler query,
+    Consumer<Map<String, Element>> consumer) {
+    return register(data, QueryGraph.fromHandler(query), MatchStrategy.ISOMORPHISM, true, consumer);
+  }
+
+  /**
+   * Registers a standing query.
+   *
+   * @param data data handler receiving appends
+   * @param query query graph
+   * @param matchStrategy mapping semantics
+   * @param symmetryBreaking true to report every subgraph once under isomorphism semantics
+   * @param consumer receives each new match, mapping query variables to data elements
+   * @return standing query
+   * @throws IllegalArgumentException if the query has a variable length edge
+   */
+  public static StandingQuery register(GDLHandler data, QueryGraph query, MatchStrategy matchStrategy,
+    boolean symmetryBreaking, Consumer<Map<String, Element>> consumer) {
+    StandingQuery standingQuery = new StandingQuery(data, query, matchStrategy, symmetryBreaking, consumer);
+    data.addAppendListener(standingQuery);
+    return standingQuery;
+  }
+
+  /**
+   * Stops reporting matches.
+   */
+  public void unregister() {
+    data.removeAppendListener(this);
+  }
+
+  public QueryGraph getQuery() {
+    return query;
+  }
+
+  /**
+   * Returns the number of matches reported so far.
+   *
+   * @return match count
+   */
+  public long getMatchCount() {
+    return matchCount;
+  }
+
+  @Override
+  public void appended(GDLHandler handler, List<Vertex> vertices, List<Edge> edges) {
+    int firstVertex = graph.getVertexCount();
+    int firstEdge = graph.getEdgeCount();
+    graph.append(vertices, edges);
+    int vertexCount = graph.getVertexCount();
+    int edgeCount = graph.getEdgeCount();
+
+    for (int e = 0; e < query.getEdgeCount(); e++) {
+      int source = query.getSourceIndex(e);
+      TreeSet<Integer> roots = new TreeSet<>();
+      for (int edge = firstEdge; edge < edgeCount; edge++) {
+        int root = graph.getSourceIndex(edge);
+        if (graph.hasEdgeLabel(edge, query.getEdgeLabel(e)) && graph.hasLabel(root, query.getVertexLabel(source))) {
+          roots.add(root);
+        }
+      }
+      if (roots.isEmpty()) {
+        continue;
+      }
+      List<Integer> order = new ArrayList<>();
+      order.add(source);
+      if (query.getTargetIndex(e) != source) {
+        order.add(query.getTargetIndex(e));
+      }
+      MatchProgram program = MatchProgram.compile(query, extendOrder(order), symmetry);
+      for (int i = 0; i < program.size(); i++) {
+        MatchProgram.Operation operation = program.get(i);
+        if (!operation.vertex && operation.element < e) {
+          operation.allowedTo = firstEdge;
+        } else if (!operation.vertex && operation.element == e) {
+          operation.allowedFrom = firstEdge;
+        }
+      }
+      program.get(0).scan = roots.stream().mapToInt(Integer::intValue).toArray();
+      search(program);
+    }
+
+    for (int k = 0; k < isolatedVertices.length; k++) {
+      int vertex = isolatedVertices[k];
+      int[] roots = IntStream.range(firstVertex, vertexCount)
+        .filter(v -> graph.hasLabel(v, query.getVertexLabel(vertex))).toArray();
+      if (roots.length == 0) {
+        continue;
+      }
+      List<Integer> order = new ArrayList<>();
+      order.add(vertex);
+      MatchProgram program = MatchProgram.compile(query, extendOrder(order), symmetry);
+      for (int i = 0; i < program.size(); i++) {
+        MatchProgram.Operation operation = program.get(i);
+        if (!operation.vertex) {
+          operation.allowedTo = firstEdge;
+        } else if (isBefore(operation.element, k)) {
+          operation.allowedTo = firstVertex;
+        }
+      }
+      program.get(0).scan = roots;
+      search(program);
+    }
+  }
+
+  private void search(MatchProgram program) {
+    boolean injective = matchStrategy == MatchStrategy.ISOMORPHISM;
+    if (injective && usedVertices.length < graph.getVertexCount()) {
+      usedVertices = new boolean[Math.max(graph.getVertexCount(), 2 * usedVertices.length)];
+    }
+    if (injective && usedEdges.length < graph.getEdgeCount()) {
+      usedEdges = new boolean[Math.max(graph.getEdgeCount(), 2 * usedEdges.length)];
+    }
+    MatchEnumerator enumerator = new MatchEnumerator(program, graph, matchStrategy, null,
+      injective ? usedVertices : null, injective ? usedEdges : null);
+    try {
+      enumerator.run((vertexBindings, edgeBindings) -> {
+        Map<String, Element> match = new HashMap<>();
+        for (int v = 0; v < vertexBindings.length; v++) {
+          match.put(query.getVertexVariable(v), graph.getVertex(vertexBindings[v]));
+        }
+        for (int e = 0; e < edgeBindings.length; e++) {
+          match.put(query.getEdgeVariable(e), graph.getEdge(edgeBindings[e]));
+        }
+        matchCount++;
+        consumer.accept(match);
+        return true;
+      });
+    } catch (RuntimeException | Error e) {
+      // the aborted search left elements marked as bound
+      usedVertices = new boolean[0];
+      usedEdges = new boolean[0];
+      throw e;
+    }
+  }
+
+  /**
+   * Checks if a query vertex is one of the first {@code k} isolated vertices.
+   */
+  private boolean isBefore(int vertex, int k) {
+    for (int i = 0; i < k; i++) {
+      if (isolatedVertices[i] == vertex) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Appends the remaining query vertices, always choosing the one connected to most bound
+   * vertices, so that the search expands from the seed instead of scanning.
+   */
+  private List<Integer> extendOrder(List<Integer> order) {
+    BitSet bound = new BitSet();
+    order.forEach(bound::set);
+    while (bound.cardinality() < query.getVertexCount()) {
+      int best = -1;
+      int bestLinks = -1;
+      for (int v = bound.nextClearBit(0); v < query.getVertexCount(); v = bound.nextClearBit(v + 1)) {
+        int links = 0;
+        for (int e = 0; e < query.getEdgeCount(); e++) {
+          if ((query.getSourceIndex(e) == v && bound.get(query.getTargetIndex(e))) ||
+            (query.getTargetIndex(e) == v && bound.get(query.getSourceIndex(e)))) {
+            links++;
+          }
+        }
+        if (links > bestLinks) {
+          best = v;
+          bestLinks = links;
+        }
+      }
+      order.add(best);
+      bound.set(best);
+    }
+    return order;
+  }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.matching.planning;
+
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.model.Edge;
+import org.s1ck.gdl.model.Element;
+import org.s1ck.gdl.model.Vertex;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Label, degree and property statistics of a data graph, used to estimate the cardinality of
+ * query plans.
+ */
+public class GraphStatistics {
+
+  /**
+   * Total number of vertices
+   */
+  private final long vertexCount;
+
+  /**
+   * Total number of edges
+   */
+  private final long edgeCount;
+
+  /**
+   * Number of distinct vertices which are the source of at least one edge
+   */
+  private final long distinctSourceVertexCount;
+
+  /**
+   * Number of distinct vertices which are the target of at least one edge
+   */
+  private final long distinctTargetVertexCount;
+
+  /**
+   * Number of vertices per label, a vertex is counted once for each of its labels
+   */
+  private final Map<String, Long> vertexCountByLabel;
+
+  /**
+   * Number of edges per label
+   */
+  private final Map<String, Long> edgeCountByLabel;
+
+  /**
+   * Number of distinct source vertices per edge label
+   */
+  private final Map<String, Long> distinctSourceVertexCountByEdgeLabel;
+
+  /**
+   * Number of distinct target vertices per edge label
+   */
+  private final Map<String, Long> distinctTargetVertexCountByEdgeLabel;
+
+  /**
+   * Number of distinct property values per vertex label and property key
+   */
+  private final Map<String, Map<String, Long>> distinctVertexPropertyValuesByLabelAndKey;
+
+  /**
+   * Number of distinct property values per edge label and property key
+   */
+  private final Map<String, Map<String, Long>> distinctEdgePropertyValuesByLabelAndKey;
+
+  /**
+   * Computes the statistics of the given vertices and edges.
+   *
+   * @param vertices data vertices
+   * @param edges data edges
+   */
+  public GraphStatistics(Collection<Vertex> vertices, Collection<Edge> edges) {
+    this.vertexCount = vertices.size();
+    this.edgeCount = edges.size();
+    this.vertexCountByLabel = new HashMap<>();
+    this.edgeCountByLabel = new HashMap<>();
+    this.distinctSourceVertexCountByEdgeLabel = new HashMap<>();
+    this.distinctTargetVertexCountByEdgeLabel = new HashMap<>();
+
+    Map<String, Map<String, Set<Object>>> vertexValues = new HashMap<>();
+    for (Vertex vertex : vertices) {
+      for (String label : getLabels(vertex)) {
+        vertexCountByLabel.merge(label, 1L, Long::sum);
+        collectPropertyValues(vertexValues, label, vertex);
+      }
+    }
+
+    Map<String, Map<String, Set<Object>>> edgeValues = new HashMap<>();
+    Map<String, Set<Long>> sourcesByLabel = new HashMap<>();
+    Map<String, Set<Long>> targetsByLabel = new HashMap<>();
+    Set<Long> sources = new HashSet<>();
+    Set<Long> targets = new HashSet<>();
+    for (Edge edge : edges) {
+      sources.add(edge.getSourceVertexId());
+      targets.add(edge.getTargetVertexId());
+      for (String label : getLabels(edge)) {
+        edgeCountByLabel.merge(label, 1L, Long::sum);
+        sourcesByLabel.computeIfAbsent(label, k -> new HashSet<>()).add(edge.getSourceVertexId());
+        targetsByLabel.computeIfAbsent(label, k -> new HashSet<>()).add(edge.getTargetVertexId());
+        collectPropertyValues(edgeValues, label, edge);
+      }
+    }
+    this.distinctSourceVertexCount = sources.size();
+    this.distinctTargetVertexCount = targets.size();
+    sourcesByLabel.forEach((label, ids) -> distinctSourceVertexCountByEdgeLabel.put(label, (long) ids.size()));
+    targetsByLabel.forEach((label, ids) -> distinctTargetVertexCountByEdgeLabel.put(label, (long) ids.size()));
+
+    this.distinctVertexPropertyValuesByLabelAndKey = countValues(vertexValues);
+    this.distinctEdgePropertyValuesByLabelAndKey = countValues(edgeValues);
+  }
+
+  /**
+   * Computes the statistics of all vertices and edges loaded by the given handler.
+   *
+   * @param handler data handler
+   * @return graph statistics
+   */
+  public static GraphStatistics fromHandler(GDLHandler handler) {
+    return new GraphStatistics(handler.getVertices(), handler.getEdges());
+  }
+
+  /**
+   * Returns the total number of vertices.
+   *
+   * @return vertex count
+   */
+  public long getVertexCount() {
+    return vertexCount;
+  }
+
+  /**
+   * Returns the total number of edges.
+   *
+   * @return edge count
+   */
+  public long getEdgeCount() {
+    return edgeCount;
+  }
+
+  /**
+   * Returns the number of vertices with the given label.
+   *
+   * @param label vertex label or {@code null} for all vertices
+   * @return vertex count
+   */
+  public long getVertexCount(String label) {
+    return label == null ? vertexCount : vertexCountByLabel.getOrDefault(label, 0L);
+  }
+
+  /**
+   * Returns the number of edges with the given label.
+   *
+   * @param label edge label or {@code null} for all edges
+   * @return edge count
+   */
+  public long getEdgeCount(String label) {
+    return label == null ? edgeCount : edgeCountByLabel.getOrDefault(label, 0L);
+  }
+
+  /**
+   * Returns the number of distinct source vertices of edges with the given label.
+   *
+   * @param edgeLabel edge label or {@code null} for all edges
+   * @return distinct source vertex count
+   */
+  public long getDistinctSourceVertexCount(String edgeLabel) {
+    return edgeLabel == null ?
+      distinctSourceVertexCount : distinctSourceVertexCountByEdgeLabel.getOrDefault(edgeLabel, 0L);
+  }
+
+  /**
+   * Returns the number of distinct target vertices of edges with the given label.
+   *
+   * @param edgeLabel edge label or {@code null} for all edges
+   * @return distinct target vertex count
+   */
+  public long getDistinctTargetVertexCount(String edgeLabel) {
+    return edgeLabel == null ?
+      distinctTargetVertexCount : distinctTargetVertexCountByEdgeLabel.getOrDefault(edgeLabel, 0L);
+  }
+
+  /**
+   * Returns the average number of outgoing edges with the given label over all vertices that
+   * have at least one such edge.
+   *
+   * @param edgeLabel edge label or {@code null} for all edges
+   * @return average out degree
+   */
+  public double getAverageOutDegree(String edgeLabel) {
+    return (double) getEdgeCount(edgeLabel) / Math.max(1L, getDistinctSourceVertexCount(edgeLabel));
+  }
+
+  /**
+   * Returns the average number of incoming edges with the given label over all vertices that
+   * have at least one such edge.
+   *
+   * @param edgeLabel edge label or {@code null} for all edges
+   * @return average in degree
+   */
+  public double getAverageInDegree(String edgeLabel) {
+    return (double) getEdgeCount(edgeLabel) / Math.max(1L, getDistinctTargetVertexCount(edgeLabel));
+  }
+
+  /**
+   * Returns the number of distinct values of a vertex property.
+   *
+   * @param label vertex label
+   * @param key property key
+   * @return distinct value count or {@code 0} if the property is unknown
+   */
+  public long getDistinctVertexPropertyValues(String label, String key) {
+    return distinctVertexPropertyValuesByLabelAndKey
+      .getOrDefault(label, Collections.emptyMap()).getOrDefault(key, 0L);
+  }
+
+  /**
+   * Returns the number of distinct values of an edge property.
+   *
+   * @param label edge label
+   * @param key property key
+   * @return distinct value count or {@code 0} if the property is unknown
+   */
+  public long getDistinctEdgePropertyValues(String label, String key) {
+    return distinctEdgePropertyValuesByLabelAndKey
+      .getOrDefault(label, Collections.emptyMap()).getOrDefault(key, 0L);
+  }
+
+  @Override
+  public String toString() {
+    return "GraphStatistics{" +
+      "vertexCount=" + vertexCount +
+      ", edgeCount=" + edgeCount +
+      ", vertexCountByLabel=" + vertexCountByLabel +
+      ", edgeCountByLabel=" + edgeCountByLabel +
+      '}';
+  }
+
+  private static List<String> getLabels(Element element) {
+    return element.getLabels() != null ? element.getLabels() : Collections.emptyList();
+  }
+
+  private static void collectPropertyValues(Map<String, Map<String, Set<Object>>> values,
+    String label, Element element) {
+    if (element.getProperties() == null) {
+      return;
+    }
+    Map<String, Set<Object>> valuesByKey = values.computeIfAbsent(label, k -> new HashMap<>());
+    for (Map.Entry<String, Object> property : element.getProperties().entrySet()) {
+      valuesByKey.computeIfAbsent(property.getKey(), k -> new HashSet<>()).add(property.getValue());
+    }
+  }
+
+  private static Map<String, Map<String, Long>> countValues(Map<String, Map<String, Set<Object>>> values) {
+    Map<String, Map<String, Long>> counts = new HashMap<>();
+    values.forEach((label, valuesByKey) -> {
+      Map<String, Long> countsByKey = new HashMap<>();
+      valuesByKey.forEach((key, distinct) -> countsByKey.put(key, (long) distinct.size()));
+      counts.put(label, countsByKey);
+    });
+    return counts;
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl.matching.planning;
+
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.matching.QueryGraph;
+import org.s1ck.gdl.model.predicates.Predicate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches the plans of a {@link QueryPlanner} by {@link QueryFingerprint}.
+ *
+ * <p>A query whose fingerprint has been planned before is not planned again. Instead, the cached
+ * plan is translated to the variables and predicates of the query. This is exact, since estimates
+ * depend on labels and property keys but not on the compared values. The cache holds at most
+ * {@link #getCapacity()} plans and evicts the least recently used one.
+ */
+public class PlanCache {
+
+  /**
+   * A cached plan and the query it was built for
+   */
+  private static final class CachedPlan {
+    final QueryGraph query;
+    final QueryPlan plan;
+
+    CachedPlan(QueryGraph query, QueryPlan plan) {
+      this.query = query;
+      this.plan = plan;
+    }
+  }
+
+  private final QueryPlanner planner;
+
+  private final int capacity;
+
+  private final Map<QueryFingerprint, CachedPlan> cache;
+
+  private long hits;
+
+  private long misses;
+
+  /**
+   * Creates a plan cache.
+   *
+   * @param planner planner used on cache misses
+   * @param capacity maximum number of cached plans
+   */
+  public PlanCache(QueryPlanner planner, int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    this.planner = planner;
+    this.capacity = capacity;
+    this.cache = new LinkedHashMap<QueryFingerprint, CachedPlan>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<QueryFingerprint, CachedPlan> eldest) {
+        return size() > PlanCache.this.capacity;
+      }
+    };
+  }
+
+  public QueryPlanner getPlanner() {
+    return planner;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Returns the number of cached plans.
+   *
+   * @return cache size
+   */
+  public synchronized int getSize() {
+    return cache.size();
+  }
+
+  /**
+   * Returns the number of plans served from the cache.
+   *
+   * @return cache hits
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of plans built by the planner.
+   *
+   * @return cache misses
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Plans the MATCH pattern loaded by the given handler.
+   *
+   * @param query query handler
+   * @return query plan
+   */
+  public QueryPlan plan(GDLHandler query) {
+    return plan(QueryGraph.fromHandler(query));
+  }
+
+  /**
+   * Returns the plan of a query, reusing the plan of an earlier query with the same fingerprint.
+   *
+   * @param query query graph
+   * @return query plan
+   */
+  public QueryPlan plan(QueryGraph query) {
+    QueryFingerprint fingerprint = QueryFingerprint.of(query);
+    CachedPlan cached;
+    synchronized (this) {
+      cached = cache.get(fingerprint);
+      if (cached != null) {
+        hits++;
+      } else {
+        misses++;
+      }
+    }
+    if (cached == null) {
+      QueryPlan plan = planner.plan(query);
+      synchronized (this) {
+        cache.put(fingerprint, new CachedPlan(query, plan));
+      }
+      return plan;
+    }
+    return cached.query == query ? cached.plan : translate(cached, query);
+  }
+
+  /**
+   * Renames the variables and replaces the filters of a cached plan by the corresponding ones of
+   * the given query, which has the same fingerprint.
+   */
+  private static QueryPlan translate(CachedPlan cached, QueryGraph query) {
+    List<PlanStep> steps = new ArrayList<>();
+    List<Predicate> conjuncts = cached.query.getConjuncts();
+    for (PlanStep step : cached.plan.getSteps()) {
+      List<Predicate> filters = new ArrayList<>();
+      for (Predicate filter : step.getFilters()) {
+        filters.add(query.getConjuncts().get(indexOf(conjuncts, filter)));
+      }
+      steps.add(new PlanStep(step.getKind(),
+        vertexVariable(cached.query, query, step.getFromVariable()),
+        step.getEdgeVariable() != null ?
+          query.getEdgeVariable(cached.query.getEdgeIndex(step.getEdgeVariable())) : null,
+        vertexVariable(cached.query, query, step.getToVariable()),
+        step.getDirection(), filters, step.getEstimatedCardinality()));
+    }
+    return new QueryPlan(steps, cached.plan.getStrategy());
+  }
+
+  /**
+   * Finds a conjunct by identity, since equal conjuncts may bind different parameters.
+   */
+  private static int indexOf(List<Predicate> conjuncts, Predicate conjunct) {
+    for (int i = 0; i < conjuncts.size(); i++) {
+      if (conjuncts.get(i) == conjunct) {
+        return i;
+      }
+    }
+    return conjuncts.indexOf(conjunct);
+  }
+
+  private static String vertexVariable(QueryGraph cached, QueryGraph query, String variable) {
+    return variable != null ? query.getVertexVariable(cached.getVertexIndex(variable)) : null;
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.matching.planning;
+
+import org.s1ck.gdl.model.predicates.Predicate;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A single step of a {@link QueryPlan}.
+ */
+public class PlanStep {
+
+  /**
+   * Operation performed by a plan step
+   */
+  public enum Kind {
+    /**
+     * Binds a query vertex to every candidate data vertex
+     */
+    SCAN,
+    /**
+     * Binds a query edge and its unbound endpoint by traversing the edges of a bound vertex
+     */
+    EXPAND,
+    /**
+     * Binds a query edge between two bound vertices
+     */
+    CLOSE
+  }
+
+  /**
+   * Direction in which a query edge is traversed
+   */
+  public enum Direction {
+    /**
+     * From the source to the target of the edge
+     */
+    OUTGOING,
+    /**
+     * From the target to the source of the edge
+     */
+    INCOMING
+  }
+
+  private final Kind kind;
+
+  /**
+   * Bound vertex the step starts from, {@code null} for scans
+   */
+  private final String fromVariable;
+
+  /**
+   * Vertex reached by the step
+   */
+  private final String toVariable;
+
+  /**
+   * Traversed edge, {@code null} for scans
+   */
+  private final String edgeVariable;
+
+  private final Direction direction;
+
+  /**
+   * Predicates that can be evaluated once the step has been executed
+   */
+  private final List<Predicate> filters;
+
+  /**
+   * Estimated number of partial matches after the step
+   */
+  private final double estimatedCardinality;
+
+  /**
+   * Creates a new plan step.
+   *
+   * @param kind step operation
+   * @param fromVariable bound start vertex or {@code null} for scans
+   * @param edgeVariable traversed edge or {@code null} for scans
+   * @param toVariable reached vertex
+   * @param direction traversal direction or {@code null} for scans
+   * @param filters predicates evaluated after the step
+   * @param estimatedCardinality estimated number of partial matches after the step
+   */
+  PlanStep(Kind kind, String fromVariable, String edgeVariable, String toVariable,
+    Direction direction, List<Predicate> filters, double estimatedCardinality) {
+    this.kind = kind;
+    this.fromVariable = fromVariable;
+    this.edgeVariable = edgeVariable;
+    this.toVariable = toVariable;
+    this.direction = direction;
+    this.filters = Collections.unmodifiableList(filters);
+    this.estimatedCardinality = estimatedCardinality;
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  public String getFromVariable() {
+    return fromVariable;
+  }
+
+  public String getEdgeVariable() {
+    return edgeVariable;
+  }
+
+  public String getToVariable() {
+    return toVariable;
+  }
+
+  public Direction getDirection() {
+    return direction;
+  }
+
+  public List<Predicate> getFilters() {
+    return filters;
+  }
+
+  public double getEstimatedCardinality() {
+    return estimatedCardinality;
+  }
+
+  @Override
+  public String toString() {
+    String out;
+    if (kind == Kind.SCAN) {
+      out = String.format("SCAN (%s)", toVariable);
+    } else if (direction == Direction.OUTGOING) {
+      out = String.format("%s (%s)-[%s]->(%s)", kind, fromVariable, edgeVariable, toVariable);
+    } else {
+      out = String.format("%s (%s)<-[%s]-(%s)", kind, fromVariable, edgeVariable, toVariable);
+    }
+    if (!filters.isEmpty()) {
+      out += filters.stream().map(Object::toString).collect(Collectors.joining(", ", " WHERE ", ""));
+    }
+    return out + String.format(" ~%.1f", estimatedCardinality);
+  }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl.matching.planning;
+
+import org.s1ck.gdl.matching.QueryGraph;
+import org.s1ck.gdl.model.Edge;
+import org.s1ck.gdl.model.comparables.ComparableExpression;
+import org.s1ck.gdl.model.comparables.ElementSelector;
+import org.s1ck.gdl.model.comparables.Literal;
+import org.s1ck.gdl.model.comparables.PropertySelector;
+import org.s1ck.gdl.model.comparables.SimilarityFunction;
+import org.s1ck.gdl.model.predicates.Predicate;
+import org.s1ck.gdl.model.predicates.booleans.And;
+import org.s1ck.gdl.model.predicates.booleans.Not;
+import org.s1ck.gdl.model.predicates.booleans.Or;
+import org.s1ck.gdl.model.predicates.booleans.Xor;
+import org.s1ck.gdl.model.predicates.expressions.Comparison;
+import org.s1ck.gdl.model.projections.ReturnItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Canonical form of a query that abstracts from variable names and literal values.
+ *
+ * <p>Query vertices and edges are renamed to {@code v0, v1, ...} and {@code e0, e1, ...} in the
+ * order of their {@link QueryGraph} positions, i.e. the order in which they were declared. Literals
+ * in predicates become the parameters {@code $0, $1, ...}, except for label literals which
+ * determine the statistics used by the planner. SKIP and LIMIT values are not part of the
+ * fingerprint either. Queries with equal fingerprints therefore only differ in their variable
+ * names and parameter values and share the same plan.
+ *
+ * <pre>
+ * MATCH (a:Person)-[:knows]->(b) WHERE a.age > 30
+ * v0:Person, v1, e0:knows(v0-&gt;v1) WHERE v0.age &gt; $0
+ * </pre>
+ */
+public final class QueryFingerprint {
+
+  private final String key;
+
+  private final List<Object> parameters;
+
+  private QueryFingerprint(String key, List<Object> parameters) {
+    this.key = key;
+    this.parameters = Collections.unmodifiableList(parameters);
+  }
+
+  /**
+   * Computes the fingerprint of a query graph.
+   *
+   * @param query query graph
+   * @return fingerprint
+   */
+  public static QueryFingerprint of(QueryGraph query) {
+    StringBuilder key = new StringBuilder();
+    List<Object> parameters = new ArrayList<>();
+    for (int v = 0; v < query.getVertexCount(); v++) {
+      key.append(v > 0 ? ", " : "").append('v').append(v);
+      appendLabel(key, query.getVertexLabel(v));
+    }
+    for (int e = 0; e < query.getEdgeCount(); e++) {
+      Edge edge = query.getEdge(e);
+      key.append(key.length() > 0 ? ", " : "").append('e').append(e);
+      appendLabel(key, query.getEdgeLabel(e));
+      key.append("(v").append(query.getSourceIndex(e)).append("->v").append(query.getTargetIndex(e)).append(')');
+      if (edge.hasVariableLength()) {
+        key.append('*').append(edge.getLowerBound()).append("..").append(edge.getUpperBound());
+      }
+    }
+    String separator = " WHERE ";
+    for (Predicate conjunct : query.getConjuncts()) {
+      key.append(separator);
+      appendPredicate(key, conjunct, query, parameters);
+      separator = " AND ";
+    }
+    separator = " RETURN ";
+    for (ReturnItem item : query.getReturnItems()) {
+      key.append(separator);
+      if (item.getFunction() != null) {
+        key.append(item.getFunction()).append('(');
+      }
+      if (item.getExpression() != null) {
+        appendExpression(key, item.getExpression(), query, parameters);
+      } else {
+        key.append('*');
+      }
+      if (item.getFunction() != null) {
+        key.append(')');
+      }
+      separator = ", ";
+    }
+    return new QueryFingerprint(key.toString(), parameters);
+  }
+
+  /**
+   * Returns the canonical query text.
+   *
+   * @return fingerprint key
+   */
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * Returns the literal values replaced by parameters, in order of their parameter number.
+   *
+   * @return parameter values
+   */
+  public List<Object> getParameters() {
+    return parameters;
+  }
+
+  private static void appendLabel(StringBuilder key, String label) {
+    if (label != null) {
+      key.append(':').append(label);
+    }
+  }
+
+  private static void appendPredicate(StringBuilder key, Predicate predicate, QueryGraph query,
+    List<Object> parameters) {
+    String operator = null;
+    if (predicate instanceof And) {
+      operator = " AND ";
+    } else if (predicate instanceof Or) {
+      operator = " OR ";
+    } else if (predicate instanceof Xor) {
+      operator = " XOR ";
+    }
+    if (operator != null) {
+      key.append('(');
+      appendPredicate(key, predicate.getArguments()[0], query, parameters);
+      key.append(operator);
+      appendPredicate(key, predicate.getArguments()[1], query, parameters);
+      key.append(')');
+    } else if (predicate instanceof Not) {
+      key.append("(NOT ");
+      appendPredicate(key, predicate.getArguments()[0], query, parameters);
+      key.append(')');
+    } else if (predicate instanceof Comparison) {
+      ComparableExpression[] expressions = ((Comparison) predicate).getComparableExpressions();
+      boolean labels = isLabelSelector(expressions[0]) || isLabelSelector(expressions[1]);
+      for (int i = 0; i < 2; i++) {
+        if (i > 0) {
+          key.append(' ').append(((Comparison) predicate).getComparator()).append(' ');
+        }
+        if (labels && expressions[i] instanceof Literal) {
+          key.append('"').append(((Literal) expressions[i]).getValue()).append('"');
+        } else {
+          appendExpression(key, expressions[i], query, parameters);
+        }
+      }
+    } else {
+      key.append(predicate);
+    }
+  }
+
+  private static void appendExpression(StringBuilder key, ComparableExpression expression,
+    QueryGraph query, List<Object> parameters) {
+    if (expression instanceof Literal) {
+      key.append('$').append(parameters.size());
+      parameters.add(((Literal) expression).getValue());
+    } else if (expression instanceof PropertySelector) {
+      appendVariable(key, expression.getVariable(), query);
+      key.append('.').append(((PropertySelector) expression).getPropertyName());
+    } else if (expression instanceof ElementSelector) {
+      appendVariable(key, expression.getVariable(), query);
+    } else if (expression instanceof SimilarityFunction) {
+      SimilarityFunction function = (SimilarityFunction) expression;
+      key.append(function.getType()).append('(');
+      appendExpression(key, function.getArguments()[0], query, parameters);
+      key.append(", ");
+      appendExpression(key, function.getArguments()[1], query, parameters);
+      key.append(')');
+    } else {
+      key.append(expression);
+    }
+  }
+
+  private static void appendVariable(StringBuilder key, String variable, QueryGraph query) {
+    int vertex = query.getVertexIndex(variable);
+    if (vertex >= 0) {
+      key.append('v').append(vertex);
+    } else {
+      key.append('e').append(query.getEdgeIndex(variable));
+    }
+  }
+
+  private static boolean isLabelSelector(ComparableExpression expression) {
+    return expression instanceof PropertySelector &&
+      ((PropertySelector) expression).getPropertyName().equals(PropertySelector.LABEL_PROPERTY);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+
+    return key.equals(((QueryFingerprint) o).key);
+  }
+
+  @Override
+  public int hashCode() {
+    return key.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return key;
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.matching.planning;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Expansion order chosen by the {@link QueryPlanner} for a MATCH pattern.
+ *
+ * <p>The steps are executed in order. Every query vertex is bound by exactly one {@code SCAN} or
+ * {@code EXPAND} step and every query edge by exactly one {@code EXPAND} or {@code CLOSE} step.
+ */
+public class QueryPlan {
+
+  /**
+   * Algorithm which produced the plan
+   */
+  public enum Strategy {
+    /**
+     * Exhaustive search over all vertex subsets
+     */
+    DYNAMIC_PROGRAMMING,
+    /**
+     * Repeatedly picks the cheapest next vertex
+     */
+    GREEDY
+  }
+
+  private final List<PlanStep> steps;
+
+  private final Strategy strategy;
+
+  /**
+   * Sum of the estimated cardinalities after each query vertex has been bound
+   */
+  private final double estimatedCost;
+
+  /**
+   * Creates a new query plan.
+   *
+   * @param steps plan steps in execution order
+   * @param strategy algorithm which produced the plan
+   */
+  QueryPlan(List<PlanStep> steps, Strategy strategy) {
+    this.steps = Collections.unmodifiableList(steps);
+    this.strategy = strategy;
+    double cost = 0;
+    for (int i = 0; i < steps.size(); i++) {
+      if (i + 1 == steps.size() || steps.get(i + 1).getKind() != PlanStep.Kind.CLOSE) {
+        cost += steps.get(i).getEstimatedCardinality();
+      }
+    }
+    this.estimatedCost = cost;
+  }
+
+  /**
+   * Returns the plan steps in execution order.
+   *
+   * @return unmodifiable list of steps
+   */
+  public List<PlanStep> getSteps() {
+    return steps;
+  }
+
+  public Strategy getStrategy() {
+    return strategy;
+  }
+
+  /**
+   * Returns the estimated cost of the plan, i.e. the sum of the estimated number of partial matches
+   * after each query vertex has been bound and all its edges to previously bound vertices have
+   * been closed.
+   *
+   * @return estimated cost
+   */
+  public double getEstimatedCost() {
+    return estimatedCost;
+  }
+
+  /**
+   * Returns the estimated number of matches.
+   *
+   * @return estimated cardinality
+   */
+  public double getEstimatedCardinality() {
+    return steps.isEmpty() ? 0 : steps.get(steps.size() - 1).getEstimatedCardinality();
+  }
+
+  /**
+   * Returns the query vertex variables in the order they are bound.
+   *
+   * @return vertex order
+   */
+  public List<String> getVertexOrder() {
+    return steps.stream()
+      .filter(step -> step.getKind() != PlanStep.Kind.CLOSE)
+      .map(PlanStep::getToVariable)
+      .collect(Collectors.toList());
+  }
+
+  @Override
+  public String toString() {
+    return steps.stream()
+      .map(PlanStep::toString)
+      .collect(Collectors.joining("\n", String.format("QueryPlan{strategy=%s, cost=%.1f}\n", strategy, estimatedCost), ""));
+  }
+}
@@ -0,0 +1,527 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.matching.planning;
+
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.matching.QueryGraph;
+import org.s1ck.gdl.model.comparables.ComparableExpression;
+import org.s1ck.gdl.model.comparables.Literal;
+import org.s1ck.gdl.model.comparables.PropertySelector;
+import org.s1ck.gdl.model.predicates.Predicate;
+import org.s1ck.gdl.model.predicates.booleans.And;
+import org.s1ck.gdl.model.predicates.booleans.Not;
+import org.s1ck.gdl.model.predicates.booleans.Or;
+import org.s1ck.gdl.model.predicates.booleans.Xor;
+import org.s1ck.gdl.model.predicates.expressions.Comparison;
+import org.s1ck.gdl.utils.Comparator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Chooses the order in which the vertices and edges of a MATCH pattern are bound.
+ *
+ * <p>The cardinality of a partial match is estimated from the {@link GraphStatistics} of the data
+ * graph under the usual independence assumptions, so it only depends on the set of bound query
+ * vertices. Patterns with at most {@link #getDynamicProgrammingThreshold()} vertices are planned by
+ * dynamic programming over all vertex subsets, larger patterns by a greedy heuristic that always
+ * binds the vertex that keeps the intermediate result smallest. Both avoid cartesian products
+ * unless the pattern is disconnected.
+ */
+public class QueryPlanner {
+
+  /**
+   * Maximum number of query vertices planned by dynamic programming by default
+   */
+  public static final int DEFAULT_DYNAMIC_PROGRAMMING_THRESHOLD = 10;
+
+  /**
+   * Selectivity of an equality comparison without value statistics
+   */
+  static final double EQUALITY_SELECTIVITY = 0.1;
+
+  /**
+   * Selectivity of a range comparison
+   */
+  static final double RANGE_SELECTIVITY = 1.0 / 3.0;
+
+  private final GraphStatistics statistics;
+
+  private final int dynamicProgrammingThreshold;
+
+  /**
+   * Creates a planner using the default dynamic programming threshold.
+   *
+   * @param statistics data graph statistics
+   */
+  public QueryPlanner(GraphStatistics statistics) {
+    this(statistics, DEFAULT_DYNAMIC_PROGRAMMING_THRESHOLD);
+  }
+
+  /**
+   * Creates a planner.
+   *
+   * @param statistics data graph statistics
+   * @param dynamicProgrammingThreshold maximum number of query vertices planned by dynamic
+   *                                    programming, must be between 0 and 20
+   */
+  public QueryPlanner(GraphStatistics statistics, int dynamicProgrammingThreshold) {
+    if (statistics == null) {
+      throw new IllegalArgumentException("Statistics must not be null");
+    }
+    if (dynamicProgrammingThreshold < 0 || dynamicProgrammingThreshold > 20) {
+      throw new IllegalArgumentException("Dynamic programming threshold must be between 0 and 20");
+    }
+    this.statistics = statistics;
+    this.dynamicProgrammingThreshold = dynamicProgrammingThreshold;
+  }
+
+  public GraphStatistics getStatistics() {
+    return statistics;
+  }
+
+  public int getDynamicProgrammingThreshold() {
+    return dynamicProgrammingThreshold;
+  }
+
+  /**
+   * Plans the MATCH pattern loaded by the given handler.
+   *
+   * @param query query handler
+   * @return query plan
+   */
+  public QueryPlan plan(GDLHandler query) {
+    return plan(QueryGraph.fromHandler(query));
+  }
+
+  /**
+   * Plans the given query graph.
+   *
+   * @param query query graph
+   * @return query plan
+   */
+  public QueryPlan plan(QueryGraph query) {
+    Estimator estimator = new Estimator(query);
+    if (query.getVertexCount() <= dynamicProgrammingThreshold) {
+      return buildPlan(query, estimator, orderByDynamicProgramming(query, estimator),
+        QueryPlan.Strategy.DYNAMIC_PROGRAMMING);
+    }
+    return buildPlan(query, estimator, orderGreedily(query, estimator), QueryPlan.Strategy.GREEDY);
+  }
+
+  // --------------------------------------------------------------------------------------------
+  //  Vertex ordering
+  // --------------------------------------------------------------------------------------------
+
+  /**
+   * Finds the vertex order with minimal total intermediate cardinality.
+   *
+   * @param query query graph
+   * @param estimator cardinality estimator
+   * @return vertex order
+   */
+  private int[] orderByDynamicProgramming(QueryGraph query, Estimator estimator) {
+    int n = query.getVertexCount();
+    int subsets = 1 << n;
+
+    long[] neighbors = new long[n];
+    for (int e = 0; e < query.getEdgeCount(); e++) {
+      int source = query.getSourceIndex(e);
+      int target = query.getTargetIndex(e);
+      if (source != target) {
+        neighbors[source] |= 1L << target;
+        neighbors[target] |= 1L << source;
+      }
+    }
+
+    long[] neighborhood = new long[subsets];
+    double[] cost = new double[subsets];
+    int[] last = new int[subsets];
+    Arrays.fill(cost, Double.POSITIVE_INFINITY);
+
+    for (int mask = 1; mask < subsets; mask++) {
+      int lowest = Integer.numberOfTrailingZeros(mask);
+      neighborhood[mask] = neighborhood[mask & (mask - 1)] | neighbors[lowest];
+      double cardinality = estimator.cardinality(BitSet.valueOf(new long[] {mask}));
+
+      if (Integer.bitCount(mask) == 1) {
+        cost[mask] = cardinality;
+        last[mask] = lowest;
+        continue;
+      }
+      for (int v = 0; v < n; v++) {
+        if ((mask & (1 << v)) == 0) {
+          continue;
+        }
+        int rest = mask & ~(1 << v);
+        boolean connected = (neighbors[v] & rest) != 0;
+        boolean restClosed = (neighborhood[rest] & ~rest) == 0;
+        if (!connected && !restClosed) {
+          continue;
+        }
+        double candidate = cost[rest] + cardinality;
+        if (candidate < cost[mask]) {
+          cost[mask] = candidate;
+          last[mask] = v;
+        }
+      }
+    }
+
+    int[] order = new int[n];
+    int mask = subsets - 1;
+    for (int i = n - 1; i >= 0; i--) {
+      order[i] = last[mask];
+      mask &= ~(1 << order[i]);
+    }
+    return order;
+  }
+
+  /**
+   * Builds a vertex order by repeatedly binding the adjacent vertex which leads to the smallest
+   * estimated intermediate result.
+   *
+   * @param query query graph
+   * @param estimator cardinality estimator
+   * @return vertex order
+   */
+  private int[] orderGreedily(QueryGraph query, Estimator estimator) {
+    int n = query.getVertexCount();
+    int[] order = new int[n];
+    BitSet bound = new BitSet(n);
+
+    for (int i = 0; i < n; i++) {
+      BitSet candidates = new BitSet(n);
+      for (int e = 0; e < query.getEdgeCount(); e++) {
+        int source = query.getSourceIndex(e);
+        int target = query.getTargetIndex(e);
+        if (bound.get(source) && !bound.get(target)) {
+          candidates.set(target);
+        } else if (bound.get(target) && !bound.get(source)) {
+          candidates.set(source);
+        }
+      }
+      if (candidates.isEmpty()) {
+        candidates.set(0, n);
+        candidates.andNot(bound);
+      }
+
+      int best = -1;
+      double bestCardinality = Double.POSITIVE_INFINITY;
+      for (int v = candidates.nextSetBit(0); v >= 0; v = candidates.nextSetBit(v + 1)) {
+        bound.set(v);
+        double cardinality = estimator.cardinality(bound);
+        bound.clear(v);
+        if (best < 0 || cardinality < bestCardinality) {
+          best = v;
+          bestCardinality = cardinality;
+        }
+      }
+      order[i] = best;
+      bound.set(best);
+    }
+    return order;
+  }
+
+  // --------------------------------------------------------------------------------------------
+  //  Plan construction
+  // --------------------------------------------------------------------------------------------
+
+  /**
+   * Turns a vertex order into plan steps. Each vertex is reached via the adjacent edge with the
+   * smallest average degree in traversal direction, all further edges to bound vertices are
+   * closed right after.
+   *
+   * @param query query graph
+   * @param estimator cardinality estimator
+   * @param order vertex order
+   * @param strategy planning strategy
+   * @return query plan
+   */
+  private QueryPlan buildPlan(QueryGraph query, Estimator estimator, int[] order,
+    QueryPlan.Strategy strategy) {
+    List<PlanStep> steps = new ArrayList<>();
+    BitSet boundVertices = new BitSet();
+    BitSet boundEdges = new BitSet();
+    boolean[] applied = new boolean[estimator.conjuncts.size()];
+
+    for (int v : order) {
+      int expansion = -1;
+      boolean outgoing = true;
+      double bestDegree = Double.POSITIVE_INFINITY;
+      for (int e = 0; e < query.getEdgeCount(); e++) {
+        int source = query.getSourceIndex(e);
+        int target = query.getTargetIndex(e);
+        if (source == target) {
+          continue;
+        }
+        if (target == v && boundVertices.get(source)) {
+          double degree = statistics.getAverageOutDegree(query.getEdgeLabel(e));
+          if (degree < bestDegree) {
+            expansion = e;
+            outgoing = true;
+            bestDegree = degree;
+          }
+        } else if (source == v && boundVertices.get(target)) {
+          double degree = statistics.getAverageInDegree(query.getEdgeLabel(e));
+          if (degree < bestDegree) {
+            expansion = e;
+            outgoing = false;
+            bestDegree = degree;
+          }
+        }
+      }
+
+      boundVertices.set(v);
+      if (expansion < 0) {
+        steps.add(newStep(PlanStep.Kind.SCAN, null, null, query.getVertexVariable(v), null,
+          estimator, boundVertices, boundEdges, applied));
+      } else {
+        boundEdges.set(expansion);
+        int from = outgoing ? query.getSourceIndex(expansion) : query.getTargetIndex(expansion);
+        steps.add(newStep(PlanStep.Kind.EXPAND, query.getVertexVariable(from),
+          query.getEdgeVariable(expansion), query.getVertexVariable(v),
+          outgoing ? PlanStep.Direction.OUTGOING : PlanStep.Direction.INCOMING,
+          estimator, boundVertices, boundEdges, applied));
+      }
+
+      for (int e = 0; e < query.getEdgeCount(); e++) {
+        if (!boundEdges.get(e) &&
+          boundVertices.get(query.getSourceIndex(e)) && boundVertices.get(query.getTargetIndex(e))) {
+          boundEdges.set(e);
+          steps.add(newStep(PlanStep.Kind.CLOSE, query.getVertexVariable(query.getSourceIndex(e)),
+            query.getEdgeVariable(e), query.getVertexVariable(query.getTargetIndex(e)),
+            PlanStep.Direction.OUTGOING, estimator, boundVertices, boundEdges, applied));
+        }
+      }
+    }
+    return new QueryPlan(steps, strategy);
+  }
+
+  /**
+   * Creates a plan step and attaches all predicates whose variables are bound after the step.
+   */
+  private PlanStep newStep(PlanStep.Kind kind, String from, String edge, String to,
+    PlanStep.Direction direction, Estimator estimator, BitSet boundVertices, BitSet boundEdges,
+    boolean[] applied) {
+    List<Predicate> filters = new ArrayList<>();
+    for (int i = 0; i < applied.length; i++) {
+      Conjunct conjunct = estimator.conjuncts.get(i);
+      if (!applied[i] && isSubset(conjunct.vertices, boundVertices) && isSubset(conjunct.edges, boundEdges)) {
+        applied[i] = true;
+        filters.add(conjunct.predicate);
+      }
+    }
+    return new PlanStep(kind, from, edge, to, direction, filters,
+      estimator.cardinality(boundVertices, boundEdges));
+  }
+
+  private static boolean isSubset(BitSet subset, BitSet set) {
+    BitSet rest = (BitSet) subset.clone();
+    rest.andNot(set);
+    return rest.isEmpty();
+  }
+
+  // --------------------------------------------------------------------------------------------
+  //  Cardinality estimation
+  // --------------------------------------------------------------------------------------------
+
+  /**
+   * A query conjunct together with the query elements it references.
+   */
+  private static class Conjunct {
+    private final Predicate predicate;
+    private final BitSet vertices = new BitSet();
+    private final BitSet edges = new BitSet();
+    private double selectivity;
+
+    private Conjunct(Predicate predicate) {
+      this.predicate = predicate;
+    }
+  }
+
+  /**
+   * Estimates the number of partial matches for a set of bound query vertices and edges.
+   */
+  private class Estimator {
+    private final QueryGraph query;
+
+    /**
+     * Estimated number of candidates of each query vertex
+     */
+    private final double[] vertexCardinality;
+
+    /**
+     * Expected number of matching data edges between two candidates of the edge's endpoints
+     */
+    private final double[] edgeFactor;
+
+    private final List<Conjunct> conjuncts = new ArrayList<>();
+
+    /**
+     * Conjuncts that reference more than one query element
+     */
+    private final List<Conjunct> joinConjuncts = new ArrayList<>();
+
+    private Estimator(QueryGraph query) {
+      this.query = query;
+      this.vertexCardinality = new double[query.getVertexCount()];
+      this.edgeFactor = new double[query.getEdgeCount()];
+
+      double[] domain = new double[query.getVertexCount()];
+      for (int v = 0; v < query.getVertexCount(); v++) {
+        domain[v] = Math.max(1L, statistics.getVertexCount(query.getVertexLabel(v)));
+        vertexCardinality[v] = statistics.getVertexCount(query.getVertexLabel(v));
+      }
+      for (int e = 0; e < query.getEdgeCount(); e++) {
+        int source = query.getSourceIndex(e);
+        int target = query.getTargetIndex(e);
+        double pairs = source == target ? domain[source] : domain[source] * domain[target];
+        edgeFactor[e] = statistics.getEdgeCount(query.getEdgeLabel(e)) / pairs;
+      }
+
+      for (Predicate predicate : query.getConjuncts()) {
+        Conjunct conjunct = new Conjunct(predicate);
+        for (String variable : predicate.getVariables()) {
+          int vertex = query.getVertexIndex(variable);
+          int edge = query.getEdgeIndex(variable);
+          if (vertex >= 0) {
+            conjunct.vertices.set(vertex);
+          } else {
+            conjunct.edges.set(edge);
+            conjunct.vertices.set(query.getSourceIndex(edge));
+            conjunct.vertices.set(query.getTargetIndex(edge));
+          }
+        }
+        conjunct.selectivity = selectivity(predicate);
+        conjuncts.add(conjunct);
+
+        int referenced = predicate.getVariables().size();
+        if (referenced == 1 && conjunct.edges.isEmpty()) {
+          vertexCardinality[conjunct.vertices.nextSetBit(0)] *= conjunct.selectivity;
+        } else if (referenced == 1) {
+          edgeFactor[conjunct.edges.nextSetBit(0)] *= conjunct.selectivity;
+        } else {
+          joinConjuncts.add(conjunct);
+        }
+      }
+    }
+
+    /**
+     * Estimates the cardinality of the given vertices and all edges between them.
+     *
+     * @param vertices bound vertices
+     * @return estimated cardinality
+     */
+    private double cardinality(BitSet vertices) {
+      BitSet edges = new BitSet();
+      for (int e = 0; e < query.getEdgeCount(); e++) {
+        if (vertices.get(query.getSourceIndex(e)) && vertices.get(query.getTargetIndex(e))) {
+          edges.set(e);
+        }
+      }
+      return cardinality(vertices, edges);
+    }
+
+    /**
+     * Estimates the cardinality of the given vertices and edges.
+     *
+     * @param vertices bound vertices
+     * @param edges bound edges
+     * @return estimated cardinality
+     */
+    private double cardinality(BitSet vertices, BitSet edges) {
+      double cardinality = 1.0;
+      for (int v = vertices.nextSetBit(0); v >= 0; v = vertices.nextSetBit(v + 1)) {
+        cardinality *= vertexCardinality[v];
+      }
+      for (int e = edges.nextSetBit(0); e >= 0; e = edges.nextSetBit(e + 1)) {
+        cardinality *= edgeFactor[e];
+      }
+      for (Conjunct conjunct : joinConjuncts) {
+        if (isSubset(conjunct.vertices, vertices) && isSubset(conjunct.edges, edges)) {
+          cardinality *= conjunct.selectivity;
+        }
+      }
+      return cardinality;
+    }
+
+    /**
+     * Estimates the fraction of bindings that satisfy the given predicate.
+     *
+     * @param predicate predicate
+     * @return selectivity between 0 and 1
+     */
+    private double selectivity(Predicate predicate) {
+      if (predicate instanceof And) {
+        return selectivity(predicate.getArguments()[0]) * selectivity(predicate.getArguments()[1]);
+      } else if (predicate instanceof Or) {
+        double lhs = selectivity(predicate.getArguments()[0]);
+        double rhs = selectivity(predicate.getArguments()[1]);
+        return lhs + rhs - lhs * rhs;
+      } else if (predicate instanceof Xor) {
+        double lhs = selectivity(predicate.getArguments()[0]);
+        double rhs = selectivity(predicate.getArguments()[1]);
+        return lhs + rhs - 2 * lhs * rhs;
+      } else if (predicate instanceof Not) {
+        return 1.0 - selectivity(predicate.getArguments()[0]);
+      } else if (predicate instanceof Comparison) {
+        return selectivity((Comparison) predicate);
+      }
+      return 1.0;
+    }
+
+    private double selectivity(Comparison comparison) {
+      Comparator comparator = comparison.getComparator();
+      if (comparator != Comparator.EQ && comparator != Comparator.NEQ) {
+        return RANGE_SELECTIVITY;
+      }
+
+      double equality = EQUALITY_SELECTIVITY;
+      ComparableExpression[] expressions = comparison.getComparableExpressions();
+      for (int i = 0; i < 2; i++) {
+        if (expressions[i] instanceof PropertySelector && expressions[1 - i] instanceof Literal) {
+          equality = equalitySelectivity((PropertySelector) expressions[i], ((Literal) expressions[1 - i]).getValue());
+        }
+      }
+      return comparator == Comparator.EQ ? equality : 1.0 - equality;
+    }
+
+    private double equalitySelectivity(PropertySelector selector, Object value) {
+      int vertex = query.getVertexIndex(selector.getVariable());
+      int edge = query.getEdgeIndex(selector.getVariable());
+      String label = vertex >= 0 ? query.getVertexLabel(vertex) : query.getEdgeLabel(edge);
+
+      if (selector.getPropertyName().equals(PropertySelector.LABEL_PROPERTY)) {
+        if (value != null && value.equals(label)) {
+          // already accounted for by the label specific counts
+          return 1.0;
+        }
+        String valueLabel = value != null ? value.toString() : null;
+        return vertex >= 0 ?
+          (double) statistics.getVertexCount(valueLabel) / Math.max(1L, statistics.getVertexCount()) :
+          (double) statistics.getEdgeCount(valueLabel) / Math.max(1L, statistics.getEdgeCount());
+      }
+
+      long distinct = vertex >= 0 ?
+        statistics.getDistinctVertexPropertyValues(label, selector.getPropertyName()) :
+        statistics.getDistinctEdgePropertyValues(label, selector.getPropertyName());
+      return distinct > 0 ? 1.0 / distinct : EQUALITY_SELECTIVITY;
+    }
+  }
+}
@@ -17,6 +17,8 @@
 package org.s1ck.gdl.model.comparables;
 
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.Set;
 
 public interface ComparableExpression extends Serializable{
   /**
@@ -24,4 +26,12 @@ public interface ComparableExpression extends Serializable{
    * @return variable
    */
   public String getVariable();
+
+  /**
+   * Returns all variables referenced by the expression
+   * @return unmodifiable set of variables
+   */
+  default Set<String> getVariables() {
+    return getVariable() == null ? Collections.emptySet() : Collections.singleton(getVariable());
+  }
 }
@@ -21,6 +21,11 @@ package org.s1ck.gdl.model.comparables;
  */
 public class PropertySelector implements ComparableExpression {
 
+  /**
+   * Pseudo property name used to select the label of an element
+   */
+  public static final String LABEL_PROPERTY = "__label__";
+
   /**
    * Elements variable
    */
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl.model.comparables;
+
+import org.s1ck.gdl.model.values.VectorLiteral;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Applies a vector function to two vector expressions, e.g. {@code cosine(a.embedding, b.embedding)}.
+ *
+ * <p>Each argument is either a {@link PropertySelector} or a {@link Literal} holding a
+ * {@link VectorLiteral}.
+ */
+public class SimilarityFunction implements ComparableExpression {
+
+  /**
+   * Supported vector functions
+   */
+  public enum Type {
+    /**
+     * Cosine of the angle between both vectors, 0 if one of them has norm 0
+     */
+    COSINE("cosine"),
+    /**
+     * Dot product of both vectors
+     */
+    DOT("dot"),
+    /**
+     * Euclidean distance between both vectors
+     */
+    EUCLIDEAN("euclidean");
+
+    private final String name;
+
+    Type(String name) {
+      this.name = name;
+    }
+
+    /**
+     * Applies the function to two vectors.
+     *
+     * @param lhs first vector
+     * @param rhs second vector
+     * @return function value or {@code null} if the vectors differ in dimension
+     */
+    public Double apply(VectorLiteral lhs, VectorLiteral rhs) {
+      if (lhs.size() != rhs.size()) {
+        return null;
+      }
+      switch (this) {
+        case COSINE:
+          double norm = lhs.norm() * rhs.norm();
+          return norm == 0d ? 0d : lhs.dot(rhs) / norm;
+        case DOT:
+          return lhs.dot(rhs);
+        default:
+          return Math.sqrt(lhs.squaredDistance(rhs));
+      }
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+
+    /**
+     * Returns the function with the given name, ignoring case.
+     *
+     * @param name function name
+     * @return function
+     * @throws IllegalArgumentException if there is no function with that name
+     */
+    public static Type fromString(String name) {
+      for (Type type : values()) {
+        if (type.name.equalsIgnoreCase(name)) {
+          return type;
+        }
+      }
+      throw new IllegalArgumentException("Unknown vector function: " + name);
+    }
+  }
+
+  /**
+   * Applied function
+   */
+  private final Type type;
+
+  /**
+   * Function arguments
+   */
+  private final ComparableExpression lhs;
+  private final ComparableExpression rhs;
+
+  /**
+   * Variables referenced by both arguments
+   */
+  private final Set<String> variables;
+
+  /**
+   * Creates a new vector function application
+   *
+   * @param type function
+   * @param lhs first argument, a property selector or vector literal
+   * @param rhs second argument, a property selector or vector literal
+   */
+  public SimilarityFunction(Type type, ComparableExpression lhs, ComparableExpression rhs) {
+    if (type == null) {
+      throw new IllegalArgumentException("Type must not be null");
+    }
+    checkArgument(lhs);
+    checkArgument(rhs);
+    this.type = type;
+    this.lhs = lhs;
+    this.rhs = rhs;
+
+    Set<String> variables = new LinkedHashSet<>();
+    if (lhs.getVariable() != null) variables.add(lhs.getVariable());
+    if (rhs.getVariable() != null) variables.add(rhs.getVariable());
+    this.variables = Collections.unmodifiableSet(variables);
+  }
+
+  private static void checkArgument(ComparableExpression argument) {
+    if (!(argument instanceof PropertySelector) &&
+      !(argument instanceof Literal && ((Literal) argument).getValue() instanceof VectorLiteral)) {
+      throw new IllegalArgumentException("Vector function arguments must be properties or vectors: " + argument);
+    }
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * Returns both function arguments
+   * @return first and second argument
+   */
+  public ComparableExpression[] getArguments() {
+    ComparableExpression[] arguments = {lhs, rhs};
+    return arguments;
+  }
+
+  /**
+   * Returns the variable of the first argument referencing one
+   * @return variable name or {@code null} if both arguments are literals
+   */
+  @Override
+  public String getVariable() {
+    return variables.isEmpty() ? null : variables.iterator().next();
+  }
+
+  @Override
+  public Set<String> getVariables() {
+    return variables;
+  }
+
+  @Override
+  public String toString() {
+    return type + "(" + lhs + ", " + rhs + ")";
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+
+    SimilarityFunction that = (SimilarityFunction) o;
+
+    return type == that.type && lhs.equals(that.lhs) && rhs.equals(that.rhs);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = type.ordinal();
+    result = 31 * result + lhs.hashCode();
+    result = 31 * result + rhs.hashCode();
+    return result;
+  }
+}
@@ -17,19 +17,25 @@
 package org.s1ck.gdl.model.predicates;
 
 import org.s1ck.gdl.model.GraphElement;
+import org.s1ck.gdl.model.predicates.booleans.And;
 import org.s1ck.gdl.model.predicates.expressions.Comparison;
 import org.s1ck.gdl.model.comparables.Literal;
 import org.s1ck.gdl.model.comparables.PropertySelector;
 import org.s1ck.gdl.utils.Comparator;
 
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 /**
  * Represents a predicate defined on a query vertex or edge.
+ *
+ * <p>Predicates are immutable and compare structurally. Use a {@link PredicateInterner} to share
+ * equal subtrees between predicates.
  */
 public interface Predicate extends Serializable {
 
@@ -48,7 +54,7 @@ public interface Predicate extends Serializable {
     //TODO respect multiple labels
     if(element.getLabel() != null && !element.getLabel().equals(defaultLabel)) {
       predicate = new Comparison(
-        new PropertySelector(element.getVariable(),"__label__"),
+        new PropertySelector(element.getVariable(), PropertySelector.LABEL_PROPERTY),
         Comparator.EQ,
         new Literal(element.getLabel()));
 
@@ -69,6 +75,30 @@ public interface Predicate extends Serializable {
     return predicates;
   }
 
+  /**
+   * Splits a predicate into the operands of its top-level conjunction. A predicate that is not an
+   * {@link And} is returned as its only conjunct.
+   *
+   * @param predicate the predicate to split
+   * @return conjuncts in the order they appear in the predicate
+   */
+  static List<Predicate> getConjuncts(Predicate predicate) {
+    List<Predicate> conjuncts = new ArrayList<>();
+    Deque<Predicate> stack = new ArrayDeque<>();
+    stack.push(predicate);
+    while (!stack.isEmpty()) {
+      Predicate current = stack.pop();
+      if (current instanceof And) {
+        Predicate[] arguments = current.getArguments();
+        stack.push(arguments[1]);
+        stack.push(arguments[0]);
+      } else {
+        conjuncts.add(current);
+      }
+    }
+    return conjuncts;
+  }
+
   /**
    * Returns the predicates arguments
    *
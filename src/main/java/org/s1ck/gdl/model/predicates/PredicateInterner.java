@@ -0,0 +1,138 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl.model.predicates;
+
+import org.s1ck.gdl.model.comparables.ComparableExpression;
+import org.s1ck.gdl.model.predicates.booleans.And;
+import org.s1ck.gdl.model.predicates.booleans.Not;
+import org.s1ck.gdl.model.predicates.booleans.Or;
+import org.s1ck.gdl.model.predicates.booleans.Xor;
+import org.s1ck.gdl.model.predicates.expressions.Comparison;
+import org.s1ck.gdl.utils.Comparator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hash-conses predicates: structurally equal predicates created by the same interner are the same
+ * instance, and so are all their equal subtrees. Predicates form a DAG in which equality checks
+ * between interned predicates succeed by identity and fail by hash code, both in constant time.
+ *
+ * <p>Interners are not thread safe.
+ */
+public class PredicateInterner {
+
+  /**
+   * Canonical instance of each predicate
+   */
+  private final Map<Predicate, Predicate> canonical = new HashMap<>();
+
+  /**
+   * Returns the canonical instance of a comparison.
+   *
+   * @param lhs left hand side value
+   * @param comparator comparator
+   * @param rhs right hand side value
+   * @return interned comparison
+   */
+  public Comparison comparison(ComparableExpression lhs, Comparator comparator, ComparableExpression rhs) {
+    return (Comparison) lookup(new Comparison(lhs, comparator, rhs));
+  }
+
+  /**
+   * Returns the canonical conjunction of two predicates.
+   *
+   * @param lhs left hand side
+   * @param rhs right hand side
+   * @return interned conjunction
+   */
+  public Predicate and(Predicate lhs, Predicate rhs) {
+    return lookup(new And(intern(lhs), intern(rhs)));
+  }
+
+  /**
+   * Returns the canonical disjunction of two predicates.
+   *
+   * @param lhs left hand side
+   * @param rhs right hand side
+   * @return interned disjunction
+   */
+  public Predicate or(Predicate lhs, Predicate rhs) {
+    return lookup(new Or(intern(lhs), intern(rhs)));
+  }
+
+  /**
+   * Returns the canonical exclusive disjunction of two predicates.
+   *
+   * @param lhs left hand side
+   * @param rhs right hand side
+   * @return interned exclusive disjunction
+   */
+  public Predicate xor(Predicate lhs, Predicate rhs) {
+    return lookup(new Xor(intern(lhs), intern(rhs)));
+  }
+
+  /**
+   * Returns the canonical negation of a predicate.
+   *
+   * @param predicate predicate
+   * @return interned negation
+   */
+  public Predicate not(Predicate predicate) {
+    return lookup(new Not(intern(predicate)));
+  }
+
+  /**
+   * Returns the canonical instance of a predicate, interning all its subtrees. Predicates of
+   * unknown types are interned as a whole.
+   *
+   * @param predicate predicate
+   * @return interned predicate
+   */
+  public Predicate intern(Predicate predicate) {
+    Predicate existing = canonical.get(predicate);
+    if (existing != null) {
+      return existing;
+    }
+    Predicate[] arguments = predicate.getArguments();
+    if (predicate instanceof And) {
+      return and(arguments[0], arguments[1]);
+    } else if (predicate instanceof Or) {
+      return or(arguments[0], arguments[1]);
+    } else if (predicate instanceof Xor) {
+      return xor(arguments[0], arguments[1]);
+    } else if (predicate instanceof Not) {
+      return not(arguments[0]);
+    }
+    return lookup(predicate);
+  }
+
+  /**
+   * Returns the number of distinct predicates interned.
+   *
+   * @return number of interned predicates
+   */
+  public int size() {
+    return canonical.size();
+  }
+
+  private Predicate lookup(Predicate predicate) {
+    Predicate existing = canonical.putIfAbsent(predicate, predicate);
+    return existing != null ? existing : predicate;
+  }
+}
@@ -18,40 +18,15 @@ package org.s1ck.gdl.model.predicates.booleans;
 
 import org.s1ck.gdl.model.predicates.Predicate;
 
-import java.util.Set;
-
-public class And implements Predicate {
-
-  // left hand side
-  private Predicate lhs;
-
-  // right hand side
-  private Predicate rhs;
+public class And extends BinaryPredicate {
 
   public And(Predicate lhs, Predicate rhs) {
-    this.lhs = lhs;
-    this.rhs = rhs;
-  }
-
-  @Override
-  public Predicate[] getArguments() {
-    return new Predicate[] { lhs, rhs };
-  }
-
-  /**
-   * Returns a set of variables referenced by the predicates
-   * @return set of variables
-   */
-  @Override
-  public Set<String> getVariables() {
-    Set<String> variables = lhs.getVariables();
-    variables.addAll(rhs.getVariables());
-
-    return variables;
+    super(lhs, rhs, 1);
   }
 
   @Override
   public String toString() {
-    return String.format("(%s AND %s)", lhs, rhs);
+    Predicate[] arguments = getArguments();
+    return String.format("(%s AND %s)", arguments[0], arguments[1]);
   }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl.model.predicates.booleans;
+
+import org.s1ck.gdl.model.predicates.Predicate;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Immutable base of the binary boolean operators. Variables and hash code are computed once on
+ * construction from the already computed values of both operands.
+ */
+abstract class BinaryPredicate implements Predicate {
+
+  private static final long serialVersionUID = 1L;
+
+  // left hand side
+  private final Predicate lhs;
+
+  // right hand side
+  private final Predicate rhs;
+
+  /**
+   * Variables referenced by both operands
+   */
+  private final Set<String> variables;
+
+  private final int hash;
+
+  BinaryPredicate(Predicate lhs, Predicate rhs, int seed) {
+    this.lhs = lhs;
+    this.rhs = rhs;
+    this.variables = union(lhs.getVariables(), rhs.getVariables());
+    this.hash = 31 * (31 * seed + lhs.hashCode()) + rhs.hashCode();
+  }
+
+  @Override
+  public Predicate[] getArguments() {
+    return new Predicate[] { lhs, rhs };
+  }
+
+  /**
+   * Returns an unmodifiable set of variables referenced by the predicates
+   * @return set of variables
+   */
+  @Override
+  public Set<String> getVariables() {
+    return variables;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+
+    BinaryPredicate that = (BinaryPredicate) o;
+
+    return hash == that.hash && lhs.equals(that.lhs) && rhs.equals(that.rhs);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  /**
+   * Returns the union of two variable sets.
+   */
+  private static Set<String> union(Set<String> lhs, Set<String> rhs) {
+    Set<String> union = new HashSet<>(lhs);
+    union.addAll(rhs);
+    return Collections.unmodifiableSet(union);
+  }
+}
@@ -22,10 +22,13 @@ import java.util.Set;
 
 public class Not implements Predicate {
 
-  private Predicate expression;
+  private final Predicate expression;
+
+  private final int hash;
 
   public Not(Predicate expression) {
     this.expression = expression;
+    this.hash = 31 * 4 + expression.hashCode();
   }
 
   @Override
@@ -35,7 +38,7 @@ public class Not implements Predicate {
   }
 
   /**
-   * Returns a set of variables referenced by the predicates
+   * Returns an unmodifiable set of variables referenced by the predicates
    * @return set of variables
    */
   @Override
@@ -47,4 +50,19 @@ public class Not implements Predicate {
   public String toString() {
     return String.format("(NOT %s)", expression);
   }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+
+    Not that = (Not) o;
+
+    return hash == that.hash && expression.equals(that.expression);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
 }
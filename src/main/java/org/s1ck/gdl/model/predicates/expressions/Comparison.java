@@ -20,6 +20,7 @@ import org.s1ck.gdl.model.predicates.Predicate;
 import org.s1ck.gdl.model.comparables.ComparableExpression;
 import org.s1ck.gdl.utils.Comparator;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -30,26 +31,50 @@ public class Comparison implements Predicate {
   /**
    * Left hand side value
    */
-  private ComparableExpression lhs;
+  private final ComparableExpression lhs;
   /**
    * Right hand side value
    */
-  private ComparableExpression rhs;
+  private final ComparableExpression rhs;
   /**
    * The comparator used to compare a the values
    */
-  private Comparator comparator;
+  private final Comparator comparator;
+  /**
+   * Variables referenced by both sides
+   */
+  private final Set<String> variables;
+  /**
+   * Hash code, computed on construction
+   */
+  private final int hash;
 
   /**
    * Creates a new comparison operator
    * @param lhs left hand side value
    * @param comparator comparator
    * @param rhs right hand side value
+   * @throws IllegalArgumentException if an argument is {@code null}
    */
   public Comparison(ComparableExpression lhs, Comparator comparator, ComparableExpression rhs) {
+    if (lhs == null || comparator == null || rhs == null) {
+      throw new IllegalArgumentException(
+        String.format("Comparison arguments must not be null: %s %s %s", lhs, comparator, rhs));
+    }
     this.lhs = lhs;
     this.rhs = rhs;
     this.comparator = comparator;
+
+    Set<String> variables = new HashSet<>();
+    variables.addAll(lhs.getVariables());
+    variables.addAll(rhs.getVariables());
+    this.variables = Collections.unmodifiableSet(variables);
+
+    int result = lhs.hashCode();
+    result = 31 * result + rhs.hashCode();
+    // ordinal instead of the identity hash of the enum to keep the hash stable across JVMs
+    result = 31 * result + comparator.ordinal();
+    this.hash = result;
   }
 
   @Override
@@ -76,15 +101,11 @@ public class Comparison implements Predicate {
   }
 
   /**
-   * Returns a set of variables referenced by the predicates
+   * Returns an unmodifiable set of variables referenced by the predicates
    * @return set of variables
    */
   @Override
   public Set<String> getVariables() {
-    Set<String> variables = new HashSet<>();
-    if(lhs.getVariable() != null) variables.add(lhs.getVariable());
-    if(rhs.getVariable() != null) variables.add(rhs.getVariable());
-
     return variables;
   }
 
@@ -100,17 +121,12 @@ public class Comparison implements Predicate {
 
     Comparison that = (Comparison) o;
 
-    if (lhs != null ? !lhs.equals(that.lhs) : that.lhs != null) return false;
-    if (rhs != null ? !rhs.equals(that.rhs) : that.rhs != null) return false;
-    return comparator == that.comparator;
-
+    return hash == that.hash && comparator == that.comparator && lhs.equals(that.lhs) &&
+      rhs.equals(that.rhs);
   }
 
   @Override
   public int hashCode() {
-    int result = lhs != null ? lhs.hashCode() : 0;
-    result = 31 * result + (rhs != null ? rhs.hashCode() : 0);
-    result = 31 * result + (comparator != null ? comparator.hashCode() : 0);
-    return result;
+    return hash;
   }
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.model.projections;
+
+/**
+ * Aggregate functions supported in RETURN clauses
+ */
+public enum AggregateFunction {
+  /**
+   * Number of rows ({@code count(*)}) or non-null values
+   */
+  COUNT,
+  /**
+   * Sum of all non-null numeric values
+   */
+  SUM,
+  /**
+   * Smallest non-null value
+   */
+  MIN,
+  /**
+   * Largest non-null value
+   */
+  MAX,
+  /**
+   * Arithmetic mean of all non-null numeric values
+   */
+  AVG;
+
+  /**
+   * Returns the aggregate function with the given name.
+   *
+   * @param name function name, case insensitive
+   * @return aggregate function
+   * @throws IllegalArgumentException if there is no function with that name
+   */
+  public static AggregateFunction fromName(String name) {
+    for (AggregateFunction function : values()) {
+      if (function.name().equalsIgnoreCase(name)) {
+        return function;
+      }
+    }
+    throw new IllegalArgumentException("Unknown aggregate function: " + name);
+  }
+
+  @Override
+  public String toString() {
+    return name().toLowerCase();
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.model.projections;
+
+import org.s1ck.gdl.model.comparables.ComparableExpression;
+
+/**
+ * Single column of a RETURN clause, e.g. {@code a.name}, {@code count(*) AS n} or {@code b}.
+ */
+public class ReturnItem {
+
+  /**
+   * Projected property or element, {@code null} for {@code count(*)}
+   */
+  private final ComparableExpression expression;
+
+  /**
+   * Aggregate function applied to the expression or {@code null}
+   */
+  private final AggregateFunction function;
+
+  /**
+   * Column name, either the alias or the item's text
+   */
+  private final String name;
+
+  /**
+   * Creates a new return item.
+   *
+   * @param expression property or element selector, {@code null} for {@code count(*)}
+   * @param function aggregate function or {@code null} for a plain projection
+   * @param alias column name or {@code null} to use the item's text
+   */
+  public ReturnItem(ComparableExpression expression, AggregateFunction function, String alias) {
+    if (expression == null && function != AggregateFunction.COUNT) {
+      throw new IllegalArgumentException("Only count can be applied to *");
+    }
+    this.expression = expression;
+    this.function = function;
+    this.name = alias != null ? alias : getText();
+  }
+
+  public ComparableExpression getExpression() {
+    return expression;
+  }
+
+  public AggregateFunction getFunction() {
+    return function;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns true if the item aggregates values, false if it is a grouping key.
+   *
+   * @return true, iff an aggregate function is applied
+   */
+  public boolean isAggregation() {
+    return function != null;
+  }
+
+  private String getText() {
+    String argument = expression != null ? expression.toString() : "*";
+    return function != null ? function + "(" + argument + ")" : argument;
+  }
+
+  @Override
+  public String toString() {
+    return name.equals(getText()) ? name : getText() + " AS " + name;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+
+    ReturnItem that = (ReturnItem) o;
+
+    if (expression != null ? !expression.equals(that.expression) : that.expression != null) return false;
+    if (function != that.function) return false;
+    return name.equals(that.name);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = expression != null ? expression.hashCode() : 0;
+    result = 31 * result + (function != null ? function.hashCode() : 0);
+    result = 31 * result + name.hashCode();
+    return result;
+  }
+}
@@ -16,7 +16,14 @@
 
  package org.s1ck.gdl.model.values;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * Represents a vector of doubles, e.g. {@code vector([1.0d, 3.0d, 3.0d, 7.0d])}.
@@ -26,7 +33,7 @@ public class DoubleVectorLiteral extends VectorLiteral {
   /**
    * vector value
    */
-  private final List<Double> value;
+  private final double[] value;
 
   /**
    * Creates a new double vector
@@ -34,12 +41,116 @@ public class DoubleVectorLiteral extends VectorLiteral {
    * @param value vector value, must not contain null elements
    */
   public DoubleVectorLiteral(List<Double> value) {
-    this.value = checkedCopy(value, Double.class);
+    checkElements(value, Double.class);
+    this.value = new double[value.size()];
+    for (int i = 0; i < this.value.length; i++) {
+      this.value[i] = value.get(i);
+    }
   }
 
+  private DoubleVectorLiteral(double[] value) {
+    this.value = value;
+  }
+
+  /**
+   * Creates a new double vector from primitive values
+   *
+   * @param values vector value, copied
+   * @return double vector
+   */
+  public static DoubleVectorLiteral of(double... values) {
+    if (values == null) {
+      throw new IllegalArgumentException("Value must not be null");
+    }
+    return new DoubleVectorLiteral(values.clone());
+  }
+
+  /**
+   * Creates a new double vector from base64 encoded little-endian doubles
+   *
+   * @param base64 encoded elements
+   * @return double vector
+   * @throws IllegalArgumentException if the string is no valid base64 or does not hold whole elements
+   */
+  public static DoubleVectorLiteral fromBase64(String base64) {
+    ByteBuffer bytes = decodeBase64(base64, 8);
+    double[] values = new double[bytes.remaining() / 8];
+    bytes.asDoubleBuffer().get(values);
+    return new DoubleVectorLiteral(values);
+  }
+
+  @Override
+  public String toBase64() {
+    ByteBuffer bytes = ByteBuffer.allocate(value.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+    bytes.asDoubleBuffer().put(value);
+    return Base64.getEncoder().encodeToString(bytes.array());
+  }
+
+  /**
+   * Returns an unmodifiable view of the vector, boxing elements on access.
+   *
+   * @return unmodifiable list of vector elements
+   */
   @Override
   public List<Double> getValue() {
-    return value;
+    return new Elements();
+  }
+
+  /**
+   * Returns a read-only buffer over the vector elements without copying them.
+   *
+   * @return read-only buffer, positioned at the first element
+   */
+  public DoubleBuffer asDoubleBuffer() {
+    return DoubleBuffer.wrap(value).asReadOnlyBuffer();
+  }
+
+  /**
+   * Returns a copy of the vector elements.
+   *
+   * @return element array
+   */
+  public double[] toDoubleArray() {
+    return value.clone();
+  }
+
+  @Override
+  public double getDouble(int index) {
+    return value[index];
+  }
+
+  @Override
+  public double dot(VectorLiteral other) {
+    if (!(other instanceof DoubleVectorLiteral)) {
+      return super.dot(other);
+    }
+    checkDimension(other);
+    double[] values = ((DoubleVectorLiteral) other).value;
+    double sum = 0d;
+    for (int i = 0; i < value.length; i++) {
+      sum += value[i] * values[i];
+    }
+    return sum;
+  }
+
+  @Override
+  public double squaredDistance(VectorLiteral other) {
+    if (!(other instanceof DoubleVectorLiteral)) {
+      return super.squaredDistance(other);
+    }
+    checkDimension(other);
+    double[] values = ((DoubleVectorLiteral) other).value;
+    double sum = 0d;
+    for (int i = 0; i < value.length; i++) {
+      double difference = value[i] - values[i];
+      sum += difference * difference;
+    }
+    return sum;
+  }
+
+  @Override
+  public int size() {
+    return value.length;
   }
 
   @Override
@@ -51,4 +162,34 @@ public class DoubleVectorLiteral extends VectorLiteral {
   protected String getTypeName() {
     return "double_vector";
   }
-}
\ No newline at end of file
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+
+    // compares bits like Double.equals, so NaN is equal to itself
+    return Arrays.equals(value, ((DoubleVectorLiteral) o).value);
+  }
+
+  @Override
+  public int hashCode() {
+    // same as the hash code of the list view
+    return Arrays.hashCode(value);
+  }
+
+  /**
+   * Boxing list view of the elements
+   */
+  private final class Elements extends AbstractList<Double> implements RandomAccess {
+    @Override
+    public Double get(int index) {
+      return value[index];
+    }
+
+    @Override
+    public int size() {
+      return value.length;
+    }
+  }
+}
@@ -16,7 +16,14 @@
 
 package org.s1ck.gdl.model.values;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * Represents a vector of floats, e.g. {@code vector([1.0f, 3.0f, 3.0f, 7.0f])}.
@@ -26,7 +33,7 @@ public class FloatVectorLiteral extends VectorLiteral {
   /**
    * vector value
    */
-  private final List<Float> value;
+  private final float[] value;
 
   /**
    * Creates a new float vector
@@ -34,12 +41,126 @@ public class FloatVectorLiteral extends VectorLiteral {
    * @param value vector value, must not contain null elements
    */
   public FloatVectorLiteral(List<Float> value) {
-    this.value = checkedCopy(value, Float.class);
+    checkElements(value, Float.class);
+    this.value = new float[value.size()];
+    for (int i = 0; i < this.value.length; i++) {
+      this.value[i] = value.get(i);
+    }
+  }
+
+  private FloatVectorLiteral(float[] value) {
+    this.value = value;
+  }
+
+  /**
+   * Creates a new float vector from primitive values
+   *
+   * @param values vector value, copied
+   * @return float vector
+   */
+  public static FloatVectorLiteral of(float... values) {
+    if (values == null) {
+      throw new IllegalArgumentException("Value must not be null");
+    }
+    return new FloatVectorLiteral(values.clone());
+  }
+
+  /**
+   * Creates a new float vector from base64 encoded little-endian floats
+   *
+   * @param base64 encoded elements
+   * @return float vector
+   * @throws IllegalArgumentException if the string is no valid base64 or does not hold whole elements
+   */
+  public static FloatVectorLiteral fromBase64(String base64) {
+    ByteBuffer bytes = decodeBase64(base64, 4);
+    float[] values = new float[bytes.remaining() / 4];
+    bytes.asFloatBuffer().get(values);
+    return new FloatVectorLiteral(values);
   }
 
+  @Override
+  public String toBase64() {
+    ByteBuffer bytes = ByteBuffer.allocate(value.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+    bytes.asFloatBuffer().put(value);
+    return Base64.getEncoder().encodeToString(bytes.array());
+  }
+
+  /**
+   * Returns an unmodifiable view of the vector, boxing elements on access.
+   *
+   * @return unmodifiable list of vector elements
+   */
   @Override
   public List<Float> getValue() {
-    return value;
+    return new Elements();
+  }
+
+  /**
+   * Returns a read-only buffer over the vector elements without copying them.
+   *
+   * @return read-only buffer, positioned at the first element
+   */
+  public FloatBuffer asFloatBuffer() {
+    return FloatBuffer.wrap(value).asReadOnlyBuffer();
+  }
+
+  /**
+   * Returns a copy of the vector elements.
+   *
+   * @return element array
+   */
+  public float[] toFloatArray() {
+    return value.clone();
+  }
+
+  /**
+   * Returns an element.
+   *
+   * @param index element index
+   * @return element value
+   */
+  public float getFloat(int index) {
+    return value[index];
+  }
+
+  @Override
+  public double getDouble(int index) {
+    return value[index];
+  }
+
+  @Override
+  public double dot(VectorLiteral other) {
+    if (!(other instanceof FloatVectorLiteral)) {
+      return super.dot(other);
+    }
+    checkDimension(other);
+    float[] values = ((FloatVectorLiteral) other).value;
+    double sum = 0d;
+    for (int i = 0; i < value.length; i++) {
+      sum += value[i] * values[i];
+    }
+    return sum;
+  }
+
+  @Override
+  public double squaredDistance(VectorLiteral other) {
+    if (!(other instanceof FloatVectorLiteral)) {
+      return super.squaredDistance(other);
+    }
+    checkDimension(other);
+    float[] values = ((FloatVectorLiteral) other).value;
+    double sum = 0d;
+    for (int i = 0; i < value.length; i++) {
+      double difference = value[i] - values[i];
+      sum += difference * difference;
+    }
+    return sum;
+  }
+
+  @Override
+  public int size() {
+    return value.length;
   }
 
   @Override
@@ -51,4 +172,34 @@ public class FloatVectorLiteral extends VectorLiteral {
   protected String getTypeName() {
     return "float_vector";
   }
-}
\ No newline at end of file
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+
+    // compares bits like Float.equals, so NaN is equal to itself
+    return Arrays.equals(value, ((FloatVectorLiteral) o).value);
+  }
+
+  @Override
+  public int hashCode() {
+    // same as the hash code of the list view
+    return Arrays.hashCode(value);
+  }
+
+  /**
+   * Boxing list view of the elements
+   */
+  private final class Elements extends AbstractList<Float> implements RandomAccess {
+    @Override
+    public Float get(int index) {
+      return value[index];
+    }
+
+    @Override
+    public int size() {
+      return value.length;
+    }
+  }
+}
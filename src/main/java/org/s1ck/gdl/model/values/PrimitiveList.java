@@ -0,0 +1,444 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl.model.values;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Unmodifiable list property backed by a primitive array, e.g. {@code [1L, 3L, 3L, 7L]}.
+ *
+ * <p>Elements are boxed on access, equality and hash code follow the {@link List} contract, so a
+ * primitive list equals any list holding the same boxed elements. Use {@link #compact(List)} to
+ * store a homogeneous list of integers, longs, floats, doubles or booleans in this form.
+ *
+ * @param <T> boxed element type
+ */
+public abstract class PrimitiveList<T> extends AbstractList<T> implements RandomAccess {
+
+  private PrimitiveList() {
+  }
+
+  /**
+   * Returns the type of all elements in this list.
+   *
+   * @return boxed element type
+   */
+  public abstract Class<T> getElementType();
+
+  /**
+   * Returns a primitive list holding the given values if they are all non-null and of the same
+   * boxed primitive type. Otherwise, including for an empty list, the given list is returned.
+   *
+   * @param values list values
+   * @return primitive list or {@code values}
+   */
+  public static List<?> compact(List<?> values) {
+    if (values.isEmpty() || values.get(0) == null) {
+      return values;
+    }
+    Class<?> type = values.get(0).getClass();
+    for (Object value : values) {
+      if (value == null || value.getClass() != type) {
+        return values;
+      }
+    }
+    int size = values.size();
+    if (type == Integer.class) {
+      int[] array = new int[size];
+      for (int i = 0; i < size; i++) {
+        array[i] = (Integer) values.get(i);
+      }
+      return new IntList(array);
+    } else if (type == Long.class) {
+      long[] array = new long[size];
+      for (int i = 0; i < size; i++) {
+        array[i] = (Long) values.get(i);
+      }
+      return new LongList(array);
+    } else if (type == Float.class) {
+      float[] array = new float[size];
+      for (int i = 0; i < size; i++) {
+        array[i] = (Float) values.get(i);
+      }
+      return new FloatList(array);
+    } else if (type == Double.class) {
+      double[] array = new double[size];
+      for (int i = 0; i < size; i++) {
+        array[i] = (Double) values.get(i);
+      }
+      return new DoubleList(array);
+    } else if (type == Boolean.class) {
+      boolean[] array = new boolean[size];
+      for (int i = 0; i < size; i++) {
+        array[i] = (Boolean) values.get(i);
+      }
+      return new BooleanList(array);
+    }
+    return values;
+  }
+
+  /**
+   * List of ints
+   */
+  public static final class IntList extends PrimitiveList<Integer> {
+
+    private final int[] value;
+
+    private IntList(int[] value) {
+      this.value = value;
+    }
+
+    /**
+     * Creates a new list from primitive values
+     *
+     * @param values list elements, copied
+     * @return int list
+     */
+    public static IntList of(int... values) {
+      return new IntList(values.clone());
+    }
+
+    /**
+     * Returns an element without boxing it.
+     *
+     * @param index element index
+     * @return element value
+     */
+    public int getInt(int index) {
+      return value[index];
+    }
+
+    /**
+     * Returns a copy of the list elements.
+     *
+     * @return element array
+     */
+    public int[] toIntArray() {
+      return value.clone();
+    }
+
+    @Override
+    public Integer get(int index) {
+      return value[index];
+    }
+
+    @Override
+    public int size() {
+      return value.length;
+    }
+
+    @Override
+    public Class<Integer> getElementType() {
+      return Integer.class;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o instanceof IntList) {
+        return Arrays.equals(value, ((IntList) o).value);
+      }
+      return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(value);
+    }
+  }
+
+  /**
+   * List of longs
+   */
+  public static final class LongList extends PrimitiveList<Long> {
+
+    private final long[] value;
+
+    private LongList(long[] value) {
+      this.value = value;
+    }
+
+    /**
+     * Creates a new list from primitive values
+     *
+     * @param values list elements, copied
+     * @return long list
+     */
+    public static LongList of(long... values) {
+      return new LongList(values.clone());
+    }
+
+    /**
+     * Returns an element without boxing it.
+     *
+     * @param index element index
+     * @return element value
+     */
+    public long getLong(int index) {
+      return value[index];
+    }
+
+    /**
+     * Returns a copy of the list elements.
+     *
+     * @return element array
+     */
+    public long[] toLongArray() {
+      return value.clone();
+    }
+
+    @Override
+    public Long get(int index) {
+      return value[index];
+    }
+
+    @Override
+    public int size() {
+      return value.length;
+    }
+
+    @Override
+    public Class<Long> getElementType() {
+      return Long.class;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o instanceof LongList) {
+        return Arrays.equals(value, ((LongList) o).value);
+      }
+      return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(value);
+    }
+  }
+
+  /**
+   * List of floats
+   */
+  public static final class FloatList extends PrimitiveList<Float> {
+
+    private final float[] value;
+
+    private FloatList(float[] value) {
+      this.value = value;
+    }
+
+    /**
+     * Creates a new list from primitive values
+     *
+     * @param values list elements, copied
+     * @return float list
+     */
+    public static FloatList of(float... values) {
+      return new FloatList(values.clone());
+    }
+
+    /**
+     * Returns an element without boxing it.
+     *
+     * @param index element index
+     * @return element value
+     */
+    public float getFloat(int index) {
+      return value[index];
+    }
+
+    /**
+     * Returns a copy of the list elements.
+     *
+     * @return element array
+     */
+    public float[] toFloatArray() {
+      return value.clone();
+    }
+
+    @Override
+    public Float get(int index) {
+      return value[index];
+    }
+
+    @Override
+    public int size() {
+      return value.length;
+    }
+
+    @Override
+    public Class<Float> getElementType() {
+      return Float.class;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      // compares bits like Float.equals, so NaN is equal to itself
+      if (o instanceof FloatList) {
+        return Arrays.equals(value, ((FloatList) o).value);
+      }
+      return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(value);
+    }
+  }
+
+  /**
+   * List of doubles
+   */
+  public static final class DoubleList extends PrimitiveList<Double> {
+
+    private final double[] value;
+
+    private DoubleList(double[] value) {
+      this.value = value;
+    }
+
+    /**
+     * Creates a new list from primitive values
+     *
+     * @param values list elements, copied
+     * @return double list
+     */
+    public static DoubleList of(double... values) {
+      return new DoubleList(values.clone());
+    }
+
+    /**
+     * Returns an element without boxing it.
+     *
+     * @param index element index
+     * @return element value
+     */
+    public double getDouble(int index) {
+      return value[index];
+    }
+
+    /**
+     * Returns a copy of the list elements.
+     *
+     * @return element array
+     */
+    public double[] toDoubleArray() {
+      return value.clone();
+    }
+
+    @Override
+    public Double get(int index) {
+      return value[index];
+    }
+
+    @Override
+    public int size() {
+      return value.length;
+    }
+
+    @Override
+    public Class<Double> getElementType() {
+      return Double.class;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      // compares bits like Double.equals, so NaN is equal to itself
+      if (o instanceof DoubleList) {
+        return Arrays.equals(value, ((DoubleList) o).value);
+      }
+      return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(value);
+    }
+  }
+
+  /**
+   * List of booleans
+   */
+  public static final class BooleanList extends PrimitiveList<Boolean> {
+
+    private final boolean[] value;
+
+    private BooleanList(boolean[] value) {
+      this.value = value;
+    }
+
+    /**
+     * Creates a new list from primitive values
+     *
+     * @param values list elements, copied
+     * @return boolean list
+     */
+    public static BooleanList of(boolean... values) {
+      return new BooleanList(values.clone());
+    }
+
+    /**
+     * Returns an element without boxing it.
+     *
+     * @param index element index
+     * @return element value
+     */
+    public boolean getBoolean(int index) {
+      return value[index];
+    }
+
+    /**
+     * Returns a copy of the list elements.
+     *
+     * @return element array
+     */
+    public boolean[] toBooleanArray() {
+      return value.clone();
+    }
+
+    @Override
+    public Boolean get(int index) {
+      return value[index];
+    }
+
+    @Override
+    public int size() {
+      return value.length;
+    }
+
+    @Override
+    public Class<Boolean> getElementType() {
+      return Boolean.class;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o instanceof BooleanList) {
+        return Arrays.equals(value, ((BooleanList) o).value);
+      }
+      return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(value);
+    }
+  }
+}
@@ -16,8 +16,10 @@
 
 package org.s1ck.gdl.model.values;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Base64;
 import java.util.List;
 
 /**
@@ -25,10 +27,20 @@ import java.util.List;
  *
  * <p>A vector never mixes element types. Each concrete subclass fixes the element type, so use
  * {@link FloatVectorLiteral} or {@link DoubleVectorLiteral} to create one and {@code instanceof}
- * to tell them apart.
+ * to tell them apart. Elements are stored in a primitive array; {@link #getValue()} is a boxing
+ * view of it.
+ *
+ * <p>Besides the list form, GDL accepts the elements as base64 encoded little-endian IEEE 754
+ * values, e.g. {@code vector(f32:"AACAPwAAQEA=")} or {@code vector(f64:"...")}, which avoids
+ * tokenizing and parsing every element of large vectors.
  */
 public abstract class VectorLiteral {
 
+  /**
+   * Minimum number of elements for which {@link #toGDLString()} uses the base64 form
+   */
+  public static final int BASE64_MIN_SIZE = 16;
+
   /**
    * Returns the vector value.
    *
@@ -43,6 +55,169 @@ public abstract class VectorLiteral {
    */
   public abstract Class<? extends Number> getElementType();
 
+  /**
+   * Returns the number of elements.
+   *
+   * @return vector dimension
+   */
+  public abstract int size();
+
+  /**
+   * Returns an element widened to double without boxing.
+   *
+   * @param index element index
+   * @return element value
+   */
+  public abstract double getDouble(int index);
+
+  /**
+   * Returns the dot product with another vector of the same dimension.
+   *
+   * @param other other vector
+   * @return dot product
+   * @throws IllegalArgumentException if the dimensions differ
+   */
+  public double dot(VectorLiteral other) {
+    checkDimension(other);
+    double sum = 0d;
+    for (int i = 0; i < size(); i++) {
+      sum += getDouble(i) * other.getDouble(i);
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the squared euclidean distance to another vector of the same dimension.
+   *
+   * @param other other vector
+   * @return squared distance
+   * @throws IllegalArgumentException if the dimensions differ
+   */
+  public double squaredDistance(VectorLiteral other) {
+    checkDimension(other);
+    double sum = 0d;
+    for (int i = 0; i < size(); i++) {
+      double difference = getDouble(i) - other.getDouble(i);
+      sum += difference * difference;
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the euclidean norm of this vector.
+   *
+   * @return norm
+   */
+  public double norm() {
+    double sum = 0d;
+    for (int i = 0; i < size(); i++) {
+      sum += getDouble(i) * getDouble(i);
+    }
+    return Math.sqrt(sum);
+  }
+
+  /**
+   * Checks that another vector has the dimension of this vector.
+   *
+   * @param other other vector
+   */
+  protected void checkDimension(VectorLiteral other) {
+    if (other.size() != size()) {
+      throw new IllegalArgumentException(String.format(
+              "Vectors must have the same dimension but found %d and %d", size(), other.size()));
+    }
+  }
+
+  /**
+   * Returns the elements as base64 encoded little-endian floats or doubles, depending on
+   * {@link #getElementType()}.
+   *
+   * @return base64 string
+   */
+  public String toBase64() {
+    boolean floats = getElementType() == Float.class;
+    ByteBuffer buffer = ByteBuffer.allocate(size() * (floats ? 4 : 8)).order(ByteOrder.LITTLE_ENDIAN);
+    for (int i = 0; i < size(); i++) {
+      if (floats) {
+        buffer.putFloat((float) getDouble(i));
+      } else {
+        buffer.putDouble(getDouble(i));
+      }
+    }
+    return Base64.getEncoder().encodeToString(buffer.array());
+  }
+
+  /**
+   * Returns the GDL representation of this vector. Vectors with at least {@link #BASE64_MIN_SIZE}
+   * elements are written in base64 form.
+   *
+   * @return GDL vector literal
+   */
+  public String toGDLString() {
+    return toGDLString(size() >= BASE64_MIN_SIZE);
+  }
+
+  /**
+   * Returns the GDL representation of this vector. The base64 form is also used if the list form
+   * cannot represent the vector, i.e. for infinite elements and float vectors without a non-NaN
+   * element.
+   *
+   * @param base64 true to prefer the base64 form
+   * @return GDL vector literal
+   */
+  public String toGDLString(boolean base64) {
+    boolean floats = getElementType() == Float.class;
+    boolean finite = true;
+    boolean typed = false;
+    for (int i = 0; i < size() && finite; i++) {
+      finite = !Double.isInfinite(getDouble(i));
+      typed |= !Double.isNaN(getDouble(i));
+    }
+    // the list form reads vectors without a typed element as double vectors
+    if (base64 || !finite || (floats && !typed)) {
+      return "vector(" + (floats ? "f32" : "f64") + ":\"" + toBase64() + "\")";
+    }
+    StringBuilder builder = new StringBuilder("vector([");
+    for (int i = 0; i < size(); i++) {
+      if (i > 0) {
+        builder.append(", ");
+      }
+      double value = getDouble(i);
+      if (Double.isNaN(value)) {
+        builder.append("NaN");
+      } else {
+        // plain decimal notation, the grammar has no exponents
+        String text = floats ? Float.toString((float) value) : Double.toString(value);
+        if (text.indexOf('E') >= 0) {
+          text = new BigDecimal(text).toPlainString();
+          text = text.indexOf('.') < 0 ? text + ".0" : text;
+        }
+        builder.append(text).append(floats ? 'f' : 'd');
+      }
+    }
+    return builder.append("])").toString();
+  }
+
+  /**
+   * Decodes base64 encoded little-endian values.
+   *
+   * @param base64 base64 string
+   * @param elementBytes bytes per element
+   * @return buffer over the decoded bytes
+   * @throws IllegalArgumentException if the string is no valid base64 or does not hold whole elements
+   */
+  protected static ByteBuffer decodeBase64(String base64, int elementBytes) {
+    if (base64 == null) {
+      throw new IllegalArgumentException("Value must not be null");
+    }
+    byte[] bytes = Base64.getDecoder().decode(base64);
+    if (bytes.length % elementBytes != 0) {
+      throw new IllegalArgumentException(String.format(
+              "Base64 vector must hold a multiple of %d bytes but found %d", elementBytes, bytes.length));
+    }
+    return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
   /**
    * Returns the name of this vector type, used as prefix of the string representation.
    *
@@ -51,15 +226,14 @@ public abstract class VectorLiteral {
   protected abstract String getTypeName();
 
   /**
-   * Checks that a vector value contains no null and no foreign elements and returns an
-   * unmodifiable copy of it.
+   * Checks that a vector value contains no null and no foreign elements.
    *
    * @param value vector value
    * @param elementType expected type of every element
    * @param <T> element type
-   * @return unmodifiable copy of the value
+   * @return the value
    */
-  protected static <T extends Number> List<T> checkedCopy(List<T> value, Class<T> elementType) {
+  protected static <T extends Number> List<T> checkElements(List<T> value, Class<T> elementType) {
     if (value == null) {
       throw new IllegalArgumentException("Value must not be null");
     }
@@ -73,26 +247,11 @@ public abstract class VectorLiteral {
                 elementType.getSimpleName(), element.getClass().getSimpleName()));
       }
     }
-    return Collections.unmodifiableList(new ArrayList<>(value));
+    return value;
   }
 
   @Override
   public String toString() {
     return getTypeName() + "(" + getValue() + ")";
   }
-
-  @Override
-  public boolean equals(Object o) {
-    if (this == o) return true;
-    if (o == null || getClass() != o.getClass()) return false;
-
-    VectorLiteral vector = (VectorLiteral) o;
-
-    return getValue().equals(vector.getValue());
-  }
-
-  @Override
-  public int hashCode() {
-    return getValue().hashCode();
-  }
-}
\ No newline at end of file
+}
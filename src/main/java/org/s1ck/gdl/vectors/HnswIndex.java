@@ -0,0 +1,803 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl.vectors;
+
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.model.Edge;
+import org.s1ck.gdl.model.Vertex;
+import org.s1ck.gdl.model.values.VectorLiteral;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Approximate nearest-neighbor index over a vector property, based on a hierarchical navigable
+ * small world (HNSW) graph.
+ *
+ * <p>Every indexed vertex is a node on layer 0 and, with exponentially decreasing probability, on
+ * higher layers. A search descends greedily from the single entry point on the top layer and
+ * explores the {@code efSearch} closest nodes on layer 0. Larger {@code efConstruction} and
+ * {@code maxConnections} values give a better connected graph at higher build cost, larger
+ * {@code efSearch} values trade latency for recall.
+ *
+ * <p>Vectors are stored in single precision, cosine vectors normalized in advance. Nodes are
+ * linked by concurrent insertions, each node list is guarded by its own monitor. Searches and
+ * insertions may run concurrently. If created from a handler, the index inserts the vertices of
+ * every {@link GDLHandler#append(String)} until it is detached.
+ */
+public class HnswIndex implements GDLHandler.AppendListener {
+
+  /**
+   * Upper bound of node layers
+   */
+  private static final int MAX_LEVEL = 16;
+
+  private final String label;
+
+  private final String key;
+
+  private final VectorMetric metric;
+
+  private final int maxConnections;
+
+  private final int efConstruction;
+
+  private final int efSearch;
+
+  private final int threads;
+
+  private final double levelFactor;
+
+  private final Random random;
+
+  /**
+   * Guards array growth (write) against insertions and searches (read)
+   */
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * Guards the entry point and the top layer
+   */
+  private final Object entryLock = new Object();
+
+  private final List<Vertex> vertices = new ArrayList<>();
+
+  private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+
+  private int dimension = -1;
+
+  private int count;
+
+  /**
+   * Row-major node vectors
+   */
+  private float[] vectors = new float[0];
+
+  private int[] levels = new int[0];
+
+  /**
+   * Neighbor lists per node and layer, the first element of a list is its length
+   */
+  private int[][][] links = new int[0][][];
+
+  private int entryPoint = -1;
+
+  private int maxLevel = -1;
+
+  private GDLHandler handler;
+
+  private HnswIndex(String label, String key, VectorMetric metric, int maxConnections,
+    int efConstruction, int efSearch, int threads, long seed) {
+    this.label = label;
+    this.key = key;
+    this.metric = metric;
+    this.maxConnections = maxConnections;
+    this.efConstruction = efConstruction;
+    this.efSearch = efSearch;
+    this.threads = threads;
+    this.levelFactor = 1d / Math.log(Math.max(maxConnections, 2));
+    this.random = new Random(seed);
+  }
+
+  /**
+   * Inserts a vertex if it has the label of this index and a vector value for its key.
+   *
+   * @param vertex vertex
+   * @return true, if the vertex has been inserted
+   * @throws IllegalArgumentException if the vector dimension differs from the indexed vectors
+   */
+  public boolean add(Vertex vertex) {
+    return addAll(Collections.singletonList(vertex)) == 1;
+  }
+
+  /**
+   * Inserts all vertices with the label of this index and a vector value for its key. Batches are
+   * inserted by the configured number of threads.
+   *
+   * @param vertices vertices
+   * @return number of inserted vertices
+   * @throws IllegalArgumentException if a vector dimension differs from the indexed vectors
+   */
+  public int addAll(Collection<Vertex> vertices) {
+    int first;
+    int last;
+    lock.writeLock().lock();
+    try {
+      first = count;
+      for (Vertex vertex : vertices) {
+        VectorLiteral vector = getVector(vertex);
+        if (vector != null) {
+          checkDimension(vector);
+          if (dimension == -1) {
+            dimension = vector.size();
+          }
+          allocate(vertex, vector);
+        }
+      }
+      last = count;
+    } finally {
+      lock.writeLock().unlock();
+    }
+
+    if (threads == 1 || last - first < 2 * threads) {
+      for (int node = first; node < last; node++) {
+        insert(node);
+      }
+    } else {
+      insertConcurrently(first, last);
+    }
+    return last - first;
+  }
+
+  @Override
+  public void appended(GDLHandler handler, List<Vertex> vertices, List<Edge> edges) {
+    addAll(vertices);
+  }
+
+  /**
+   * Stops inserting the vertices appended to the handler the index has been built from.
+   */
+  public void detach() {
+    if (handler != null) {
+      handler.removeAppendListener(this);
+      handler = null;
+    }
+  }
+
+  /**
+   * Returns approximately the k indexed vertices closest to the query, closest first.
+   *
+   * @param query query vector
+   * @param k maximum number of neighbors
+   * @return neighbors
+   */
+  public List<Neighbor> search(VectorLiteral query, int k) {
+    return search(query, k, efSearch);
+  }
+
+  /**
+   * Returns approximately the k indexed vertices closest to the query, closest first.
+   *
+   * @param query query vector
+   * @param k maximum number of neighbors
+   * @param ef number of candidates explored on the bottom layer, at least k are explored
+   * @return neighbors
+   * @throws IllegalArgumentException if k is negative or the query dimension does not match
+   */
+  public List<Neighbor> search(VectorLiteral query, int k, int ef) {
+    if (query == null) {
+      throw new IllegalArgumentException("Query must not be null");
+    }
+    if (k < 0) {
+      throw new IllegalArgumentException("k must not be negative");
+    }
+    lock.readLock().lock();
+    try {
+      checkDimension(query);
+      int entry;
+      int top;
+      synchronized (entryLock) {
+        entry = entryPoint;
+        top = maxLevel;
+      }
+      if (entry == -1 || k == 0) {
+        return new ArrayList<>();
+      }
+      float[] vector = toArray(query);
+      for (int level = top; level > 0; level--) {
+        entry = closest(vector, 0, entry, level);
+      }
+      TopK candidates = searchLayer(vector, 0, entry, Math.max(ef, k), 0);
+      double[] distances = new double[candidates.size()];
+      int[] nodes = candidates.drain(distances);
+
+      List<Neighbor> neighbors = new ArrayList<>(Math.min(k, nodes.length));
+      for (int i = 0; i < nodes.length && i < k; i++) {
+        double distance = metric == VectorMetric.L2 ? Math.sqrt(distances[i]) : distances[i];
+        neighbors.add(new Neighbor(vertices.get(nodes[i]), distance));
+      }
+      return neighbors;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the fraction of the exact k nearest neighbors that are found by the index, averaged
+   * over the given queries. The exact neighbors are computed by a {@link VectorSearch}.
+   *
+   * @param queries query vectors
+   * @param k number of neighbors per query
+   * @return recall between 0 and 1
+   */
+  public double recall(List<? extends VectorLiteral> queries, int k) {
+    VectorSearch exact = new VectorSearch.Builder().setMetric(metric)
+      .build(VectorStore.fromVertices(getVertices(), label, key));
+    long expected = 0;
+    long found = 0;
+    for (VectorLiteral query : queries) {
+      Set<Long> approximate = new HashSet<>();
+      for (Neighbor neighbor : search(query, k)) {
+        approximate.add(neighbor.getVertex().getId());
+      }
+      for (Neighbor neighbor : exact.search(query, k)) {
+        expected++;
+        if (approximate.contains(neighbor.getVertex().getId())) {
+          found++;
+        }
+      }
+    }
+    return expected == 0 ? 1d : (double) found / expected;
+  }
+
+  /**
+   * Returns the number of indexed vertices.
+   *
+   * @return index size
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return count;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the indexed vertices in insertion order.
+   *
+   * @return indexed vertices
+   */
+  public List<Vertex> getVertices() {
+    lock.readLock().lock();
+    try {
+      return new ArrayList<>(vertices);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public VectorMetric getMetric() {
+    return metric;
+  }
+
+  /**
+   * Returns the number of layers of the graph.
+   *
+   * @return number of layers, 0 if the index is empty
+   */
+  public int getLayerCount() {
+    synchronized (entryLock) {
+      return maxLevel + 1;
+    }
+  }
+
+  private VectorLiteral getVector(Vertex vertex) {
+    if (label != null && !vertex.getLabels().contains(label)) {
+      return null;
+    }
+    Object value = vertex.getProperties() == null ? null : vertex.getProperties().get(key);
+    return value instanceof VectorLiteral ? (VectorLiteral) value : null;
+  }
+
+  private void checkDimension(VectorLiteral vector) {
+    if (dimension != -1 && vector.size() != dimension) {
+      throw new IllegalArgumentException(String.format(
+        "Vector has dimension %d, expected %d", vector.size(), dimension));
+    }
+  }
+
+  /**
+   * Adds an unlinked node, requires the write lock.
+   */
+  private void allocate(Vertex vertex, VectorLiteral vector) {
+    if (count == levels.length) {
+      int capacity = Math.max(16, count + (count >> 1));
+      vectors = Arrays.copyOf(vectors, capacity * dimension);
+      levels = Arrays.copyOf(levels, capacity);
+      links = Arrays.copyOf(links, capacity);
+    }
+    int node = count++;
+    System.arraycopy(toArray(vector), 0, vectors, node * dimension, dimension);
+
+    int level = Math.min((int) (-Math.log(1d - random.nextDouble()) * levelFactor), MAX_LEVEL);
+    levels[node] = level;
+    links[node] = new int[level + 1][];
+    for (int l = 0; l <= level; l++) {
+      links[node][l] = new int[1 + getMaxConnections(l)];
+    }
+    vertices.add(vertex);
+  }
+
+  private void insertConcurrently(int first, int last) {
+    AtomicInteger next = new AtomicInteger(first);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(executor.submit(() -> {
+          for (int node = next.getAndIncrement(); node < last; node = next.getAndIncrement()) {
+            insert(node);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Links an allocated node into the graph.
+   */
+  private void insert(int node) {
+    lock.readLock().lock();
+    try {
+      int level = levels[node];
+      int entry;
+      int top;
+      synchronized (entryLock) {
+        if (entryPoint == -1) {
+          entryPoint = node;
+          maxLevel = level;
+          return;
+        }
+        entry = entryPoint;
+        top = maxLevel;
+      }
+      int offset = node * dimension;
+      for (int l = top; l > level; l--) {
+        entry = closest(vectors, offset, entry, l);
+      }
+      for (int l = Math.min(level, top); l >= 0; l--) {
+        TopK candidates = searchLayer(vectors, offset, entry, efConstruction, l);
+        double[] distances = new double[candidates.size()];
+        int[] nodes = candidates.drain(distances);
+        int[] selected = selectNeighbors(nodes, distances, nodes.length, maxConnections);
+        synchronized (links[node]) {
+          int[] list = links[node][l];
+          list[0] = selected.length;
+          System.arraycopy(selected, 0, list, 1, selected.length);
+        }
+        for (int neighbor : selected) {
+          connect(neighbor, node, l);
+        }
+        entry = nodes[0];
+      }
+      synchronized (entryLock) {
+        if (level > maxLevel) {
+          maxLevel = level;
+          entryPoint = node;
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Adds a backward link, the list of the neighbor is pruned if it overflows.
+   */
+  private void connect(int neighbor, int node, int level) {
+    synchronized (links[neighbor]) {
+      int[] list = links[neighbor][level];
+      int size = list[0];
+      if (size < list.length - 1) {
+        list[size + 1] = node;
+        list[0] = size + 1;
+        return;
+      }
+      int offset = neighbor * dimension;
+      TopK candidates = new TopK(size + 1);
+      candidates.offer(node, distance(vectors, offset, node));
+      for (int i = 1; i <= size; i++) {
+        candidates.offer(list[i], distance(vectors, offset, list[i]));
+      }
+      double[] distances = new double[size + 1];
+      int[] nodes = candidates.drain(distances);
+      int[] selected = selectNeighbors(nodes, distances, nodes.length, size);
+      list[0] = selected.length;
+      System.arraycopy(selected, 0, list, 1, selected.length);
+    }
+  }
+
+  /**
+   * Selects up to max candidates that are closer to the base node than to any selected
+   * candidate, then fills up with the closest remaining ones.
+   *
+   * @param nodes candidates ordered by distance to the base node
+   * @param distances distances to the base node
+   * @param length number of candidates
+   * @param max maximum number of neighbors
+   * @return selected neighbors
+   */
+  private int[] selectNeighbors(int[] nodes, double[] distances, int length, int max) {
+    int[] selected = new int[Math.min(max, length)];
+    boolean[] taken = new boolean[length];
+    int size = 0;
+    for (int i = 0; i < length && size < selected.length; i++) {
+      boolean diverse = true;
+      for (int s = 0; s < size && diverse; s++) {
+        diverse = distance(vectors, nodes[i] * dimension, selected[s]) >= distances[i];
+      }
+      if (diverse) {
+        selected[size++] = nodes[i];
+        taken[i] = true;
+      }
+    }
+    for (int i = 0; i < length && size < selected.length; i++) {
+      if (!taken[i]) {
+        selected[size++] = nodes[i];
+      }
+    }
+    return selected;
+  }
+
+  private int closest(float[] vector, int offset, int entry, int level) {
+    double best = distance(vector, offset, entry);
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (int neighbor : neighbors(entry, level)) {
+        double distance = distance(vector, offset, neighbor);
+        if (distance < best) {
+          best = distance;
+          entry = neighbor;
+          changed = true;
+        }
+      }
+    }
+    return entry;
+  }
+
+  private TopK searchLayer(float[] vector, int offset, int entry, int ef, int level) {
+    Visited seen = visited.get();
+    seen.reset(count);
+    TopK results = new TopK(ef);
+    Candidates candidates = new Candidates();
+
+    double distance = distance(vector, offset, entry);
+    seen.add(entry);
+    results.offer(entry, distance);
+    candidates.push(entry, distance);
+    while (candidates.size() > 0) {
+      if (results.isFull() && candidates.peekDistance() > results.peekDistance()) {
+        break;
+      }
+      int current = candidates.pop();
+      for (int neighbor : neighbors(current, level)) {
+        if (seen.add(neighbor)) {
+          distance = distance(vector, offset, neighbor);
+          if (!results.isFull() || distance < results.peekDistance()) {
+            results.offer(neighbor, distance);
+            candidates.push(neighbor, distance);
+          }
+        }
+      }
+    }
+    return results;
+  }
+
+  private int[] neighbors(int node, int level) {
+    synchronized (links[node]) {
+      int[] list = links[node][level];
+      return Arrays.copyOfRange(list, 1, list[0] + 1);
+    }
+  }
+
+  /**
+   * Distance between a vector and a node, L2 distances are squared.
+   */
+  private double distance(float[] vector, int offset, int node) {
+    switch (metric) {
+    case L2:
+      return VectorKernels.squaredL2(vector, offset, vectors, node * dimension, dimension);
+    case COSINE:
+      return 1d - VectorKernels.dot(vector, offset, vectors, node * dimension, dimension);
+    default:
+      return -VectorKernels.dot(vector, offset, vectors, node * dimension, dimension);
+    }
+  }
+
+  private int getMaxConnections(int level) {
+    return level == 0 ? 2 * maxConnections : maxConnections;
+  }
+
+  /**
+   * Narrows a vector to floats, normalized for the cosine metric.
+   */
+  private float[] toArray(VectorLiteral vector) {
+    float[] values = new float[vector.size()];
+    double norm = 0d;
+    for (int i = 0; i < values.length; i++) {
+      values[i] = (float) vector.getDouble(i);
+      norm += vector.getDouble(i) * vector.getDouble(i);
+    }
+    if (metric == VectorMetric.COSINE && norm > 0d) {
+      norm = Math.sqrt(norm);
+      for (int i = 0; i < values.length; i++) {
+        values[i] = (float) (vector.getDouble(i) / norm);
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Min-heap of nodes to expand, ordered by distance.
+   */
+  private static class Candidates {
+
+    private int[] nodes = new int[16];
+
+    private double[] distances = new double[16];
+
+    private int size;
+
+    void push(int node, double distance) {
+      if (size == nodes.length) {
+        nodes = Arrays.copyOf(nodes, size * 2);
+        distances = Arrays.copyOf(distances, size * 2);
+      }
+      int index = size++;
+      while (index > 0) {
+        int parent = (index - 1) >>> 1;
+        if (distances[parent] <= distance) {
+          break;
+        }
+        nodes[index] = nodes[parent];
+        distances[index] = distances[parent];
+        index = parent;
+      }
+      nodes[index] = node;
+      distances[index] = distance;
+    }
+
+    int pop() {
+      int result = nodes[0];
+      int node = nodes[--size];
+      double distance = distances[size];
+      int index = 0;
+      while (2 * index + 1 < size) {
+        int child = 2 * index + 1;
+        if (child + 1 < size && distances[child + 1] < distances[child]) {
+          child++;
+        }
+        if (distances[child] >= distance) {
+          break;
+        }
+        nodes[index] = nodes[child];
+        distances[index] = distances[child];
+        index = child;
+      }
+      nodes[index] = node;
+      distances[index] = distance;
+      return result;
+    }
+
+    double peekDistance() {
+      return distances[0];
+    }
+
+    int size() {
+      return size;
+    }
+  }
+
+  /**
+   * Per-thread visited marks, cleared in constant time by bumping the epoch.
+   */
+  private static class Visited {
+
+    private int[] marks = new int[0];
+
+    private int epoch;
+
+    void reset(int capacity) {
+      if (marks.length < capacity) {
+        marks = new int[Math.max(capacity, marks.length * 2)];
+        epoch = 0;
+      }
+      if (++epoch == Integer.MAX_VALUE) {
+        Arrays.fill(marks, 0);
+        epoch = 1;
+      }
+    }
+
+    boolean add(int node) {
+      if (marks[node] == epoch) {
+        return false;
+      }
+      marks[node] = epoch;
+      return true;
+    }
+  }
+
+  /**
+   * Builds an {@link HnswIndex}.
+   */
+  public static class Builder {
+
+    private VectorMetric metric = VectorMetric.COSINE;
+
+    private int maxConnections = 16;
+
+    private int efConstruction = 100;
+
+    private int efSearch = 50;
+
+    private int threads = 1;
+
+    private long seed = 42L;
+
+    /**
+     * Sets the distance function, defaults to {@link VectorMetric#COSINE}.
+     *
+     * @param metric distance function
+     * @return builder
+     */
+    public Builder setMetric(VectorMetric metric) {
+      if (metric == null) {
+        throw new IllegalArgumentException("Metric must not be null");
+      }
+      this.metric = metric;
+      return this;
+    }
+
+    /**
+     * Sets the number of neighbors per node on the upper layers, twice as many are kept on the
+     * bottom layer. Defaults to 16.
+     *
+     * @param maxConnections neighbors per node
+     * @return builder
+     */
+    public Builder setMaxConnections(int maxConnections) {
+      this.maxConnections = checkPositive(maxConnections, "maxConnections");
+      return this;
+    }
+
+    /**
+     * Sets the number of candidates explored when inserting a node. Defaults to 100.
+     *
+     * @param efConstruction candidates per insertion
+     * @return builder
+     */
+    public Builder setEfConstruction(int efConstruction) {
+      this.efConstruction = checkPositive(efConstruction, "efConstruction");
+      return this;
+    }
+
+    /**
+     * Sets the default number of candidates explored by a search. Defaults to 50.
+     *
+     * @param efSearch candidates per search
+     * @return builder
+     */
+    public Builder setEfSearch(int efSearch) {
+      this.efSearch = checkPositive(efSearch, "efSearch");
+      return this;
+    }
+
+    /**
+     * Sets the number of threads inserting a batch of vertices. Defaults to 1.
+     *
+     * @param threads insertion threads
+     * @return builder
+     */
+    public Builder setThreads(int threads) {
+      this.threads = checkPositive(threads, "threads");
+      return this;
+    }
+
+    /**
+     * Sets the seed of the random layer assignment. Defaults to 42.
+     *
+     * @param seed random seed
+     * @return builder
+     */
+    public Builder setSeed(long seed) {
+      this.seed = seed;
+      return this;
+    }
+
+    /**
+     * Indexes the vertices of a handler and all vertices appended to it later on.
+     *
+     * @param handler database
+     * @param label vertex label or {@code null} for all vertices
+     * @param key property key of the vectors
+     * @return index
+     */
+    public HnswIndex build(GDLHandler handler, String label, String key) {
+      HnswIndex index = build(handler.getVertices(), label, key);
+      index.handler = handler;
+      handler.addAppendListener(index);
+      return index;
+    }
+
+    /**
+     * Indexes the given vertices.
+     *
+     * @param vertices vertices
+     * @param label vertex label or {@code null} for all vertices
+     * @param key property key of the vectors
+     * @return index
+     */
+    public HnswIndex build(Collection<Vertex> vertices, String label, String key) {
+      if (key == null) {
+        throw new IllegalArgumentException("Key must not be null");
+      }
+      HnswIndex index = new HnswIndex(label, key, metric, maxConnections, efConstruction, efSearch,
+        threads, seed);
+      List<Vertex> sorted = new ArrayList<>(vertices);
+      sorted.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+      index.addAll(sorted);
+      return index;
+    }
+
+    private static int checkPositive(int value, String name) {
+      if (value <= 0) {
+        throw new IllegalArgumentException(name + " must be positive");
+      }
+      return value;
+    }
+  }
+}
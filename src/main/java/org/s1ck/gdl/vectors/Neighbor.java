@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl.vectors;
+
+import org.s1ck.gdl.model.Vertex;
+
+import java.util.Objects;
+
+/**
+ * A vertex found by a {@link VectorSearch} and its distance to the query vector.
+ */
+public class Neighbor {
+
+  private final Vertex vertex;
+
+  private final double distance;
+
+  public Neighbor(Vertex vertex, double distance) {
+    this.vertex = vertex;
+    this.distance = distance;
+  }
+
+  public Vertex getVertex() {
+    return vertex;
+  }
+
+  /**
+   * Returns the distance under the metric of the search, smaller is closer.
+   *
+   * @return distance
+   */
+  public double getDistance() {
+    return distance;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    Neighbor neighbor = (Neighbor) o;
+    return Double.compare(neighbor.distance, distance) == 0 && Objects.equals(vertex, neighbor.vertex);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(vertex, distance);
+  }
+
+  @Override
+  public String toString() {
+    return vertex.getId() + ":" + distance;
+  }
+}
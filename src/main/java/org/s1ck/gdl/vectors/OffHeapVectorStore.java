@@ -0,0 +1,488 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl.vectors;
+
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.model.Vertex;
+import org.s1ck.gdl.model.values.VectorLiteral;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Vector property values of a set of vertices, stored outside of the Java heap.
+ *
+ * <p>Rows are kept in direct byte buffers or, if a file is given, in buffers mapped from that
+ * file. Each buffer segment holds a whole number of rows, so stores may exceed the 2 GB limit of a
+ * single buffer. A row starts with its norm and holds the vector either as 32 bit floats or, with
+ * {@link Encoding#INT8}, as one signed byte per element and a per-row scale: element {@code i} is
+ * {@code scale * byte[i]}, where {@code scale} maps the largest absolute element to 127.
+ *
+ * <p>Searches compare the query in full precision with the stored rows without decoding them into
+ * arrays. Optionally, the property values of the stored vertices are replaced by
+ * {@link VectorHandle}s, which read their elements from the store.
+ */
+public class OffHeapVectorStore implements Closeable {
+
+  /**
+   * Storage format of the vector elements
+   */
+  public enum Encoding {
+    /**
+     * 4 bytes per element, lossless for float vectors
+     */
+    FLOAT32,
+    /**
+     * 1 byte per element plus a float scale per vector
+     */
+    INT8
+  }
+
+  private final Encoding encoding;
+
+  private final int dimension;
+
+  /**
+   * Bytes per row, including the header
+   */
+  private final int rowBytes;
+
+  private final int rowsPerSegment;
+
+  private final ByteBuffer[] segments;
+
+  private final List<Vertex> vertices;
+
+  private final FileChannel channel;
+
+  private OffHeapVectorStore(Encoding encoding, int dimension, int segmentSize, List<Vertex> vertices,
+    FileChannel channel) throws IOException {
+    this.encoding = encoding;
+    this.dimension = dimension;
+    this.rowBytes = encoding == Encoding.INT8 ? 8 + dimension : 4 + 4 * dimension;
+    this.rowsPerSegment = Math.max(1, segmentSize / rowBytes);
+    this.vertices = vertices;
+    this.channel = channel;
+
+    int segmentCount = (vertices.size() + rowsPerSegment - 1) / rowsPerSegment;
+    this.segments = new ByteBuffer[segmentCount];
+    for (int s = 0; s < segmentCount; s++) {
+      int rows = Math.min(rowsPerSegment, vertices.size() - s * rowsPerSegment);
+      long bytes = (long) rows * rowBytes;
+      ByteBuffer segment = channel != null ?
+        channel.map(FileChannel.MapMode.READ_WRITE, (long) s * rowsPerSegment * rowBytes, bytes) :
+        ByteBuffer.allocateDirect((int) bytes);
+      segments[s] = segment.order(ByteOrder.nativeOrder());
+    }
+  }
+
+  /**
+   * Returns the number of stored vectors.
+   *
+   * @return number of rows
+   */
+  public int size() {
+    return vertices.size();
+  }
+
+  /**
+   * Returns the dimension shared by all stored vectors.
+   *
+   * @return vector dimension, 0 if the store is empty
+   */
+  public int getDimension() {
+    return dimension;
+  }
+
+  public Encoding getEncoding() {
+    return encoding;
+  }
+
+  /**
+   * Returns the number of bytes used outside of the heap.
+   *
+   * @return stored bytes
+   */
+  public long getByteSize() {
+    return (long) vertices.size() * rowBytes;
+  }
+
+  /**
+   * Returns the vertex of a row.
+   *
+   * @param row row index
+   * @return vertex
+   */
+  public Vertex getVertex(int row) {
+    return vertices.get(row);
+  }
+
+  /**
+   * Returns a vector reading the elements of a row from this store.
+   *
+   * @param row row index
+   * @return vector handle
+   */
+  public VectorHandle getHandle(int row) {
+    if (row < 0 || row >= size()) {
+      throw new IndexOutOfBoundsException("Row: " + row);
+    }
+    return new VectorHandle(this, row);
+  }
+
+  /**
+   * Returns the k stored vertices closest to the query, closest first. Vertices at equal distance
+   * are ordered by id. Distances are computed on the stored, possibly quantized, vectors.
+   *
+   * @param query query vector
+   * @param k maximum number of neighbors
+   * @param metric distance function
+   * @return neighbors
+   * @throws IllegalArgumentException if k is negative or the query dimension does not match
+   */
+  public List<Neighbor> search(VectorLiteral query, int k, VectorMetric metric) {
+    if (query == null || metric == null) {
+      throw new IllegalArgumentException("Query and metric must not be null");
+    }
+    if (k < 0) {
+      throw new IllegalArgumentException("k must not be negative");
+    }
+    if (size() > 0 && query.size() != dimension) {
+      throw new IllegalArgumentException(String.format(
+        "Query has dimension %d, expected %d", query.size(), dimension));
+    }
+    float[] vector = new float[query.size()];
+    for (int i = 0; i < vector.length; i++) {
+      vector[i] = (float) query.getDouble(i);
+    }
+    double queryNorm = Math.sqrt(VectorKernels.squaredNorm(vector, 0, vector.length));
+
+    TopK best = new TopK(Math.min(k, size()));
+    for (int row = 0; row < size(); row++) {
+      ByteBuffer segment = segments[row / rowsPerSegment];
+      int offset = (row % rowsPerSegment) * rowBytes;
+      double distance;
+      if (metric == VectorMetric.L2) {
+        distance = encoding == Encoding.INT8 ?
+          squaredL2Int8(segment, offset, vector) : squaredL2Float(segment, offset, vector);
+      } else {
+        double dot = encoding == Encoding.INT8 ? dotInt8(segment, offset, vector) : dotFloat(segment, offset, vector);
+        distance = VectorKernels.fromDot(metric, dot, segment.getFloat(offset) * queryNorm);
+      }
+      best.offer(row, distance);
+    }
+
+    double[] distances = new double[best.size()];
+    int[] rows = best.drain(distances);
+    List<Neighbor> neighbors = new ArrayList<>(rows.length);
+    for (int i = 0; i < rows.length; i++) {
+      double distance = metric == VectorMetric.L2 ? Math.sqrt(distances[i]) : distances[i];
+      neighbors.add(new Neighbor(vertices.get(rows[i]), distance));
+    }
+    return neighbors;
+  }
+
+  /**
+   * Returns the fraction of the exact k nearest neighbors that are found by searching this store,
+   * averaged over the given queries. Used to measure the loss of quantization.
+   *
+   * @param exact search over the original vectors
+   * @param queries query vectors
+   * @param k number of neighbors per query
+   * @return recall between 0 and 1
+   */
+  public double recall(VectorSearch exact, List<? extends VectorLiteral> queries, int k) {
+    long expected = 0;
+    long found = 0;
+    for (VectorLiteral query : queries) {
+      Set<Long> stored = new HashSet<>();
+      for (Neighbor neighbor : search(query, k, exact.getMetric())) {
+        stored.add(neighbor.getVertex().getId());
+      }
+      for (Neighbor neighbor : exact.search(query, k)) {
+        expected++;
+        if (stored.contains(neighbor.getVertex().getId())) {
+          found++;
+        }
+      }
+    }
+    return expected == 0 ? 1d : (double) found / expected;
+  }
+
+  /**
+   * Closes the mapped file, if any. Direct buffers are released by the garbage collector.
+   *
+   * @throws IOException if the file cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+    }
+  }
+
+  /**
+   * Returns a stored element.
+   *
+   * @param row row index
+   * @param index element index
+   * @return element, decoded to a float
+   */
+  float getFloat(int row, int index) {
+    ByteBuffer segment = segments[row / rowsPerSegment];
+    int offset = (row % rowsPerSegment) * rowBytes;
+    if (encoding == Encoding.INT8) {
+      return segment.getFloat(offset + 4) * segment.get(offset + 8 + index);
+    }
+    return segment.getFloat(offset + 4 + 4 * index);
+  }
+
+  private void write(int row, VectorLiteral vector) {
+    ByteBuffer segment = segments[row / rowsPerSegment];
+    int offset = (row % rowsPerSegment) * rowBytes;
+    double norm = 0d;
+    if (encoding == Encoding.INT8) {
+      double max = 0d;
+      for (int i = 0; i < dimension; i++) {
+        max = Math.max(max, Math.abs(vector.getDouble(i)));
+      }
+      float scale = (float) (max / 127d);
+      segment.putFloat(offset + 4, scale);
+      for (int i = 0; i < dimension; i++) {
+        byte quantized = scale == 0f ? 0 : (byte) Math.round(vector.getDouble(i) / scale);
+        segment.put(offset + 8 + i, quantized);
+        double value = scale * quantized;
+        norm += value * value;
+      }
+    } else {
+      for (int i = 0; i < dimension; i++) {
+        float value = (float) vector.getDouble(i);
+        segment.putFloat(offset + 4 + 4 * i, value);
+        norm += value * value;
+      }
+    }
+    // norm of the stored, not the original vector, so that cosine distances stay in range
+    segment.putFloat(offset, (float) Math.sqrt(norm));
+  }
+
+  private double dotFloat(ByteBuffer segment, int offset, float[] query) {
+    float s0 = 0f;
+    float s1 = 0f;
+    int base = offset + 4;
+    int i = 0;
+    for (; i + 1 < query.length; i += 2) {
+      s0 += segment.getFloat(base + 4 * i) * query[i];
+      s1 += segment.getFloat(base + 4 * i + 4) * query[i + 1];
+    }
+    for (; i < query.length; i++) {
+      s0 += segment.getFloat(base + 4 * i) * query[i];
+    }
+    return (double) s0 + s1;
+  }
+
+  private double squaredL2Float(ByteBuffer segment, int offset, float[] query) {
+    float sum = 0f;
+    int base = offset + 4;
+    for (int i = 0; i < query.length; i++) {
+      float difference = segment.getFloat(base + 4 * i) - query[i];
+      sum += difference * difference;
+    }
+    return sum;
+  }
+
+  private double dotInt8(ByteBuffer segment, int offset, float[] query) {
+    float s0 = 0f;
+    float s1 = 0f;
+    float s2 = 0f;
+    float s3 = 0f;
+    int base = offset + 8;
+    int i = 0;
+    for (; i + 3 < query.length; i += 4) {
+      s0 += segment.get(base + i) * query[i];
+      s1 += segment.get(base + i + 1) * query[i + 1];
+      s2 += segment.get(base + i + 2) * query[i + 2];
+      s3 += segment.get(base + i + 3) * query[i + 3];
+    }
+    for (; i < query.length; i++) {
+      s0 += segment.get(base + i) * query[i];
+    }
+    return segment.getFloat(offset + 4) * ((double) s0 + s1 + s2 + s3);
+  }
+
+  private double squaredL2Int8(ByteBuffer segment, int offset, float[] query) {
+    float scale = segment.getFloat(offset + 4);
+    float sum = 0f;
+    int base = offset + 8;
+    for (int i = 0; i < query.length; i++) {
+      float difference = scale * segment.get(base + i) - query[i];
+      sum += difference * difference;
+    }
+    return sum;
+  }
+
+  /**
+   * Builds an {@link OffHeapVectorStore}.
+   */
+  public static class Builder {
+
+    /**
+     * Default segment size, a multiple of the page size below the 2 GB buffer limit
+     */
+    private static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+    private Encoding encoding = Encoding.FLOAT32;
+
+    private Path file;
+
+    private int segmentSize = DEFAULT_SEGMENT_SIZE;
+
+    private boolean replaceProperties = false;
+
+    /**
+     * Sets the storage format, defaults to {@link Encoding#FLOAT32}.
+     *
+     * @param encoding storage format
+     * @return builder
+     */
+    public Builder setEncoding(Encoding encoding) {
+      if (encoding == null) {
+        throw new IllegalArgumentException("Encoding must not be null");
+      }
+      this.encoding = encoding;
+      return this;
+    }
+
+    /**
+     * Stores the vectors in buffers mapped from the given file instead of direct buffers. The file
+     * is created or overwritten.
+     *
+     * @param file file or {@code null} for direct buffers
+     * @return builder
+     */
+    public Builder setFile(Path file) {
+      this.file = file;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of bytes per buffer, defaults to 1 GB.
+     *
+     * @param segmentSize bytes per buffer
+     * @return builder
+     */
+    public Builder setSegmentSize(int segmentSize) {
+      if (segmentSize <= 0) {
+        throw new IllegalArgumentException("segmentSize must be positive");
+      }
+      this.segmentSize = segmentSize;
+      return this;
+    }
+
+    /**
+     * Replaces the vector property of every stored vertex by a {@link VectorHandle}, so that the
+     * heap copy of the vector can be collected.
+     *
+     * @param replaceProperties true to replace the property values
+     * @return builder
+     */
+    public Builder setReplaceProperties(boolean replaceProperties) {
+      this.replaceProperties = replaceProperties;
+      return this;
+    }
+
+    /**
+     * Stores the vectors of all vertices of a handler.
+     *
+     * @param handler database
+     * @param label vertex label or {@code null} for all vertices
+     * @param key property key of the vectors
+     * @return vector store
+     */
+    public OffHeapVectorStore build(GDLHandler handler, String label, String key) {
+      return build(handler.getVertices(), label, key);
+    }
+
+    /**
+     * Stores the vectors of the given vertices. Vertices without the label or without a vector
+     * value for the key are ignored.
+     *
+     * @param vertices vertices
+     * @param label vertex label or {@code null} for all vertices
+     * @param key property key of the vectors
+     * @return vector store
+     * @throws IllegalArgumentException if the vectors differ in dimension
+     * @throws UncheckedIOException if the file cannot be mapped
+     */
+    public OffHeapVectorStore build(Collection<Vertex> vertices, String label, String key) {
+      if (key == null) {
+        throw new IllegalArgumentException("Key must not be null");
+      }
+      List<Vertex> selected = new ArrayList<>();
+      List<VectorLiteral> vectors = new ArrayList<>();
+      int dimension = -1;
+      List<Vertex> sorted = new ArrayList<>(vertices);
+      sorted.sort(Comparator.comparingLong(Vertex::getId));
+      for (Vertex vertex : sorted) {
+        if (label != null && !vertex.getLabels().contains(label)) {
+          continue;
+        }
+        Object value = vertex.getProperties() == null ? null : vertex.getProperties().get(key);
+        if (!(value instanceof VectorLiteral)) {
+          continue;
+        }
+        VectorLiteral vector = (VectorLiteral) value;
+        if (dimension == -1) {
+          dimension = vector.size();
+        } else if (vector.size() != dimension) {
+          throw new IllegalArgumentException(String.format(
+            "Vector of vertex %d has dimension %d, expected %d", vertex.getId(), vector.size(), dimension));
+        }
+        selected.add(vertex);
+        vectors.add(vector);
+      }
+
+      OffHeapVectorStore store;
+      try {
+        FileChannel channel = file == null ? null : FileChannel.open(file, StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        store = new OffHeapVectorStore(encoding, Math.max(dimension, 0), segmentSize, selected, channel);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      for (int row = 0; row < vectors.size(); row++) {
+        store.write(row, vectors.get(row));
+        if (replaceProperties) {
+          selected.get(row).getProperties().put(key, store.getHandle(row));
+        }
+      }
+      return store;
+    }
+  }
+}
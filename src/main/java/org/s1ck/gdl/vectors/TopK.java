@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl.vectors;
+
+/**
+ * Keeps the {@code k} rows with the smallest distances seen so far.
+ *
+ * <p>The rows form a binary max-heap on parallel primitive arrays, so the worst retained row is at
+ * the root and a candidate is rejected with one comparison. Equal distances are ordered by row,
+ * which makes the result independent of the order rows are offered in.
+ */
+final class TopK {
+
+  private final int k;
+
+  private final int[] rows;
+
+  private final double[] distances;
+
+  private int size;
+
+  TopK(int k) {
+    this.k = k;
+    this.rows = new int[k];
+    this.distances = new double[k];
+  }
+
+  /**
+   * Offers a row, it is retained if it is among the k best rows seen so far.
+   *
+   * @param row row index
+   * @param distance distance of the row to the query
+   */
+  void offer(int row, double distance) {
+    if (size < k) {
+      rows[size] = row;
+      distances[size] = distance;
+      siftUp(size++);
+    } else if (k > 0 && less(row, distance, rows[0], distances[0])) {
+      rows[0] = row;
+      distances[0] = distance;
+      siftDown(0);
+    }
+  }
+
+  /**
+   * Offers all rows of another heap.
+   *
+   * @param other heap over a disjoint set of rows
+   */
+  void merge(TopK other) {
+    for (int i = 0; i < other.size; i++) {
+      offer(other.rows[i], other.distances[i]);
+    }
+  }
+
+  /**
+   * Returns the retained rows ordered by distance. The heap is emptied.
+   *
+   * @param distancesOut receives the distance of each returned row
+   * @return rows, closest first
+   */
+  int[] drain(double[] distancesOut) {
+    int[] result = new int[size];
+    while (size > 0) {
+      int last = size - 1;
+      result[last] = rows[0];
+      distancesOut[last] = distances[0];
+      rows[0] = rows[last];
+      distances[0] = distances[last];
+      size--;
+      siftDown(0);
+    }
+    return result;
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isFull() {
+    return size == k;
+  }
+
+  /**
+   * Returns the largest retained distance.
+   *
+   * @return distance of the worst retained row
+   */
+  double peekDistance() {
+    return distances[0];
+  }
+
+  private void siftUp(int index) {
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (!less(rows[parent], distances[parent], rows[index], distances[index])) {
+        return;
+      }
+      swap(parent, index);
+      index = parent;
+    }
+  }
+
+  private void siftDown(int index) {
+    while (true) {
+      int largest = index;
+      for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+        if (less(rows[largest], distances[largest], rows[child], distances[child])) {
+          largest = child;
+        }
+      }
+      if (largest == index) {
+        return;
+      }
+      swap(index, largest);
+      index = largest;
+    }
+  }
+
+  private void swap(int i, int j) {
+    int row = rows[i];
+    rows[i] = rows[j];
+    rows[j] = row;
+    double distance = distances[i];
+    distances[i] = distances[j];
+    distances[j] = distance;
+  }
+
+  private static boolean less(int row, double distance, int otherRow, double otherDistance) {
+    int cmp = Double.compare(distance, otherDistance);
+    return cmp < 0 || (cmp == 0 && row < otherRow);
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl.vectors;
+
+import org.s1ck.gdl.model.values.VectorLiteral;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A float vector whose elements are read from a row of an {@link OffHeapVectorStore}.
+ *
+ * <p>A handle only holds its store and row. Quantized rows are decoded on access, so the values
+ * may differ slightly from the vector originally stored.
+ */
+public final class VectorHandle extends VectorLiteral {
+
+  private final OffHeapVectorStore store;
+
+  private final int row;
+
+  VectorHandle(OffHeapVectorStore store, int row) {
+    this.store = store;
+    this.row = row;
+  }
+
+  public OffHeapVectorStore getStore() {
+    return store;
+  }
+
+  public int getRow() {
+    return row;
+  }
+
+  /**
+   * Returns an element.
+   *
+   * @param index element index
+   * @return element value
+   */
+  public float getFloat(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException("Index: " + index);
+    }
+    return store.getFloat(row, index);
+  }
+
+  @Override
+  public double getDouble(int index) {
+    return getFloat(index);
+  }
+
+  @Override
+  public int size() {
+    return store.getDimension();
+  }
+
+  @Override
+  public List<Float> getValue() {
+    return new Elements();
+  }
+
+  @Override
+  public Class<Float> getElementType() {
+    return Float.class;
+  }
+
+  @Override
+  protected String getTypeName() {
+    return "float_vector";
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+
+    VectorHandle that = (VectorHandle) o;
+    return store == that.store && row == that.row;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * System.identityHashCode(store) + row;
+  }
+
+  /**
+   * Boxing list view of the elements
+   */
+  private final class Elements extends AbstractList<Float> implements RandomAccess {
+    @Override
+    public Float get(int index) {
+      return getFloat(index);
+    }
+
+    @Override
+    public int size() {
+      return VectorHandle.this.size();
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl.vectors;
+
+/**
+ * Distance kernels over primitive vectors stored back to back in arrays.
+ *
+ * <p>The loops keep four independent accumulators, so the JIT can overlap the multiply-adds of
+ * consecutive elements instead of waiting for one long dependency chain. Float products are summed
+ * in float precision, which is the usual trade-off for embeddings.
+ */
+final class VectorKernels {
+
+  private VectorKernels() {
+  }
+
+  static double dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+    float s0 = 0f;
+    float s1 = 0f;
+    float s2 = 0f;
+    float s3 = 0f;
+    int i = 0;
+    for (; i + 3 < length; i += 4) {
+      s0 += a[aOffset + i] * b[bOffset + i];
+      s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+      s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+      s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+    }
+    for (; i < length; i++) {
+      s0 += a[aOffset + i] * b[bOffset + i];
+    }
+    return (double) s0 + s1 + s2 + s3;
+  }
+
+  static double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+    double s0 = 0d;
+    double s1 = 0d;
+    double s2 = 0d;
+    double s3 = 0d;
+    int i = 0;
+    for (; i + 3 < length; i += 4) {
+      s0 += a[aOffset + i] * b[bOffset + i];
+      s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+      s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+      s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+    }
+    for (; i < length; i++) {
+      s0 += a[aOffset + i] * b[bOffset + i];
+    }
+    return s0 + s1 + s2 + s3;
+  }
+
+  static double squaredL2(float[] a, int aOffset, float[] b, int bOffset, int length) {
+    float s0 = 0f;
+    float s1 = 0f;
+    float s2 = 0f;
+    float s3 = 0f;
+    int i = 0;
+    for (; i + 3 < length; i += 4) {
+      float d0 = a[aOffset + i] - b[bOffset + i];
+      float d1 = a[aOffset + i + 1] - b[bOffset + i + 1];
+      float d2 = a[aOffset + i + 2] - b[bOffset + i + 2];
+      float d3 = a[aOffset + i + 3] - b[bOffset + i + 3];
+      s0 += d0 * d0;
+      s1 += d1 * d1;
+      s2 += d2 * d2;
+      s3 += d3 * d3;
+    }
+    for (; i < length; i++) {
+      float d = a[aOffset + i] - b[bOffset + i];
+      s0 += d * d;
+    }
+    return (double) s0 + s1 + s2 + s3;
+  }
+
+  static double squaredL2(double[] a, int aOffset, double[] b, int bOffset, int length) {
+    double s0 = 0d;
+    double s1 = 0d;
+    double s2 = 0d;
+    double s3 = 0d;
+    int i = 0;
+    for (; i + 3 < length; i += 4) {
+      double d0 = a[aOffset + i] - b[bOffset + i];
+      double d1 = a[aOffset + i + 1] - b[bOffset + i + 1];
+      double d2 = a[aOffset + i + 2] - b[bOffset + i + 2];
+      double d3 = a[aOffset + i + 3] - b[bOffset + i + 3];
+      s0 += d0 * d0;
+      s1 += d1 * d1;
+      s2 += d2 * d2;
+      s3 += d3 * d3;
+    }
+    for (; i < length; i++) {
+      double d = a[aOffset + i] - b[bOffset + i];
+      s0 += d * d;
+    }
+    return s0 + s1 + s2 + s3;
+  }
+
+  static double squaredNorm(float[] data, int offset, int length) {
+    float s0 = 0f;
+    float s1 = 0f;
+    int i = 0;
+    for (; i + 1 < length; i += 2) {
+      s0 += data[offset + i] * data[offset + i];
+      s1 += data[offset + i + 1] * data[offset + i + 1];
+    }
+    for (; i < length; i++) {
+      s0 += data[offset + i] * data[offset + i];
+    }
+    return (double) s0 + s1;
+  }
+
+  static double squaredNorm(double[] data, int offset, int length) {
+    double s0 = 0d;
+    double s1 = 0d;
+    int i = 0;
+    for (; i + 1 < length; i += 2) {
+      s0 += data[offset + i] * data[offset + i];
+      s1 += data[offset + i + 1] * data[offset + i + 1];
+    }
+    for (; i < length; i++) {
+      s0 += data[offset + i] * data[offset + i];
+    }
+    return s0 + s1;
+  }
+
+  /**
+   * Turns a dot product into the distance of the given metric.
+   *
+   * @param metric cosine or dot product
+   * @param dot dot product
+   * @param norm product of both vector norms, only used for cosine
+   * @return distance
+   */
+  static double fromDot(VectorMetric metric, double dot, double norm) {
+    if (metric == VectorMetric.DOT_PRODUCT) {
+      return -dot;
+    }
+    return norm == 0d ? 1d : 1d - dot / norm;
+  }
+}
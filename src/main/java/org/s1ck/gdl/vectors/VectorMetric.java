@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl.vectors;
+
+/**
+ * Distance functions between vectors. Smaller distances mean more similar vectors.
+ */
+public enum VectorMetric {
+  /**
+   * One minus the cosine of the angle between two vectors, between 0 and 2. Vectors with norm 0
+   * have distance 1 to every vector.
+   */
+  COSINE,
+  /**
+   * The negated dot product, for vectors normalized in advance or scores that grow with the norm.
+   */
+  DOT_PRODUCT,
+  /**
+   * The euclidean distance.
+   */
+  L2
+}
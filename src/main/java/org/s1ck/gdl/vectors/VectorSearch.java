@@ -0,0 +1,220 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl.vectors;
+
+import org.s1ck.gdl.model.values.VectorLiteral;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Exact k-nearest-neighbor search over the vectors of a {@link VectorStore}.
+ *
+ * <p>Every row is compared to the query in a tight loop over the contiguous store array and the
+ * best rows are kept in a bounded heap. In parallel mode the rows are divided into chunks that are
+ * scanned by the common fork-join pool, each with its own heap, and the heaps are merged at the
+ * end. Results are identical in both modes.
+ */
+public class VectorSearch {
+
+  /**
+   * Minimum number of rows per parallel chunk
+   */
+  private static final int MIN_CHUNK_SIZE = 1024;
+
+  private final VectorStore store;
+
+  private final VectorMetric metric;
+
+  private final boolean parallel;
+
+  private VectorSearch(VectorStore store, VectorMetric metric, boolean parallel) {
+    this.store = store;
+    this.metric = metric;
+    this.parallel = parallel;
+  }
+
+  /**
+   * Returns the k stored vertices closest to the query, closest first. Vertices at equal distance
+   * are ordered by id.
+   *
+   * @param query query vector
+   * @param k maximum number of neighbors
+   * @return neighbors
+   * @throws IllegalArgumentException if k is negative or the query dimension does not match
+   */
+  public List<Neighbor> search(VectorLiteral query, int k) {
+    if (query == null) {
+      throw new IllegalArgumentException("Query must not be null");
+    }
+    if (k < 0) {
+      throw new IllegalArgumentException("k must not be negative");
+    }
+    if (store.size() > 0 && query.size() != store.getDimension()) {
+      throw new IllegalArgumentException(String.format(
+        "Query has dimension %d, expected %d", query.size(), store.getDimension()));
+    }
+    k = Math.min(k, store.size());
+
+    Scanner scanner = scanner(query);
+    TopK best;
+    int chunks = parallel ? Math.min(
+      ForkJoinPool.getCommonPoolParallelism() * 4, store.size() / MIN_CHUNK_SIZE) : 1;
+    if (chunks > 1) {
+      int rows = store.size();
+      int heapSize = k;
+      best = IntStream.range(0, chunks).parallel()
+        .mapToObj(chunk -> {
+          TopK heap = new TopK(heapSize);
+          scanner.scan((int) ((long) rows * chunk / chunks), (int) ((long) rows * (chunk + 1) / chunks), heap);
+          return heap;
+        })
+        .reduce((left, right) -> {
+          left.merge(right);
+          return left;
+        })
+        .orElseGet(() -> new TopK(heapSize));
+    } else {
+      best = new TopK(k);
+      scanner.scan(0, store.size(), best);
+    }
+
+    double[] distances = new double[best.size()];
+    int[] rows = best.drain(distances);
+    List<Neighbor> neighbors = new ArrayList<>(rows.length);
+    for (int i = 0; i < rows.length; i++) {
+      double distance = metric == VectorMetric.L2 ? Math.sqrt(distances[i]) : distances[i];
+      neighbors.add(new Neighbor(store.getVertex(rows[i]), distance));
+    }
+    return neighbors;
+  }
+
+  public VectorStore getStore() {
+    return store;
+  }
+
+  public VectorMetric getMetric() {
+    return metric;
+  }
+
+  /**
+   * Scans a range of rows into a heap. L2 distances are reported squared, which keeps the order.
+   */
+  private interface Scanner {
+    void scan(int from, int to, TopK heap);
+  }
+
+  private Scanner scanner(VectorLiteral query) {
+    int dimension = store.getDimension();
+    double queryNorm = 0d;
+    for (int i = 0; i < query.size(); i++) {
+      queryNorm += query.getDouble(i) * query.getDouble(i);
+    }
+    double norm = Math.sqrt(queryNorm);
+
+    if (store.getFloats() != null) {
+      float[] data = store.getFloats();
+      float[] vector = new float[query.size()];
+      for (int i = 0; i < vector.length; i++) {
+        vector[i] = (float) query.getDouble(i);
+      }
+      if (metric == VectorMetric.L2) {
+        return (from, to, heap) -> {
+          for (int row = from; row < to; row++) {
+            heap.offer(row, VectorKernels.squaredL2(data, row * dimension, vector, 0, dimension));
+          }
+        };
+      }
+      return (from, to, heap) -> {
+        for (int row = from; row < to; row++) {
+          double dot = VectorKernels.dot(data, row * dimension, vector, 0, dimension);
+          heap.offer(row, VectorKernels.fromDot(metric, dot, store.getNorm(row) * norm));
+        }
+      };
+    }
+
+    double[] data = store.getDoubles();
+    double[] vector = new double[query.size()];
+    for (int i = 0; i < vector.length; i++) {
+      vector[i] = query.getDouble(i);
+    }
+    if (metric == VectorMetric.L2) {
+      return (from, to, heap) -> {
+        for (int row = from; row < to; row++) {
+          heap.offer(row, VectorKernels.squaredL2(data, row * dimension, vector, 0, dimension));
+        }
+      };
+    }
+    return (from, to, heap) -> {
+      for (int row = from; row < to; row++) {
+        double dot = VectorKernels.dot(data, row * dimension, vector, 0, dimension);
+        heap.offer(row, VectorKernels.fromDot(metric, dot, store.getNorm(row) * norm));
+      }
+    };
+  }
+
+  /**
+   * Builds a {@link VectorSearch}.
+   */
+  public static class Builder {
+
+    private VectorMetric metric = VectorMetric.COSINE;
+
+    private boolean parallel = false;
+
+    /**
+     * Sets the distance function, defaults to {@link VectorMetric#COSINE}.
+     *
+     * @param metric distance function
+     * @return builder
+     */
+    public Builder setMetric(VectorMetric metric) {
+      if (metric == null) {
+        throw new IllegalArgumentException("Metric must not be null");
+      }
+      this.metric = metric;
+      return this;
+    }
+
+    /**
+     * Enables scanning large stores on all cores of the common fork-join pool.
+     *
+     * @param parallel true to scan in parallel
+     * @return builder
+     */
+    public Builder setParallel(boolean parallel) {
+      this.parallel = parallel;
+      return this;
+    }
+
+    /**
+     * Creates a search over the given vectors.
+     *
+     * @param store vectors to search
+     * @return search
+     */
+    public VectorSearch build(VectorStore store) {
+      if (store == null) {
+        throw new IllegalArgumentException("Store must not be null");
+      }
+      return new VectorSearch(store, metric, parallel);
+    }
+  }
+}
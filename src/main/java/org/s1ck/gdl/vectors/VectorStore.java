@@ -0,0 +1,189 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.s1ck.gdl.vectors;
+
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.model.Vertex;
+import org.s1ck.gdl.model.values.DoubleVectorLiteral;
+import org.s1ck.gdl.model.values.FloatVectorLiteral;
+import org.s1ck.gdl.model.values.VectorLiteral;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Vector property values of a set of vertices, copied into one contiguous primitive array.
+ *
+ * <p>Row {@code i} holds the vector of the {@code i}-th vertex in order of vertex ids. Rows are
+ * stored as floats if all vectors are float vectors and as doubles otherwise. The norm of every row
+ * is computed once when the store is created.
+ */
+public class VectorStore {
+
+  private final List<Vertex> vertices;
+
+  private final int dimension;
+
+  /**
+   * Row-major vectors, exactly one of both is not {@code null}
+   */
+  private final float[] floats;
+  private final double[] doubles;
+
+  private final double[] norms;
+
+  private VectorStore(List<Vertex> vertices, int dimension, float[] floats, double[] doubles) {
+    this.vertices = vertices;
+    this.dimension = dimension;
+    this.floats = floats;
+    this.doubles = doubles;
+    this.norms = new double[vertices.size()];
+    for (int row = 0; row < norms.length; row++) {
+      norms[row] = Math.sqrt(floats != null ?
+        VectorKernels.squaredNorm(floats, row * dimension, dimension) :
+        VectorKernels.squaredNorm(doubles, row * dimension, dimension));
+    }
+  }
+
+  /**
+   * Collects the vectors of all vertices of a handler.
+   *
+   * @param handler database
+   * @param label vertex label or {@code null} for all vertices
+   * @param key property key of the vectors
+   * @return vector store
+   */
+  public static VectorStore fromHandler(GDLHandler handler, String label, String key) {
+    return fromVertices(handler.getVertices(), label, key);
+  }
+
+  /**
+   * Collects the vectors of the given vertices. Vertices without the label or without a vector
+   * value for the key are ignored.
+   *
+   * @param vertices vertices
+   * @param label vertex label or {@code null} for all vertices
+   * @param key property key of the vectors
+   * @return vector store
+   * @throws IllegalArgumentException if the vectors differ in dimension
+   */
+  public static VectorStore fromVertices(Collection<Vertex> vertices, String label, String key) {
+    if (key == null) {
+      throw new IllegalArgumentException("Key must not be null");
+    }
+    List<Vertex> selected = new ArrayList<>();
+    List<VectorLiteral> vectors = new ArrayList<>();
+    boolean allFloats = true;
+    int dimension = -1;
+    List<Vertex> sorted = new ArrayList<>(vertices);
+    sorted.sort(Comparator.comparingLong(Vertex::getId));
+    for (Vertex vertex : sorted) {
+      if (label != null && !vertex.getLabels().contains(label)) {
+        continue;
+      }
+      Object value = vertex.getProperties() == null ? null : vertex.getProperties().get(key);
+      if (!(value instanceof VectorLiteral)) {
+        continue;
+      }
+      VectorLiteral vector = (VectorLiteral) value;
+      if (dimension == -1) {
+        dimension = vector.size();
+      } else if (vector.size() != dimension) {
+        throw new IllegalArgumentException(String.format(
+          "Vector of vertex %d has dimension %d, expected %d", vertex.getId(), vector.size(), dimension));
+      }
+      allFloats &= vector instanceof FloatVectorLiteral;
+      selected.add(vertex);
+      vectors.add(vector);
+    }
+    dimension = Math.max(dimension, 0);
+
+    if (allFloats) {
+      float[] floats = new float[selected.size() * dimension];
+      for (int row = 0; row < vectors.size(); row++) {
+        float[] vector = ((FloatVectorLiteral) vectors.get(row)).toFloatArray();
+        System.arraycopy(vector, 0, floats, row * dimension, dimension);
+      }
+      return new VectorStore(selected, dimension, floats, null);
+    }
+    double[] doubles = new double[selected.size() * dimension];
+    for (int row = 0; row < vectors.size(); row++) {
+      VectorLiteral vector = vectors.get(row);
+      if (vector instanceof DoubleVectorLiteral) {
+        double[] values = ((DoubleVectorLiteral) vector).toDoubleArray();
+        System.arraycopy(values, 0, doubles, row * dimension, dimension);
+      } else {
+        for (int i = 0; i < dimension; i++) {
+          doubles[row * dimension + i] = vector.getDouble(i);
+        }
+      }
+    }
+    return new VectorStore(selected, dimension, null, doubles);
+  }
+
+  /**
+   * Returns the number of stored vectors.
+   *
+   * @return number of rows
+   */
+  public int size() {
+    return vertices.size();
+  }
+
+  /**
+   * Returns the dimension shared by all stored vectors.
+   *
+   * @return vector dimension, 0 if the store is empty
+   */
+  public int getDimension() {
+    return dimension;
+  }
+
+  /**
+   * Returns the type the vectors are stored as.
+   *
+   * @return {@code Float.class} or {@code Double.class}
+   */
+  public Class<? extends Number> getElementType() {
+    return floats != null ? Float.class : Double.class;
+  }
+
+  /**
+   * Returns the vertex of a row.
+   *
+   * @param row row index
+   * @return vertex
+   */
+  public Vertex getVertex(int row) {
+    return vertices.get(row);
+  }
+
+  float[] getFloats() {
+    return floats;
+  }
+
+  double[] getDoubles() {
+    return doubles;
+  }
+
+  double getNorm(int row) {
+    return norms[row];
+  }
+}
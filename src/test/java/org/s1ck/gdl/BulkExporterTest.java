@@ -0,0 +1,262 @@
+package org.s1ck.gdl;
+
+import org.junit.Test;
+import org.s1ck.gdl.model.Edge;
+import org.s1ck.gdl.model.Element;
+import org.s1ck.gdl.model.Graph;
+import org.s1ck.gdl.model.GraphElement;
+import org.s1ck.gdl.model.Vertex;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class BulkExporterTest {
+
+  private static final String GDL =
+    "g1:Community {name : \"GDL\"}[(alice:User {name : \"Alice\", age : 23, tags : [\"a\", \"b\"]})]" +
+    "g2[(alice)]" +
+    "g1[(bob:User:Admin {name : \"Bob, \\\"the builder\\\"\", age : 3000000000L, score : 1.5f})]" +
+    "(eve {name : \"\u00c9ve\", empty : \"\", scores : [1, 2, 3], ok : true, ratio : 0.25d, " +
+      "logins : [1L, 2L], weights : [0.5f, 2.0f]})" +
+    "(carl:User {embedding : vector([0.5f, -1.0f]), position : vector([1.0d, 2.0d])})" +
+    "g1[(alice)-[e:knows {since : 2014}]->(bob)]" +
+    "(bob)-->(eve)" +
+    "(eve)-[:knows]->(alice)";
+
+  @Test
+  public void exportCsvTest() throws IOException {
+    GDLHandler expected = new GDLHandler.Builder().buildFromString(GDL);
+    Path directory = Files.createTempDirectory("export");
+    try {
+      List<Path> files = new BulkExporter.Builder().build().export(expected, directory);
+      assertEquals(Arrays.asList("graphs_Community.csv", "graphs___GRAPH.csv", "vertices_User.csv",
+        "vertices___VERTEX.csv", "edges_knows.csv", "edges___EDGE.csv"), fileNames(files));
+      assertEquals(
+        ":id,:labels,:graphs,age:int,age:long,embedding:float_vector,name:string,position:double_vector," +
+          "score:float,tags:string[]\n" +
+        "alice,User,g1;g2,23,,,Alice,,,a;b\n" +
+        "bob,User;Admin,g1,,3000000000,,\"Bob, \"\"the builder\"\"\",,1.5,\n" +
+        "carl,User,,,,0.5;-1.0,,1.0;2.0,,\n",
+        read(directory.resolve("vertices_User.csv")));
+
+      assertSameElements(expected, importAll(new BulkImporter.Builder().build(), files));
+    } finally {
+      delete(directory);
+    }
+  }
+
+  @Test
+  public void exportJsonLinesTest() throws IOException {
+    GDLHandler expected = new GDLHandler.Builder().buildFromString(GDL);
+    Path directory = Files.createTempDirectory("export");
+    try {
+      BulkExporter exporter = new BulkExporter.Builder().setFormat(BulkImporter.Format.JSON_LINES).build();
+      List<Path> files = exporter.export(expected, directory);
+      assertEquals(Arrays.asList("graphs.jsonl", "vertices.jsonl", "edges.jsonl"), fileNames(files));
+      assertEquals(
+        "{\":id\":\"e\",\":source\":\"alice\",\":target\":\"bob\",\":labels\":[\"knows\"],\":graphs\":[\"g1\"]," +
+          "\"since\":2014}",
+        read(directory.resolve("edges.jsonl")).split("\n")[0]);
+      String vertices = read(directory.resolve("vertices.jsonl"));
+      assertTrue(vertices.contains("\"age:long\":3000000000"));
+      assertTrue(vertices.contains("\"score:float\":1.5"));
+      assertTrue(vertices.contains("\"embedding:float_vector\":[0.5,-1.0]"));
+      assertTrue(vertices.contains("\"logins:long[]\":[1,2]"));
+
+      BulkImporter importer = new BulkImporter.Builder().setFormat(BulkImporter.Format.JSON_LINES).build();
+      assertSameElements(expected, importAll(importer, files));
+    } finally {
+      delete(directory);
+    }
+  }
+
+  @Test
+  public void parallelExportTest() throws IOException {
+    List<Graph> graphs = new ArrayList<>();
+    List<Vertex> vertices = new ArrayList<>();
+    List<Edge> edges = new ArrayList<>();
+    GDLHandler handler = new GDLHandler.Builder().buildFromString("g[]");
+    graphs.addAll(handler.getGraphs());
+    for (int i = 0; i < 20_000; i++) {
+      Vertex vertex = new Vertex();
+      vertex.setId(i);
+      vertex.setLabel(i % 3 == 0 ? "Person" : "Bot");
+      vertex.setProperties(new HashMap<>(Collections.singletonMap("score", i / 2d)));
+      vertex.addToGraph(0L);
+      vertices.add(vertex);
+      Edge edge = new Edge();
+      edge.setId(i);
+      edge.setLabel("link");
+      edge.setSourceVertexId((long) i);
+      edge.setTargetVertexId((long) (i * 7) % 20_000);
+      edge.setProperties(new HashMap<>());
+      edges.add(edge);
+    }
+
+    for (BulkImporter.Format format : BulkImporter.Format.values()) {
+      Path sequential = Files.createTempDirectory("sequential");
+      Path parallel = Files.createTempDirectory("parallel");
+      try {
+        List<Path> expected = new BulkExporter.Builder().setFormat(format).setThreads(1).build()
+          .export(graphs, vertices, edges, sequential);
+        List<Path> actual = new BulkExporter.Builder().setFormat(format).setThreads(4).build()
+          .export(graphs, vertices, edges, parallel);
+        assertEquals(fileNames(expected), fileNames(actual));
+        for (int i = 0; i < expected.size(); i++) {
+          assertArrayEquals(Files.readAllBytes(expected.get(i)), Files.readAllBytes(actual.get(i)));
+        }
+        assertEquals(20_000, importAll(new BulkImporter.Builder().setFormat(format).build(), actual)
+          .getVertices().size());
+      } finally {
+        delete(sequential);
+        delete(parallel);
+      }
+    }
+  }
+
+  @Test
+  public void lineBreakTest() throws IOException {
+    GDLHandler expected = new GDLHandler.Builder().buildFromString("(v:Note {title : \"a\"})");
+    expected.getVertexCache().get("v").addProperty("text", "two\r\nlines");
+    Path directory = Files.createTempDirectory("export");
+    try {
+      IllegalArgumentException exc = assertThrows(IllegalArgumentException.class,
+        () -> new BulkExporter.Builder().build().export(expected, directory));
+      assertEquals("Field 'two\r\nlines' cannot be written as CSV, it contains a line break", exc.getMessage());
+
+      List<Path> files = new BulkExporter.Builder().setFormat(BulkImporter.Format.JSON_LINES).build()
+        .export(expected, directory);
+      assertSameElements(expected,
+        importAll(new BulkImporter.Builder().setFormat(BulkImporter.Format.JSON_LINES).build(), files));
+    } finally {
+      delete(directory);
+    }
+  }
+
+  @Test
+  public void failOnUnsupportedValuesTest() throws IOException {
+    Path directory = Files.createTempDirectory("export");
+    try {
+      BulkExporter csv = new BulkExporter.Builder().build();
+      IllegalArgumentException exc = assertThrows(IllegalArgumentException.class,
+        () -> csv.export(new GDLHandler.Builder().buildFromString("({mixed : [1, \"a\"]})"), directory));
+      assertEquals("Value of property 'mixed' cannot be written as CSV: [1, a] (ArrayList)", exc.getMessage());
+      exc = assertThrows(IllegalArgumentException.class,
+        () -> csv.export(new GDLHandler.Builder().buildFromString("({tags : [\"a;b\"]})"), directory));
+      assertEquals("List element 'a;b' cannot be written, it is empty or contains the list delimiter",
+        exc.getMessage());
+
+      BulkExporter json = new BulkExporter.Builder().setFormat(BulkImporter.Format.JSON_LINES).build();
+      exc = assertThrows(IllegalArgumentException.class,
+        () -> json.export(new GDLHandler.Builder().buildFromString("({x : NaN})"), directory));
+      assertEquals("Value of property 'x' cannot be written as JSON: NaN (Double)", exc.getMessage());
+
+      assertThrows(IllegalArgumentException.class, () -> new BulkExporter.Builder().setDelimiter(';').build());
+    } finally {
+      delete(directory);
+    }
+  }
+
+  private static GDLHandler importAll(BulkImporter importer, List<Path> files) throws IOException {
+    GDLHandler handler = new GDLHandler.Builder().buildFromString("");
+    for (Path file : files) {
+      if (file.getFileName().toString().startsWith("graphs")) {
+        importer.importGraphs(handler, file);
+      }
+    }
+    for (Path file : files) {
+      if (file.getFileName().toString().startsWith("vertices")) {
+        importer.importVertices(handler, file);
+      }
+    }
+    for (Path file : files) {
+      if (file.getFileName().toString().startsWith("edges")) {
+        importer.importEdges(handler, file);
+      }
+    }
+    return handler;
+  }
+
+  /**
+   * Compares graphs, vertices and edges by variable.
+   */
+  private static void assertSameElements(GDLHandler expected, GDLHandler actual) {
+    Map<Long, String> expectedGraphs = graphVariables(expected);
+    Map<Long, String> actualGraphs = graphVariables(actual);
+    Map<String, Graph> actualGraphCache = actual.getGraphCache();
+    assertEquals(expected.getGraphCache(true, true).keySet(), actualGraphCache.keySet());
+    for (Map.Entry<String, Graph> entry : expected.getGraphCache(true, true).entrySet()) {
+      assertEquals(entry.getKey(), entry.getValue().getLabels(), actualGraphCache.get(entry.getKey()).getLabels());
+      assertEquals(entry.getKey(), entry.getValue().getProperties(),
+        actualGraphCache.get(entry.getKey()).getProperties());
+    }
+    assertSameElements(expected.getVertexCache(true, true), actual.getVertexCache(), expectedGraphs, actualGraphs);
+    assertSameElements(expected.getEdgeCache(true, true), actual.getEdgeCache(), expectedGraphs, actualGraphs);
+  }
+
+  private static void assertSameElements(Map<String, ? extends Element> expected, Map<String, ? extends Element> actual,
+    Map<Long, String> expectedGraphs, Map<Long, String> actualGraphs) {
+    assertEquals(expected.keySet(), actual.keySet());
+    for (Map.Entry<String, ? extends Element> entry : expected.entrySet()) {
+      Element element = entry.getValue();
+      Element other = actual.get(entry.getKey());
+      assertEquals(entry.getKey(), element.getLabels(), other.getLabels());
+      assertEquals(entry.getKey(), element.getProperties(), other.getProperties());
+      assertEquals(entry.getKey(), graphs((GraphElement) element, expectedGraphs),
+        graphs((GraphElement) other, actualGraphs));
+    }
+  }
+
+  private static Map<Long, String> graphVariables(GDLHandler handler) {
+    Map<Long, String> variables = new HashMap<>();
+    for (Map.Entry<String, Graph> entry : handler.getGraphCache(true, true).entrySet()) {
+      variables.put(entry.getValue().getId(), entry.getKey());
+    }
+    return variables;
+  }
+
+  private static Set<String> graphs(GraphElement element, Map<Long, String> variables) {
+    Set<String> graphs = new HashSet<>();
+    for (Long graph : element.getGraphs()) {
+      graphs.add(variables.get(graph));
+    }
+    return graphs;
+  }
+
+  private static List<String> fileNames(List<Path> files) {
+    List<String> names = new ArrayList<>();
+    for (Path file : files) {
+      names.add(file.getFileName().toString());
+    }
+    return names;
+  }
+
+  private static String read(Path file) throws IOException {
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+
+  private static void delete(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(directory);
+  }
+}
@@ -0,0 +1,303 @@
+package org.s1ck.gdl;
+
+import org.junit.Test;
+import org.s1ck.gdl.exceptions.DuplicateDeclarationException;
+import org.s1ck.gdl.model.Edge;
+import org.s1ck.gdl.model.Element;
+import org.s1ck.gdl.model.GraphElement;
+import org.s1ck.gdl.model.Vertex;
+import org.s1ck.gdl.model.values.DoubleVectorLiteral;
+import org.s1ck.gdl.model.values.FloatVectorLiteral;
+import org.s1ck.gdl.model.values.PrimitiveList;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class BulkImporterTest {
+
+  private static final String GDL =
+    "g1[(alice:User {name : \"Alice\", age : 23})]" +
+    "g2[(alice)]" +
+    "g1[(bob:User:Admin {name : \"Bob\"})]" +
+    "(eve {name : \"Eve\"})" +
+    "g1[(alice)-[e:knows {since : 2014}]->(bob)]" +
+    "(bob)-->(eve)";
+
+  private static final String VERTEX_CSV =
+    ":id,:labels,:graphs,name,age:int\n" +
+    "alice,User,g1;g2,Alice,23\n" +
+    "bob,User;Admin,g1,Bob,\n" +
+    "eve,,,Eve,\n";
+
+  private static final String EDGE_CSV =
+    ":id,:source,:target,:labels,:graphs,since:int\n" +
+    "e,alice,bob,knows,g1,2014\n" +
+    ",bob,eve,,,\n";
+
+  private static final String VERTEX_JSON =
+    "{\":id\" : \"alice\", \":labels\" : [\"User\"], \":graphs\" : [\"g1\", \"g2\"], \"name\" : \"Alice\", \"age\" : 23}\n" +
+    "{\":id\" : \"bob\", \":labels\" : [\"User\", \"Admin\"], \":graphs\" : \"g1\", \"name\" : \"Bob\"}\n" +
+    "{\":id\" : \"eve\", \"name\" : \"Eve\"}\n";
+
+  private static final String EDGE_JSON =
+    "{\":id\" : \"e\", \":source\" : \"alice\", \":target\" : \"bob\", \":labels\" : \"knows\", \":graphs\" : [\"g1\"], \"since\" : 2014}\n" +
+    "{\":source\" : \"bob\", \":target\" : \"eve\"}\n";
+
+  @Test
+  public void importCsvTest() throws IOException {
+    GDLHandler handler = empty();
+    BulkImporter importer = new BulkImporter.Builder().build();
+    assertEquals(3, importVertices(importer, handler, VERTEX_CSV));
+    assertEquals(2, importEdges(importer, handler, EDGE_CSV));
+
+    assertSameElements(new GDLHandler.Builder().buildFromString(GDL), handler);
+  }
+
+  @Test
+  public void importJsonLinesTest() throws IOException {
+    GDLHandler handler = empty();
+    BulkImporter importer = new BulkImporter.Builder().setFormat(BulkImporter.Format.JSON_LINES).build();
+    assertEquals(3, importVertices(importer, handler, VERTEX_JSON));
+    assertEquals(2, importEdges(importer, handler, EDGE_JSON));
+
+    assertSameElements(new GDLHandler.Builder().buildFromString(GDL), handler);
+  }
+
+  @Test
+  public void importGraphsTest() throws IOException {
+    GDLHandler handler = empty();
+    BulkImporter importer = new BulkImporter.Builder().build();
+    assertEquals(2, importGraphs(importer, handler, ":id,:labels,:graphs,title\ng2,,,\ng1,Community,,GDL\n"));
+    assertEquals(3, importVertices(importer, handler, VERTEX_CSV));
+    assertEquals(2, importEdges(importer, handler, EDGE_CSV));
+
+    assertSameElements(new GDLHandler.Builder()
+      .buildFromString("g2[] g1:Community {title : \"GDL\"}[] " + GDL), handler);
+
+    IllegalArgumentException exc = assertThrows(IllegalArgumentException.class,
+      () -> importGraphs(importer, empty(), ":id,:graphs\ng1,g2\n"));
+    assertEquals("Graphs cannot be contained in graphs: g1,g2", exc.getMessage());
+    assertThrows(DuplicateDeclarationException.class,
+      () -> importGraphs(importer, handler, ":id,:labels\ng1,Other\n"));
+  }
+
+  @Test
+  public void importFromBufferTest() {
+    GDLHandler handler = empty();
+    BulkImporter importer = new BulkImporter.Builder().setThreads(1).build();
+    ByteBuffer vertices = ByteBuffer.wrap(VERTEX_CSV.getBytes(StandardCharsets.UTF_8));
+    importer.importVertices(handler, vertices);
+    importer.importEdges(handler, ByteBuffer.wrap(EDGE_CSV.getBytes(StandardCharsets.UTF_8)));
+
+    assertEquals(0, vertices.position());
+    assertSameElements(new GDLHandler.Builder().buildFromString(GDL), handler);
+  }
+
+  @Test
+  public void csvValuesTest() throws IOException {
+    GDLHandler handler = empty();
+    importVertices(new BulkImporter.Builder().setDelimiter('|').setListDelimiter(',').build(), handler,
+      ":id|s|q|e|l:long[]|d:double[]|b:boolean|t:string[]|f:float_vector|v:double_vector\r\n" +
+      "v|plain|\"a|\"\"b\"\"\"|\"\"|1,3|1.5,NaN|TRUE|x,y|1,3|0.5\r\n");
+    Map<String, Object> properties = handler.getVertexCache().get("v").getProperties();
+
+    assertEquals("plain", properties.get("s"));
+    assertEquals("a|\"b\"", properties.get("q"));
+    assertEquals("", properties.get("e"));
+    assertEquals(PrimitiveList.LongList.of(1L, 3L), properties.get("l"));
+    assertEquals(PrimitiveList.DoubleList.of(1.5, Double.NaN), properties.get("d"));
+    assertEquals(true, properties.get("b"));
+    assertEquals(Arrays.asList("x", "y"), properties.get("t"));
+    assertEquals(FloatVectorLiteral.of(1f, 3f), properties.get("f"));
+    assertEquals(DoubleVectorLiteral.of(0.5), properties.get("v"));
+  }
+
+  @Test
+  public void jsonValuesTest() throws IOException {
+    GDLHandler handler = empty();
+    importVertices(new BulkImporter.Builder().setFormat(BulkImporter.Format.JSON_LINES).build(), handler,
+      "{\":id\" : \"v\", \"i\" : -7, \"l\" : 3000000000, \"d\" : 1E3, \"s\" : \"a\\\"\\u00fc\\n\", \"n\" : null," +
+      " \"a\" : [1, 3], \"m\" : [1, \"x\"], \"e\" : [], \"b\" : false}\n" +
+      "\n");
+    Map<String, Object> properties = handler.getVertexCache().get("v").getProperties();
+
+    assertEquals(-7, properties.get("i"));
+    assertEquals(3000000000L, properties.get("l"));
+    assertEquals(1000d, properties.get("d"));
+    assertEquals("a\"\u00fc\n", properties.get("s"));
+    assertTrue(properties.containsKey("n"));
+    assertNull(properties.get("n"));
+    assertEquals(PrimitiveList.IntList.of(1, 3), properties.get("a"));
+    assertEquals(Arrays.asList(1, "x"), properties.get("m"));
+    assertEquals(Collections.emptyList(), properties.get("e"));
+    assertEquals(false, properties.get("b"));
+  }
+
+  @Test
+  public void jsonTypedKeysTest() throws IOException {
+    GDLHandler handler = empty();
+    BulkImporter importer = new BulkImporter.Builder().setFormat(BulkImporter.Format.JSON_LINES).build();
+    importVertices(importer, handler,
+      "{\":id\" : \"v\", \"l:long\" : 1, \"f:float\" : 1.5, \"ls:long[]\" : [1, 2], \"fs:FLOAT[]\" : [0.5]," +
+      " \"fv:float_vector\" : [0.5, -1], \"dv:double_vector\" : [], \"n:int\" : null, \"a:b\" : 1}\n");
+    Map<String, Object> properties = handler.getVertexCache().get("v").getProperties();
+
+    assertEquals(1L, properties.get("l"));
+    assertEquals(1.5f, properties.get("f"));
+    assertEquals(PrimitiveList.LongList.of(1L, 2L), properties.get("ls"));
+    assertEquals(PrimitiveList.FloatList.of(0.5f), properties.get("fs"));
+    assertEquals(FloatVectorLiteral.of(new float[] {0.5f, -1f}), properties.get("fv"));
+    assertEquals(DoubleVectorLiteral.of(new double[0]), properties.get("dv"));
+    assertTrue(properties.containsKey("n"));
+    assertEquals(1, properties.get("a:b"));
+
+    assertThrows(IllegalArgumentException.class,
+      () -> importVertices(importer, empty(), "{\":id\" : \"w\", \"i:int\" : 1.5}\n"));
+    assertThrows(IllegalArgumentException.class,
+      () -> importVertices(importer, empty(), "{\":id\" : \"w\", \"v:double_vector\" : 1.5}\n"));
+  }
+
+  @Test
+  public void parallelImportTest() throws IOException {
+    StringBuilder vertices = new StringBuilder(":id,:labels,:graphs,name,score:double\n");
+    StringBuilder edges = new StringBuilder(":source,:target,weight:int\n");
+    for (int i = 0; i < 20_000; i++) {
+      vertices.append(String.format("v%d,Person,g%d,Person %d,%d.5%n", i, i % 3, i, i));
+      edges.append(String.format("v%d,v%d,%d%n", i, (i * 7) % 20_000, i));
+    }
+    GDLHandler sequential = empty();
+    BulkImporter importer = new BulkImporter.Builder().setThreads(1).build();
+    importVertices(importer, sequential, vertices.toString());
+    importEdges(importer, sequential, edges.toString());
+
+    GDLHandler parallel = empty();
+    importer = new BulkImporter.Builder().setThreads(4).setWindowSize(1 << 18).build();
+    assertEquals(20_000, importVertices(importer, parallel, vertices.toString()));
+    assertEquals(20_000, importEdges(importer, parallel, edges.toString()));
+
+    assertSameElements(sequential, parallel);
+    assertEquals(20_000, parallel.getVertices().size());
+    assertEquals(3, parallel.getGraphs().size());
+  }
+
+  @Test
+  public void useHandlerConfigurationTest() throws IOException {
+    AtomicLong ids = new AtomicLong(100);
+    GDLHandler handler = new GDLHandler.Builder()
+      .setDefaultVertexLabel("V")
+      .setDefaultGraphLabel("G")
+      .setNextVertexId(variable -> ids.getAndIncrement())
+      .buildFromString("(alice)");
+    List<Vertex> appended = new ArrayList<>();
+    handler.addAppendListener((h, vertices, edges) -> appended.addAll(vertices));
+    importVertices(new BulkImporter.Builder().build(), handler, ":id,:graphs\nbob,g\n,\n");
+
+    Vertex bob = handler.getVertexCache().get("bob");
+    assertEquals(101L, bob.getId());
+    assertEquals(Collections.singletonList("V"), bob.getLabels());
+    assertEquals("G", handler.getGraphCache().get("g").getLabel());
+    assertEquals(2, appended.size());
+
+    // imported vertices can be referenced by GDL
+    handler.append("(alice)-->(bob)");
+    assertEquals(1, handler.getEdges().size());
+  }
+
+  @Test
+  public void failOnInvalidInputTest() {
+    BulkImporter importer = new BulkImporter.Builder().build();
+
+    assertThrows(DuplicateDeclarationException.class,
+      () -> importVertices(importer, empty(), ":id,name\nv,a\nv,b\n"));
+    IllegalArgumentException exc = assertThrows(IllegalArgumentException.class,
+      () -> importVertices(importer, empty(), ":id,age:integer\nv,1\n"));
+    assertEquals("Unknown type 'integer' of column 'age:integer'", exc.getMessage());
+    exc = assertThrows(IllegalArgumentException.class,
+      () -> importVertices(importer, empty(), ":id,age:int\nv,old\n"));
+    assertEquals("Invalid value 'old' in column 'age:int'", exc.getMessage());
+    exc = assertThrows(IllegalArgumentException.class,
+      () -> importVertices(importer, empty(), ":id,name\nv,a,b\n"));
+    assertEquals("Expected 2 fields but found 3: v,a,b", exc.getMessage());
+    exc = assertThrows(IllegalArgumentException.class,
+      () -> importEdges(importer, empty(), ":source,:target\na,b\n"));
+    assertEquals("Edge references vertex 'a' which was not defined", exc.getMessage());
+    exc = assertThrows(IllegalArgumentException.class,
+      () -> importEdges(importer, empty(), ":id,:source\ne,a\n"));
+    assertEquals("Edge header needs the columns :source and :target: :id,:source", exc.getMessage());
+    assertThrows(IllegalArgumentException.class,
+      () -> importVertices(new BulkImporter.Builder().setFormat(BulkImporter.Format.JSON_LINES).build(),
+        empty(), "{\"name\" : \"a\"\n"));
+  }
+
+  private static GDLHandler empty() {
+    return new GDLHandler.Builder().buildFromString("");
+  }
+
+  private static long importGraphs(BulkImporter importer, GDLHandler handler, String content) throws IOException {
+    Path file = Files.createTempFile("graphs", ".csv");
+    try {
+      Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+      return importer.importGraphs(handler, file);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private static long importVertices(BulkImporter importer, GDLHandler handler, String content) throws IOException {
+    Path file = Files.createTempFile("vertices", ".csv");
+    try {
+      Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+      return importer.importVertices(handler, file);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private static long importEdges(BulkImporter importer, GDLHandler handler, String content) throws IOException {
+    Path file = Files.createTempFile("edges", ".csv");
+    try {
+      Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+      return importer.importEdges(handler, file);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private static void assertSameElements(GDLHandler expected, GDLHandler actual) {
+    assertSameElements(expected.getGraphCache(true, true), actual.getGraphCache(true, true));
+    assertSameElements(expected.getVertexCache(true, true), actual.getVertexCache(true, true));
+    assertSameElements(expected.getEdgeCache(true, true), actual.getEdgeCache(true, true));
+  }
+
+  private static void assertSameElements(Map<String, ? extends Element> expected, Map<String, ? extends Element> actual) {
+    assertEquals(expected.keySet(), actual.keySet());
+    for (Map.Entry<String, ? extends Element> entry : expected.entrySet()) {
+      Element element = entry.getValue();
+      Element other = actual.get(entry.getKey());
+      assertEquals(entry.getKey(), element.getId(), other.getId());
+      assertEquals(entry.getKey(), element.getLabels(), other.getLabels());
+      assertEquals(entry.getKey(), element.getProperties(), other.getProperties());
+      if (element instanceof GraphElement) {
+        assertEquals(entry.getKey(), ((GraphElement) element).getGraphs(), ((GraphElement) other).getGraphs());
+      }
+      if (element instanceof Edge) {
+        assertEquals(((Edge) element).getSourceVertexId(), ((Edge) other).getSourceVertexId());
+        assertEquals(((Edge) element).getTargetVertexId(), ((Edge) other).getTargetVertexId());
+      }
+    }
+  }
+}
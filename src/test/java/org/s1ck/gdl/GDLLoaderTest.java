@@ -11,13 +11,18 @@ import org.s1ck.gdl.model.Element;
 import org.s1ck.gdl.model.Graph;
 import org.s1ck.gdl.model.GraphElement;
 import org.s1ck.gdl.model.Vertex;
+import org.s1ck.gdl.model.predicates.Predicate;
+import org.s1ck.gdl.model.projections.AggregateFunction;
 import org.s1ck.gdl.model.values.DoubleVectorLiteral;
 import org.s1ck.gdl.model.values.FloatVectorLiteral;
+import org.s1ck.gdl.model.values.PrimitiveList;
+import org.s1ck.gdl.model.values.VectorLiteral;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -188,6 +193,70 @@ public class GDLLoaderTest {
     );
   }
 
+  @Test
+  public void readPrimitiveListPropertyTest() {
+    GDLLoader loader = getLoaderFromGDLString(
+      "(v {i : [1, 3], l : [1L, 3L], f : [1.0f], d : [1.0d, NaN], b : [true, false], m : [1, 3L], n : [1, NULL]})");
+    Map<String, Object> properties = loader.getVertexCache().get("v").getProperties();
+
+    assertEquals(PrimitiveList.IntList.of(1, 3), properties.get("i"));
+    assertEquals(PrimitiveList.LongList.of(1L, 3L), properties.get("l"));
+    assertEquals(PrimitiveList.FloatList.of(1.0f), properties.get("f"));
+    assertEquals(PrimitiveList.DoubleList.of(1.0, Double.NaN), properties.get("d"));
+    assertEquals(PrimitiveList.BooleanList.of(true, false), properties.get("b"));
+    assertEquals(ArrayList.class, properties.get("m").getClass());
+    assertEquals(ArrayList.class, properties.get("n").getClass());
+  }
+
+  @Test
+  public void readBase64VectorPropertyTest() {
+    GDLLoader loader = getLoaderFromGDLString(
+      "(v {f : vector(f32:\"AACAPwAAQEA=\"), d : VECTOR(F64:'AAAAAAAA8D8='), e : vector(f32:\"\")})");
+    Vertex vertex = loader.getVertexCache().get("v");
+
+    assertEquals(FloatVectorLiteral.of(1.0f, 3.0f), vertex.getProperties().get("f"));
+    assertEquals(DoubleVectorLiteral.of(1.0), vertex.getProperties().get("d"));
+    assertEquals(FloatVectorLiteral.of(), vertex.getProperties().get("e"));
+  }
+
+  @Test
+  public void vectorGDLStringRoundTripTest() {
+    float[] floats = new float[100];
+    for (int i = 0; i < floats.length; i++) {
+      floats[i] = (float) Math.sin(i) * 1000;
+    }
+    VectorLiteral[] vectors = {
+      FloatVectorLiteral.of(floats), FloatVectorLiteral.of(1.5f, Float.NaN, -0.0f, 1E-30f), FloatVectorLiteral.of(Float.NaN),
+      DoubleVectorLiteral.of(1E-300, -1E300, Double.NEGATIVE_INFINITY), DoubleVectorLiteral.of(-0.0, 1E-300, 2E300),
+      DoubleVectorLiteral.of()
+    };
+    for (VectorLiteral vector : vectors) {
+      for (String text : new String[] {vector.toGDLString(), vector.toGDLString(true), vector.toGDLString(false)}) {
+        GDLLoader loader = getLoaderFromGDLString("(v {p : " + text + "})");
+        assertEquals(text, vector, loader.getVertexCache().get("v").getProperties().get("p"));
+      }
+    }
+  }
+
+  @Test
+  public void failOnInvalidBase64VectorPropertyAssignment() {
+    IllegalArgumentException exc = assertThrows(
+            IllegalArgumentException.class,
+            () -> getLoaderFromGDLString("(v1 {prop: vector(i8:\"AQI=\")})")
+    );
+    assertEquals("Vector for property 'prop' has unknown encoding 'i8', expected 'f32' or 'f64'",
+            exc.getMessage()
+    );
+
+    exc = assertThrows(
+            IllegalArgumentException.class,
+            () -> getLoaderFromGDLString("(v1 {prop: vector(f64:\"AACAPw==\")})")
+    );
+    assertEquals("Vector for property 'prop' is not valid base64: Base64 vector must hold a multiple of 8 bytes but found 4",
+            exc.getMessage()
+    );
+  }
+
   // --------------------------------------------------------------------------------------------
   //  Edge only tests
   // --------------------------------------------------------------------------------------------
@@ -571,6 +640,30 @@ public class GDLLoaderTest {
       loader.getPredicates().get().toString());
   }
 
+  @Test
+  public void testVectorFunctionWhereClause() {
+    String query = "MATCH (alice)-[r]->(bob)" +
+      "WHERE cosine(alice.embedding, vector([1.0f, 0.0f])) > 0.8 AND DOT(alice.embedding, bob.embedding) <= 2.5d";
+
+    GDLLoader loader = getLoaderFromGDLString(query);
+    validateCollectionSizes(loader, 0, 2, 1);
+
+    Predicate predicate = loader.getPredicates().get();
+    assertEquals("(cosine(alice.embedding, float_vector([1.0, 0.0])) > 0.8 AND dot(alice.embedding, bob.embedding) <= 2.5)",
+      predicate.toString());
+    assertEquals(new HashSet<>(Arrays.asList("alice", "bob")), predicate.getVariables());
+  }
+
+  @Test
+  public void failOnUnknownVectorFunction() {
+    IllegalArgumentException exc = assertThrows(
+            IllegalArgumentException.class,
+            () -> getLoaderFromGDLString("MATCH (a) WHERE manhattan(a.embedding, a.other) < 1.0")
+    );
+
+    assertEquals("Unknown vector function: manhattan", exc.getMessage());
+  }
+
   @Test
   public void testEmbeddedWhereClause() {
     String query = "MATCH (alice {age : 50})-[r:knows]->(bob:User)";
@@ -607,6 +700,70 @@ public class GDLLoaderTest {
     getLoaderFromGDLString("MATCH (a) where b.age = 42");
   }
 
+  @Test
+  public void testSkipAndLimit() {
+    GDLLoader loader = getLoaderFromGDLString("MATCH (a)-[e]->(b) WHERE a.age > 42 SKIP 5 LIMIT 10");
+    validateCollectionSizes(loader, 0, 2, 1);
+
+    assertEquals("a.age > 42", loader.getPredicates().get().toString());
+    assertEquals(Long.valueOf(5L), loader.getSkip().get());
+    assertEquals(Long.valueOf(10L), loader.getLimit().get());
+
+    loader = getLoaderFromGDLString("MATCH (a) LIMIT 1");
+    assertFalse(loader.getSkip().isPresent());
+    assertEquals(Long.valueOf(1L), loader.getLimit().get());
+
+    assertFalse(getLoaderFromGDLString("MATCH (a)").getLimit().isPresent());
+  }
+
+  @Test
+  public void testReturnClause() {
+    GDLLoader loader = getLoaderFromGDLString(
+      "MATCH (a)-[e]->(b) RETURN a.city, b, count(*) AS n, max(e.since), sum(b.age) AS total LIMIT 3");
+
+    assertEquals("[a.city, b, count(*) AS n, max(e.since), sum(b.age) AS total]",
+      loader.getReturnItems().toString());
+    assertEquals("max(e.since)", loader.getReturnItems().get(3).getName());
+    assertEquals(AggregateFunction.SUM, loader.getReturnItems().get(4).getFunction());
+    assertFalse(loader.getReturnItems().get(0).isAggregation());
+    assertEquals(Long.valueOf(3L), loader.getLimit().get());
+    assertTrue(getLoaderFromGDLString("MATCH (a)").getReturnItems().isEmpty());
+  }
+
+  @Test
+  public void testQueryKeywordsAsIdentifiers() {
+    GDLLoader loader = getLoaderFromGDLString(
+      "RETURN:LIMIT[(SKIP:AS {LIMIT : 1})-[AS:RETURN {SKIP : 2}]->(LIMIT)]");
+    validateCollectionSizes(loader, 1, 2, 1);
+    assertEquals("LIMIT", loader.getGraphCache().get("RETURN").getLabel());
+    Vertex skip = loader.getVertexCache().get("SKIP");
+    assertEquals("AS", skip.getLabel());
+    assertEquals(1, skip.getProperties().get("LIMIT"));
+    assertEquals(2, loader.getEdgeCache().get("AS").getProperties().get("SKIP"));
+
+    loader = getLoaderFromGDLString(
+      "MATCH (SKIP)-[AS]->(LIMIT) WHERE SKIP.LIMIT > 0 RETURN SKIP AS RETURN, count(LIMIT) AS AS SKIP 1 LIMIT 2");
+    assertEquals("SKIP.LIMIT > 0", loader.getPredicates().get().toString());
+    assertEquals("[SKIP AS RETURN, count(LIMIT) AS AS]", loader.getReturnItems().toString());
+    assertEquals(Long.valueOf(1L), loader.getSkip().get());
+    assertEquals(Long.valueOf(2L), loader.getLimit().get());
+  }
+
+  @Test(expected=InvalidReferenceException.class)
+  public void testThrowExceptionOnInvalidReturnReference() {
+    getLoaderFromGDLString("MATCH (a) RETURN b.name");
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testThrowExceptionOnUnknownAggregateFunction() {
+    getLoaderFromGDLString("MATCH (a) RETURN median(a.age)");
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testThrowExceptionOnNegativeLimit() {
+    getLoaderFromGDLString("MATCH (a) LIMIT -1");
+  }
+
   // --------------------------------------------------------------------------------------------
   //  Combined tests
   // --------------------------------------------------------------------------------------------
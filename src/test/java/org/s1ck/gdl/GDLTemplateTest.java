@@ -0,0 +1,118 @@
+package org.s1ck.gdl;
+
+import org.junit.Test;
+import org.s1ck.gdl.model.Vertex;
+import org.s1ck.gdl.model.values.FloatVectorLiteral;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class GDLTemplateTest {
+
+  private static final String GRAPH =
+    "g:Community {title : $title}[(alice:Person {name : $name, age : $age, tags : [$tag, \"x\"]})" +
+      "-[:knows {since : $since}]->(bob:Person {name : \"Bob\", age : $age})]";
+
+  @Test
+  public void parameterNamesTest() {
+    GDLTemplate template = new GDLHandler.Builder().compileFromString(GRAPH);
+
+    assertEquals(Arrays.asList("title", "name", "age", "tag", "since"),
+      Arrays.asList(template.getParameterNames().toArray()));
+  }
+
+  @Test
+  public void instantiateGraphTest() {
+    GDLTemplate template = new GDLHandler.Builder().compileFromString(GRAPH);
+
+    for (int i = 0; i < 3; i++) {
+      Map<String, Object> parameters = new HashMap<>();
+      parameters.put("title", "Graphs " + i);
+      parameters.put("name", "Alice " + i);
+      parameters.put("age", 20 + i);
+      parameters.put("tag", i % 2 == 0);
+      parameters.put("since", 2014L);
+      GDLHandler handler = template.instantiate(parameters);
+
+      GDLHandler expected = new GDLHandler.Builder().buildFromString(String.format(
+        "g:Community {title : \"Graphs %d\"}[(alice:Person {name : \"Alice %d\", age : %d, tags : [%s, \"x\"]})" +
+          "-[:knows {since : 2014L}]->(bob:Person {name : \"Bob\", age : %d})]", i, i, 20 + i, i % 2 == 0, 20 + i));
+      assertEquals(expected.getGraphCache().get("g").getProperties(), handler.getGraphCache().get("g").getProperties());
+      for (String variable : Arrays.asList("alice", "bob")) {
+        Vertex actual = handler.getVertexCache().get(variable);
+        assertEquals(expected.getVertexCache().get(variable).getId(), actual.getId());
+        assertEquals(expected.getVertexCache().get(variable).getProperties(), actual.getProperties());
+      }
+      assertEquals(expected.getEdges().iterator().next().getProperties(),
+        handler.getEdges().iterator().next().getProperties());
+    }
+  }
+
+  @Test
+  public void vectorParameterTest() {
+    GDLTemplate template = new GDLHandler.Builder().compileFromString(
+      "MATCH (d:Doc) WHERE cosine(d.embedding, $query) > $threshold");
+
+    assertEquals(Arrays.asList("query", "threshold"), Arrays.asList(template.getParameterNames().toArray()));
+
+    Map<String, Object> parameters = new HashMap<>();
+    parameters.put("query", FloatVectorLiteral.of(1.0f, 0.0f));
+    parameters.put("threshold", 0.5);
+    assertEquals("(cosine(d.embedding, float_vector([1.0, 0.0])) > 0.5 AND d.__label__ = Doc)",
+      template.instantiate(parameters).getPredicates().get().toString());
+
+    parameters.put("query", "not a vector");
+    assertThrows(IllegalArgumentException.class, () -> template.instantiate(parameters));
+  }
+
+  @Test
+  public void instantiateQueryTest() {
+    GDLTemplate template = new GDLHandler.Builder().compileFromString(
+      "MATCH (p:Person)-[e:knows]->(q) WHERE p.age > $age OR p.name = $name SKIP $skip LIMIT $limit");
+
+    Map<String, Object> parameters = new HashMap<>();
+    parameters.put("age", 30);
+    parameters.put("name", "Alice");
+    parameters.put("skip", 1);
+    parameters.put("limit", 5L);
+    GDLHandler handler = template.instantiate(parameters);
+
+    GDLHandler expected = new GDLHandler.Builder().buildFromString(
+      "MATCH (p:Person)-[e:knows]->(q) WHERE p.age > 30 OR p.name = \"Alice\" SKIP 1 LIMIT 5");
+    assertEquals(expected.getPredicates(), handler.getPredicates());
+    assertEquals(Long.valueOf(1), handler.getSkip().get());
+    assertEquals(Long.valueOf(5), handler.getLimit().get());
+  }
+
+  @Test
+  public void nullParameterTest() {
+    GDLHandler handler = new GDLHandler.Builder().compileFromString("(a {x : $x})")
+      .instantiate(Collections.singletonMap("x", null));
+
+    assertTrue(handler.getVertexCache().get("a").getProperties().containsKey("x"));
+    assertEquals(null, handler.getVertexCache().get("a").getProperties().get("x"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void missingParameterTest() {
+    new GDLHandler.Builder().compileFromString("(a {x : $x, y : $y})")
+      .instantiate(Collections.singletonMap("x", 1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unboundParameterTest() {
+    new GDLHandler.Builder().buildFromString("(a {x : $x})");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void negativeLimitTest() {
+    new GDLHandler.Builder().compileFromString("MATCH (a) LIMIT $limit")
+      .instantiate(Collections.singletonMap("limit", -1));
+  }
+}
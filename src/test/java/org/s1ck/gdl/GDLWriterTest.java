@@ -0,0 +1,254 @@
+package org.s1ck.gdl;
+
+import org.junit.Test;
+import org.s1ck.gdl.model.Edge;
+import org.s1ck.gdl.model.Element;
+import org.s1ck.gdl.model.Graph;
+import org.s1ck.gdl.model.GraphElement;
+import org.s1ck.gdl.model.Vertex;
+import org.s1ck.gdl.model.values.FloatVectorLiteral;
+import org.s1ck.gdl.model.values.PrimitiveList;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class GDLWriterTest {
+
+  @Test
+  public void roundTripOverlappingGraphsTest() throws IOException {
+    assertRoundTrip(
+      "g1:Community {title : \"Graphs\", memberCount : 23}[" +
+      "  (alice:User)-[:knows]->(bob:User)," +
+      "  (bob)-[e:knows]->(eve:User)," +
+      "  (eve)" +
+      "]" +
+      "g2:Community {title : \"Databases\", memberCount : 42}[" +
+      "  (alice)" +
+      "]" +
+      "g3:Community {title : \"Hadoop\", memberCount : 31}[" +
+      "  (bob)-[e]->(eve)" +
+      "]" +
+      "[]" +
+      ":Empty {size : 0}[]" +
+      "(alice)-[:follows]->(frank:User)");
+  }
+
+  @Test
+  public void roundTripAnonymousElementsTest() throws IOException {
+    assertRoundTrip("()-->()<-[:knows*1..3]-(:Person {age : 42})-->(:Person) [(:Orphan)-->()] (v)-->(v)");
+  }
+
+  @Test
+  public void roundTripTypedLiteralsTest() throws IOException {
+    float[] large = new float[64];
+    Arrays.fill(large, 0.25f);
+    Vertex vertex = new Vertex();
+    vertex.setId(0L);
+    vertex.setLabels(Collections.singletonList("Values"));
+    Map<String, Object> properties = new HashMap<>();
+    properties.put("i", -42);
+    properties.put("l", Long.MIN_VALUE);
+    properties.put("f", -0.0f);
+    properties.put("tiny", 1E-30f);
+    properties.put("d", 3.14d);
+    properties.put("huge", 2E300);
+    properties.put("nan", Double.NaN);
+    properties.put("none", null);
+    properties.put("b", true);
+    properties.put("s", "say \"hi\"\n'there' \\\" \\d");
+    properties.put("u", "Gr\u00fc\u00dfe");
+    properties.put("longs", PrimitiveList.LongList.of(1L, 3L));
+    properties.put("mixed", Arrays.asList(1, 2L, 3.0f, 4.0d, "five", false, null, Double.NaN));
+    properties.put("empty", new ArrayList<>());
+    properties.put("small", FloatVectorLiteral.of(1.0f, -0.0f));
+    properties.put("large", FloatVectorLiteral.of(large));
+    vertex.setProperties(properties);
+
+    String gdl = write(Collections.emptyList(), Collections.singletonList(vertex), Collections.emptyList());
+    assertTrue(gdl, gdl.contains("vector(f32:"));
+    Vertex read = new GDLHandler.Builder().buildFromString(gdl).getVertices().iterator().next();
+
+    assertEquals(vertex.getLabels(), read.getLabels());
+    assertEquals(properties, read.getProperties());
+    assertEquals(Long.class, read.getProperties().get("l").getClass());
+    assertEquals(Float.class, read.getProperties().get("f").getClass());
+    assertEquals(Double.class, read.getProperties().get("d").getClass());
+  }
+
+  @Test
+  public void writeTest() throws IOException {
+    GDLHandler handler = new GDLHandler.Builder()
+      .buildFromString("g:Community[(alice:User {age : 23L})-[:knows]->(:User)] ()");
+
+    assertEquals(
+      "g:Community[\n" +
+      "  (alice:User {age : 23L})\n" +
+      "  (__v1:User)\n" +
+      "  (alice)-[:knows]->(__v1)\n" +
+      "]\n" +
+      "(:__VERTEX)\n",
+      write(handler.getGraphs(), handler.getVertices(), handler.getEdges()));
+  }
+
+  @Test
+  public void writeToOutputStreamTest() throws IOException {
+    GDLHandler handler = new GDLHandler.Builder().buildFromString("(v {name : \"Gr\u00fc\u00dfe\"})");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GDLWriter writer = new GDLWriter(bytes)) {
+      writer.write(handler);
+    }
+    assertEquals("(v:__VERTEX {name : \"Gr\u00fc\u00dfe\"})\n", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void failOnUnsupportedValuesTest() {
+    Object[] values = {
+      Float.NaN, Double.POSITIVE_INFINITY, "ends with \\", "quote \\'", (short) 1,
+      Collections.singletonList(Collections.emptyList())
+    };
+    for (Object value : values) {
+      Vertex vertex = vertex(0L, "v");
+      vertex.addProperty("p", value);
+      IllegalArgumentException exc = assertThrows(IllegalArgumentException.class,
+        () -> write(Collections.emptyList(), Collections.singletonList(vertex), Collections.emptyList()));
+      assertTrue(exc.getMessage(), exc.getMessage().startsWith("Value of property 'p' cannot be written as GDL"));
+    }
+  }
+
+  @Test
+  public void failOnInvalidIdentifiersTest() {
+    Vertex label = vertex(0L, "v");
+    label.setLabel("two words");
+    Vertex key = vertex(0L, "v");
+    key.addProperty("NULL", 1);
+    Vertex variable = vertex(0L, "and");
+    for (Vertex vertex : Arrays.asList(label, key, variable)) {
+      assertThrows(IllegalArgumentException.class,
+        () -> write(Collections.emptyList(), Collections.singletonList(vertex), Collections.emptyList()));
+    }
+  }
+
+  @Test
+  public void failOnMissingElementsTest() {
+    Vertex vertex = vertex(0L, "v");
+    vertex.addToGraph(7L);
+    IllegalArgumentException exc = assertThrows(IllegalArgumentException.class,
+      () -> write(Collections.emptyList(), Collections.singletonList(vertex), Collections.emptyList()));
+    assertEquals("Element 0 is contained in graph 7 which is not written", exc.getMessage());
+
+    Edge edge = new Edge();
+    edge.setId(1L);
+    edge.setSourceVertexId(0L);
+    edge.setTargetVertexId(2L);
+    exc = assertThrows(IllegalArgumentException.class,
+      () -> write(Collections.emptyList(), Collections.singletonList(vertex(0L, "v")), Collections.singletonList(edge)));
+    assertEquals("Edge 1 connects vertex 2 which is not written", exc.getMessage());
+  }
+
+  @Test
+  public void failOnEdgeOutsideOfVertexGraphsTest() throws IOException {
+    List<Graph> graphs = new ArrayList<>(new GDLHandler.Builder().buildFromString("g[]").getGraphs());
+    Vertex a = vertex(0L, "a");
+    a.addToGraph(graphs.get(0).getId());
+    Vertex b = vertex(1L, "b");
+    Edge edge = new Edge();
+    edge.setId(2L);
+    edge.setSourceVertexId(0L);
+    edge.setTargetVertexId(1L);
+    edge.addToGraph(graphs.get(0).getId());
+    IllegalArgumentException exc = assertThrows(IllegalArgumentException.class,
+      () -> write(graphs, Arrays.asList(a, b), Collections.singletonList(edge)));
+    assertEquals(String.format("Edge 2 is contained in graph %d which does not contain its vertex 1",
+      graphs.get(0).getId()), exc.getMessage());
+
+    b.addToGraph(graphs.get(0).getId());
+    GDLHandler handler = new GDLHandler.Builder().buildFromString(
+      write(graphs, Arrays.asList(a, b), Collections.singletonList(edge)));
+    assertEquals(2, handler.getVertices().stream().filter(v -> v.getGraphs().size() == 1).count());
+  }
+
+  @Test
+  public void failOnDuplicateVariablesTest() {
+    IllegalArgumentException exc = assertThrows(IllegalArgumentException.class,
+      () -> write(Collections.emptyList(), Arrays.asList(vertex(0L, "v"), vertex(1L, "v")), Collections.emptyList()));
+    assertEquals("Variable v is used by elements 0 and 1", exc.getMessage());
+  }
+
+  private static Vertex vertex(long id, String variable) {
+    Vertex vertex = new Vertex();
+    vertex.setId(id);
+    vertex.setVariable(variable);
+    return vertex;
+  }
+
+  private static String write(Collection<Graph> graphs, Collection<Vertex> vertices,
+    Collection<Edge> edges) throws IOException {
+    StringWriter out = new StringWriter();
+    try (GDLWriter writer = new GDLWriter(out)) {
+      writer.write(graphs, vertices, edges);
+    }
+    return out.toString();
+  }
+
+  private static void assertRoundTrip(String gdl) throws IOException {
+    GDLHandler expected = new GDLHandler.Builder().buildFromString(gdl);
+    StringWriter out = new StringWriter();
+    try (GDLWriter writer = new GDLWriter(out)) {
+      writer.write(expected);
+    }
+    GDLHandler actual = new GDLHandler.Builder().buildFromString(out.toString());
+    assertEquals(out.toString(), describe(expected), describe(actual));
+  }
+
+  /**
+   * Describes the elements of a handler independent of their ids and generated variables.
+   */
+  private static List<String> describe(GDLHandler handler) {
+    Map<Long, String> graphs = new HashMap<>();
+    Map<Long, String> vertices = new HashMap<>();
+    List<String> descriptions = new ArrayList<>();
+    for (Graph graph : handler.getGraphs()) {
+      graphs.put(graph.getId(), describe(graph));
+    }
+    for (Vertex vertex : handler.getVertices()) {
+      vertices.put(vertex.getId(), describe(vertex) + " in " + describeGraphs(vertex, graphs));
+    }
+    descriptions.addAll(graphs.values());
+    descriptions.addAll(vertices.values());
+    for (Edge edge : handler.getEdges()) {
+      descriptions.add(vertices.get(edge.getSourceVertexId()) + " -" + describe(edge) + "*" +
+        edge.getLowerBound() + ".." + edge.getUpperBound() + " in " + describeGraphs(edge, graphs) + "-> " +
+        vertices.get(edge.getTargetVertexId()));
+    }
+    Collections.sort(descriptions);
+    return descriptions;
+  }
+
+  private static String describe(Element element) {
+    String variable = element.getVariable().startsWith("__") ? "" : element.getVariable();
+    return "(" + variable + element.getLabels() + new TreeMap<>(element.getProperties()) + ")";
+  }
+
+  private static List<String> describeGraphs(GraphElement element, Map<Long, String> graphs) {
+    List<String> descriptions = new ArrayList<>();
+    for (Long graph : element.getGraphs()) {
+      descriptions.add(graphs.get(graph));
+    }
+    Collections.sort(descriptions);
+    return descriptions;
+  }
+}
@@ -0,0 +1,154 @@
+package org.s1ck.gdl;
+
+import org.junit.Test;
+import org.s1ck.gdl.GraphGenerator.Property;
+import org.s1ck.gdl.model.Edge;
+import org.s1ck.gdl.model.Element;
+import org.s1ck.gdl.model.Graph;
+import org.s1ck.gdl.model.GraphElement;
+import org.s1ck.gdl.model.Vertex;
+import org.s1ck.gdl.model.values.FloatVectorLiteral;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class GraphGeneratorTest {
+
+  private static GraphGenerator.Builder builder() {
+    return new GraphGenerator.Builder()
+      .setSeed(7L)
+      .setVertexCount(500)
+      .setAverageDegree(3)
+      .setDegreeDistribution(GraphGenerator.DegreeDistribution.POWER_LAW)
+      .addVertexLabel("Person", 3, Property.strings("name", 100), Property.integers("age", 0, 99),
+        Property.doubles("score", -1E-5, 1E8), Property.vectors("embedding", 20).withProbability(0.5))
+      .addVertexLabel("Bot", 1, Property.booleans("active"), Property.longs("created", 0, 1L << 40))
+      .addEdgeLabel("knows", 1, Property.integers("since", 1990, 2020))
+      .setGraphCount(4)
+      .setGraphOverlap(0.3)
+      .setGraphLabel("Community");
+  }
+
+  @Test
+  public void writeMatchesGeneratedElementsTest() throws IOException {
+    GraphGenerator generator = builder().build();
+    List<Graph> graphs = new ArrayList<>();
+    List<Vertex> vertices = new ArrayList<>();
+    List<Edge> edges = new ArrayList<>();
+    generator.generate(graphs::add, vertices::add, edges::add);
+
+    StringWriter script = new StringWriter();
+    generator.write(script);
+    GDLHandler handler = new GDLHandler.Builder().buildFromString(script.toString());
+
+    assertSameElements(graphs, handler.getGraphs());
+    assertSameElements(vertices, handler.getVertices());
+    assertSameElements(edges, handler.getEdges());
+    for (Edge edge : edges) {
+      assertTrue(vertices.get(edge.getSourceVertexId().intValue()).getGraphs().containsAll(edge.getGraphs()));
+      assertTrue(vertices.get(edge.getTargetVertexId().intValue()).getGraphs().containsAll(edge.getGraphs()));
+    }
+    assertTrue(vertices.stream().anyMatch(v -> v.getGraphs().size() == 2));
+    assertTrue(vertices.stream().anyMatch(v -> v.getProperties().get("embedding") instanceof FloatVectorLiteral));
+  }
+
+  @Test
+  public void deterministicPerSeedTest() throws IOException {
+    assertEquals(script(builder()), script(builder()));
+    assertNotEquals(script(builder()), script(builder().setSeed(8L)));
+    assertEquals(builder().build().queries(20), builder().build().queries(20));
+  }
+
+  @Test
+  public void degreeDistributionTest() {
+    int[] uniform = inDegrees(new GraphGenerator.Builder().setVertexCount(10_000).setAverageDegree(5).build());
+    int[] powerLaw = inDegrees(new GraphGenerator.Builder().setVertexCount(10_000).setAverageDegree(5)
+      .setDegreeDistribution(GraphGenerator.DegreeDistribution.POWER_LAW).build());
+
+    assertEquals(50_000, sum(uniform), 2_500);
+    assertEquals(50_000, sum(powerLaw), 10_000);
+    assertTrue(max(powerLaw) > 10 * max(uniform));
+  }
+
+  @Test
+  public void queriesTest() {
+    GraphGenerator generator = builder().build();
+    List<String> queries = generator.queries(100);
+
+    assertEquals(100, queries.size());
+    for (String query : queries) {
+      GDLHandler handler = new GDLHandler.Builder().buildFromString(query);
+      assertTrue(query, handler.getEdgeCache().size() >= 1);
+    }
+    assertTrue(queries.stream().anyMatch(query -> query.contains(" WHERE ") && query.contains(" AND ")));
+    assertTrue(queries.stream().anyMatch(query -> query.contains("cosine(")));
+  }
+
+  @Test
+  public void failOnInvalidSchemaTest() {
+    assertThrows(IllegalArgumentException.class, () -> new GraphGenerator.Builder().addVertexLabel("MATCH", 1));
+    assertThrows(IllegalArgumentException.class, () -> new GraphGenerator.Builder().addEdgeLabel("knows", 0));
+    assertThrows(IllegalArgumentException.class, () -> new GraphGenerator.Builder()
+      .addVertexLabel("Person", 1, Property.booleans("a"), Property.integers("a", 0, 1)));
+    assertThrows(IllegalArgumentException.class, () -> Property.integers("age", 1, 0));
+    assertThrows(IllegalArgumentException.class, () -> new GraphGenerator.Builder().setPowerLawExponent(2));
+  }
+
+  private static String script(GraphGenerator.Builder builder) throws IOException {
+    StringWriter script = new StringWriter();
+    builder.build().write(script);
+    return script.toString();
+  }
+
+  private static int[] inDegrees(GraphGenerator generator) {
+    int[] degrees = new int[10_000];
+    generator.generate(graph -> { }, vertex -> { }, edge -> degrees[edge.getTargetVertexId().intValue()]++);
+    return degrees;
+  }
+
+  private static int sum(int[] values) {
+    int sum = 0;
+    for (int value : values) {
+      sum += value;
+    }
+    return sum;
+  }
+
+  private static int max(int[] values) {
+    int max = 0;
+    for (int value : values) {
+      max = Math.max(max, value);
+    }
+    return max;
+  }
+
+  private static void assertSameElements(List<? extends Element> expected, Collection<? extends Element> actual) {
+    Map<Long, Element> elements = new HashMap<>();
+    for (Element element : actual) {
+      elements.put(element.getId(), element);
+    }
+    assertEquals(expected.size(), elements.size());
+    for (Element element : expected) {
+      Element other = elements.get(element.getId());
+      assertEquals(element.getLabels(), other.getLabels());
+      assertEquals(element.getProperties(), other.getProperties());
+      if (element instanceof GraphElement) {
+        assertEquals(((GraphElement) element).getGraphs(), ((GraphElement) other).getGraphs());
+      }
+      if (element instanceof Edge) {
+        assertEquals(((Edge) element).getSourceVertexId(), ((Edge) other).getSourceVertexId());
+        assertEquals(((Edge) element).getTargetVertexId(), ((Edge) other).getTargetVertexId());
+      }
+    }
+  }
+}
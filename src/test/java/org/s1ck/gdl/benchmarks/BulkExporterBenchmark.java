@@ -0,0 +1,100 @@
+package org.s1ck.gdl.benchmarks;
+
+import org.s1ck.gdl.BulkExporter;
+import org.s1ck.gdl.BulkImporter;
+import org.s1ck.gdl.GDLWriter;
+import org.s1ck.gdl.model.Edge;
+import org.s1ck.gdl.model.Graph;
+import org.s1ck.gdl.model.Vertex;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Compares exporting a generated graph to CSV and JSON Lines files with writing it as GDL.
+ *
+ * <pre>
+ * java org.s1ck.gdl.benchmarks.BulkExporterBenchmark [vertexCount] [edgesPerVertex] [runs] [threads]
+ * </pre>
+ */
+public class BulkExporterBenchmark {
+
+  private static final String[] CITIES = {"Leipzig", "Dresden", "Berlin", "Hamburg", "Munich"};
+
+  public static void main(String[] args) throws IOException {
+    int vertexCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+    int edgesPerVertex = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+    int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+    int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+    Random random = new Random(42L);
+    List<Vertex> vertices = new ArrayList<>(vertexCount);
+    for (int v = 0; v < vertexCount; v++) {
+      Vertex vertex = new Vertex();
+      vertex.setId(v);
+      vertex.setVariable("v" + v);
+      vertex.setLabel(v % 2 == 0 ? "Person" : "Bot");
+      Map<String, Object> properties = new HashMap<>();
+      properties.put("name", "Person " + v);
+      properties.put("age", random.nextInt(100));
+      properties.put("city", CITIES[random.nextInt(CITIES.length)]);
+      properties.put("score", random.nextDouble());
+      vertex.setProperties(properties);
+      vertices.add(vertex);
+    }
+    List<Edge> edges = new ArrayList<>(vertexCount * edgesPerVertex);
+    for (int v = 0; v < vertexCount; v++) {
+      for (int e = 0; e < edgesPerVertex; e++) {
+        Edge edge = new Edge();
+        edge.setId(edges.size());
+        edge.setLabel("knows");
+        edge.setSourceVertexId((long) v);
+        edge.setTargetVertexId((long) random.nextInt(vertexCount));
+        edge.setProperties(new HashMap<>(Collections.singletonMap("since", 1990 + random.nextInt(30))));
+        edges.add(edge);
+      }
+    }
+    List<Graph> graphs = Collections.emptyList();
+
+    Path directory = Files.createTempDirectory("export");
+    try {
+      for (int run = 0; run < runs; run++) {
+        for (BulkImporter.Format format : BulkImporter.Format.values()) {
+          BulkExporter exporter = new BulkExporter.Builder().setFormat(format).setThreads(threads).build();
+          long start = System.nanoTime();
+          List<Path> files = exporter.export(graphs, vertices, edges, directory);
+          long time = System.nanoTime() - start;
+          long bytes = 0;
+          for (Path file : files) {
+            bytes += Files.size(file);
+          }
+          System.out.printf("%s %d files %.2f ms (%.1f MB/s), ", format, files.size(), time / 1E6,
+            bytes / 1E6 / (time / 1E9));
+        }
+
+        Path gdl = directory.resolve("graph.gdl");
+        long start = System.nanoTime();
+        try (GDLWriter writer = new GDLWriter(Files.newBufferedWriter(gdl))) {
+          writer.write(graphs, vertices, edges);
+        }
+        long time = System.nanoTime() - start;
+        System.out.printf("GDL %.2f ms (%.1f MB/s)%n", time / 1E6, Files.size(gdl) / 1E6 / (time / 1E9));
+      }
+    } finally {
+      try (Stream<Path> files = Files.list(directory)) {
+        for (Path file : (Iterable<Path>) files::iterator) {
+          Files.delete(file);
+        }
+      }
+      Files.delete(directory);
+    }
+  }
+}
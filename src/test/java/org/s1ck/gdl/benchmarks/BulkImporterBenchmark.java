@@ -0,0 +1,76 @@
+package org.s1ck.gdl.benchmarks;
+
+import org.s1ck.gdl.BulkImporter;
+import org.s1ck.gdl.GDLHandler;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Compares loading a generated graph from GDL text with importing the same graph from CSV files.
+ *
+ * <pre>
+ * java org.s1ck.gdl.benchmarks.BulkImporterBenchmark [vertexCount] [edgesPerVertex] [runs] [threads]
+ * </pre>
+ */
+public class BulkImporterBenchmark {
+
+  private static final String[] CITIES = {"Leipzig", "Dresden", "Berlin", "Hamburg", "Munich"};
+
+  public static void main(String[] args) throws IOException {
+    int vertexCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+    int edgesPerVertex = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+    int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+    int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+    Random random = new Random(42L);
+    StringBuilder gdl = new StringBuilder();
+    StringBuilder vertices = new StringBuilder(":id,:labels,name,age:int,city\n");
+    StringBuilder edges = new StringBuilder(":source,:target,:labels,since:int\n");
+    for (int v = 0; v < vertexCount; v++) {
+      int age = random.nextInt(100);
+      String city = CITIES[random.nextInt(CITIES.length)];
+      gdl.append(String.format("(v%d:Person {name : \"Person %d\", age : %d, city : \"%s\"})%n", v, v, age, city));
+      vertices.append(String.format("v%d,Person,Person %d,%d,%s%n", v, v, age, city));
+    }
+    for (int v = 0; v < vertexCount; v++) {
+      for (int e = 0; e < edgesPerVertex; e++) {
+        int target = random.nextInt(vertexCount);
+        int since = 1990 + random.nextInt(30);
+        gdl.append(String.format("(v%d)-[:knows {since : %d}]->(v%d)%n", v, since, target));
+        edges.append(String.format("v%d,v%d,knows,%d%n", v, target, since));
+      }
+    }
+    Path vertexFile = Files.createTempFile("vertices", ".csv");
+    Path edgeFile = Files.createTempFile("edges", ".csv");
+    try {
+      Files.write(vertexFile, vertices.toString().getBytes(StandardCharsets.UTF_8));
+      Files.write(edgeFile, edges.toString().getBytes(StandardCharsets.UTF_8));
+      double csvMegabytes = (Files.size(vertexFile) + Files.size(edgeFile)) / 1E6;
+      String script = gdl.toString();
+      BulkImporter importer = new BulkImporter.Builder().setThreads(threads).build();
+
+      for (int run = 0; run < runs; run++) {
+        long start = System.nanoTime();
+        GDLHandler parsed = new GDLHandler.Builder().buildFromString(script);
+        long parseTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        GDLHandler imported = new GDLHandler.Builder().buildFromString("");
+        importer.importVertices(imported, vertexFile);
+        importer.importEdges(imported, edgeFile);
+        long importTime = System.nanoTime() - start;
+
+        System.out.printf("GDL %d elements %.2f ms (%.1f MB/s), CSV %d elements %.2f ms (%.1f MB/s)%n",
+          parsed.getVertices().size() + parsed.getEdges().size(), parseTime / 1E6, script.length() / 1E6 / (parseTime / 1E9),
+          imported.getVertices().size() + imported.getEdges().size(), importTime / 1E6, csvMegabytes / (importTime / 1E9));
+      }
+    } finally {
+      Files.delete(vertexFile);
+      Files.delete(edgeFile);
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package org.s1ck.gdl.benchmarks;
+
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.matching.PatternMatcher;
+import org.s1ck.gdl.matching.QueryCompiler;
+
+import java.util.Random;
+
+/**
+ * Compares the interpreted search with generated search code on the same queries over a random
+ * graph.
+ *
+ * <pre>
+ * java org.s1ck.gdl.benchmarks.CompiledQueryBenchmark [vertexCount] [edgeCount] [runs]
+ * </pre>
+ */
+public class CompiledQueryBenchmark {
+
+  private static final String[] QUERIES = {
+    "MATCH (a)-->(b),(b)-->(c),(a)-->(c)",
+    "MATCH (a)-->(b)-->(c)-->(d) WHERE a.weight < d.weight",
+    "MATCH (a)-->(b),(a)-->(c),(b)-->(d),(c)-->(d) WHERE a.weight > 50",
+    "MATCH (a)-->(b),(a)-->(c),(a)-->(d),(b)-->(c),(b)-->(d),(c)-->(d)"
+  };
+
+  public static void main(String[] args) {
+    int vertexCount = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+    int edgeCount = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+    int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+    GDLHandler data = new GDLHandler.Builder().buildFromString(generate(vertexCount, edgeCount, 42L));
+    System.out.printf("graph: %d vertices, %d edges%n", data.getVertices().size(), data.getEdges().size());
+    if (!QueryCompiler.isAvailable()) {
+      System.out.println("no system Java compiler available");
+      return;
+    }
+
+    PatternMatcher interpreted = new PatternMatcher.Builder().build(data);
+    PatternMatcher compiled = new PatternMatcher.Builder().setQueryCompiler(new QueryCompiler()).build(data);
+    for (String query : QUERIES) {
+      System.out.println(query);
+      GDLHandler pattern = new GDLHandler.Builder().buildFromString(query);
+      measure("interpreted", interpreted, pattern, runs);
+      measure("compiled", compiled, pattern, runs);
+    }
+  }
+
+  private static void measure(String name, PatternMatcher matcher, GDLHandler pattern, int runs) {
+    long start = System.nanoTime();
+    long count = matcher.count(pattern); // warm-up, includes code generation
+    long first = System.nanoTime() - start;
+    long best = Long.MAX_VALUE;
+    for (int run = 0; run < runs; run++) {
+      start = System.nanoTime();
+      matcher.count(pattern);
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    System.out.printf("  %-12s %10d matches %10.2f ms (first run %.2f ms)%n", name, count, best / 1E6, first / 1E6);
+  }
+
+  /**
+   * Generates a graph whose edges point from the smaller to the larger vertex. Endpoints are
+   * skewed towards small vertex numbers to create high degree vertices.
+   */
+  private static String generate(int vertexCount, int edgeCount, long seed) {
+    Random random = new Random(seed);
+    StringBuilder builder = new StringBuilder();
+    for (int v = 0; v < vertexCount; v++) {
+      builder.append("(v").append(v).append(" {weight : ").append(random.nextInt(100)).append("})\n");
+    }
+    for (int e = 0; e < edgeCount; e++) {
+      int a = (int) (vertexCount * Math.pow(random.nextDouble(), 2));
+      int b = (int) (vertexCount * Math.pow(random.nextDouble(), 2));
+      if (a == b) {
+        continue;
+      }
+      builder.append("(v").append(Math.min(a, b)).append(")-->(v").append(Math.max(a, b)).append(")\n");
+    }
+    return builder.toString();
+  }
+}
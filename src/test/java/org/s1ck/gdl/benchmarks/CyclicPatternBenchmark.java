@@ -0,0 +1,69 @@
+package org.s1ck.gdl.benchmarks;
+
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.matching.ExecutionMode;
+import org.s1ck.gdl.matching.PatternMatcher;
+
+import java.util.Random;
+
+/**
+ * Compares backtracking and generic join on triangle and 4-clique queries over a random graph.
+ *
+ * <pre>
+ * java org.s1ck.gdl.benchmarks.CyclicPatternBenchmark [vertexCount] [edgeCount] [runs]
+ * </pre>
+ */
+public class CyclicPatternBenchmark {
+
+  private static final String TRIANGLE = "MATCH (a)-->(b),(b)-->(c),(a)-->(c)";
+
+  private static final String FOUR_CLIQUE =
+    "MATCH (a)-->(b),(a)-->(c),(a)-->(d),(b)-->(c),(b)-->(d),(c)-->(d)";
+
+  public static void main(String[] args) {
+    int vertexCount = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+    int edgeCount = args.length > 1 ? Integer.parseInt(args[1]) : 40_000;
+    int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+    GDLHandler data = new GDLHandler.Builder().buildFromString(generate(vertexCount, edgeCount, 42L));
+    System.out.printf("graph: %d vertices, %d edges%n", data.getVertices().size(), data.getEdges().size());
+
+    for (String query : new String[] {TRIANGLE, FOUR_CLIQUE}) {
+      System.out.println(query);
+      for (ExecutionMode mode : new ExecutionMode[] {ExecutionMode.BACKTRACKING, ExecutionMode.GENERIC_JOIN}) {
+        PatternMatcher matcher = new PatternMatcher.Builder().setExecutionMode(mode).build(data);
+        GDLHandler pattern = new GDLHandler.Builder().buildFromString(query);
+        long count = matcher.count(pattern); // warm-up
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < runs; run++) {
+          long start = System.nanoTime();
+          matcher.count(pattern);
+          best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("  %-12s %10d matches %10.2f ms%n", mode, count, best / 1E6);
+      }
+    }
+  }
+
+  /**
+   * Generates a graph whose edges point from the smaller to the larger vertex, so that every
+   * clique matches exactly once. Endpoints are skewed towards small vertex numbers to create
+   * high degree vertices.
+   */
+  private static String generate(int vertexCount, int edgeCount, long seed) {
+    Random random = new Random(seed);
+    StringBuilder builder = new StringBuilder();
+    for (int v = 0; v < vertexCount; v++) {
+      builder.append("(v").append(v).append(")\n");
+    }
+    for (int e = 0; e < edgeCount; e++) {
+      int a = (int) (vertexCount * Math.pow(random.nextDouble(), 2));
+      int b = (int) (vertexCount * Math.pow(random.nextDouble(), 2));
+      if (a == b) {
+        continue;
+      }
+      builder.append("(v").append(Math.min(a, b)).append(")-->(v").append(Math.max(a, b)).append(")\n");
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,95 @@
+package org.s1ck.gdl.benchmarks;
+
+import org.s1ck.gdl.GDLWriter;
+import org.s1ck.gdl.model.Edge;
+import org.s1ck.gdl.model.Graph;
+import org.s1ck.gdl.model.Vertex;
+import org.s1ck.gdl.model.values.PrimitiveList;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the throughput of writing a generated graph as GDL.
+ *
+ * <pre>
+ * java org.s1ck.gdl.benchmarks.GDLWriterBenchmark [vertexCount] [edgesPerVertex] [runs]
+ * </pre>
+ */
+public class GDLWriterBenchmark {
+
+  private static final String[] CITIES = {"Leipzig", "Dresden", "Berlin", "Hamburg", "Munich"};
+
+  public static void main(String[] args) throws IOException {
+    int vertexCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+    int edgesPerVertex = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+    int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+    Random random = new Random(42L);
+    Graph graph = new Graph();
+    graph.setId(0L);
+    graph.setVariable("g");
+    graph.setLabel("Community");
+    graph.addProperty("title", "Graphs");
+
+    List<Vertex> vertices = new ArrayList<>(vertexCount);
+    for (int v = 0; v < vertexCount; v++) {
+      Vertex vertex = new Vertex();
+      vertex.setId(v);
+      vertex.setVariable("v" + v);
+      vertex.setLabel("Person");
+      vertex.addProperty("name", "Person " + v);
+      vertex.addProperty("age", random.nextInt(100));
+      vertex.addProperty("city", CITIES[random.nextInt(CITIES.length)]);
+      vertex.addProperty("score", random.nextDouble());
+      vertex.addProperty("ids", PrimitiveList.LongList.of(random.nextLong(), random.nextLong()));
+      vertex.addToGraph(0L);
+      vertices.add(vertex);
+    }
+    List<Edge> edges = new ArrayList<>(vertexCount * edgesPerVertex);
+    for (int v = 0; v < vertexCount; v++) {
+      for (int e = 0; e < edgesPerVertex; e++) {
+        Edge edge = new Edge();
+        edge.setId(edges.size());
+        edge.setLabel("knows");
+        edge.addProperty("since", 1990 + random.nextInt(30));
+        edge.setSourceVertexId((long) v);
+        edge.setTargetVertexId((long) random.nextInt(vertexCount));
+        edge.addToGraph(0L);
+        edges.add(edge);
+      }
+    }
+
+    for (int run = 0; run < runs; run++) {
+      CountingOutputStream out = new CountingOutputStream();
+      long start = System.nanoTime();
+      try (GDLWriter writer = new GDLWriter(out)) {
+        writer.write(Collections.singletonList(graph), vertices, edges);
+      }
+      long time = System.nanoTime() - start;
+      System.out.printf("%d vertices, %d edges, %.1f MB in %.2f ms, %.1f MB/s%n",
+        vertices.size(), edges.size(), out.count / 1E6, time / 1E6, out.count / 1E6 / (time / 1E9));
+    }
+  }
+
+  /**
+   * Discards the written bytes
+   */
+  private static final class CountingOutputStream extends OutputStream {
+    private long count;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+  }
+}
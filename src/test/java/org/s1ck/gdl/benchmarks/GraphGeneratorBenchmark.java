@@ -0,0 +1,64 @@
+package org.s1ck.gdl.benchmarks;
+
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.GraphGenerator;
+import org.s1ck.gdl.GraphGenerator.Property;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Generates a GDL script of the given size and measures writing and parsing it.
+ *
+ * <pre>
+ * java org.s1ck.gdl.benchmarks.GraphGeneratorBenchmark [vertexCount] [averageDegree] [runs] [distribution]
+ * </pre>
+ */
+public class GraphGeneratorBenchmark {
+
+  public static void main(String[] args) throws IOException {
+    int vertexCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+    double averageDegree = args.length > 1 ? Double.parseDouble(args[1]) : 4;
+    int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+    GraphGenerator.DegreeDistribution distribution = args.length > 3 ?
+      GraphGenerator.DegreeDistribution.valueOf(args[3]) : GraphGenerator.DegreeDistribution.POWER_LAW;
+
+    GraphGenerator generator = new GraphGenerator.Builder()
+      .setSeed(42L)
+      .setVertexCount(vertexCount)
+      .setAverageDegree(averageDegree)
+      .setDegreeDistribution(distribution)
+      .addVertexLabel("Person", 3, Property.strings("name", 10_000), Property.integers("age", 0, 99),
+        Property.strings("city", 50), Property.vectors("embedding", 16).withProbability(0.2))
+      .addVertexLabel("Bot", 1, Property.longs("created", 0L, 1_500_000_000L), Property.booleans("active"))
+      .addEdgeLabel("knows", 4, Property.integers("since", 1990, 2020))
+      .addEdgeLabel("follows", 1)
+      .setGraphCount(16)
+      .setGraphOverlap(0.1)
+      .build();
+
+    Path file = Files.createTempFile("generated", ".gdl");
+    try {
+      for (int run = 0; run < runs; run++) {
+        long start = System.nanoTime();
+        try (Writer writer = Files.newBufferedWriter(file)) {
+          generator.write(writer);
+        }
+        long writeTime = System.nanoTime() - start;
+        double megabytes = Files.size(file) / 1E6;
+
+        start = System.nanoTime();
+        GDLHandler handler = new GDLHandler.Builder().buildFromFile(file.toString());
+        long parseTime = System.nanoTime() - start;
+
+        System.out.printf("%d elements, %.1f MB: generate %.2f ms (%.1f MB/s), parse %.2f ms (%.1f MB/s)%n",
+          handler.getVertices().size() + handler.getEdges().size(), megabytes,
+          writeTime / 1E6, megabytes / (writeTime / 1E9), parseTime / 1E6, megabytes / (parseTime / 1E9));
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+}
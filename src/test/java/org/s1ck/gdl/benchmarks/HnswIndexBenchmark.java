@@ -0,0 +1,83 @@
+package org.s1ck.gdl.benchmarks;
+
+import org.s1ck.gdl.model.Vertex;
+import org.s1ck.gdl.model.values.FloatVectorLiteral;
+import org.s1ck.gdl.model.values.VectorLiteral;
+import org.s1ck.gdl.vectors.HnswIndex;
+import org.s1ck.gdl.vectors.VectorSearch;
+import org.s1ck.gdl.vectors.VectorStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the query latency of the exact vector search with the HNSW index and reports the
+ * recall of the index for several search widths.
+ *
+ * <pre>
+ * java org.s1ck.gdl.benchmarks.HnswIndexBenchmark [vertexCount] [dimension] [queryCount] [threads]
+ * </pre>
+ */
+public class HnswIndexBenchmark {
+
+  public static void main(String[] args) {
+    int vertexCount = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+    int dimension = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+    int queryCount = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+    int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+    int k = 10;
+
+    Random random = new Random(42L);
+    List<Vertex> vertices = new ArrayList<>();
+    for (int v = 0; v < vertexCount; v++) {
+      Vertex vertex = new Vertex();
+      vertex.setId(v);
+      vertex.setLabel("Doc");
+      vertex.addProperty("embedding", randomVector(random, dimension));
+      vertices.add(vertex);
+    }
+    List<VectorLiteral> queries = new ArrayList<>();
+    for (int q = 0; q < queryCount; q++) {
+      queries.add(randomVector(random, dimension));
+    }
+
+    long start = System.nanoTime();
+    HnswIndex index = new HnswIndex.Builder().setThreads(threads).build(vertices, "Doc", "embedding");
+    System.out.printf("%d x %d index built by %d threads in %.2f ms, %d layers%n", index.size(), dimension,
+      threads, (System.nanoTime() - start) / 1E6, index.getLayerCount());
+
+    VectorSearch exact = new VectorSearch.Builder().build(VectorStore.fromVertices(vertices, "Doc", "embedding"));
+    start = System.nanoTime();
+    for (VectorLiteral query : queries) {
+      exact.search(query, k);
+    }
+    System.out.printf("exact %.3f ms per query%n", (System.nanoTime() - start) / 1E6 / queryCount);
+
+    for (int ef : new int[] {10, 50, 100, 200}) {
+      start = System.nanoTime();
+      for (VectorLiteral query : queries) {
+        index.search(query, k, ef);
+      }
+      double latency = (System.nanoTime() - start) / 1E6 / queryCount;
+      HnswIndex tuned = index;
+      double recall = queries.stream().mapToDouble(query -> recall(tuned, exact, query, k, ef)).average().orElse(1);
+      System.out.printf("hnsw ef=%d %.3f ms per query, recall@%d %.3f%n", ef, latency, k, recall);
+    }
+  }
+
+  private static double recall(HnswIndex index, VectorSearch exact, VectorLiteral query, int k, int ef) {
+    List<Vertex> approximate = new ArrayList<>();
+    index.search(query, k, ef).forEach(neighbor -> approximate.add(neighbor.getVertex()));
+    return exact.search(query, k).stream().filter(neighbor -> approximate.contains(neighbor.getVertex()))
+      .count() / (double) k;
+  }
+
+  private static FloatVectorLiteral randomVector(Random random, int dimension) {
+    float[] vector = new float[dimension];
+    for (int i = 0; i < dimension; i++) {
+      vector[i] = (float) random.nextGaussian();
+    }
+    return FloatVectorLiteral.of(vector);
+  }
+}
@@ -0,0 +1,74 @@
+package org.s1ck.gdl.benchmarks;
+
+import org.s1ck.gdl.model.Vertex;
+import org.s1ck.gdl.model.values.FloatVectorLiteral;
+import org.s1ck.gdl.model.values.VectorLiteral;
+import org.s1ck.gdl.vectors.OffHeapVectorStore;
+import org.s1ck.gdl.vectors.VectorMetric;
+import org.s1ck.gdl.vectors.VectorSearch;
+import org.s1ck.gdl.vectors.VectorStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the heap vector store with off-heap float and int8 stores: bytes held, search latency
+ * and the recall of the int8 store against the exact search.
+ *
+ * <pre>
+ * java org.s1ck.gdl.benchmarks.OffHeapVectorStoreBenchmark [vertexCount] [dimension] [queryCount]
+ * </pre>
+ */
+public class OffHeapVectorStoreBenchmark {
+
+  public static void main(String[] args) {
+    int vertexCount = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+    int dimension = args.length > 1 ? Integer.parseInt(args[1]) : 384;
+    int queryCount = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+    int k = 10;
+
+    Random random = new Random(42L);
+    List<Vertex> vertices = new ArrayList<>();
+    for (int v = 0; v < vertexCount; v++) {
+      Vertex vertex = new Vertex();
+      vertex.setId(v);
+      vertex.setLabel("Doc");
+      vertex.addProperty("embedding", randomVector(random, dimension));
+      vertices.add(vertex);
+    }
+    List<VectorLiteral> queries = new ArrayList<>();
+    for (int q = 0; q < queryCount; q++) {
+      queries.add(randomVector(random, dimension));
+    }
+
+    VectorSearch exact = new VectorSearch.Builder().setMetric(VectorMetric.COSINE)
+      .build(VectorStore.fromVertices(vertices, "Doc", "embedding"));
+    long start = System.nanoTime();
+    for (VectorLiteral query : queries) {
+      exact.search(query, k);
+    }
+    System.out.printf("heap float32: %d bytes, %.3f ms per query%n", 4L * vertexCount * dimension,
+      (System.nanoTime() - start) / 1E6 / queryCount);
+
+    for (OffHeapVectorStore.Encoding encoding : OffHeapVectorStore.Encoding.values()) {
+      OffHeapVectorStore store = new OffHeapVectorStore.Builder().setEncoding(encoding)
+        .build(vertices, "Doc", "embedding");
+      start = System.nanoTime();
+      for (VectorLiteral query : queries) {
+        store.search(query, k, VectorMetric.COSINE);
+      }
+      double latency = (System.nanoTime() - start) / 1E6 / queryCount;
+      System.out.printf("off-heap %s: %d bytes, %.3f ms per query, recall@%d %.3f%n", encoding,
+        store.getByteSize(), latency, k, store.recall(exact, queries, k));
+    }
+  }
+
+  private static FloatVectorLiteral randomVector(Random random, int dimension) {
+    float[] vector = new float[dimension];
+    for (int i = 0; i < dimension; i++) {
+      vector[i] = (float) random.nextGaussian();
+    }
+    return FloatVectorLiteral.of(vector);
+  }
+}
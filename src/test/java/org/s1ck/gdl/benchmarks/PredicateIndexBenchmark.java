@@ -0,0 +1,72 @@
+package org.s1ck.gdl.benchmarks;
+
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.matching.PredicateEvaluator;
+import org.s1ck.gdl.matching.PredicateIndex;
+import org.s1ck.gdl.model.Vertex;
+import org.s1ck.gdl.model.predicates.Predicate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares evaluating every subscription predicate on its own with the shared predicate index.
+ *
+ * <pre>
+ * java org.s1ck.gdl.benchmarks.PredicateIndexBenchmark [subscriptionCount] [vertexCount] [runs]
+ * </pre>
+ */
+public class PredicateIndexBenchmark {
+
+  private static final String[] CITIES = {"Leipzig", "Dresden", "Berlin", "Hamburg", "Munich"};
+
+  public static void main(String[] args) {
+    int subscriptionCount = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+    int vertexCount = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+    int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+    Random random = new Random(42L);
+    List<Predicate> predicates = new ArrayList<>();
+    PredicateIndex<Integer> index = new PredicateIndex<>();
+    for (int i = 0; i < subscriptionCount; i++) {
+      String query = String.format("MATCH (v:%s) WHERE v.age > %d AND v.city = \"%s\" OR v.score = %d",
+        random.nextBoolean() ? "Person" : "Bot", random.nextInt(100),
+        CITIES[random.nextInt(CITIES.length)], random.nextInt(1000));
+      Predicate predicate = new GDLHandler.Builder().buildFromString(query).getPredicates().get();
+      predicates.add(predicate);
+      index.add(i, predicate);
+    }
+    System.out.printf("%d subscriptions, %d shared comparisons%n", index.size(), index.getComparisonCount());
+
+    StringBuilder builder = new StringBuilder();
+    for (int v = 0; v < vertexCount; v++) {
+      builder.append(String.format("(:%s {age : %d, city : \"%s\", score : %d})%n",
+        random.nextBoolean() ? "Person" : "Bot", random.nextInt(100),
+        CITIES[random.nextInt(CITIES.length)], random.nextInt(1000)));
+    }
+    List<Vertex> vertices = new ArrayList<>(new GDLHandler.Builder().buildFromString(builder.toString()).getVertices());
+
+    for (int run = 0; run < runs; run++) {
+      long start = System.nanoTime();
+      long separate = 0;
+      for (Vertex vertex : vertices) {
+        for (Predicate predicate : predicates) {
+          if (PredicateEvaluator.evaluate(predicate, variable -> vertex)) {
+            separate++;
+          }
+        }
+      }
+      long separateTime = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      long[] indexed = {0};
+      for (Vertex vertex : vertices) {
+        index.match(vertex, subscription -> indexed[0]++);
+      }
+      long indexedTime = System.nanoTime() - start;
+      System.out.printf("separate %d matches %.2f ms, indexed %d matches %.2f ms%n",
+        separate, separateTime / 1E6, indexed[0], indexedTime / 1E6);
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package org.s1ck.gdl.benchmarks;
+
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.model.values.FloatVectorLiteral;
+
+import java.util.Random;
+
+/**
+ * Compares loading vertices with large vector properties written in list and in base64 form.
+ *
+ * <pre>
+ * java org.s1ck.gdl.benchmarks.VectorLiteralBenchmark [vertexCount] [dimension] [runs]
+ * </pre>
+ */
+public class VectorLiteralBenchmark {
+
+  public static void main(String[] args) {
+    int vertexCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+    int dimension = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+    int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+    Random random = new Random(42L);
+    StringBuilder list = new StringBuilder();
+    StringBuilder base64 = new StringBuilder();
+    for (int v = 0; v < vertexCount; v++) {
+      float[] vector = new float[dimension];
+      for (int i = 0; i < dimension; i++) {
+        vector[i] = (float) random.nextGaussian();
+      }
+      FloatVectorLiteral literal = FloatVectorLiteral.of(vector);
+      list.append("(:Doc {embedding : ").append(literal.toGDLString(false)).append("})\n");
+      base64.append("(:Doc {embedding : ").append(literal.toGDLString(true)).append("})\n");
+    }
+    System.out.printf("list form %d chars, base64 form %d chars%n", list.length(), base64.length());
+
+    for (int run = 0; run < runs; run++) {
+      long start = System.nanoTime();
+      new GDLHandler.Builder().buildFromString(list.toString());
+      long listTime = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      new GDLHandler.Builder().buildFromString(base64.toString());
+      long base64Time = System.nanoTime() - start;
+      System.out.printf("list %.2f ms, base64 %.2f ms%n", listTime / 1E6, base64Time / 1E6);
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package org.s1ck.gdl.benchmarks;
+
+import org.s1ck.gdl.model.Vertex;
+import org.s1ck.gdl.model.values.FloatVectorLiteral;
+import org.s1ck.gdl.vectors.Neighbor;
+import org.s1ck.gdl.vectors.VectorMetric;
+import org.s1ck.gdl.vectors.VectorSearch;
+import org.s1ck.gdl.vectors.VectorStore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares a cosine kNN scan over the boxed vector values of each vertex with the vector store
+ * search, sequential and parallel.
+ *
+ * <pre>
+ * java org.s1ck.gdl.benchmarks.VectorSearchBenchmark [vertexCount] [dimension] [k] [runs]
+ * </pre>
+ */
+public class VectorSearchBenchmark {
+
+  public static void main(String[] args) {
+    int vertexCount = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+    int dimension = args.length > 1 ? Integer.parseInt(args[1]) : 768;
+    int k = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+    int runs = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+    Random random = new Random(42L);
+    List<Vertex> vertices = new ArrayList<>();
+    for (int v = 0; v < vertexCount; v++) {
+      Vertex vertex = new Vertex();
+      vertex.setId(v);
+      vertex.setLabel("Doc");
+      vertex.addProperty("embedding", FloatVectorLiteral.of(randomVector(random, dimension)));
+      vertices.add(vertex);
+    }
+    FloatVectorLiteral query = FloatVectorLiteral.of(randomVector(random, dimension));
+
+    long start = System.nanoTime();
+    VectorStore store = VectorStore.fromVertices(vertices, "Doc", "embedding");
+    System.out.printf("%d x %d store built in %.2f ms%n", store.size(), dimension,
+      (System.nanoTime() - start) / 1E6);
+    VectorSearch sequential = new VectorSearch.Builder().setMetric(VectorMetric.COSINE).build(store);
+    VectorSearch parallel = new VectorSearch.Builder().setMetric(VectorMetric.COSINE)
+      .setParallel(true).build(store);
+
+    for (int run = 0; run < runs; run++) {
+      start = System.nanoTime();
+      List<Vertex> boxed = boxedSearch(vertices, query, k);
+      long boxedTime = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      List<Neighbor> scanned = sequential.search(query, k);
+      long sequentialTime = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      List<Neighbor> parallelScanned = parallel.search(query, k);
+      long parallelTime = System.nanoTime() - start;
+
+      System.out.printf("boxed %.2f ms, sequential %.2f ms, parallel %.2f ms, same result %b%n",
+        boxedTime / 1E6, sequentialTime / 1E6, parallelTime / 1E6,
+        boxed.get(0) == scanned.get(0).getVertex() && scanned.equals(parallelScanned));
+    }
+  }
+
+  private static List<Vertex> boxedSearch(List<Vertex> vertices, FloatVectorLiteral query, int k) {
+    List<Double> distances = new ArrayList<>();
+    List<Vertex> result = new ArrayList<>(vertices);
+    for (Vertex vertex : vertices) {
+      List<Float> vector = ((FloatVectorLiteral) vertex.getProperties().get("embedding")).getValue();
+      double dot = 0;
+      double norm = 0;
+      double queryNorm = 0;
+      for (int i = 0; i < vector.size(); i++) {
+        dot += vector.get(i) * query.getValue().get(i);
+        norm += vector.get(i) * vector.get(i);
+        queryNorm += query.getValue().get(i) * query.getValue().get(i);
+      }
+      distances.add(1 - dot / Math.sqrt(norm * queryNorm));
+    }
+    result.sort((a, b) -> Double.compare(distances.get((int) a.getId()), distances.get((int) b.getId())));
+    return Collections.unmodifiableList(result.subList(0, k));
+  }
+
+  private static float[] randomVector(Random random, int dimension) {
+    float[] vector = new float[dimension];
+    for (int i = 0; i < dimension; i++) {
+      vector[i] = (float) random.nextGaussian();
+    }
+    return vector;
+  }
+}
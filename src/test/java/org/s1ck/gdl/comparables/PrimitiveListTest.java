@@ -0,0 +1,72 @@
+package org.s1ck.gdl.comparables;
+
+import org.junit.Test;
+import org.s1ck.gdl.model.values.PrimitiveList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+public class PrimitiveListTest {
+
+  @Test
+  public void compactHomogeneousListsTest() {
+    assertEquals(PrimitiveList.IntList.class, PrimitiveList.compact(Arrays.asList(1, 3)).getClass());
+    assertEquals(PrimitiveList.LongList.class, PrimitiveList.compact(Arrays.asList(1L, 3L)).getClass());
+    assertEquals(PrimitiveList.FloatList.class, PrimitiveList.compact(Arrays.asList(1f, 3f)).getClass());
+    assertEquals(PrimitiveList.DoubleList.class, PrimitiveList.compact(Arrays.asList(1d, 3d)).getClass());
+    assertEquals(PrimitiveList.BooleanList.class, PrimitiveList.compact(Arrays.asList(true, false)).getClass());
+  }
+
+  @Test
+  public void keepOtherListsTest() {
+    List<?>[] lists = {
+      new ArrayList<>(), Arrays.asList(1, 3L), Arrays.asList(1, null), Arrays.asList(null, 1),
+      Arrays.asList("a", "b")
+    };
+    for (List<?> list : lists) {
+      assertSame(list, PrimitiveList.compact(list));
+    }
+  }
+
+  @Test
+  public void equalsBoxedListTest() {
+    List<Long> boxed = Arrays.asList(1L, 3L, 3L, 7L);
+    PrimitiveList.LongList list = PrimitiveList.LongList.of(1L, 3L, 3L, 7L);
+
+    assertEquals(boxed, list);
+    assertEquals(list, boxed);
+    assertEquals(boxed.hashCode(), list.hashCode());
+    assertNotEquals(Arrays.asList(1, 3, 3, 7), list);
+    assertEquals(Arrays.asList(Double.NaN), PrimitiveList.DoubleList.of(Double.NaN));
+    assertEquals(Arrays.asList(true, false).hashCode(), PrimitiveList.BooleanList.of(true, false).hashCode());
+  }
+
+  @Test
+  public void primitiveAccessTest() {
+    int[] values = {1, 3};
+    PrimitiveList.IntList list = PrimitiveList.IntList.of(values);
+    values[0] = 42;
+
+    assertEquals(1, list.getInt(0));
+    assertEquals(Integer.valueOf(3), list.get(1));
+    assertEquals(Integer.class, list.getElementType());
+    list.toIntArray()[0] = 42;
+    assertEquals(1, list.getInt(0));
+  }
+
+  @Test
+  public void unmodifiableTest() {
+    PrimitiveList.DoubleList list = PrimitiveList.DoubleList.of(1d, 3d);
+
+    assertThrows(UnsupportedOperationException.class, () -> list.add(7d));
+    assertThrows(UnsupportedOperationException.class, () -> list.set(0, 7d));
+    assertThrows(UnsupportedOperationException.class, () -> Collections.sort(list));
+  }
+}
@@ -97,6 +97,52 @@ public class VectorLiteralTest {
             Arrays.asList(1f, 3f), vector.getValue());
   }
 
+  @Test
+  public void primitiveAccessTest() {
+    float[] source = {1f, 3f, 7f};
+    FloatVectorLiteral vector = FloatVectorLiteral.of(source);
+    source[0] = 42f;
+
+    assertEquals(3, vector.size());
+    assertEquals(1f, vector.getFloat(0), 0f);
+    assertEquals(7d, vector.getDouble(2), 0d);
+    assertEquals(new FloatVectorLiteral(Arrays.asList(1f, 3f, 7f)), vector);
+    assertEquals(Arrays.asList(1f, 3f, 7f).hashCode(), vector.hashCode());
+    assertEquals(3, vector.asFloatBuffer().remaining());
+    assertThrows(java.nio.ReadOnlyBufferException.class, () -> vector.asFloatBuffer().put(0, 2f));
+
+    DoubleVectorLiteral doubles = DoubleVectorLiteral.of(1d, 2d);
+    doubles.toDoubleArray()[0] = 42d;
+    assertEquals(new DoubleVectorLiteral(Arrays.asList(1d, 2d)), doubles);
+    assertEquals(Collections.emptyList(), DoubleVectorLiteral.of().getValue());
+  }
+
+  @Test
+  public void base64Test() {
+    FloatVectorLiteral floats = FloatVectorLiteral.of(1.0f, 3.0f);
+    DoubleVectorLiteral doubles = DoubleVectorLiteral.of(1.0, -0.5, Double.NaN);
+
+    assertEquals("AACAPwAAQEA=", floats.toBase64());
+    assertEquals(floats, FloatVectorLiteral.fromBase64(floats.toBase64()));
+    assertEquals(doubles, DoubleVectorLiteral.fromBase64(doubles.toBase64()));
+    assertEquals(0, FloatVectorLiteral.fromBase64("").size());
+    assertThrows(IllegalArgumentException.class, () -> FloatVectorLiteral.fromBase64("AACAPwAA"));
+    assertThrows(IllegalArgumentException.class, () -> DoubleVectorLiteral.fromBase64("not base64!"));
+  }
+
+  @Test
+  public void toGDLStringTest() {
+    assertEquals("vector([1.0f, -0.25f, NaN])", FloatVectorLiteral.of(1.0f, -0.25f, Float.NaN).toGDLString());
+    assertEquals("vector([10000000000.0d, 0.0000012d])", DoubleVectorLiteral.of(1E10, 1.2E-6).toGDLString());
+    assertEquals("vector([])", DoubleVectorLiteral.of().toGDLString());
+    assertEquals("vector(f32:\"\")", FloatVectorLiteral.of().toGDLString());
+    assertEquals("vector(f32:\"AADAfw==\")", FloatVectorLiteral.of(Float.NaN).toGDLString());
+    assertEquals("vector(f64:\"AAAAAAAA8H8=\")", DoubleVectorLiteral.of(Double.POSITIVE_INFINITY).toGDLString());
+    assertEquals("vector(f32:\"AACAPwAAQEA=\")", FloatVectorLiteral.of(1.0f, 3.0f).toGDLString(true));
+    assertEquals("vector(f32:\"" + FloatVectorLiteral.of(new float[16]).toBase64() + "\")",
+      FloatVectorLiteral.of(new float[16]).toGDLString());
+  }
+
   @Test
   public void failOnNullValueTest() {
     IllegalArgumentException exc = assertThrows(
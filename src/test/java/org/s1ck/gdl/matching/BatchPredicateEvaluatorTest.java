@@ -0,0 +1,122 @@
+package org.s1ck.gdl.matching;
+
+import org.junit.Test;
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.model.predicates.Predicate;
+import org.s1ck.gdl.model.predicates.booleans.And;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.BitSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class BatchPredicateEvaluatorTest {
+
+  @Test
+  public void agreesWithPredicateEvaluatorTest() throws IOException {
+    GraphIndex graph = GraphIndex.fromHandler(getData());
+    String[] predicates = {
+      "a.age > 30", "30 < a.age", "a.age >= 30", "a.age <= 30.0", "a.age = 35", "a.age != 35",
+      "a.age > 30 AND a.city = \"Dresden\"", "a.age < 25 OR a.city = \"Berlin\"",
+      "a.age > 25 XOR a.gender = \"f\"", "NOT a.age > 30", "a.speaks = NULL", "a.speaks != NULL",
+      "a.name > \"Dave\"", "a.age < a.ignored", "a.__label__ = \"Person\"", "a.nope > 1"
+    };
+    BatchPredicateEvaluator evaluator = new BatchPredicateEvaluator(graph);
+    for (String predicate : predicates) {
+      for (String label : new String[] {"Person", null}) {
+        assertSelection(predicate, evaluator, label, "MATCH (a) WHERE " + predicate);
+      }
+    }
+  }
+
+  @Test
+  public void primitiveColumnsTest() {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 150; i++) {
+      String value;
+      switch (i % 5) {
+        case 0:  value = "NULL"; break;
+        case 1:  value = String.valueOf(i - 75); break;
+        case 2:  value = (i - 75) + ".5d"; break;
+        case 3:  value = "-0.0d"; break;
+        default: value = i + "L";
+      }
+      builder.append(String.format("(v%d:V {i : %d, l : %dL, d : %s, f : %d.25f, mixed : %s}),",
+        i, i % 7 == 0 ? 0 : i, i * 3, i % 11 == 0 ? "NULL" : (i / 2) + ".0d", i % 13, value));
+    }
+    GraphIndex graph = GraphIndex.fromHandler(new GDLHandler.Builder().buildFromString(builder.toString()));
+    BatchPredicateEvaluator evaluator = new BatchPredicateEvaluator(graph);
+    String[] predicates = {
+      "a.i > 70", "a.i = 0", "a.i != 0", "a.i < 70.5d", "a.l >= 300", "a.l = 3L", "a.d < 20", "a.d = NULL",
+      "a.d != 20.0d", "a.f <= 5.25f", "a.f > 5", "a.mixed > 0", "a.mixed = 0.0d", "a.mixed < -0.0d",
+      "a.i > 10 AND NOT (a.d < 30 OR a.f = 2.25f)", "a.d = 0.0d", "a.i = \"x\"", "a.i != \"x\""
+    };
+    for (String predicate : predicates) {
+      assertSelection(predicate, evaluator, "V", "MATCH (a:V) WHERE " + predicate);
+    }
+  }
+
+  @Test
+  public void vectorFunctionsTest() {
+    GraphIndex graph = GraphIndex.fromHandler(new GDLHandler.Builder().buildFromString(
+      "(:V {e : vector([1.0f, 0.0f])}), (:V {e : vector([0.6f, 0.8f])}), (:V {e : vector([0.0f, 0.0f])})," +
+      "(:V {e : vector([3.0d, 4.0d])}), (:V {e : vector([1.0f, 2.0f, 3.0f])}), (:V {e : 42}), (:V)"));
+    BatchPredicateEvaluator evaluator = new BatchPredicateEvaluator(graph);
+    String[] predicates = {
+      "cosine(a.e, vector([1.0f, 0.0f])) > 0.5", "cosine(vector([1.0d, 1.0d]), a.e) >= 0.9",
+      "0.5 < cosine(a.e, vector([1.0f, 0.0f]))", "dot(a.e, vector([1.0f, 1.0f])) <= 1.4",
+      "euclidean(a.e, vector([0.0f, 0.0f])) = 1", "euclidean(a.e, vector([0.0f, 0.0f])) != 1",
+      "cosine(a.e, a.e) > 0.99", "cosine(a.e, vector([1.0f, 0.0f])) > 0.5 OR a.e = 42"
+    };
+    for (String predicate : predicates) {
+      assertSelection(predicate, evaluator, "V", "MATCH (a:V) WHERE " + predicate);
+    }
+  }
+
+  @Test
+  public void edgesTest() throws IOException {
+    GraphIndex graph = GraphIndex.fromHandler(getData());
+    BatchPredicateEvaluator evaluator = new BatchPredicateEvaluator(graph);
+    Predicate predicate = getPredicate("MATCH ()-[e:knows]->() WHERE e.since >= 2014");
+    long[] mask = evaluator.evaluateEdges(predicate, "e", "knows");
+    BitSet selected = new BitSet();
+    BatchPredicateEvaluator.select(mask, graph.getEdges("knows"), selected);
+
+    assertEquals(10, graph.getEdges("knows").length);
+    for (int edge : graph.getEdges("knows")) {
+      assertEquals(((Integer) graph.getEdge(edge).getProperties().get("since")) >= 2014, selected.get(edge));
+    }
+  }
+
+  private static void assertSelection(String message, BatchPredicateEvaluator evaluator, String label, String query) {
+    GraphIndex graph = evaluator.getGraph();
+    Predicate predicate = getPredicate(query);
+    int[] positions = graph.getVertices(label);
+    long[] mask = evaluator.evaluateVertices(predicate, "a", label);
+
+    long[] expected = new long[(positions.length + 63) / 64];
+    for (int row = 0; row < positions.length; row++) {
+      int vertex = positions[row];
+      if (PredicateEvaluator.evaluate(predicate, name -> graph.getVertex(vertex))) {
+        expected[row / 64] |= 1L << row;
+      }
+    }
+    assertArrayEquals(message, expected, mask);
+  }
+
+  private static Predicate getPredicate(String query) {
+    // the label constraint of the query is not part of the evaluated predicate
+    GDLHandler handler = new GDLHandler.Builder().buildFromString(query);
+    Predicate predicate = handler.getPredicates().get();
+    QueryGraph graph = QueryGraph.fromHandler(handler);
+    return graph.getConjuncts().stream().filter(c -> !graph.isLabelConstraint(c))
+      .reduce(And::new).orElse(predicate);
+  }
+
+  private static GDLHandler getData() throws IOException {
+    InputStream inputStream = BatchPredicateEvaluatorTest.class.getResourceAsStream("/social_network.gdl");
+    return new GDLHandler.Builder().buildFromStream(inputStream);
+  }
+}
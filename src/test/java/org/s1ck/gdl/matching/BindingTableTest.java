@@ -0,0 +1,120 @@
+package org.s1ck.gdl.matching;
+
+import org.junit.Test;
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.model.Element;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BindingTableTest {
+
+  private static final String KNOWS = "MATCH (a:Person)-[e:knows]->(b:Person)";
+
+  @Test
+  public void columnsTest() throws IOException {
+    PatternMatcher matcher = new PatternMatcher.Builder().build(getData());
+    BindingTable table = matcher.table(getQuery(KNOWS));
+
+    assertEquals(10, table.size());
+    assertEquals(Arrays.asList("a", "b", "e"), table.getVariables());
+    assertEquals(2, table.getColumnIndex("e"));
+    assertTrue(table.isVertexColumn(table.getColumnIndex("b")));
+    assertFalse(table.isVertexColumn(table.getColumnIndex("e")));
+    assertEquals(10, table.getColumn("a").length);
+
+    GraphIndex graph = matcher.getGraph();
+    long[] ids = table.getIdColumn("e");
+    int[] sources = table.getColumn("a");
+    int[] edges = table.getColumn("e");
+    for (int row = 0; row < table.size(); row++) {
+      assertEquals(graph.getEdge(edges[row]).getId(), ids[row]);
+      assertEquals(sources[row], graph.getSourceIndex(edges[row]));
+    }
+  }
+
+  @Test
+  public void conversionTest() throws IOException {
+    PatternMatcher matcher = new PatternMatcher.Builder().build(getData());
+    BindingTable table = matcher.table(getQuery(KNOWS));
+    List<Map<String, Element>> matches = matcher.match(getQuery(KNOWS));
+
+    assertEquals(matches, table.toMaps());
+    assertEquals(matches.get(3), table.getRow(3));
+    assertEquals(matches.get(3).get("b"), table.getElement(3, "b"));
+  }
+
+  @Test
+  public void cursorTest() throws IOException {
+    PatternMatcher matcher = new PatternMatcher.Builder().build(getData());
+    BindingTable table = matcher.table(getQuery(KNOWS + " SKIP 2 LIMIT 3"));
+    BindingTable.Cursor cursor = table.cursor();
+    int column = table.getColumnIndex("b");
+
+    int rows = 0;
+    while (cursor.next()) {
+      assertEquals(rows, cursor.getRow());
+      assertEquals(table.getColumn("b")[rows], cursor.getPosition(column));
+      assertEquals(table.getElement(rows, "a"), cursor.getElement("a"));
+      assertEquals(table.getElement(rows, "e").getId(), cursor.getId("e"));
+      rows++;
+    }
+    assertEquals(3, rows);
+    assertFalse(cursor.next());
+  }
+
+  @Test
+  public void batchesTest() {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 1500; i++) {
+      builder.append(String.format("(v%d)-->(v%d),", i, (i + 1) % 1500));
+    }
+    GDLHandler data = new GDLHandler.Builder().buildFromString(builder.toString());
+    String path = "MATCH (a)-->(b)-->(c)";
+    BindingTable sequential = new PatternMatcher.Builder().build(data).table(getQuery(path));
+    BindingTable parallel = new PatternMatcher.Builder().setParallel(true).build(data).table(getQuery(path));
+
+    assertTrue(sequential.size() > BindingTable.BATCH_SIZE);
+    assertEquals(1500, sequential.size());
+    assertEquals(1500, parallel.size());
+    assertEquals(new HashSet<>(sequential.toMaps()), new HashSet<>(parallel.toMaps()));
+    int[] sorted = parallel.getColumn("a").clone();
+    Arrays.sort(sorted);
+    int[] expected = sequential.getColumn("a").clone();
+    Arrays.sort(expected);
+    assertArrayEquals(expected, sorted);
+  }
+
+  @Test
+  public void emptyTest() {
+    GDLHandler data = new GDLHandler.Builder().buildFromString("(a)-->(b)");
+    BindingTable table = new PatternMatcher.Builder().build(data).table(getQuery("MATCH (x)-->(x)"));
+
+    assertTrue(table.isEmpty());
+    assertEquals(0, table.getColumn("x").length);
+    assertFalse(table.cursor().next());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownVariableTest() throws IOException {
+    new PatternMatcher.Builder().build(getData()).table(getQuery(KNOWS)).getColumn("c");
+  }
+
+  private static GDLHandler getData() throws IOException {
+    InputStream inputStream = BindingTableTest.class.getResourceAsStream("/social_network.gdl");
+    return new GDLHandler.Builder().buildFromStream(inputStream);
+  }
+
+  private static GDLHandler getQuery(String query) {
+    return new GDLHandler.Builder().buildFromString(query);
+  }
+}
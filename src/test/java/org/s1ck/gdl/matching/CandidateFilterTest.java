@@ -0,0 +1,120 @@
+package org.s1ck.gdl.matching;
+
+import org.junit.Test;
+import org.s1ck.gdl.GDLHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class CandidateFilterTest {
+
+  @Test
+  public void localPredicatesTest() throws IOException {
+    CandidateSets candidates = getFilter().filter(getQuery(
+      "MATCH (p:Person)-[:hasInterest]->(t:Tag {name : \"Hadoop\"})"));
+
+    assertEquals(6, candidates.getInitialSize("p"));
+    assertEquals(1, candidates.getInitialSize("t"));
+    assertEquals(2, candidates.getSize("p"));
+    assertEquals(1, candidates.getSize("t"));
+    assertEquals(7, candidates.getInitialTotal());
+    assertEquals(3, candidates.getTotal());
+  }
+
+  @Test
+  public void propagationTest() throws IOException {
+    CandidateFilter filter = getFilter();
+    CandidateSets candidates = filter.filter(getQuery(
+      "MATCH (f:Forum)-[:hasModerator]->(p:Person)-[:hasInterest]->(t:Tag)"));
+
+    assertEquals(new HashSet<>(Arrays.asList("Alice", "Dave")), getNames(filter, candidates, "p"));
+    assertEquals(new HashSet<>(Arrays.asList("Databases", "Hadoop")), getNames(filter, candidates, "t"));
+    assertEquals(2, candidates.getSize("f"));
+    assertTrue(candidates.getRevisions() >= 4);
+  }
+
+  @Test
+  public void edgePredicatesTest() throws IOException {
+    CandidateFilter filter = getFilter();
+    CandidateSets candidates = filter.filter(getQuery(
+      "MATCH (a:Person)-[e:knows]->(b:Person) WHERE e.since = 2015"));
+
+    assertEquals(new HashSet<>(Arrays.asList("Frank")), getNames(filter, candidates, "a"));
+    assertEquals(new HashSet<>(Arrays.asList("Carol", "Dave")), getNames(filter, candidates, "b"));
+  }
+
+  @Test
+  public void emptyCandidatesTest() throws IOException {
+    CandidateSets candidates = getFilter().filter(getQuery("MATCH (t:Tag)-[:knows]->(p), (q:Person)"));
+
+    assertTrue(candidates.isEmpty());
+    assertEquals(0, candidates.getTotal());
+    assertEquals(6, candidates.getInitialSize("q"));
+  }
+
+  @Test
+  public void loopTest() {
+    CandidateFilter filter = CandidateFilter.fromHandler(new GDLHandler.Builder().buildFromString(
+      "(a)-[:e]->(a),(a)-[:e]->(b),(b)-[:e]->(c)"));
+
+    assertEquals(1, filter.filter(getQuery("MATCH (x)-[:e]->(x)")).getSize("x"));
+    assertEquals(2, filter.filter(getQuery("MATCH (x)-[:e]->(y)")).getSize("x"));
+    assertFalse(new CandidateFilter(filter.getGraph(), MatchStrategy.ISOMORPHISM)
+      .filter(getQuery("MATCH (x)-[:e]->(y)")).get("y").get(0));
+    assertTrue(new CandidateFilter(filter.getGraph(), MatchStrategy.HOMOMORPHISM)
+      .filter(getQuery("MATCH (x)-[:e]->(y)")).get("y").get(0));
+  }
+
+  @Test
+  public void variableLengthEdgeTest() throws IOException {
+    CandidateFilter filter = getFilter();
+
+    assertThrows(IllegalArgumentException.class, () -> filter.filter(getQuery("MATCH (a)-[:knows*1..3]->(b)")));
+  }
+
+  @Test
+  public void matcherResultUnchangedTest() throws IOException {
+    String[] queries = {
+      "MATCH (a:Person)-[:knows]->(b:Person)-[:knows]->(c:Person)<-[:knows]-(a)",
+      "MATCH (p:Person)-[:hasInterest]->(t:Tag)<-[:hasTag]-(f:Forum)-[:hasMember]->(q:Person)",
+      "MATCH (a:Person {city : \"Dresden\"})-[e:knows]->(b) WHERE b.age > 30 AND e.since = 2014",
+      "MATCH (f:Forum)-[:hasMember]->(p:Person)<-[:hasModerator]-(f)"
+    };
+    GDLHandler data = getData();
+    PatternMatcher filtered = new PatternMatcher.Builder().build(data);
+    PatternMatcher unfiltered = new PatternMatcher.Builder().setCandidateFiltering(false).build(data);
+
+    assertTrue(filtered.isCandidateFiltering());
+    for (String query : queries) {
+      assertEquals(query, unfiltered.count(getQuery(query)), filtered.count(getQuery(query)));
+    }
+  }
+
+  private static Set<Object> getNames(CandidateFilter filter, CandidateSets candidates, String variable) {
+    return candidates.get(variable).stream()
+      .mapToObj(v -> filter.getGraph().getVertex(v).getProperties().get("name"))
+      .collect(Collectors.toSet());
+  }
+
+  private static CandidateFilter getFilter() throws IOException {
+    return CandidateFilter.fromHandler(getData());
+  }
+
+  private static GDLHandler getData() throws IOException {
+    InputStream inputStream = CandidateFilterTest.class.getResourceAsStream("/social_network.gdl");
+    return new GDLHandler.Builder().buildFromStream(inputStream);
+  }
+
+  private static GDLHandler getQuery(String query) {
+    return new GDLHandler.Builder().buildFromString(query);
+  }
+}
@@ -0,0 +1,354 @@
+package org.s1ck.gdl.matching;
+
+import org.junit.Test;
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.model.Element;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class PatternMatcherTest {
+
+  private static final String TRIANGLE =
+    "MATCH (a:Person)-[:knows]->(b:Person)-[:knows]->(c:Person)<-[:knows]-(a)";
+
+  private static final String TRIANGLE_UNLABELED = "MATCH (a)-->(b)-->(c)<--(a)";
+
+  @Test
+  public void matchEdgeTest() throws IOException {
+    List<Map<String, Element>> matches = getMatcher(ExecutionMode.AUTO).match(getQuery(
+      "MATCH (a:Person)-[e:knows]->(b:Person) WHERE e.since = 2013"));
+
+    Set<String> pairs = matches.stream()
+      .map(m -> m.get("a").getProperties().get("name") + "->" + m.get("b").getProperties().get("name"))
+      .collect(Collectors.toSet());
+    assertEquals(3, matches.size());
+    assertEquals(new HashSet<>(Arrays.asList("Eve->Alice", "Bob->Carol", "Carol->Bob")), pairs);
+  }
+
+  @Test
+  public void vectorFunctionTest() {
+    GDLHandler data = new GDLHandler.Builder().buildFromString(
+      "(a:Doc {e : vector([1.0f, 0.0f])})-[:cites]->(b:Doc {e : vector([0.9f, 0.1f])})" +
+      "(a)-[:cites]->(c:Doc {e : vector([0.0f, 1.0f])})" +
+      "(c)-[:cites]->(b)");
+    for (ExecutionMode mode : ExecutionMode.values()) {
+      PatternMatcher matcher = new PatternMatcher.Builder().setExecutionMode(mode).build(data);
+
+      assertEquals(1, matcher.count(getQuery(
+        "MATCH (x:Doc)-[:cites]->(y:Doc) WHERE cosine(x.e, y.e) > 0.9")));
+      assertEquals(2, matcher.count(getQuery(
+        "MATCH (x:Doc)-[:cites]->(y:Doc) WHERE cosine(x.e, vector([1.0f, 0.0f])) > 0.9")));
+      assertEquals(1, matcher.count(getQuery(
+        "MATCH (x:Doc)-[:cites]->(y:Doc) WHERE euclidean(y.e, vector([0.0f, 1.0f])) < 0.1")));
+    }
+  }
+
+  @Test
+  public void triangleTest() throws IOException {
+    assertEquals(4, getMatcher(ExecutionMode.BACKTRACKING).count(getQuery(TRIANGLE)));
+    assertEquals(4, getMatcher(ExecutionMode.GENERIC_JOIN).count(getQuery(TRIANGLE)));
+  }
+
+  @Test
+  public void executionModesAgreeTest() throws IOException {
+    String[] queries = {
+      TRIANGLE,
+      "MATCH (a:Person)-[:knows]->(b:Person)-[:knows]->(a)",
+      "MATCH (p:Person)-[:hasInterest]->(t:Tag)<-[:hasTag]-(f:Forum)-[:hasMember]->(q:Person)",
+      "MATCH (f:Forum)-[:hasMember]->(p:Person)<-[:hasModerator]-(f)",
+      "MATCH (a)-->(b)-->(c)<--(a) WHERE a.age < c.age",
+      "MATCH (a:Person {city : \"Dresden\"})-[e]->(b)"
+    };
+    PatternMatcher backtracking = getMatcher(ExecutionMode.BACKTRACKING);
+    PatternMatcher genericJoin = getMatcher(ExecutionMode.GENERIC_JOIN);
+    for (String query : queries) {
+      assertEquals(query, toIds(backtracking.match(getQuery(query))), toIds(genericJoin.match(getQuery(query))));
+    }
+  }
+
+  @Test
+  public void autoExecutionModeTest() throws IOException {
+    PatternMatcher matcher = getMatcher(ExecutionMode.AUTO);
+
+    assertEquals(ExecutionMode.GENERIC_JOIN,
+      matcher.getExecutionMode(QueryGraph.fromHandler(getQuery(TRIANGLE))));
+    assertEquals(ExecutionMode.BACKTRACKING,
+      matcher.getExecutionMode(QueryGraph.fromHandler(getQuery("MATCH (a)-->(b)-->(c)"))));
+  }
+
+  @Test
+  public void matchStrategyTest() throws IOException {
+    String path = "MATCH (a:Person)-[:knows]->(b:Person)-[:knows]->(c:Person)";
+    PatternMatcher isomorphism = getMatcher(ExecutionMode.AUTO);
+    PatternMatcher homomorphism = new PatternMatcher.Builder()
+      .setMatchStrategy(MatchStrategy.HOMOMORPHISM)
+      .build(getData());
+
+    // homomorphisms additionally map a and c to both ends of the three mutual knows pairs
+    assertEquals(6, homomorphism.count(getQuery(path)) - isomorphism.count(getQuery(path)));
+  }
+
+  @Test
+  public void fourCliqueTest() {
+    GDLHandler data = new GDLHandler.Builder().buildFromString(
+      "(a)-->(b),(a)-->(c),(a)-->(d),(b)-->(c),(b)-->(d),(c)-->(d),(d)-->(e),(c)-->(e),(b)-->(e)");
+    String clique = "MATCH (w)-->(x),(w)-->(y),(w)-->(z),(x)-->(y),(x)-->(z),(y)-->(z)";
+
+    for (ExecutionMode mode : ExecutionMode.values()) {
+      PatternMatcher matcher = new PatternMatcher.Builder().setExecutionMode(mode).build(data);
+      assertEquals(mode.toString(), 2, matcher.count(getQuery(clique)));
+    }
+  }
+
+  @Test
+  public void parallelEdgesAndLoopsTest() {
+    GDLHandler data = new GDLHandler.Builder().buildFromString(
+      "(a)-[:e]->(b),(a)-[:e]->(b),(a)-[:e]->(a)");
+
+    for (ExecutionMode mode : ExecutionMode.values()) {
+      PatternMatcher isomorphism = new PatternMatcher.Builder().setExecutionMode(mode).build(data);
+      PatternMatcher homomorphism = new PatternMatcher.Builder().setExecutionMode(mode)
+        .setMatchStrategy(MatchStrategy.HOMOMORPHISM).build(data);
+
+      assertEquals(2, isomorphism.count(getQuery("MATCH (x)-[:e]->(y)")));
+      assertEquals(3, homomorphism.count(getQuery("MATCH (x)-[:e]->(y)")));
+      assertEquals(1, isomorphism.count(getQuery("MATCH (x)-[:e]->(x)")));
+      // both parallel data edges form a single subgraph
+      assertEquals(1, isomorphism.count(getQuery("MATCH (x)-[:e]->(y),(x)-[:e]->(y)")));
+      assertEquals(2, new PatternMatcher.Builder().setExecutionMode(mode).setSymmetryBreaking(false)
+        .build(data).count(getQuery("MATCH (x)-[:e]->(y),(x)-[:e]->(y)")));
+      assertEquals(5, homomorphism.count(getQuery("MATCH (x)-[:e]->(y),(x)-[:e]->(y)")));
+    }
+  }
+
+  @Test
+  public void skipAndLimitTest() throws IOException {
+    PatternMatcher matcher = getMatcher(ExecutionMode.AUTO);
+    String knows = "MATCH (a:Person)-[:knows]->(b:Person)";
+
+    assertEquals(10, matcher.count(getQuery(knows)));
+    assertEquals(3, matcher.count(getQuery(knows + " LIMIT 3")));
+    assertEquals(2, matcher.count(getQuery(knows + " SKIP 8")));
+    assertEquals(2, matcher.count(getQuery(knows + " SKIP 8 LIMIT 5")));
+    assertEquals(0, matcher.count(getQuery(knows + " LIMIT 0")));
+    assertEquals(matcher.match(getQuery(knows)).subList(2, 5), matcher.match(getQuery(knows + " SKIP 2 LIMIT 3")));
+  }
+
+  @Test
+  public void lazyIteratorTest() throws IOException {
+    PatternMatcher matcher = getMatcher(ExecutionMode.AUTO);
+    Iterator<Map<String, Element>> iterator = matcher.iterator(
+      QueryGraph.fromHandler(getQuery("MATCH (a:Person)-[:knows]->(b:Person) LIMIT 2")));
+
+    assertTrue(iterator.hasNext());
+    assertEquals("Person", iterator.next().get("a").getLabel());
+    assertTrue(iterator.hasNext());
+    iterator.next();
+    assertFalse(iterator.hasNext());
+    assertEquals(1, matcher.stream(getQuery(TRIANGLE)).limit(1).count());
+  }
+
+  @Test
+  public void existsTest() throws IOException {
+    PatternMatcher matcher = getMatcher(ExecutionMode.AUTO);
+
+    assertTrue(matcher.exists(getQuery(TRIANGLE)));
+    assertTrue(matcher.exists(getQuery(TRIANGLE + " SKIP 3")));
+    assertFalse(matcher.exists(getQuery(TRIANGLE + " SKIP 4")));
+    assertFalse(matcher.exists(getQuery("MATCH (t:Tag)-[:knows]->(p)")));
+  }
+
+  @Test
+  public void parallelTest() {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 200; i++) {
+      builder.append(String.format("(v%d)-->(v%d),(v%d)-->(v%d),", i, (i + 1) % 200, i, (i + 2) % 200));
+    }
+    GDLHandler data = new GDLHandler.Builder().buildFromString(builder.toString());
+    PatternMatcher sequential = new PatternMatcher.Builder().build(data);
+    PatternMatcher parallel = new PatternMatcher.Builder().setParallel(true).build(data);
+
+    assertTrue(parallel.isParallel());
+    assertEquals(200, sequential.count(getQuery(TRIANGLE_UNLABELED)));
+    assertEquals(200, parallel.count(getQuery(TRIANGLE_UNLABELED)));
+    assertEquals(toIds(sequential.match(getQuery(TRIANGLE_UNLABELED))),
+      toIds(parallel.match(getQuery(TRIANGLE_UNLABELED))));
+    assertEquals(17, parallel.match(getQuery(TRIANGLE_UNLABELED + " LIMIT 17")).size());
+    assertEquals(190, parallel.count(getQuery(TRIANGLE_UNLABELED + " SKIP 10")));
+  }
+
+  @Test
+  public void projectionTest() throws IOException {
+    PatternMatcher matcher = getMatcher(ExecutionMode.AUTO);
+    List<Map<String, Object>> rows = matcher.execute(getQuery(
+      "MATCH (a:Person)-[e:knows]->(b:Person) WHERE e.since = 2015 RETURN a.name AS name, b.name"))
+      .collect(Collectors.toList());
+
+    assertEquals(2, rows.size());
+    assertEquals(Arrays.asList("name", "b.name"), new ArrayList<>(rows.get(0).keySet()));
+    assertEquals(new HashSet<>(Arrays.asList("Carol", "Dave")),
+      rows.stream().map(row -> row.get("b.name")).collect(Collectors.toSet()));
+    assertEquals(3, matcher.execute(getQuery("MATCH (a:Person)-->(b) RETURN b LIMIT 3")).count());
+  }
+
+  @Test
+  public void projectSymmetricPatternTest() {
+    GDLHandler data = new GDLHandler.Builder().buildFromString(
+      "(x:P {name : \"x\"})-->(y:P {name : \"y\"})-->(z:P {name : \"z\"})-->(x)");
+    for (ExecutionMode mode : ExecutionMode.values()) {
+      PatternMatcher matcher = new PatternMatcher.Builder().setExecutionMode(mode).build(data);
+
+      // without RETURN every subgraph is found once, rows are computed from all bindings
+      assertEquals(3, matcher.count(getQuery("MATCH (a:P),(b:P)")));
+      assertEquals(6, matcher.execute(getQuery("MATCH (a:P),(b:P) RETURN a.name, b.name")).count());
+      assertEquals(new HashSet<>(Arrays.asList("x", "y", "z")),
+        matcher.execute(getQuery("MATCH (a)-->(b)-->(c)-->(a) RETURN a.name"))
+          .map(row -> row.get("a.name")).collect(Collectors.toSet()));
+      Map<Object, Object> counts = matcher.execute(getQuery("MATCH (a:P),(b:P) RETURN a.name, count(*) AS n"))
+        .collect(Collectors.toMap(row -> row.get("a.name"), row -> row.get("n")));
+      assertEquals(3, counts.size());
+      assertTrue(counts.values().stream().allMatch(n -> n.equals(2L)));
+      assertEquals(6L, matcher.execute(getQuery("MATCH (a:P),(b:P) RETURN count(*) AS n"))
+        .findFirst().get().get("n"));
+    }
+  }
+
+  @Test
+  public void aggregationTest() throws IOException {
+    PatternMatcher matcher = getMatcher(ExecutionMode.AUTO);
+    Map<Object, Object> cities = matcher.execute(getQuery("MATCH (p:Person) RETURN p.city, count(*) AS n"))
+      .collect(Collectors.toMap(row -> row.get("p.city"), row -> row.get("n")));
+
+    assertEquals(3, cities.size());
+    assertEquals(2L, cities.get("Leipzig"));
+    assertEquals(3L, cities.get("Dresden"));
+    assertEquals(1L, cities.get("Berlin"));
+
+    List<Map<String, Object>> ages = matcher.execute(getQuery(
+      "MATCH (p:Person) RETURN min(p.age), max(p.age), sum(p.age), avg(p.age), count(p.speaks)"))
+      .collect(Collectors.toList());
+    assertEquals(1, ages.size());
+    assertEquals(20, ages.get(0).get("min(p.age)"));
+    assertEquals(40, ages.get(0).get("max(p.age)"));
+    assertEquals(190L, ages.get(0).get("sum(p.age)"));
+    assertEquals(190 / 6.0, (Double) ages.get(0).get("avg(p.age)"), 1e-9);
+    assertEquals(1L, ages.get(0).get("count(p.speaks)"));
+  }
+
+  @Test
+  public void aggregationWithoutMatchesTest() throws IOException {
+    PatternMatcher matcher = getMatcher(ExecutionMode.AUTO);
+    List<Map<String, Object>> rows = matcher.execute(getQuery(
+      "MATCH (t:Tag)-[:knows]->(p) RETURN count(*) AS n, sum(p.age) AS s")).collect(Collectors.toList());
+
+    assertEquals(1, rows.size());
+    assertEquals(0L, rows.get(0).get("n"));
+    assertEquals(0L, rows.get(0).get("s"));
+    assertEquals(0, matcher.execute(getQuery("MATCH (t:Tag)-[:knows]->(p) RETURN p.city, count(*)")).count());
+  }
+
+  @Test
+  public void skipAndLimitOnGroupsTest() throws IOException {
+    PatternMatcher matcher = getMatcher(ExecutionMode.AUTO);
+    String cities = "MATCH (p:Person)-[:knows]->(q:Person) RETURN p.city, count(*) AS n";
+
+    // SKIP and LIMIT restrict the groups, not the matches that are aggregated
+    assertEquals(3, matcher.execute(getQuery(cities)).count());
+    assertEquals(1, matcher.execute(getQuery(cities + " SKIP 1 LIMIT 1")).count());
+    assertEquals(10L, matcher.execute(getQuery(cities + " LIMIT 5"))
+      .mapToLong(row -> (Long) row.get("n")).sum());
+  }
+
+  @Test
+  public void parallelAggregationTest() {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 200; i++) {
+      builder.append(String.format("(v%d {group : %d}),", i, i % 7));
+    }
+    for (int i = 0; i < 200; i++) {
+      builder.append(String.format("(v%d)-->(v%d),", i, (i + 1) % 200));
+    }
+    GDLHandler data = new GDLHandler.Builder().buildFromString(builder.toString());
+    PatternMatcher sequential = new PatternMatcher.Builder().build(data);
+    PatternMatcher parallel = new PatternMatcher.Builder().setParallel(true).build(data);
+    String query = "MATCH (a)-->(b)-->(c) RETURN a.group AS g, count(*) AS n, min(c.group) AS m";
+
+    Set<Map<String, Object>> expected = sequential.execute(getQuery(query)).collect(Collectors.toSet());
+    assertEquals(7, expected.size());
+    assertEquals(expected, parallel.execute(getQuery(query)).collect(Collectors.toSet()));
+    assertEquals(200L, parallel.execute(getQuery("MATCH (a)-->(b)-->(c) RETURN count(*) AS n"))
+      .findFirst().get().get("n"));
+  }
+
+  @Test
+  public void variableLengthEdgeTest() throws IOException {
+    for (ExecutionMode mode : ExecutionMode.values()) {
+      PatternMatcher matcher = getMatcher(mode);
+      assertThrows(IllegalArgumentException.class, () -> matcher.count(getQuery("MATCH (a)-[e*1..3]->(b)")));
+      assertThrows(IllegalArgumentException.class, () -> matcher.stream(getQuery("MATCH (a)-[e*2]->(b)")));
+    }
+  }
+
+  @Test
+  public void gallopTest() {
+    int[] values = {1, 3, 3, 5, 8, 13, 21, 34};
+
+    assertEquals(0, GraphIndex.gallop(values, 0, values.length, 0));
+    assertEquals(1, GraphIndex.gallop(values, 0, values.length, 3));
+    assertEquals(4, GraphIndex.gallop(values, 0, values.length, 6));
+    assertEquals(7, GraphIndex.gallop(values, 2, values.length, 34));
+    assertEquals(8, GraphIndex.gallop(values, 0, values.length, 35));
+    assertEquals(5, GraphIndex.gallop(values, 2, 5, 35));
+  }
+
+  @Test
+  public void adjacencyTest() throws IOException {
+    GraphIndex index = GraphIndex.fromHandler(getData());
+    GraphIndex.Adjacency knows = index.getAdjacency("knows", true);
+
+    int total = 0;
+    for (int v = 0; v < index.getVertexCount(); v++) {
+      total += knows.degree(v);
+      for (int p = knows.start(v) + 1; p < knows.end(v); p++) {
+        assertTrue(knows.neighbor(p - 1) <= knows.neighbor(p));
+      }
+    }
+    assertEquals(10, total);
+  }
+
+  private static Set<List<Long>> toIds(List<Map<String, Element>> matches) {
+    return matches.stream()
+      .map(m -> m.entrySet().stream()
+        .sorted(Map.Entry.comparingByKey())
+        .map(entry -> entry.getValue().getId())
+        .collect(Collectors.toList()))
+      .collect(Collectors.toSet());
+  }
+
+  private static PatternMatcher getMatcher(ExecutionMode mode) throws IOException {
+    return new PatternMatcher.Builder().setExecutionMode(mode).build(getData());
+  }
+
+  private static GDLHandler getData() throws IOException {
+    InputStream inputStream = PatternMatcherTest.class.getResourceAsStream("/social_network.gdl");
+    return new GDLHandler.Builder().buildFromStream(inputStream);
+  }
+
+  private static GDLHandler getQuery(String query) {
+    return new GDLHandler.Builder().buildFromString(query);
+  }
+}
@@ -0,0 +1,97 @@
+package org.s1ck.gdl.matching;
+
+import org.junit.Test;
+import org.s1ck.gdl.GDLHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PatternSymmetryTest {
+
+  @Test
+  public void cycleTest() {
+    PatternSymmetry symmetry = getSymmetry("MATCH (a)-->(b),(b)-->(c),(c)-->(a)");
+
+    assertEquals(3, symmetry.getAutomorphismCount());
+    assertEquals("a < b, a < c", symmetry.toString());
+  }
+
+  @Test
+  public void starTest() {
+    PatternSymmetry symmetry = getSymmetry("MATCH (c)-[:e]->(x),(c)-[:e]->(y),(c)-[:e]->(z)");
+
+    assertEquals(6, symmetry.getAutomorphismCount());
+    assertEquals("x < y, x < z, y < z", symmetry.toString());
+  }
+
+  @Test
+  public void labelsAndDirectionsTest() {
+    assertTrue(getSymmetry("MATCH (a:A)-->(b:B),(b)-->(a)").isTrivial());
+    assertTrue(getSymmetry("MATCH (a)-[:x]->(b),(a)-[:y]->(c)").isTrivial());
+    assertTrue(getSymmetry("MATCH (a)-->(b)-->(c)").isTrivial());
+    assertEquals(2, getSymmetry("MATCH (a)-->(b),(a)-->(c),(b)-->(d),(c)-->(d)").getAutomorphismCount());
+  }
+
+  @Test
+  public void predicatesPinElementsTest() {
+    assertTrue(getSymmetry("MATCH (a)-->(b),(b)-->(c),(c)-->(a) WHERE a.age > 20").isTrivial());
+    assertTrue(getSymmetry("MATCH (a)-[e]->(b),(a)-[f]->(b) WHERE e.since = 2014").isTrivial());
+    assertEquals(2, getSymmetry("MATCH (a)-[e]->(b),(a)-[f]->(b),(a)-[g]->(b) WHERE e.since = 2014")
+      .getAutomorphismCount());
+  }
+
+  @Test
+  public void parallelEdgesTest() {
+    PatternSymmetry symmetry = getSymmetry("MATCH (a)-[e]->(b),(a)-[f]->(b),(a)-[g]->(b)");
+
+    assertEquals(6, symmetry.getAutomorphismCount());
+    assertEquals("e < f, f < g", symmetry.toString());
+  }
+
+  @Test
+  public void eachSubgraphOnceTest() throws IOException {
+    String[] queries = {
+      "MATCH (a:Person)-[:knows]->(b:Person)-[:knows]->(a)",
+      "MATCH (f:Forum)-[:hasMember]->(p:Person),(f)-[:hasMember]->(q:Person)",
+      "MATCH (a)-[:hasTag]->(t),(b)-[:hasTag]->(t),(c)-[:hasTag]->(t)",
+      "MATCH (a:Person)-[:knows]->(b:Person)-[:knows]->(a) WHERE a.age < b.age"
+    };
+    GDLHandler data = getData();
+    for (ExecutionMode mode : ExecutionMode.values()) {
+      PatternMatcher distinct = new PatternMatcher.Builder().setExecutionMode(mode).build(data);
+      PatternMatcher full = new PatternMatcher.Builder().setExecutionMode(mode)
+        .setSymmetryBreaking(false).build(data);
+      for (String query : queries) {
+        long automorphisms = PatternSymmetry.of(QueryGraph.fromHandler(getQuery(query))).getAutomorphismCount();
+        assertEquals(query, full.count(getQuery(query)), distinct.count(getQuery(query)) * automorphisms);
+      }
+    }
+  }
+
+  @Test
+  public void directedTriangleTest() {
+    GDLHandler data = new GDLHandler.Builder().buildFromString("(x)-->(y)-->(z)-->(x)");
+    String query = "MATCH (a)-->(b),(b)-->(c),(c)-->(a)";
+
+    assertEquals(1, new PatternMatcher.Builder().build(data).count(getQuery(query)));
+    assertEquals(3, new PatternMatcher.Builder().setSymmetryBreaking(false).build(data).count(getQuery(query)));
+    assertEquals(3, new PatternMatcher.Builder().setMatchStrategy(MatchStrategy.HOMOMORPHISM)
+      .build(data).count(getQuery(query)));
+  }
+
+  private static PatternSymmetry getSymmetry(String query) {
+    return PatternSymmetry.of(QueryGraph.fromHandler(getQuery(query)));
+  }
+
+  private static GDLHandler getData() throws IOException {
+    InputStream inputStream = PatternSymmetryTest.class.getResourceAsStream("/social_network.gdl");
+    return new GDLHandler.Builder().buildFromStream(inputStream);
+  }
+
+  private static GDLHandler getQuery(String query) {
+    return new GDLHandler.Builder().buildFromString(query);
+  }
+}
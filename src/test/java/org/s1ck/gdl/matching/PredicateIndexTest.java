@@ -0,0 +1,144 @@
+package org.s1ck.gdl.matching;
+
+import org.junit.Test;
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.model.Element;
+import org.s1ck.gdl.model.predicates.Predicate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PredicateIndexTest {
+
+  private static final String[] QUERIES = {
+    "MATCH (v:Person)",
+    "MATCH (v:Person) WHERE v.age > 30",
+    "MATCH (v:Person) WHERE v.age >= 30 AND v.city = \"Leipzig\"",
+    "MATCH (v) WHERE 30 < v.age",
+    "MATCH (v) WHERE v.age <= 30.0",
+    "MATCH (v) WHERE v.age = 35L",
+    "MATCH (v) WHERE v.age < 35 OR v.name = \"Frank\"",
+    "MATCH (v) WHERE v.city <> \"Dresden\"",
+    "MATCH (v) WHERE NOT v.gender = \"f\" AND v.age > 20",
+    "MATCH (v) WHERE v.name > \"Carol\" XOR v.age > 30",
+    "MATCH (v) WHERE v.since = 2014",
+    "MATCH (v:knows) WHERE v.since < 2014",
+    "MATCH (v) WHERE v.name = v.title",
+    "MATCH (v) WHERE v.age > v.since",
+    "MATCH (v) WHERE v.speaks = NULL",
+    "MATCH (v:Tag) WHERE v.name != \"Graphs\"",
+    "MATCH (v) WHERE v.__label__ <> \"Person\" AND v.__label__ <> \"Tag\"",
+    "MATCH (v)"
+  };
+
+  @Test
+  public void matchesEvaluatorTest() throws IOException {
+    GDLHandler data = getData();
+    PredicateIndex<String> index = new PredicateIndex<>();
+    for (String query : QUERIES) {
+      index.add(query, getQuery(query));
+    }
+    assertEquals(QUERIES.length, index.size());
+
+    List<Element> elements = new ArrayList<>(data.getVertices());
+    elements.addAll(data.getEdges());
+    for (Element element : elements) {
+      Set<String> expected = new HashSet<>();
+      for (String query : QUERIES) {
+        Predicate predicate = getQuery(query).getPredicates().orElse(null);
+        if (predicate == null || PredicateEvaluator.evaluate(predicate, variable -> element)) {
+          expected.add(query);
+        }
+      }
+      List<String> actual = index.match(element);
+      assertEquals(element.toString(), expected.size(), actual.size());
+      assertEquals(element.toString(), expected, new HashSet<>(actual));
+    }
+  }
+
+  @Test
+  public void sharedComparisonsTest() {
+    PredicateIndex<Integer> index = new PredicateIndex<>();
+    index.add(1, getQuery("MATCH (v) WHERE v.age > 30 AND v.city = \"Leipzig\""));
+    index.add(2, getQuery("MATCH (w) WHERE w.city = \"Leipzig\" OR 30 < w.age"));
+    index.add(3, getQuery("MATCH (v) WHERE v.city <> \"Leipzig\" AND v.age = 30.0"));
+
+    assertEquals(3, index.getComparisonCount());
+
+    assertTrue(index.remove(1));
+    assertFalse(index.remove(1));
+    assertEquals(3, index.getComparisonCount());
+    index.remove(3);
+    assertEquals(2, index.getComparisonCount());
+    index.remove(2);
+    assertEquals(0, index.getComparisonCount());
+    assertEquals(0, index.size());
+  }
+
+  @Test
+  public void replaceAndRemoveTest() throws IOException {
+    Element alice = getData().getVertexCache().get("alice");
+    PredicateIndex<String> index = new PredicateIndex<>();
+    index.add("s", getQuery("MATCH (v) WHERE v.age > 20"));
+    assertTrue(index.match(alice).isEmpty());
+
+    index.add("s", getQuery("MATCH (v) WHERE v.age >= 20"));
+    index.add("t", getQuery("MATCH (v:Person {city : \"Leipzig\"})"));
+    assertEquals(2, index.size());
+    List<String> matches = index.match(alice);
+    Collections.sort(matches);
+    assertEquals(List.of("s", "t"), matches);
+
+    index.remove("s");
+    assertEquals(List.of("t"), index.match(alice));
+  }
+
+  @Test
+  public void negativeZeroTest() {
+    String[] queries = {
+      "MATCH (v) WHERE v.x = 0",
+      "MATCH (v) WHERE v.x = 0.0d",
+      "MATCH (v) WHERE v.x = -0.0d",
+      "MATCH (v) WHERE v.x = -0.0f"
+    };
+    PredicateIndex<String> index = new PredicateIndex<>();
+    for (String query : queries) {
+      index.add(query, getQuery(query));
+    }
+
+    GDLHandler data = getQuery("(a {x : 0}),(b {x : 0.0d}),(c {x : -0.0d}),(d {x : -0.0f})");
+    for (Element element : data.getVertices()) {
+      Set<String> expected = new HashSet<>();
+      for (String query : queries) {
+        if (PredicateEvaluator.evaluate(getQuery(query).getPredicates().get(), variable -> element)) {
+          expected.add(query);
+        }
+      }
+      assertEquals(element.toString(), expected, new HashSet<>(index.match(element)));
+    }
+    assertEquals(2, index.match(data.getVertexCache().get("c")).size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void multipleVariablesTest() {
+    new PredicateIndex<String>().add("s", getQuery("MATCH (a)-->(b) WHERE a.age > b.age"));
+  }
+
+  private static GDLHandler getData() throws IOException {
+    InputStream inputStream = PredicateIndexTest.class.getResourceAsStream("/social_network.gdl");
+    return new GDLHandler.Builder().buildFromStream(inputStream);
+  }
+
+  private static GDLHandler getQuery(String query) {
+    return new GDLHandler.Builder().buildFromString(query);
+  }
+}
@@ -0,0 +1,154 @@
+package org.s1ck.gdl.matching;
+
+import org.junit.Test;
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.model.Element;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class QueryCompilerTest {
+
+  private static final String[] QUERIES = {
+    "MATCH (a:Person)-[:knows]->(b:Person)-[:knows]->(c:Person)<-[:knows]-(a)",
+    "MATCH (a:Person)-[:knows]->(b:Person)-[:knows]->(a)",
+    "MATCH (p:Person)-[:hasInterest]->(t:Tag)<-[:hasTag]-(f:Forum)-[:hasMember]->(q:Person)",
+    "MATCH (f:Forum)-[:hasMember]->(p:Person)<-[:hasModerator]-(f)",
+    "MATCH (a)-->(b)-->(c)<--(a) WHERE a.age < c.age",
+    "MATCH (a:Person {city : \"Dresden\"})-[e]->(b)",
+    "MATCH (a:Person)-[e:knows]->(b:Person) WHERE e.since > 2013 OR NOT a.age > 30",
+    "MATCH (a:Person)-[e:knows]->(b:Person) WHERE a.__label__ = b.__label__ XOR a.age = b.age",
+    "MATCH (f:Forum)-[:hasMember]->(p:Person),(f)-[:hasMember]->(q:Person)",
+    "MATCH (a)-[e]->(b),(a)-[f]->(b)"
+  };
+
+  @Test
+  public void agreesWithInterpreterTest() throws IOException {
+    assumeTrue(QueryCompiler.isAvailable());
+    GDLHandler data = getData();
+    QueryCompiler compiler = new QueryCompiler();
+    for (MatchStrategy strategy : MatchStrategy.values()) {
+      for (ExecutionMode mode : new ExecutionMode[] {ExecutionMode.BACKTRACKING, ExecutionMode.GENERIC_JOIN}) {
+        for (boolean filtering : new boolean[] {true, false}) {
+          PatternMatcher.Builder builder = new PatternMatcher.Builder().setMatchStrategy(strategy)
+            .setExecutionMode(mode).setCandidateFiltering(filtering);
+          PatternMatcher interpreted = builder.build(data);
+          PatternMatcher compiled = builder.setQueryCompiler(compiler).build(data);
+          for (String query : QUERIES) {
+            String message = String.format("%s %s %b %s", strategy, mode, filtering, query);
+            List<Map<String, Element>> expected = interpreted.match(getQuery(query));
+            assertEquals(message, expected, compiled.match(getQuery(query)));
+            assertEquals(message, expected.size(), compiled.count(getQuery(query)));
+          }
+        }
+      }
+    }
+    assertTrue(compiler.getCacheSize() > 0);
+  }
+
+  @Test
+  public void planCacheTest() throws IOException {
+    assumeTrue(QueryCompiler.isAvailable());
+    QueryCompiler compiler = new QueryCompiler();
+    PatternMatcher matcher = new PatternMatcher.Builder().setQueryCompiler(compiler).build(getData());
+
+    assertEquals(2, matcher.count(getQuery("MATCH (a:Person)-[e:knows]->(b:Person) WHERE e.since = 2015")));
+    assertEquals(1, compiler.getCacheMisses());
+    // only the literal differs, the generated class is reused
+    assertEquals(3, matcher.count(getQuery("MATCH (a:Person)-[e:knows]->(b:Person) WHERE e.since = 2013")));
+    assertEquals(1, compiler.getCacheSize());
+    assertEquals(1, compiler.getCacheHits());
+    matcher.count(getQuery("MATCH (a:Person)-[e:knows]->(b:Person) WHERE e.since < 2015"));
+    assertEquals(2, compiler.getCacheSize());
+  }
+
+  @Test
+  public void cacheCapacityTest() throws IOException {
+    assumeTrue(QueryCompiler.isAvailable());
+    QueryCompiler compiler = new QueryCompiler(2);
+    PatternMatcher matcher = new PatternMatcher.Builder().setQueryCompiler(compiler).build(getData());
+
+    matcher.count(getQuery(QUERIES[0]));
+    matcher.count(getQuery(QUERIES[1]));
+    matcher.count(getQuery(QUERIES[0]));
+    matcher.count(getQuery(QUERIES[2]));
+    assertEquals(2, compiler.getCacheSize());
+    // the least recently used class was evicted
+    matcher.count(getQuery(QUERIES[0]));
+    assertEquals(3, compiler.getCacheMisses());
+    matcher.count(getQuery(QUERIES[1]));
+    assertEquals(4, compiler.getCacheMisses());
+
+    compiler.clear();
+    assertEquals(0, compiler.getCacheSize());
+  }
+
+  @Test
+  public void compilationFailureTest() throws IOException {
+    assumeTrue(QueryCompiler.isAvailable());
+    AtomicInteger attempts = new AtomicInteger();
+    QueryCompiler compiler = new QueryCompiler() {
+      @Override
+      Constructor<? extends CompiledMatch> define(String template) {
+        attempts.incrementAndGet();
+        throw new IllegalStateException("Cannot compile generated class");
+      }
+    };
+    GDLHandler data = getData();
+    PatternMatcher matcher = new PatternMatcher.Builder().setQueryCompiler(compiler).build(data);
+    PatternMatcher interpreted = new PatternMatcher.Builder().build(data);
+
+    for (int i = 0; i < 2; i++) {
+      assertEquals(interpreted.count(getQuery(QUERIES[0])), matcher.count(getQuery(QUERIES[0])));
+      assertEquals(interpreted.match(getQuery(QUERIES[1])), matcher.match(getQuery(QUERIES[1])));
+    }
+    // failures are cached
+    assertEquals(2, attempts.get());
+    assertEquals(2, compiler.getCacheSize());
+  }
+
+  @Test
+  public void skipLimitAndParallelTest() {
+    assumeTrue(QueryCompiler.isAvailable());
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 200; i++) {
+      builder.append(String.format("(v%d)-->(v%d),(v%d)-->(v%d),", i, (i + 1) % 200, i, (i + 2) % 200));
+    }
+    GDLHandler data = new GDLHandler.Builder().buildFromString(builder.toString());
+    QueryCompiler compiler = new QueryCompiler();
+    String triangle = "MATCH (a)-->(b)-->(c)<--(a)";
+    PatternMatcher sequential = new PatternMatcher.Builder().setQueryCompiler(compiler).build(data);
+    PatternMatcher parallel = new PatternMatcher.Builder().setQueryCompiler(compiler).setParallel(true).build(data);
+    PatternMatcher interpreted = new PatternMatcher.Builder().build(data);
+
+    assertEquals(200, sequential.count(getQuery(triangle)));
+    assertEquals(200, parallel.count(getQuery(triangle)));
+    assertEquals(17, sequential.count(getQuery(triangle + " LIMIT 17")));
+    assertEquals(17, parallel.match(getQuery(triangle + " LIMIT 17")).size());
+    assertEquals(190, parallel.count(getQuery(triangle + " SKIP 10")));
+    assertEquals(interpreted.match(getQuery(triangle + " SKIP 5 LIMIT 20")),
+      sequential.match(getQuery(triangle + " SKIP 5 LIMIT 20")));
+    assertEquals(interpreted.table(getQuery(triangle)).toMaps(), sequential.table(getQuery(triangle)).toMaps());
+    assertEquals(200L, parallel.execute(getQuery(triangle + " RETURN count(*) AS n")).findFirst().get().get("n"));
+    // lazily consumed streams are interpreted
+    assertEquals(3, sequential.stream(getQuery(triangle)).limit(3).collect(Collectors.toList()).size());
+  }
+
+  private static GDLHandler getData() throws IOException {
+    InputStream inputStream = QueryCompilerTest.class.getResourceAsStream("/social_network.gdl");
+    return new GDLHandler.Builder().buildFromStream(inputStream);
+  }
+
+  private static GDLHandler getQuery(String query) {
+    return new GDLHandler.Builder().buildFromString(query);
+  }
+}
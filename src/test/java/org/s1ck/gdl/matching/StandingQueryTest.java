@@ -0,0 +1,148 @@
+package org.s1ck.gdl.matching;
+
+import org.junit.Test;
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.model.Edge;
+import org.s1ck.gdl.model.Element;
+import org.s1ck.gdl.model.Vertex;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class StandingQueryTest {
+
+  @Test
+  public void triangleCompletedByAppendTest() {
+    GDLHandler data = getData("(a:P)-->(b:P)-->(c:P)");
+    List<Map<String, Element>> matches = new ArrayList<>();
+    StandingQuery.register(data, getQuery("MATCH (x:P)-->(y:P)-->(z:P)-->(x)"), matches::add);
+
+    data.append("(c)-->(a)");
+
+    assertEquals(1, matches.size());
+    assertEquals(6, new HashSet<>(matches.get(0).values()).size());
+  }
+
+  @Test
+  public void deltaEqualsRecomputationTest() {
+    String[] queries = {
+      "MATCH (x:P)-->(y:P)-->(z:P)-->(x)",
+      "MATCH (x)-->(y),(x)-->(z)",
+      "MATCH (x:P)-[e:knows]->(y:P) WHERE x.age > y.age",
+      "MATCH (x:P)-->(y),(z:Q)",
+      "MATCH (x:Q)"
+    };
+    String[] appends = {
+      "(c)-[:knows]->(a)",
+      "(d:P {age : 10})-[:knows]->(a),(b)-[:knows]->(d)",
+      "(q1:Q),(q2:Q)-->(a)",
+      "(d)-->(c)-->(d),(e:P {age : 50})"
+    };
+    for (MatchStrategy strategy : MatchStrategy.values()) {
+      for (String query : queries) {
+        GDLHandler data = getData("(a:P {age : 20})-[:knows]->(b:P {age : 30})-[:knows]->(c:P {age : 40})");
+        QueryGraph queryGraph = QueryGraph.fromHandler(getQuery(query));
+        PatternMatcher matcher = new PatternMatcher.Builder().setMatchStrategy(strategy).build(data);
+        Set<Map<String, Element>> initial = new HashSet<>(matcher.match(getQuery(query)));
+
+        List<Map<String, Element>> delta = new ArrayList<>();
+        StandingQuery standingQuery = StandingQuery.register(data, queryGraph, strategy, true, delta::add);
+        for (String append : appends) {
+          data.append(append);
+        }
+
+        Set<Map<String, Element>> expected = new HashSet<>(
+          new PatternMatcher.Builder().setMatchStrategy(strategy).build(data).match(getQuery(query)));
+        expected.removeAll(initial);
+        assertEquals(strategy + " " + query, expected.size(), delta.size());
+        assertEquals(strategy + " " + query, expected, new HashSet<>(delta));
+        assertEquals(delta.size(), standingQuery.getMatchCount());
+      }
+    }
+  }
+
+  @Test
+  public void repeatedAppendsTest() {
+    GDLHandler data = getData("(h0:P)");
+    List<Map<String, Element>> delta = new ArrayList<>();
+    StandingQuery.register(data, getQuery("MATCH (x:P)-->(y:P)-->(z:P)-->(x)"), delta::add);
+
+    // every append adds edges to and from the hubs, so their adjacency entries keep growing
+    for (int i = 1; i <= 40; i++) {
+      data.append(String.format("(h%1$d)-->(v%2$d:P)-->(h%2$d:P)-->(h%1$d),(v%2$d)-->(h0)-->(w%2$d:P)-->(v%2$d)",
+        i - 1, i));
+    }
+
+    int expected = new PatternMatcher.Builder().build(data)
+      .match(getQuery("MATCH (x:P)-->(y:P)-->(z:P)-->(x)")).size();
+    assertEquals(80, expected);
+    assertEquals(expected, delta.size());
+  }
+
+  @Test
+  public void selfLoopTest() {
+    GDLHandler data = getData("(v0:A)");
+    List<Map<String, Element>> matches = new ArrayList<>();
+    StandingQuery.register(data, getQuery("MATCH (a)-[e]->(a)"), matches::add);
+
+    data.append("(v1:B),(v0)-[:x]->(v0),(v1)-[:x]->(v1),(v1)-[:x]->(v0)");
+
+    assertEquals(2, matches.size());
+    assertEquals(2, new HashSet<>(matches).size());
+  }
+
+  @Test
+  public void variableLengthEdgeTest() {
+    GDLHandler data = getData("(a:P)");
+
+    assertThrows(IllegalArgumentException.class,
+      () -> StandingQuery.register(data, getQuery("MATCH (x)-[e*1..3]->(y)"), match -> { }));
+  }
+
+  @Test
+  public void unregisterTest() {
+    GDLHandler data = getData("(a:P)");
+    List<Map<String, Element>> matches = new ArrayList<>();
+    StandingQuery standingQuery = StandingQuery.register(data, getQuery("MATCH (x:P)"), matches::add);
+
+    data.append("(b:P)");
+    standingQuery.unregister();
+    data.append("(c:P)");
+
+    assertEquals(1, matches.size());
+    assertEquals(data.getVertexCache().get("b"), matches.get(0).get("x"));
+  }
+
+  @Test
+  public void appendListenerTest() {
+    GDLHandler data = getData("(a)-->(b)");
+    List<Vertex> vertices = new ArrayList<>();
+    List<Edge> edges = new ArrayList<>();
+    data.addAppendListener((handler, v, e) -> {
+      vertices.addAll(v);
+      edges.addAll(e);
+    });
+
+    data.append("(a)-->(c)");
+
+    assertEquals(1, vertices.size());
+    assertEquals(data.getVertexCache().get("c"), vertices.get(0));
+    assertEquals(1, edges.size());
+    assertTrue(data.getEdges().contains(edges.get(0)));
+  }
+
+  private static GDLHandler getData(String data) {
+    return new GDLHandler.Builder().buildFromString(data);
+  }
+
+  private static GDLHandler getQuery(String query) {
+    return new GDLHandler.Builder().buildFromString(query);
+  }
+}
@@ -0,0 +1,116 @@
+package org.s1ck.gdl.matching.planning;
+
+import org.junit.Test;
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.matching.PatternMatcher;
+import org.s1ck.gdl.matching.QueryGraph;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class PlanCacheTest {
+
+  @Test
+  public void fingerprintTest() {
+    QueryFingerprint fingerprint = getFingerprint(
+      "MATCH (a:Person)-[e:knows]->(b) WHERE a.age > 30 AND e.since = 2014 AND b.__label__ = \"Tag\" " +
+        "RETURN a.city, count(*)");
+
+    assertEquals("v0:Person, v1:Tag, e0:knows(v0->v1) WHERE v0.age > $0 AND e0.since = $1 AND " +
+      "v1.__label__ = \"Tag\" AND v0.__label__ = \"Person\" AND e0.__label__ = \"knows\" " +
+      "RETURN v0.city, count(*)", fingerprint.getKey());
+    assertEquals(Arrays.asList(30, 2014), fingerprint.getParameters());
+  }
+
+  @Test
+  public void fingerprintIgnoresNamesAndValuesTest() {
+    String[] equivalent = {
+      "MATCH (a:Person)-[:knows]->(b:Person) WHERE a.age > 30 OR b.name = \"Alice\"",
+      "MATCH (x:Person)-[:knows]->(y:Person) WHERE x.age > 50 OR y.name = \"Bob\" LIMIT 10",
+      "MATCH (n:Person)-[k:knows]->(m:Person)\nWHERE n.age > 1.5 OR m.name = \"Eve\" SKIP 3"
+    };
+    String[] different = {
+      "MATCH (a:Person)-[:knows]->(b:Person) WHERE a.age < 30 OR b.name = \"Alice\"",
+      "MATCH (a:Person)-[:knows]->(b:Person) WHERE b.age > 30 OR a.name = \"Alice\"",
+      "MATCH (a:Person)<-[:knows]-(b:Person) WHERE a.age > 30 OR b.name = \"Alice\"",
+      "MATCH (a:Tag)-[:knows]->(b:Person) WHERE a.age > 30 OR b.name = \"Alice\"",
+      "MATCH (a:Person)-[:knows*1..2]->(b:Person) WHERE a.age > 30 OR b.name = \"Alice\""
+    };
+    QueryFingerprint reference = getFingerprint(equivalent[0]);
+    for (String query : equivalent) {
+      assertEquals(query, reference, getFingerprint(query));
+    }
+    for (String query : different) {
+      assertNotEquals(query, reference, getFingerprint(query));
+    }
+  }
+
+  @Test
+  public void reusesPlanTest() throws IOException {
+    PlanCache cache = new PlanCache(new QueryPlanner(getStatistics()), 2);
+    QueryPlan first = cache.plan(getQuery("MATCH (p:Person)-[:hasInterest]->(t:Tag {name : \"Hadoop\"})"));
+    QueryPlan second = cache.plan(getQuery("MATCH (x:Person)-[:hasInterest]->(y:Tag {name : \"Graphs\"})"));
+
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+    assertEquals(Arrays.asList("t", "p"), first.getVertexOrder());
+    assertEquals(Arrays.asList("y", "x"), second.getVertexOrder());
+    assertEquals(first.getSteps().size(), second.getSteps().size());
+    assertEquals("y.name = Graphs", second.getSteps().get(0).getFilters().get(1).toString());
+    assertEquals(first.getEstimatedCost(), second.getEstimatedCost(), 0.0);
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedTest() throws IOException {
+    PlanCache cache = new PlanCache(new QueryPlanner(getStatistics()), 2);
+    cache.plan(getQuery("MATCH (a:Person)"));
+    cache.plan(getQuery("MATCH (a:Tag)"));
+    cache.plan(getQuery("MATCH (a:Person)"));
+    cache.plan(getQuery("MATCH (a:Forum)"));
+    cache.plan(getQuery("MATCH (a:Person)"));
+    cache.plan(getQuery("MATCH (a:Tag)"));
+
+    assertEquals(2, cache.getSize());
+    assertEquals(2, cache.getHits());
+    assertEquals(4, cache.getMisses());
+  }
+
+  @Test
+  public void matcherResultsTest() throws IOException {
+    GDLHandler data = getData();
+    PatternMatcher cached = new PatternMatcher.Builder().setPlanCacheSize(16).build(data);
+    PatternMatcher uncached = new PatternMatcher.Builder().build(data);
+    String[] queries = {
+      "MATCH (a:Person)-[:knows]->(b:Person) WHERE a.age > 30",
+      "MATCH (x:Person)-[:knows]->(y:Person) WHERE x.age > 20",
+      "MATCH (x:Person)-[:knows]->(y:Person) WHERE x.age > 35",
+      "MATCH (p:Person {city : \"Dresden\"})-[:hasInterest]->(t)",
+      "MATCH (q:Person {city : \"Leipzig\"})-[:hasInterest]->(u)"
+    };
+    for (String query : queries) {
+      assertEquals(query, uncached.match(getQuery(query)), cached.match(getQuery(query)));
+    }
+    assertEquals(3, cached.getPlanCache().getHits());
+  }
+
+  private static QueryFingerprint getFingerprint(String query) {
+    return QueryFingerprint.of(QueryGraph.fromHandler(getQuery(query)));
+  }
+
+  private static GraphStatistics getStatistics() throws IOException {
+    return GraphStatistics.fromHandler(getData());
+  }
+
+  private static GDLHandler getData() throws IOException {
+    InputStream inputStream = PlanCacheTest.class.getResourceAsStream("/social_network.gdl");
+    return new GDLHandler.Builder().buildFromStream(inputStream);
+  }
+
+  private static GDLHandler getQuery(String query) {
+    return new GDLHandler.Builder().buildFromString(query);
+  }
+}
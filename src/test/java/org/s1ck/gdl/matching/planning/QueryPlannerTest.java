@@ -0,0 +1,106 @@
+package org.s1ck.gdl.matching.planning;
+
+import org.junit.Test;
+import org.s1ck.gdl.GDLHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QueryPlannerTest {
+
+  @Test
+  public void statisticsTest() throws IOException {
+    GraphStatistics statistics = getStatistics();
+
+    assertEquals(11, statistics.getVertexCount());
+    assertEquals(6, statistics.getVertexCount("Person"));
+    assertEquals(0, statistics.getVertexCount("Unknown"));
+    assertEquals(24, statistics.getEdgeCount());
+    assertEquals(10, statistics.getEdgeCount("knows"));
+    assertEquals(6, statistics.getDistinctSourceVertexCount("knows"));
+    assertEquals(3, statistics.getDistinctVertexPropertyValues("Person", "city"));
+    assertEquals(10.0 / 6.0, statistics.getAverageOutDegree("knows"), 1E-9);
+  }
+
+  @Test
+  public void startsWithMostSelectiveVertexTest() throws IOException {
+    QueryPlan plan = new QueryPlanner(getStatistics()).plan(getQuery(
+      "MATCH (p:Person)-[:hasInterest]->(t:Tag {name : \"Hadoop\"})"));
+
+    assertEquals(QueryPlan.Strategy.DYNAMIC_PROGRAMMING, plan.getStrategy());
+    assertEquals(Arrays.asList("t", "p"), plan.getVertexOrder());
+    assertEquals(PlanStep.Kind.SCAN, plan.getSteps().get(0).getKind());
+    assertEquals(PlanStep.Kind.EXPAND, plan.getSteps().get(1).getKind());
+    assertEquals(PlanStep.Direction.INCOMING, plan.getSteps().get(1).getDirection());
+  }
+
+  @Test
+  public void closesCyclesTest() throws IOException {
+    QueryPlan plan = new QueryPlanner(getStatistics()).plan(getQuery(
+      "MATCH (a:Person)-[e1:knows]->(b:Person)-[e2:knows]->(c:Person)-[e3:knows]->(a)"));
+
+    assertEquals(3, plan.getVertexOrder().size());
+    assertEquals(3, plan.getSteps().stream()
+      .filter(step -> step.getKind() != PlanStep.Kind.SCAN).count());
+    assertEquals(PlanStep.Kind.CLOSE, plan.getSteps().get(plan.getSteps().size() - 1).getKind());
+  }
+
+  @Test
+  public void attachesEveryPredicateOnceTest() throws IOException {
+    GDLHandler query = getQuery(
+      "MATCH (a:Person)-[e:knows]->(b:Person) WHERE a.age > b.age AND e.since = 2014");
+    QueryPlan plan = new QueryPlanner(getStatistics()).plan(query);
+
+    List<String> filters = plan.getSteps().stream()
+      .flatMap(step -> step.getFilters().stream())
+      .map(Object::toString)
+      .collect(Collectors.toList());
+    assertEquals(5, filters.size());
+    assertEquals(5, new HashSet<>(filters).size());
+
+    // the join predicate can only be evaluated once both vertices are bound
+    PlanStep first = plan.getSteps().get(0);
+    assertTrue(first.getFilters().stream().noneMatch(p -> p.toString().equals("a.age > b.age")));
+  }
+
+  @Test
+  public void greedyPlanCoversAllElementsTest() throws IOException {
+    String pattern = "MATCH (a:Person)-[:knows]->(b:Person)-[:knows]->(c:Person)-[:hasInterest]->(t:Tag), " +
+      "(f:Forum)-[:hasMember]->(a), (f)-[:hasTag]->(t)";
+    QueryPlanner planner = new QueryPlanner(getStatistics(), 2);
+    QueryPlan greedy = planner.plan(getQuery(pattern));
+    QueryPlan exhaustive = new QueryPlanner(getStatistics()).plan(getQuery(pattern));
+
+    assertEquals(QueryPlan.Strategy.GREEDY, greedy.getStrategy());
+    assertEquals(new HashSet<>(Arrays.asList("a", "b", "c", "t", "f")), new HashSet<>(greedy.getVertexOrder()));
+    assertEquals(5, greedy.getSteps().stream().filter(s -> s.getEdgeVariable() != null).count());
+    assertTrue(exhaustive.getEstimatedCost() <= greedy.getEstimatedCost() + 1E-9);
+  }
+
+  @Test
+  public void disconnectedPatternTest() throws IOException {
+    QueryPlan plan = new QueryPlanner(getStatistics()).plan(getQuery("MATCH (a:Tag), (b:Forum)"));
+
+    Set<PlanStep.Kind> kinds = plan.getSteps().stream().map(PlanStep::getKind).collect(Collectors.toSet());
+    assertEquals(2, plan.getSteps().size());
+    assertEquals(new HashSet<>(Arrays.asList(PlanStep.Kind.SCAN)), kinds);
+    assertEquals(6.0, plan.getEstimatedCardinality(), 1E-9);
+  }
+
+  private static GraphStatistics getStatistics() throws IOException {
+    InputStream inputStream = QueryPlannerTest.class.getResourceAsStream("/social_network.gdl");
+    return GraphStatistics.fromHandler(new GDLHandler.Builder().buildFromStream(inputStream));
+  }
+
+  private static GDLHandler getQuery(String query) {
+    return new GDLHandler.Builder().buildFromString(query);
+  }
+}
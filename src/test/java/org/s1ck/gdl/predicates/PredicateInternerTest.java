@@ -0,0 +1,65 @@
+package org.s1ck.gdl.predicates;
+
+import org.junit.Test;
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.model.comparables.Literal;
+import org.s1ck.gdl.model.comparables.PropertySelector;
+import org.s1ck.gdl.model.predicates.Predicate;
+import org.s1ck.gdl.model.predicates.PredicateInterner;
+import org.s1ck.gdl.model.predicates.booleans.And;
+import org.s1ck.gdl.model.predicates.booleans.Not;
+import org.s1ck.gdl.model.predicates.booleans.Or;
+import org.s1ck.gdl.model.predicates.expressions.Comparison;
+import org.s1ck.gdl.utils.Comparator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+public class PredicateInternerTest {
+
+  @Test
+  public void structuralEqualityTest() {
+    Predicate a = new And(comparison("a", 1), new Not(comparison("b", 2)));
+    Predicate b = new And(comparison("a", 1), new Not(comparison("b", 2)));
+
+    assertEquals(a, b);
+    assertEquals(a.hashCode(), b.hashCode());
+    assertNotEquals(a, new Or(comparison("a", 1), new Not(comparison("b", 2))));
+    assertNotEquals(a, new And(new Not(comparison("b", 2)), comparison("a", 1)));
+  }
+
+  @Test
+  public void sharedSubtreesTest() {
+    PredicateInterner interner = new PredicateInterner();
+    Predicate common = interner.and(comparison("a", 1), comparison("b", 2));
+    Predicate lhs = interner.or(common, comparison("c", 3));
+    Predicate rhs = interner.intern(new Not(new And(comparison("a", 1), comparison("b", 2))));
+
+    assertSame(common, lhs.getArguments()[0]);
+    assertSame(common, rhs.getArguments()[0]);
+    assertSame(lhs, interner.intern(new Or(new And(comparison("a", 1), comparison("b", 2)), comparison("c", 3))));
+    // a.x = 1, b.x = 2, c.x = 3, common, lhs, rhs
+    assertEquals(6, interner.size());
+  }
+
+  @Test
+  public void loaderSharesSubtreesTest() {
+    GDLHandler handler = new GDLHandler.Builder().buildFromString(
+      "MATCH (a)-->(b) WHERE (a.x = 1 AND b.y = 2) OR NOT (a.x = 1 AND b.y = 2)");
+    Predicate or = handler.getPredicates().get();
+    Predicate lhs = or.getArguments()[0];
+    Predicate rhs = or.getArguments()[1].getArguments()[0];
+
+    assertSame(lhs, rhs);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void immutableVariablesTest() {
+    new And(comparison("a", 1), comparison("b", 2)).getVariables().add("c");
+  }
+
+  private static Comparison comparison(String variable, int value) {
+    return new Comparison(new PropertySelector(variable, "x"), Comparator.EQ, new Literal(value));
+  }
+}
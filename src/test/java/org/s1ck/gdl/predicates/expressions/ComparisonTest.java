@@ -0,0 +1,33 @@
+package org.s1ck.gdl.predicates.expressions;
+
+import org.junit.Test;
+import org.s1ck.gdl.model.comparables.Literal;
+import org.s1ck.gdl.model.comparables.PropertySelector;
+import org.s1ck.gdl.model.predicates.expressions.Comparison;
+import org.s1ck.gdl.utils.Comparator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertThrows;
+
+public class ComparisonTest {
+  @Test
+  public void equalsTest() {
+    Comparison a = new Comparison(new PropertySelector("a", "age"), Comparator.GT, new Literal(30));
+
+    assertEquals(a, new Comparison(new PropertySelector("a", "age"), Comparator.GT, new Literal(30)));
+    assertEquals(a.hashCode(),
+      new Comparison(new PropertySelector("a", "age"), Comparator.GT, new Literal(30)).hashCode());
+    assertNotEquals(a, new Comparison(new PropertySelector("a", "age"), Comparator.LT, new Literal(30)));
+  }
+
+  @Test
+  public void nullArgumentsTest() {
+    assertThrows(IllegalArgumentException.class,
+      () -> new Comparison(null, Comparator.EQ, new Literal(30)));
+    assertThrows(IllegalArgumentException.class,
+      () -> new Comparison(new Literal(30), null, new Literal(30)));
+    assertThrows(IllegalArgumentException.class,
+      () -> new Comparison(new Literal(30), Comparator.EQ, null));
+  }
+}
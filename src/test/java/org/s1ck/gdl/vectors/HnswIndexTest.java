@@ -0,0 +1,121 @@
+package org.s1ck.gdl.vectors;
+
+import org.junit.Test;
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.model.Vertex;
+import org.s1ck.gdl.model.values.FloatVectorLiteral;
+import org.s1ck.gdl.model.values.VectorLiteral;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class HnswIndexTest {
+
+  @Test
+  public void recallTest() {
+    Random random = new Random(3L);
+    List<Vertex> vertices = getVertices(random, 3000, 16);
+    List<VectorLiteral> queries = getQueries(random, 50, 16);
+
+    for (VectorMetric metric : VectorMetric.values()) {
+      HnswIndex index = new HnswIndex.Builder().setMetric(metric).build(vertices, "Doc", "embedding");
+
+      assertEquals(3000, index.size());
+      assertTrue(index.getLayerCount() > 1);
+      double recall = index.recall(queries, 10);
+      assertTrue(metric + ": " + recall, recall >= 0.9);
+    }
+  }
+
+  @Test
+  public void concurrentBuildTest() {
+    Random random = new Random(5L);
+    List<Vertex> vertices = getVertices(random, 3000, 16);
+    List<VectorLiteral> queries = getQueries(random, 50, 16);
+
+    HnswIndex index = new HnswIndex.Builder().setThreads(4).build(vertices, "Doc", "embedding");
+
+    assertEquals(3000, index.size());
+    assertTrue(index.recall(queries, 10) >= 0.9);
+  }
+
+  @Test
+  public void searchParametersTest() {
+    Random random = new Random(11L);
+    List<Vertex> vertices = getVertices(random, 2000, 16);
+    List<VectorLiteral> queries = getQueries(random, 20, 16);
+    HnswIndex index = new HnswIndex.Builder().setMaxConnections(4).setEfConstruction(20)
+      .build(vertices, "Doc", "embedding");
+
+    double recall = index.recall(queries, 10);
+    assertEquals(10, index.search(queries.get(0), 10, 1).size());
+    assertEquals(2000, index.search(queries.get(0), 5000, 1).size());
+    assertTrue(index.search(queries.get(0), 0).isEmpty());
+    assertTrue(recall > 0);
+  }
+
+  @Test
+  public void appendTest() {
+    GDLHandler handler = new GDLHandler.Builder().buildFromString(
+      "(a:Doc {embedding : vector([1.0f, 0.0f])})" +
+      "(b:Doc {embedding : vector([0.0f, 1.0f])})" +
+      "(c:Other {embedding : vector([0.7f, 0.7f])})");
+    HnswIndex index = new HnswIndex.Builder().setMetric(VectorMetric.L2).build(handler, "Doc", "embedding");
+    assertEquals(2, index.size());
+
+    handler.append("(d:Doc {embedding : vector([5.0f, 5.0f])})");
+    assertEquals(3, index.size());
+    List<Neighbor> neighbors = index.search(FloatVectorLiteral.of(5.0f, 5.0f), 1);
+    assertEquals("d", neighbors.get(0).getVertex().getVariable());
+    assertEquals(0.0, neighbors.get(0).getDistance(), 1E-9);
+
+    index.detach();
+    handler.append("(e:Doc {embedding : vector([6.0f, 6.0f])})");
+    assertEquals(3, index.size());
+  }
+
+  @Test
+  public void invalidInputTest() {
+    HnswIndex empty = new HnswIndex.Builder().build(new ArrayList<>(), "Doc", "embedding");
+    assertTrue(empty.search(FloatVectorLiteral.of(1.0f), 3).isEmpty());
+
+    HnswIndex index = new HnswIndex.Builder().build(getVertices(new Random(1L), 10, 4), "Doc", "embedding");
+    assertThrows(IllegalArgumentException.class, () -> index.search(FloatVectorLiteral.of(1.0f), 3));
+    assertThrows(IllegalArgumentException.class, () -> index.search(FloatVectorLiteral.of(1, 2, 3, 4), -1));
+    assertThrows(IllegalArgumentException.class, () -> index.addAll(getVertices(new Random(1L), 1, 5)));
+    assertThrows(IllegalArgumentException.class, () -> new HnswIndex.Builder().setMaxConnections(0));
+  }
+
+  private static List<Vertex> getVertices(Random random, int count, int dimension) {
+    List<Vertex> vertices = new ArrayList<>();
+    for (int v = 0; v < count; v++) {
+      Vertex vertex = new Vertex();
+      vertex.setId(v);
+      vertex.setLabel("Doc");
+      vertex.addProperty("embedding", randomVector(random, dimension));
+      vertices.add(vertex);
+    }
+    return vertices;
+  }
+
+  private static List<VectorLiteral> getQueries(Random random, int count, int dimension) {
+    List<VectorLiteral> queries = new ArrayList<>();
+    for (int q = 0; q < count; q++) {
+      queries.add(randomVector(random, dimension));
+    }
+    return queries;
+  }
+
+  private static FloatVectorLiteral randomVector(Random random, int dimension) {
+    float[] vector = new float[dimension];
+    for (int i = 0; i < dimension; i++) {
+      vector[i] = (float) random.nextGaussian();
+    }
+    return FloatVectorLiteral.of(vector);
+  }
+}
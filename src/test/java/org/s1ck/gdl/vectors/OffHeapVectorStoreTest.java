@@ -0,0 +1,138 @@
+package org.s1ck.gdl.vectors;
+
+import org.junit.Test;
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.matching.PatternMatcher;
+import org.s1ck.gdl.model.Vertex;
+import org.s1ck.gdl.model.values.FloatVectorLiteral;
+import org.s1ck.gdl.model.values.VectorLiteral;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class OffHeapVectorStoreTest {
+
+  @Test
+  public void float32Test() {
+    List<Vertex> vertices = getVertices(new Random(1L), 500, 24);
+    VectorSearch exact = new VectorSearch.Builder().build(VectorStore.fromVertices(vertices, "Doc", "e"));
+    // small segments, so that rows are spread over several buffers
+    OffHeapVectorStore store = new OffHeapVectorStore.Builder().setSegmentSize(1000).build(vertices, "Doc", "e");
+
+    assertEquals(500, store.size());
+    assertEquals(24, store.getDimension());
+    assertEquals(500L * (4 + 4 * 24), store.getByteSize());
+    for (int row = 0; row < store.size(); row++) {
+      assertEquals(store.getVertex(row).getProperties().get("e"), FloatVectorLiteral.of(toArray(store.getHandle(row))));
+    }
+    VectorLiteral query = randomVector(new Random(2L), 24);
+    for (VectorMetric metric : VectorMetric.values()) {
+      VectorSearch search = new VectorSearch.Builder().setMetric(metric).build(exact.getStore());
+      assertEquals(ids(search.search(query, 20)), ids(store.search(query, 20, metric)));
+    }
+  }
+
+  @Test
+  public void int8Test() {
+    Random random = new Random(3L);
+    List<Vertex> vertices = getVertices(random, 2000, 32);
+    List<VectorLiteral> queries = new ArrayList<>();
+    for (int q = 0; q < 20; q++) {
+      queries.add(randomVector(random, 32));
+    }
+    OffHeapVectorStore store = new OffHeapVectorStore.Builder()
+      .setEncoding(OffHeapVectorStore.Encoding.INT8).build(vertices, "Doc", "e");
+
+    assertEquals(2000L * (8 + 32), store.getByteSize());
+    for (int row = 0; row < 100; row++) {
+      VectorLiteral original = (VectorLiteral) store.getVertex(row).getProperties().get("e");
+      double max = 0;
+      for (int i = 0; i < 32; i++) {
+        max = Math.max(max, Math.abs(original.getDouble(i)));
+      }
+      for (int i = 0; i < 32; i++) {
+        assertEquals(original.getDouble(i), store.getHandle(row).getDouble(i), max / 127 / 2 + 1E-6);
+      }
+    }
+    for (VectorMetric metric : VectorMetric.values()) {
+      VectorSearch exact = new VectorSearch.Builder().setMetric(metric)
+        .build(VectorStore.fromVertices(vertices, "Doc", "e"));
+      double recall = store.recall(exact, queries, 10);
+      assertTrue(metric + ": " + recall, recall >= 0.8);
+    }
+  }
+
+  @Test
+  public void replacePropertiesTest() throws IOException {
+    GDLHandler handler = new GDLHandler.Builder().buildFromString(
+      "(a:Doc {e : vector([1.0f, 0.0f])})-[:cites]->(b:Doc {e : vector([0.9f, 0.1f])})" +
+      "(a)-[:cites]->(c:Doc {e : vector([0.0f, 1.0f])})");
+    Path file = Files.createTempFile("vectors", ".bin");
+    try (OffHeapVectorStore store = new OffHeapVectorStore.Builder().setFile(file)
+      .setEncoding(OffHeapVectorStore.Encoding.INT8).setReplaceProperties(true).build(handler, "Doc", "e")) {
+
+      assertEquals(3 * (8 + 2), Files.size(file));
+      Object value = handler.getVertexCache().get("b").getProperties().get("e");
+      assertTrue(value instanceof VectorHandle);
+      assertEquals(0.1, ((VectorHandle) value).getDouble(1), 0.9 / 127 / 2);
+      assertTrue(value.toString().startsWith("float_vector([0.9"));
+
+      long count = new PatternMatcher.Builder().build(handler).count(new GDLHandler.Builder().buildFromString(
+        "MATCH (x:Doc)-[:cites]->(y:Doc) WHERE cosine(x.e, y.e) > 0.9"));
+      assertEquals(1, count);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void invalidInputTest() {
+    OffHeapVectorStore store = new OffHeapVectorStore.Builder().build(getVertices(new Random(1L), 5, 4), "Doc", "e");
+
+    assertThrows(IllegalArgumentException.class, () -> store.search(FloatVectorLiteral.of(1.0f), 1, VectorMetric.L2));
+    assertThrows(IndexOutOfBoundsException.class, () -> store.getHandle(5));
+    assertThrows(IndexOutOfBoundsException.class, () -> store.getHandle(0).getFloat(4));
+    assertEquals(0, new OffHeapVectorStore.Builder().build(new ArrayList<>(), "Doc", "e").size());
+  }
+
+  private static float[] toArray(VectorLiteral vector) {
+    float[] values = new float[vector.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = (float) vector.getDouble(i);
+    }
+    return values;
+  }
+
+  private static List<Long> ids(List<Neighbor> neighbors) {
+    return neighbors.stream().map(neighbor -> neighbor.getVertex().getId()).collect(Collectors.toList());
+  }
+
+  private static List<Vertex> getVertices(Random random, int count, int dimension) {
+    List<Vertex> vertices = new ArrayList<>();
+    for (int v = 0; v < count; v++) {
+      Vertex vertex = new Vertex();
+      vertex.setId(v);
+      vertex.setLabel("Doc");
+      vertex.addProperty("e", randomVector(random, dimension));
+      vertices.add(vertex);
+    }
+    return vertices;
+  }
+
+  private static FloatVectorLiteral randomVector(Random random, int dimension) {
+    float[] vector = new float[dimension];
+    for (int i = 0; i < dimension; i++) {
+      vector[i] = (float) random.nextGaussian();
+    }
+    return FloatVectorLiteral.of(vector);
+  }
+}
@@ -0,0 +1,143 @@
+package org.s1ck.gdl.vectors;
+
+import org.junit.Test;
+import org.s1ck.gdl.GDLHandler;
+import org.s1ck.gdl.model.Vertex;
+import org.s1ck.gdl.model.values.DoubleVectorLiteral;
+import org.s1ck.gdl.model.values.FloatVectorLiteral;
+import org.s1ck.gdl.model.values.VectorLiteral;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class VectorSearchTest {
+
+  @Test
+  public void storeTest() {
+    VectorStore store = VectorStore.fromHandler(getData(), "Doc", "embedding");
+
+    assertEquals(3, store.size());
+    assertEquals(2, store.getDimension());
+    assertEquals(Float.class, store.getElementType());
+    assertEquals("a", store.getVertex(0).getVariable());
+
+    VectorStore all = VectorStore.fromHandler(getData(), null, "embedding");
+    assertEquals(4, all.size());
+    assertEquals(Double.class, all.getElementType());
+  }
+
+  @Test
+  public void metricsTest() {
+    VectorStore store = VectorStore.fromHandler(getData(), null, "embedding");
+    FloatVectorLiteral query = FloatVectorLiteral.of(1.0f, 0.0f);
+
+    assertEquals("[a, d, c]", variables(new VectorSearch.Builder().build(store).search(query, 3)));
+    assertEquals("[c, d, a]", variables(new VectorSearch.Builder().setMetric(VectorMetric.DOT_PRODUCT)
+      .build(store).search(query, 3)));
+    List<Neighbor> l2 = new VectorSearch.Builder().setMetric(VectorMetric.L2).build(store).search(query, 4);
+    assertEquals("[a, d, b, c]", variables(l2));
+    assertEquals(0.0, l2.get(0).getDistance(), 1E-9);
+    assertEquals(Math.sqrt(2.0), l2.get(2).getDistance(), 1E-6);
+  }
+
+  @Test
+  public void bruteForceTest() {
+    Random random = new Random(7L);
+    List<Vertex> vertices = new ArrayList<>();
+    for (int v = 0; v < 5000; v++) {
+      float[] vector = new float[13];
+      for (int i = 0; i < vector.length; i++) {
+        vector[i] = random.nextInt(5) - 2;
+      }
+      Vertex vertex = new Vertex();
+      vertex.setId(v);
+      vertex.setLabel("Doc");
+      vertex.addProperty("embedding", FloatVectorLiteral.of(vector));
+      vertices.add(vertex);
+    }
+    VectorStore store = VectorStore.fromVertices(vertices, "Doc", "embedding");
+    float[] query = new float[13];
+    for (int i = 0; i < query.length; i++) {
+      query[i] = random.nextInt(5) - 2;
+    }
+
+    for (VectorMetric metric : VectorMetric.values()) {
+      List<Neighbor> expected = vertices.stream()
+        .map(vertex -> new Neighbor(vertex, distance(metric,
+          (VectorLiteral) vertex.getProperties().get("embedding"), FloatVectorLiteral.of(query))))
+        .sorted(Comparator.comparingDouble(Neighbor::getDistance)
+          .thenComparingLong(neighbor -> neighbor.getVertex().getId()))
+        .limit(50)
+        .collect(Collectors.toList());
+      List<Neighbor> sequential = new VectorSearch.Builder().setMetric(metric).build(store)
+        .search(FloatVectorLiteral.of(query), 50);
+      List<Neighbor> parallel = new VectorSearch.Builder().setMetric(metric).setParallel(true).build(store)
+        .search(FloatVectorLiteral.of(query), 50);
+
+      assertEquals(metric.toString(), ids(expected), ids(sequential));
+      assertEquals(metric.toString(), sequential, parallel);
+    }
+  }
+
+  @Test
+  public void edgeCasesTest() {
+    VectorStore store = VectorStore.fromHandler(getData(), "Doc", "embedding");
+    VectorSearch search = new VectorSearch.Builder().build(store);
+
+    assertTrue(search.search(FloatVectorLiteral.of(1.0f, 1.0f), 0).isEmpty());
+    assertEquals(3, search.search(FloatVectorLiteral.of(1.0f, 1.0f), 10).size());
+    assertEquals(3, search.search(DoubleVectorLiteral.of(1.0, 1.0), 10).size());
+    assertEquals(0, VectorStore.fromHandler(getData(), "Missing", "embedding").size());
+    assertThrows(IllegalArgumentException.class, () -> search.search(FloatVectorLiteral.of(1.0f), 1));
+    assertThrows(IllegalArgumentException.class, () -> search.search(FloatVectorLiteral.of(1.0f, 1.0f), -1));
+    assertThrows(IllegalArgumentException.class, () -> VectorStore.fromHandler(
+      new GDLHandler.Builder().buildFromString("(:A {v : vector([1.0])}), (:A {v : vector([1.0, 2.0])})"),
+      "A", "v"));
+  }
+
+  private static double distance(VectorMetric metric, VectorLiteral a, VectorLiteral b) {
+    double dot = 0;
+    double normA = 0;
+    double normB = 0;
+    double l2 = 0;
+    for (int i = 0; i < a.size(); i++) {
+      dot += a.getDouble(i) * b.getDouble(i);
+      normA += a.getDouble(i) * a.getDouble(i);
+      normB += b.getDouble(i) * b.getDouble(i);
+      l2 += (a.getDouble(i) - b.getDouble(i)) * (a.getDouble(i) - b.getDouble(i));
+    }
+    switch (metric) {
+    case COSINE:
+      return normA == 0 || normB == 0 ? 1 : 1 - dot / Math.sqrt(normA * normB);
+    case DOT_PRODUCT:
+      return -dot;
+    default:
+      return Math.sqrt(l2);
+    }
+  }
+
+  private static List<Long> ids(List<Neighbor> neighbors) {
+    return neighbors.stream().map(neighbor -> neighbor.getVertex().getId()).collect(Collectors.toList());
+  }
+
+  private static String variables(List<Neighbor> neighbors) {
+    return neighbors.stream().map(neighbor -> neighbor.getVertex().getVariable())
+      .collect(Collectors.toList()).toString();
+  }
+
+  private static GDLHandler getData() {
+    return new GDLHandler.Builder().buildFromString(
+      "(a:Doc {embedding : vector([1.0f, 0.0f])})" +
+      "(b:Doc {embedding : vector([0.0f, 1.0f])})" +
+      "(c:Doc {embedding : vector([3.0f, 3.0f])})" +
+      "(d:Other {embedding : vector([2.0d, 0.5d])})" +
+      "(e:Doc {name : \"no vector\"})");
+  }
+}